@@ -0,0 +1,71 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.EllipseShape;
+import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
+import it.unisa.progettosadgruppo19.model.shapes.LineShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Disegni sintetici per i benchmark: rettangoli, ellissi, linee e poligoni
+ * sparsi su un'area proporzionale al numero di shape, così che la densità
+ * resti simile al variare della dimensione. Una shape ogni
+ * {@value #DUPLICATE_EVERY} ripete la precedente, per dare lavoro alla
+ * rimozione dei duplicati. Con lo stesso seme il disegno è sempre lo stesso.
+ */
+final class BenchmarkShapes {
+
+    static final int DUPLICATE_EVERY = 20;
+
+    private static final double CELL = 40;
+
+    private BenchmarkShapes() {
+    }
+
+    /**
+     * Lato dell'area quadrata occupata da {@code count} shape.
+     */
+    static double side(int count) {
+        return Math.ceil(Math.sqrt(count)) * CELL;
+    }
+
+    static List<AbstractShape> create(int count, long seed) {
+        Random random = new Random(seed);
+        double side = side(count);
+        List<AbstractShape> shapes = new ArrayList<>(count);
+        double x = 0, y = 0, w = 0, h = 0;
+        int kind = 0;
+        for (int i = 0; i < count; i++) {
+            if (i % DUPLICATE_EVERY != DUPLICATE_EVERY - 1) {
+                x = random.nextDouble() * side;
+                y = random.nextDouble() * side;
+                w = 5 + random.nextDouble() * 30;
+                h = 5 + random.nextDouble() * 30;
+                kind = i % 4;
+            }
+            AbstractShape shape = switch (kind) {
+                case 0 -> new RectangleShape(x, y, w, h);
+                case 1 -> new EllipseShape(x + w / 2, y + h / 2, w / 2, h / 2, Color.BLUE);
+                case 2 -> new LineShape(x, y, x + w, y + h, Color.RED);
+                default -> polygon(x, y, w, h);
+            };
+            shape.getNode().setUserData(shape);
+            shapes.add(shape);
+        }
+        return shapes;
+    }
+
+    private static AbstractShape polygon(double x, double y, double w, double h) {
+        FreeFormPolygonShape polygon = new FreeFormPolygonShape(x, y, Color.GREEN);
+        polygon.addPoint(x + w, y);
+        polygon.addPoint(x + w, y + h * 0.6);
+        polygon.addPoint(x + w / 2, y + h);
+        polygon.addPoint(x, y + h * 0.6);
+        return polygon;
+    }
+}
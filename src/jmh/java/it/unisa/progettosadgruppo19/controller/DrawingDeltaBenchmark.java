@@ -0,0 +1,59 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Differenze registrate dal journal dopo un comando che sposta una sola
+ * shape, su disegni da 1k a 100k shape. Con {@code TRACKED} il disegno è una
+ * {@link ShapeList} e le differenze partono dalle modifiche raccolte; con
+ * {@code PLAIN} è una lista qualsiasi e va scorsa tutta.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class DrawingDeltaBenchmark {
+
+    private static final int TRACK = AbstractShape.TRACK_JOURNAL;
+
+    @Param({"1000", "10000", "100000"})
+    public int shapes;
+
+    @Param({"TRACKED", "PLAIN"})
+    public String list;
+
+    private List<AbstractShape> drawing;
+    private long generation;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        drawing = "TRACKED".equals(list) ? new ShapeList() : new ArrayList<>();
+        drawing.addAll(BenchmarkShapes.create(shapes, 42));
+        generation = 1;
+        DrawingDelta.full(drawing, TRACK, 0, generation);
+    }
+
+    @Benchmark
+    public DrawingDelta moveOneShape() {
+        long stamp = AbstractShape.currentModificationStamp();
+        AbstractShape shape = drawing.get(next);
+        next = (next + 7919) % drawing.size();
+        shape.setX(shape.getX() + 1);
+        DrawingDelta delta = DrawingDelta.compute(drawing, TRACK, generation, drawing.size(), stamp,
+                generation + 1);
+        generation = delta.generation;
+        return delta;
+    }
+}
@@ -0,0 +1,74 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import javafx.scene.layout.Pane;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ricerca della shape sotto il puntatore con
+ * {@link MouseEventHandler#findShapeAtPoint(double, double)} su disegni di
+ * dimensione crescente. I punti di prova sono calcolati una volta e scorsi
+ * a rotazione; circa metà cade su una shape.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class HitTestBenchmark {
+
+    private static final int POINTS = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int shapes;
+
+    private MouseEventHandler handler;
+    private double[] points;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Pane pane = new Pane();
+        List<AbstractShape> currentShapes = new ArrayList<>();
+        ShapeManager manager = new ShapeManager(currentShapes, pane);
+        List<AbstractShape> drawing = BenchmarkShapes.create(shapes, 42);
+        for (AbstractShape shape : drawing) {
+            manager.addShape(shape);
+        }
+        handler = new MouseEventHandler(pane, currentShapes);
+        handler.setShapeManager(manager);
+
+        // metà dei punti al centro di una shape, metà a caso
+        Random random = new Random(7);
+        double side = BenchmarkShapes.side(shapes);
+        points = new double[POINTS * 2];
+        for (int i = 0; i < POINTS; i++) {
+            if (i % 2 == 0) {
+                AbstractShape target = drawing.get(random.nextInt(drawing.size()));
+                points[2 * i] = target.getNode().getBoundsInParent().getCenterX();
+                points[2 * i + 1] = target.getNode().getBoundsInParent().getCenterY();
+            } else {
+                points[2 * i] = random.nextDouble() * side;
+                points[2 * i + 1] = random.nextDouble() * side;
+            }
+        }
+    }
+
+    @Benchmark
+    public Shape findShapeAtPoint() {
+        int i = next;
+        next = (i + 1) % POINTS;
+        return handler.findShapeAtPoint(points[2 * i], points[2 * i + 1]);
+    }
+}
@@ -0,0 +1,74 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.serialization.DrawingData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Salvataggio completo, caricamento con ricostruzione delle shape e rimozione
+ * dei duplicati di {@link ShapeFileManager} su disegni da 1k a 100k shape.
+ * Il salvataggio riscrive ogni volta l'intero file, senza la via
+ * incrementale.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+public class ShapeFileManagerBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int shapes;
+
+    @Param({"BINARY", "LEGACY"})
+    public ShapeFileManager.FileFormat format;
+
+    private ShapeFileManager fileManager;
+    private List<AbstractShape> drawing;
+    private File saveFile;
+    private File loadFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        fileManager = new ShapeFileManager();
+        fileManager.setSaveFormat(format);
+        drawing = BenchmarkShapes.create(shapes, 42);
+        saveFile = Files.createTempFile("bench-save", ".bin").toFile();
+        loadFile = Files.createTempFile("bench-load", ".bin").toFile();
+        fileManager.writeSnapshot(fileManager.snapshot(drawing), loadFile, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        saveFile.delete();
+        loadFile.delete();
+    }
+
+    @Benchmark
+    public ShapeFileManager.SaveResult save() throws IOException {
+        return fileManager.writeSnapshot(fileManager.snapshot(drawing), saveFile, 0);
+    }
+
+    @Benchmark
+    public List<AbstractShape> load() throws IOException, ClassNotFoundException {
+        DrawingData data = fileManager.loadFromFile(loadFile);
+        return fileManager.rebuildShapes(data);
+    }
+
+    @Benchmark
+    public List<AbstractShape> removeDuplicates() {
+        return fileManager.removeDuplicateShapes(drawing);
+    }
+}
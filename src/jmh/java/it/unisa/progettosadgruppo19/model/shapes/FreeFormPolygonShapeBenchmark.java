@@ -0,0 +1,64 @@
+package it.unisa.progettosadgruppo19.model.shapes;
+
+import javafx.scene.paint.Color;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operazioni di {@link FreeFormPolygonShape} usate durante l'interazione:
+ * test di contenimento, spostamento e copia.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class FreeFormPolygonShapeBenchmark {
+
+    private static final double CENTER = 500;
+    private static final double RADIUS = 200;
+
+    @Param({"8", "64", "512"})
+    public int vertices;
+
+    private FreeFormPolygonShape polygon;
+    private double step = 1;
+
+    @Setup
+    public void setUp() {
+        polygon = new FreeFormPolygonShape(CENTER + RADIUS, CENTER, Color.BLACK);
+        for (int i = 1; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            polygon.addPoint(CENTER + RADIUS * Math.cos(angle), CENTER + RADIUS * Math.sin(angle));
+        }
+    }
+
+    @Benchmark
+    public boolean containsInside() {
+        return polygon.contains(CENTER + 10, CENTER - 10);
+    }
+
+    @Benchmark
+    public boolean containsOutside() {
+        return polygon.contains(CENTER + 2 * RADIUS, CENTER);
+    }
+
+    @Benchmark
+    public double translate() {
+        // avanti e indietro, così il poligono resta nella stessa zona
+        step = -step;
+        polygon.translate(step, step);
+        return polygon.getX();
+    }
+
+    @Benchmark
+    public FreeFormPolygonShape cloneShape() {
+        return polygon.clone();
+    }
+}
@@ -0,0 +1,105 @@
+package it.unisa.progettosadgruppo19.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Test geometrici di {@link GeometryUtils} su poligoni di dimensione
+ * crescente, sia nella variante su array di coordinate sia in quella su
+ * {@code List<Double>}, per misurare anche il costo del boxing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class GeometryUtilsBenchmark {
+
+    private static final double CENTER = 500;
+    private static final double RADIUS = 200;
+    private static final double TOLERANCE = 5;
+
+    @Param({"8", "64", "512"})
+    public int vertices;
+
+    private double[] coords;
+    private List<Double> points;
+
+    @Setup
+    public void setUp() {
+        // poligono regolare: convesso, così il test di convessità lo scorre tutto
+        coords = new double[vertices * 2];
+        points = new ArrayList<>(vertices * 2);
+        for (int i = 0; i < vertices; i++) {
+            double angle = 2 * Math.PI * i / vertices;
+            coords[2 * i] = CENTER + RADIUS * Math.cos(angle);
+            coords[2 * i + 1] = CENTER + RADIUS * Math.sin(angle);
+            points.add(coords[2 * i]);
+            points.add(coords[2 * i + 1]);
+        }
+    }
+
+    @Benchmark
+    public boolean isNearLine() {
+        return GeometryUtils.isNearLine(CENTER, CENTER + 3, 0, CENTER, 2 * CENTER, CENTER, TOLERANCE);
+    }
+
+    @Benchmark
+    public boolean pointInPolygonArray() {
+        return GeometryUtils.isPointInPolygon(CENTER + 10, CENTER - 10, coords, coords.length);
+    }
+
+    @Benchmark
+    public boolean pointInPolygonList() {
+        return GeometryUtils.isPointInPolygon(CENTER + 10, CENTER - 10, points);
+    }
+
+    @Benchmark
+    public boolean nearBorderArray() {
+        // punto lontano dal bordo: nessuna uscita anticipata
+        return GeometryUtils.isNearPolygonBorder(CENTER, CENTER, coords, coords.length, TOLERANCE);
+    }
+
+    @Benchmark
+    public boolean nearBorderList() {
+        return GeometryUtils.isNearPolygonBorder(CENTER, CENTER, points, TOLERANCE);
+    }
+
+    @Benchmark
+    public double areaArray() {
+        return GeometryUtils.calculatePolygonArea(coords, coords.length);
+    }
+
+    @Benchmark
+    public double areaList() {
+        return GeometryUtils.calculatePolygonArea(points);
+    }
+
+    @Benchmark
+    public double perimeterArray() {
+        return GeometryUtils.calculatePolygonPerimeter(coords, coords.length);
+    }
+
+    @Benchmark
+    public double perimeterList() {
+        return GeometryUtils.calculatePolygonPerimeter(points);
+    }
+
+    @Benchmark
+    public boolean convexArray() {
+        return GeometryUtils.isPolygonConvex(coords, coords.length);
+    }
+
+    @Benchmark
+    public boolean convexList() {
+        return GeometryUtils.isPolygonConvex(points);
+    }
+}
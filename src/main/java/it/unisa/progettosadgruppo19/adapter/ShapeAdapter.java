@@ -66,7 +66,7 @@ public class ShapeAdapter implements Serializable {
 
         // Gestione speciale per FreeFormPolygonShape
         if (shape instanceof FreeFormPolygonShape polygonShape) {
-            return new ShapeData(
+            ShapeData data = new ShapeData(
                     type,
                     shape.getX(),
                     shape.getY(),
@@ -75,9 +75,12 @@ public class ShapeAdapter implements Serializable {
                     shape.getRotation(),
                     strokeColor,
                     fillColor,
-                    polygonShape.getPointsAsString(), // Serializza i vertici come stringa
+                    null,
                     0 // fontSize non applicabile per i poligoni
             );
+            // I vertici restano numerici: la stringa serve solo al formato legacy
+            data.setPolygonCoordinates(polygonShape.getCoordinates());
+            return data;
         }
 
         // Gestione standard per altre forme (Rectangle, Ellipse, Line)
@@ -0,0 +1,176 @@
+package it.unisa.progettosadgruppo19.command;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
+import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import it.unisa.progettosadgruppo19.model.shapes.TextShape;
+
+import javafx.scene.Node;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Stima della memoria trattenuta da un comando nella cronologia di undo/redo.
+ * <p>
+ * La stima è euristica e volutamente economica: vengono esaminati solo i
+ * campi di istanza del comando (senza ricorsione negli oggetti collaboratori,
+ * come i receiver, che sono condivisi). Una shape conta per intero solo se è
+ * il comando a tenerla in vita, cioè se non fa più parte del disegno (ad
+ * esempio dopo una cancellazione); altrimenti conta come un riferimento. Chi
+ * conosce il disegno indica quali shape ne fanno parte; in mancanza vale il
+ * nodo attaccato a un Pane, che però considera trattenute dal comando anche
+ * le shape del disegno staccate perché fuori vista ({@code ViewportCuller}).
+ * I comandi possono fornire una stima esplicita implementando
+ * {@link SizedCommand}.
+ */
+public final class CommandSizeEstimator {
+
+    /**
+     * Costo fisso di un comando: intestazione dell'oggetto e campi scalari.
+     */
+    public static final long COMMAND_OVERHEAD = 64;
+
+    /**
+     * Costo indicativo di una shape con il relativo nodo JavaFX e le sue
+     * proprietà.
+     */
+    public static final long SHAPE_OVERHEAD = 1200;
+
+    private static final long REFERENCE = 16;
+    private static final long ENTRY_OVERHEAD = 48;
+
+    private static final Map<Class<?>, Field[]> FIELDS = new ConcurrentHashMap<>();
+
+    private CommandSizeEstimator() {
+    }
+
+    /**
+     * Restituisce la stima in byte della memoria trattenuta dal comando,
+     * considerando parte del disegno le shape con il nodo attaccato a un Pane.
+     */
+    public static long estimate(Command command) {
+        return estimate(command, CommandSizeEstimator::isAttached);
+    }
+
+    /**
+     * Restituisce la stima in byte della memoria trattenuta dal comando.
+     *
+     * @param live vero per le shape che fanno parte del disegno
+     */
+    public static long estimate(Command command, Predicate<? super Shape> live) {
+        if (command instanceof SizedCommand sized) {
+            return Math.max(0, sized.estimateRetainedBytes());
+        }
+        long total = COMMAND_OVERHEAD;
+        for (Field field : fieldsOf(command.getClass())) {
+            try {
+                total += estimateValue(field.get(command), live);
+            } catch (IllegalAccessException | RuntimeException e) {
+                total += REFERENCE;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Come {@link #estimateShape(Shape, Predicate)}, considerando parte del
+     * disegno le shape con il nodo attaccato a un Pane.
+     */
+    public static long estimateShape(Shape shape) {
+        return estimateShape(shape, CommandSizeEstimator::isAttached);
+    }
+
+    /**
+     * Stima il costo di una shape: piena se trattenuta solo dal comando,
+     * altrimenti quello di un riferimento.
+     *
+     * @param live vero per le shape che fanno parte del disegno
+     */
+    public static long estimateShape(Shape shape, Predicate<? super Shape> live) {
+        if (shape == null) {
+            return 0;
+        }
+        if (live.test(shape)) {
+            return REFERENCE;
+        }
+        long size = SHAPE_OVERHEAD;
+        AbstractShape base = AbstractShape.unwrapToAbstract(shape);
+        if (base instanceof FreeFormPolygonShape polygon) {
+            // buffer primitivo più la lista osservabile del nodo Polygon
+            size += polygon.getCoordinateCount() * 24L;
+        } else if (base instanceof TextShape text && text.getText() != null) {
+            size += text.getText().length() * 2L;
+        }
+        return size;
+    }
+
+    /**
+     * Vero se il nodo della shape è attaccato a un Pane.
+     */
+    public static boolean isAttached(Shape shape) {
+        Node node = shape.getNode();
+        return node != null && node.getParent() != null;
+    }
+
+    private static long estimateValue(Object value, Predicate<? super Shape> live) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Shape shape) {
+            return REFERENCE + estimateShape(shape, live);
+        }
+        if (value instanceof double[] a) {
+            return 16 + a.length * 8L;
+        }
+        if (value instanceof int[] a) {
+            return 16 + a.length * 4L;
+        }
+        if (value instanceof String str) {
+            return 40 + str.length() * 2L;
+        }
+        if (value instanceof Collection<?> c) {
+            long size = 40;
+            for (Object element : c) {
+                size += element instanceof Shape s ? REFERENCE + estimateShape(s, live) : REFERENCE + 16;
+            }
+            return size;
+        }
+        if (value instanceof Map<?, ?> m) {
+            long size = 48;
+            for (Map.Entry<?, ?> e : m.entrySet()) {
+                size += ENTRY_OVERHEAD;
+                size += e.getKey() instanceof Shape s ? estimateShape(s, live) : 16;
+                size += e.getValue() instanceof Shape s ? estimateShape(s, live) : 16;
+            }
+            return size;
+        }
+        return REFERENCE;
+    }
+
+    private static Field[] fieldsOf(Class<?> type) {
+        return FIELDS.computeIfAbsent(type, t -> {
+            List<Field> fields = new ArrayList<>();
+            for (Class<?> c = t; c != null && c != Object.class; c = c.getSuperclass()) {
+                for (Field f : c.getDeclaredFields()) {
+                    if (Modifier.isStatic(f.getModifiers()) || f.getType().isPrimitive()) {
+                        continue;
+                    }
+                    try {
+                        f.setAccessible(true);
+                        fields.add(f);
+                    } catch (RuntimeException e) {
+                        // campo non accessibile: contato come semplice riferimento
+                    }
+                }
+            }
+            return fields.toArray(new Field[0]);
+        });
+    }
+}
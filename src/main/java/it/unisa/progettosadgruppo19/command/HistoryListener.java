@@ -0,0 +1,25 @@
+package it.unisa.progettosadgruppo19.command;
+
+/**
+ * Osservatore dei comandi eseguiti, annullati o ripetuti tramite
+ * {@link StackUndoInvoker}. Viene notificato sul thread dell'invoker (il
+ * thread JavaFX) subito dopo l'operazione.
+ */
+@FunctionalInterface
+public interface HistoryListener {
+
+    /**
+     * Operazione eseguita sulla cronologia.
+     */
+    enum Operation {
+        EXECUTE,
+        UNDO,
+        REDO
+    }
+
+    /**
+     * @param operation operazione appena eseguita
+     * @param command comando coinvolto
+     */
+    void historyChanged(Operation operation, Command command);
+}
@@ -0,0 +1,24 @@
+package it.unisa.progettosadgruppo19.command;
+
+/**
+ * Comando undoable che può assorbire un comando successivo compatibile, così
+ * che una sequenza rapida di modifiche sullo stesso bersaglio (trascinamento
+ * dello slider di rotazione, spostamenti ripetuti) occupi una sola voce nella
+ * cronologia.
+ * <p>
+ * Il comando corrente conserva lo stato originale per l'undo e adotta lo
+ * stato finale del comando assorbito: un undo della voce fusa riporta il
+ * bersaglio allo stato precedente all'intera sequenza.
+ */
+public interface MergeableCommand extends UndoableCommand {
+
+    /**
+     * Tenta di fondere nel comando corrente il comando {@code next}, già
+     * eseguito subito dopo di esso.
+     *
+     * @param next il comando appena eseguito
+     * @return {@code true} se {@code next} è stato assorbito e non deve essere
+     * aggiunto alla cronologia
+     */
+    boolean mergeWith(UndoableCommand next);
+}
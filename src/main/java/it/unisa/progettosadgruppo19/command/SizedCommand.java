@@ -0,0 +1,14 @@
+package it.unisa.progettosadgruppo19.command;
+
+/**
+ * Comando in grado di stimare la memoria che trattiene finché resta nella
+ * cronologia di undo/redo. Se non implementata, la stima viene calcolata da
+ * {@link CommandSizeEstimator} a partire dai campi del comando.
+ */
+public interface SizedCommand {
+
+    /**
+     * @return stima in byte della memoria trattenuta dal comando
+     */
+    long estimateRetainedBytes();
+}
@@ -1,44 +1,384 @@
 package it.unisa.progettosadgruppo19.command;
 
-import java.util.Stack;
+import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import it.unisa.progettosadgruppo19.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
 
 /**
- * Invoker per comandi undoable che utilizza uno stack per memorizzare i comandi
- * eseguiti e supportare l'operazione di undo.
+ * Invoker per comandi undoable che memorizza i comandi eseguiti e supporta le
+ * operazioni di undo e redo.
+ * <p>
+ * La cronologia è limitata in memoria: per ogni comando viene stimata la
+ * memoria trattenuta ({@link CommandSizeEstimator}) e, quando il totale di
+ * undo e redo supera il budget in byte o il numero massimo di comandi, i
+ * comandi più vecchi vengono scartati. L'ultimo comando eseguito resta sempre
+ * annullabile, anche se da solo supera il budget.
+ * <p>
+ * I comandi che implementano {@link MergeableCommand} vengono fusi con il
+ * comando precedente quando arrivano entro {@link #DEFAULT_MERGE_WINDOW_MS}
+ * millisecondi dall'ultima modifica della stessa voce e non ci sono stati undo
+ * nel frattempo.
+ * <p>
+ * Ogni esecuzione, undo o redo viene notificata ai {@link HistoryListener}
+ * registrati (ad esempio il journal di recupero).
  */
 public class StackUndoInvoker {
 
+    private static final Log LOG = Log.get(StackUndoInvoker.class);
+
+    /**
+     * Numero massimo predefinito di comandi conservati.
+     */
+    public static final int DEFAULT_MAX_COMMANDS = 500;
+
     /**
-     * Stack dei comandi eseguiti che supportano l'undo.
+     * Budget di memoria predefinito per la cronologia (32 MB).
      */
-    private Stack<UndoableCommand> stack = new Stack<>();
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * Finestra predefinita entro cui comandi compatibili vengono fusi.
+     */
+    public static final long DEFAULT_MERGE_WINDOW_MS = 800;
+
+    /**
+     * Comando nella cronologia con la relativa stima di memoria.
+     */
+    private static final class Entry {
+
+        final UndoableCommand command;
+        long bytes;
+        long lastUpdateNanos;
+
+        Entry(UndoableCommand command, long bytes, long now) {
+            this.command = command;
+            this.bytes = bytes;
+            this.lastUpdateNanos = now;
+        }
+    }
+
+    /**
+     * Comandi annullabili: il primo elemento è il più recente.
+     */
+    private final Deque<Entry> undoStack = new ArrayDeque<>();
+
+    /**
+     * Comandi ripetibili: il primo elemento è l'ultimo annullato.
+     */
+    private final Deque<Entry> redoStack = new ArrayDeque<>();
+
+    private int maxCommands;
+    private long maxBytes;
+
+    private long mergeWindowNanos = TimeUnit.MILLISECONDS.toNanos(DEFAULT_MERGE_WINDOW_MS);
+    private final LongSupplier clock;
+
+    /**
+     * Vero se l'ultima operazione sulla cronologia è stata un'esecuzione: dopo
+     * un undo o un redo il comando in cima non viene più esteso.
+     */
+    private boolean mergeOpen = false;
+
+    private final List<HistoryListener> listeners = new ArrayList<>(1);
+
+    private Predicate<Shape> liveShapes = CommandSizeEstimator::isAttached;
+
+    private long retainedBytes = 0;
+    private long evictedCommands = 0;
+    private long evictedBytes = 0;
+    private long mergedCommands = 0;
+
+    public StackUndoInvoker() {
+        this(DEFAULT_MAX_COMMANDS, DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxCommands numero massimo di comandi tra undo e redo
+     * @param maxBytes memoria massima stimata per la cronologia
+     */
+    public StackUndoInvoker(int maxCommands, long maxBytes) {
+        this(maxCommands, maxBytes, System::nanoTime);
+    }
+
+    /**
+     * Costruttore con orologio esplicito, usato dai test per controllare la
+     * finestra di fusione.
+     */
+    StackUndoInvoker(int maxCommands, long maxBytes, LongSupplier clock) {
+        this.maxCommands = Math.max(1, maxCommands);
+        this.maxBytes = Math.max(0, maxBytes);
+        this.clock = clock;
+    }
 
     /**
      * Esegue il comando specificato: lo invoca e, se implementa
-     * {@link UndoableCommand}, lo aggiunge allo stack.
+     * {@link UndoableCommand}, lo aggiunge alla cronologia svuotando i redo.
      *
      * @param command il comando da eseguire; non può essere {@code null}
      */
     public void execute(Command command) {
         command.execute();
         if (command instanceof UndoableCommand uc) {
-            stack.push(uc);
-            System.out.println("[STACK] Comando aggiunto: " + uc.getClass().getSimpleName() + " (size=" + stack.size() + ")");
+            clearRedo();
+            long now = clock.getAsLong();
+            if (!tryMerge(uc, now)) {
+                Entry entry = new Entry(uc, CommandSizeEstimator.estimate(uc, liveShapes), now);
+                undoStack.push(entry);
+                retainedBytes += entry.bytes;
+                mergeOpen = true;
+                enforceBudget();
+                LOG.debug(() -> "[STACK] Comando aggiunto: " + uc.getClass().getSimpleName()
+                        + " (size=" + undoStack.size() + ", ~" + entry.bytes + " byte)");
+            }
         } else {
-            System.out.println("[STACK] Comando NON undoable: " + command.getClass().getSimpleName());
+            LOG.debug(() -> "[STACK] Comando NON undoable: " + command.getClass().getSimpleName());
+        }
+        notifyListeners(HistoryListener.Operation.EXECUTE, command);
+    }
+
+    /**
+     * Fonde il comando appena eseguito in quello in cima alla cronologia, se
+     * quest'ultimo lo accetta ed è stato aggiornato entro la finestra.
+     */
+    private boolean tryMerge(UndoableCommand command, long now) {
+        Entry top = undoStack.peek();
+        if (!mergeOpen || top == null || !(top.command instanceof MergeableCommand mergeable)
+                || now - top.lastUpdateNanos > mergeWindowNanos
+                || !mergeable.mergeWith(command)) {
+            return false;
         }
+        top.lastUpdateNanos = now;
+        retainedBytes -= top.bytes;
+        reestimate(top);
+        retainedBytes += top.bytes;
+        mergedCommands++;
+        enforceBudget();
+        LOG.debug(() -> "[STACK] Comando fuso: " + command.getClass().getSimpleName()
+                + " (size=" + undoStack.size() + ")");
+        return true;
     }
 
     /**
      * Annulla l'ultimo comando eseguito, se presente.
      */
     public void undo() {
-        if (!stack.isEmpty()) {
-            UndoableCommand cmd = stack.pop();
-            System.out.println("[UNDO] Eseguo undo: " + cmd.getClass().getSimpleName() + " (rimasti=" + stack.size() + ")");
-            cmd.undo();
-        } else {
-            System.out.println("[UNDO] Stack vuoto");
+        Entry entry = undoStack.poll();
+        if (entry == null) {
+            LOG.debug("[UNDO] Stack vuoto");
+            return;
+        }
+        LOG.debug(() -> "[UNDO] Eseguo undo: " + entry.command.getClass().getSimpleName()
+                + " (rimasti=" + undoStack.size() + ")");
+        entry.command.undo();
+        mergeOpen = false;
+        // dopo l'undo il comando può trattenere shape diverse (es. una creazione annullata)
+        retainedBytes -= entry.bytes;
+        reestimate(entry);
+        retainedBytes += entry.bytes;
+        redoStack.push(entry);
+        enforceBudget();
+        notifyListeners(HistoryListener.Operation.UNDO, entry.command);
+    }
+
+    /**
+     * Ripete l'ultimo comando annullato, se presente.
+     */
+    public void redo() {
+        Entry entry = redoStack.poll();
+        if (entry == null) {
+            LOG.debug("[REDO] Nessun comando da ripetere");
+            return;
+        }
+        LOG.debug(() -> "[REDO] Eseguo redo: " + entry.command.getClass().getSimpleName()
+                + " (rimasti=" + redoStack.size() + ")");
+        entry.command.redo();
+        mergeOpen = false;
+        retainedBytes -= entry.bytes;
+        reestimate(entry);
+        retainedBytes += entry.bytes;
+        undoStack.push(entry);
+        enforceBudget();
+        notifyListeners(HistoryListener.Operation.REDO, entry.command);
+    }
+
+    public boolean canUndo() {
+        return !undoStack.isEmpty();
+    }
+
+    public boolean canRedo() {
+        return !redoStack.isEmpty();
+    }
+
+    /**
+     * Svuota l'intera cronologia.
+     */
+    public void clear() {
+        undoStack.clear();
+        redoStack.clear();
+        retainedBytes = 0;
+        mergeOpen = false;
+    }
+
+    /**
+     * Chiude la voce in cima alla cronologia: il prossimo comando ne creerà
+     * una nuova anche se compatibile (es. fine di un gesto dell'utente).
+     */
+    public void sealLast() {
+        mergeOpen = false;
+    }
+
+    /**
+     * Indica quali shape fanno parte del disegno: i comandi le trattengono
+     * solo come riferimento, mentre le altre (ad esempio quelle cancellate)
+     * contano per intero nel budget di memoria. Senza questa informazione
+     * vale il nodo attaccato a un Pane.
+     */
+    public void setLiveShapes(Predicate<Shape> liveShapes) {
+        this.liveShapes = liveShapes != null ? liveShapes : CommandSizeEstimator::isAttached;
+    }
+
+    private void reestimate(Entry entry) {
+        entry.bytes = CommandSizeEstimator.estimate(entry.command, liveShapes);
+    }
+
+    /**
+     * Imposta la finestra di fusione; 0 disabilita la fusione dei comandi.
+     */
+    public void setMergeWindowMillis(long millis) {
+        this.mergeWindowNanos = millis <= 0 ? -1 : TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    public long getMergeWindowMillis() {
+        return mergeWindowNanos < 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(mergeWindowNanos);
+    }
+
+    public void addHistoryListener(HistoryListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeHistoryListener(HistoryListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void notifyListeners(HistoryListener.Operation operation, Command command) {
+        for (HistoryListener listener : listeners) {
+            listener.historyChanged(operation, command);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Budget
+    // ---------------------------------------------------------------------
+
+    public void setMaxCommands(int maxCommands) {
+        this.maxCommands = Math.max(1, maxCommands);
+        enforceBudget();
+    }
+
+    public void setMaxBytes(long maxBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        enforceBudget();
+    }
+
+    public int getMaxCommands() {
+        return maxCommands;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Scarta i comandi più vecchi finché la cronologia rientra nei budget:
+     * prima i redo più lontani, poi gli undo più vecchi, lasciando sempre
+     * almeno il comando più recente.
+     */
+    private void enforceBudget() {
+        int evicted = 0;
+        while (isOverBudget() && getHistorySize() > 1) {
+            Entry oldest = redoStack.size() > 0 ? redoStack.pollLast() : undoStack.pollLast();
+            retainedBytes -= oldest.bytes;
+            evictedBytes += oldest.bytes;
+            evictedCommands++;
+            evicted++;
+        }
+        int count = evicted;
+        if (count > 0) {
+            LOG.info(() -> "[STACK] Scartati " + count + " comandi per limite di memoria ("
+                    + getHistorySize() + " comandi, ~" + retainedBytes + " byte)");
+        }
+    }
+
+    private boolean isOverBudget() {
+        return getHistorySize() > maxCommands || retainedBytes > maxBytes;
+    }
+
+    // ---------------------------------------------------------------------
+    // Metriche
+    // ---------------------------------------------------------------------
+
+    public int getUndoCount() {
+        return undoStack.size();
+    }
+
+    public int getRedoCount() {
+        return redoStack.size();
+    }
+
+    /**
+     * Numero totale di comandi conservati (undo + redo).
+     */
+    public int getHistorySize() {
+        return undoStack.size() + redoStack.size();
+    }
+
+    /**
+     * Memoria stimata trattenuta dalla cronologia, in byte.
+     */
+    public long getRetainedBytes() {
+        return retainedBytes;
+    }
+
+    /**
+     * Numero di comandi scartati dall'inizio della sessione.
+     */
+    public long getEvictedCommands() {
+        return evictedCommands;
+    }
+
+    /**
+     * Memoria stimata liberata dagli scarti dall'inizio della sessione.
+     */
+    public long getEvictedBytes() {
+        return evictedBytes;
+    }
+
+    /**
+     * Numero di comandi fusi in voci esistenti dall'inizio della sessione.
+     */
+    public long getMergedCommands() {
+        return mergedCommands;
+    }
+
+    /**
+     * Riepilogo testuale delle metriche della cronologia.
+     */
+    public String getHistoryInfo() {
+        return String.format("undo=%d redo=%d memoria≈%d/%d byte scartati=%d fusi=%d",
+                getUndoCount(), getRedoCount(), retainedBytes, maxBytes, evictedCommands, mergedCommands);
+    }
+
+    private void clearRedo() {
+        for (Entry entry : redoStack) {
+            retainedBytes -= entry.bytes;
         }
+        redoStack.clear();
     }
 }
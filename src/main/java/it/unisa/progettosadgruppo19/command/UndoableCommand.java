@@ -9,4 +9,12 @@ public interface UndoableCommand extends Command {
      * Annulla l'azione precedentemente eseguita dal comando.
      */
     void undo();
+
+    /**
+     * Ripete l'azione dopo un undo. Di default il comando viene eseguito di
+     * nuovo; i comandi la cui esecuzione non è ripetibile possono ridefinirlo.
+     */
+    default void redo() {
+        execute();
+    }
 }
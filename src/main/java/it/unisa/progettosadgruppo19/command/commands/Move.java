@@ -1,10 +1,12 @@
 // Sostituisci il comando Move esistente con questa versione migliorata
 package it.unisa.progettosadgruppo19.command.commands;
 
+import it.unisa.progettosadgruppo19.command.MergeableCommand;
 import it.unisa.progettosadgruppo19.command.MouseMultiInputs;
 import it.unisa.progettosadgruppo19.command.UndoableCommand;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
+import it.unisa.progettosadgruppo19.util.Log;
 import javafx.scene.Node;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.shape.Ellipse;
@@ -17,11 +19,13 @@ import javafx.scene.text.Text;
  * Comando undoable per spostare qualsiasi tipo di shape, inclusi i poligoni con
  * gestione specializzata.
  */
-public class Move implements MouseMultiInputs, UndoableCommand {
+public class Move implements MouseMultiInputs, MergeableCommand {
+
+    private static final Log LOG = Log.get(Move.class);
 
     private final Shape shape;
     private final double oldX1, oldY1, oldX2, oldY2;
-    private final double newX1, newY1, newX2, newY2;
+    private double newX1, newY1, newX2, newY2;
     private boolean executed;
 
     // Costruttore per shape con una sola posizione (Rectangle, Ellipse, Text, Polygon)
@@ -101,7 +105,7 @@ public class Move implements MouseMultiInputs, UndoableCommand {
         }
 
         executed = true;
-        System.out.println("[MOVE] Spostato " + shape.getClass().getSimpleName()
+        LOG.debug(() -> "[MOVE] Spostato " + shape.getClass().getSimpleName()
                 + " da (" + oldX1 + ", " + oldY1 + ") a (" + newX1 + ", " + newY1 + ")");
     }
 
@@ -143,10 +147,33 @@ public class Move implements MouseMultiInputs, UndoableCommand {
             shape.setY(oldY1);
         }
 
-        System.out.println("[UNDO MOVE] Ripristinato " + shape.getClass().getSimpleName()
+        LOG.debug(() -> "[UNDO MOVE] Ripristinato " + shape.getClass().getSimpleName()
                 + " alla posizione (" + oldX1 + ", " + oldY1 + ")");
     }
 
+    /**
+     * Assorbe uno spostamento successivo della stessa shape. Per i poligoni,
+     * spostati per differenza, si accumula lo spostamento; per le altre shape
+     * basta adottare la posizione finale.
+     */
+    @Override
+    public boolean mergeWith(UndoableCommand next) {
+        if (!(next instanceof Move other) || other.shape != shape
+                || Double.isNaN(newX2) != Double.isNaN(other.newX2)) {
+            return false;
+        }
+        if (shape instanceof FreeFormPolygonShape) {
+            this.newX1 += other.newX1 - other.oldX1;
+            this.newY1 += other.newY1 - other.oldY1;
+        } else {
+            this.newX1 = other.newX1;
+            this.newY1 = other.newY1;
+            this.newX2 = other.newX2;
+            this.newY2 = other.newY2;
+        }
+        return true;
+    }
+
     @Override
     public boolean isExecutable() {
         return executed;
@@ -5,6 +5,7 @@ import it.unisa.progettosadgruppo19.command.receivers.ShapeManagerReceiver;
 import it.unisa.progettosadgruppo19.command.receivers.ClipboardReceiver;
 import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import it.unisa.progettosadgruppo19.util.Log;
 
 /**
  * Comando undoable per incollare una {@link Shape} salvata nel clipboard in una
@@ -12,6 +13,8 @@ import it.unisa.progettosadgruppo19.model.shapes.Shape;
  */
 public class Paste implements UndoableCommand {
 
+    private static final Log LOG = Log.get(Paste.class);
+
     private final ClipboardReceiver clipboard;
     private final ShapeManagerReceiver shapeManager;
     private Shape pastedShape;
@@ -65,9 +68,9 @@ public class Paste implements UndoableCommand {
                     // Imposta UserData per la selezione
                     pastedShape.getNode().setUserData(pastedShape);
 
-                    System.out.println("[PASTE] Figura incollata: " + pastedShape.getClass().getSimpleName()
+                    LOG.debug(() -> "[PASTE] Figura incollata: " + pastedShape.getClass().getSimpleName()
                             + " @ (" + x + ", " + y + ")");
-                    System.out.println("[PASTE] Offset applicato: (" + deltaX + ", " + deltaY + ")");
+                    LOG.debug(() -> "[PASTE] Offset applicato: (" + deltaX + ", " + deltaY + ")");
                 } else {
                     System.err.println("[PASTE ERROR] Impossibile creare una copia della shape");
                 }
@@ -77,7 +80,7 @@ public class Paste implements UndoableCommand {
                 e.printStackTrace();
             }
         } else {
-            System.out.println("[PASTE] Buffer vuoto.");
+            LOG.debug("[PASTE] Buffer vuoto.");
         }
     }
 
@@ -146,7 +149,21 @@ public class Paste implements UndoableCommand {
     public void undo() {
         if (pastedShape != null) {
             shapeManager.removeShape(pastedShape);
-            System.out.println("[UNDO PASTE] Shape rimossa: " + pastedShape.getClass().getSimpleName());
+            LOG.debug(() -> "[UNDO PASTE] Shape rimossa: " + pastedShape.getClass().getSimpleName());
+        }
+    }
+
+    /**
+     * Reinserisce la stessa shape incollata, invece di crearne una nuova copia
+     * dal contenuto corrente degli appunti.
+     */
+    @Override
+    public void redo() {
+        if (pastedShape == null) {
+            execute();
+            return;
         }
+        shapeManager.addShape(pastedShape);
+        LOG.debug(() -> "[REDO PASTE] Shape reinserita: " + pastedShape.getClass().getSimpleName());
     }
 }
@@ -4,6 +4,7 @@
  */
 package it.unisa.progettosadgruppo19.command.commands;
 
+import it.unisa.progettosadgruppo19.command.MergeableCommand;
 import it.unisa.progettosadgruppo19.command.UndoableCommand;
 import it.unisa.progettosadgruppo19.command.receivers.ShapeManagerReceiver;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
@@ -12,7 +13,7 @@ import it.unisa.progettosadgruppo19.model.shapes.Shape;
  *
  * @author mainuser
  */
-public class Rotate implements UndoableCommand {
+public class Rotate implements MergeableCommand {
 
     private ShapeManagerReceiver shapeManager;
     private Shape toRotate;
@@ -36,4 +37,17 @@ public class Rotate implements UndoableCommand {
         shapeManager.rotateShape(toRotate, degreesToRotate);
     }
 
+    /**
+     * Assorbe una rotazione successiva della stessa shape: la rotazione
+     * originale resta quella precedente alla prima modifica.
+     */
+    @Override
+    public boolean mergeWith(UndoableCommand next) {
+        if (next instanceof Rotate other && other.toRotate == toRotate) {
+            this.degreesToRotate = other.degreesToRotate;
+            return true;
+        }
+        return false;
+    }
+
 }
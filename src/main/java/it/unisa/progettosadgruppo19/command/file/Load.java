@@ -1,7 +1,9 @@
 package it.unisa.progettosadgruppo19.command.file;
 
 import it.unisa.progettosadgruppo19.command.Command;
+import it.unisa.progettosadgruppo19.controller.ProgressiveLoader;
 import it.unisa.progettosadgruppo19.controller.ShapeFileManager;
+import it.unisa.progettosadgruppo19.controller.ViewportCuller;
 import it.unisa.progettosadgruppo19.model.serialization.DrawingData;
 import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
@@ -23,6 +25,7 @@ public class Load implements Command {
     private final Pane drawingPane;
     private final ShapeFileManager fileManager;
     private File sourceFile; // Aggiunto per i test
+    private ProgressiveLoader progressiveLoader;
 
     /**
      * Costruisce un comando Load.
@@ -47,6 +50,15 @@ public class Load implements Command {
         this.sourceFile = file;
     }
 
+    /**
+     * Imposta il caricatore progressivo: se presente, il file scelto viene
+     * caricato in background senza bloccare l'interfaccia invece che in modo
+     * sincrono.
+     */
+    public void setProgressiveLoader(ProgressiveLoader progressiveLoader) {
+        this.progressiveLoader = progressiveLoader;
+    }
+
     /**
      * Esegue il comando aprendo il FileChooser, caricando il file selezionato,
      * pulendo la lista e il pane, ricostruendo le shape e aggiungendole
@@ -63,6 +75,11 @@ public class Load implements Command {
             file = chooser.showOpenDialog(stage);
         }
 
+        if (file != null && progressiveLoader != null) {
+            progressiveLoader.start(file);
+            return;
+        }
+
         if (file != null) {
             try {
                 System.out.println("\n=== LOAD START ===");
@@ -75,6 +92,11 @@ public class Load implements Command {
 
                 // Pulisci il canvas corrente
                 System.out.println("[LOAD] Pulizia canvas...");
+                ViewportCuller culler = ViewportCuller.forPane(drawingPane);
+                if (culler != null) {
+                    // le shape fuori vista del disegno precedente non sono figlie del pane
+                    culler.clear();
+                }
                 drawingPane.getChildren().clear();
                 currentShapes.clear();
 
@@ -84,6 +106,7 @@ public class Load implements Command {
                     currentShapes.add(s);
                     drawingPane.getChildren().add(s.getNode());
                 }
+                fileManager.markLoaded(file, shapes, data.getShapes().size());
 
                 System.out.println("[LOAD] Caricamento completato: " + shapes.size() + " shape caricate");
 
@@ -3,12 +3,15 @@ package it.unisa.progettosadgruppo19.command.file;
 import it.unisa.progettosadgruppo19.command.Command;
 import it.unisa.progettosadgruppo19.controller.ShapeFileManager;
 import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.util.Log;
+import javafx.application.Platform;
 import javafx.stage.FileChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Comando per salvare su file binario (*.bin) il disegno corrente. Mostra un
@@ -17,10 +20,15 @@ import java.util.List;
  */
 public class Save implements Command {
 
+    private static final Log LOG = Log.get(Save.class);
+
     private final Stage stage;
     private final List<AbstractShape> shapes;
     private final ShapeFileManager fileManager;
     private File targetFile; // Aggiunto per i test
+    private boolean async = false;
+    private Consumer<ShapeFileManager.SaveResult> onSaved;
+    private Consumer<Throwable> onFailed;
 
     /**
      * Costruisce il comando di salvataggio.
@@ -41,6 +49,29 @@ public class Save implements Command {
         this.targetFile = file;
     }
 
+    /**
+     * Abilita il salvataggio asincrono: il comando copia i dati delle shape e
+     * ritorna subito, mentre la scrittura prosegue in background.
+     */
+    public void setAsync(boolean async) {
+        this.async = async;
+    }
+
+    /**
+     * Azione eseguita sul thread JavaFX al termine di un salvataggio
+     * asincrono riuscito.
+     */
+    public void setOnSaved(Consumer<ShapeFileManager.SaveResult> onSaved) {
+        this.onSaved = onSaved;
+    }
+
+    /**
+     * Azione eseguita sul thread JavaFX se un salvataggio asincrono fallisce.
+     */
+    public void setOnFailed(Consumer<Throwable> onFailed) {
+        this.onFailed = onFailed;
+    }
+
     /**
      * Esegue il comando aprendo il dialog di salvataggio, selezionando il file
      * e scrivendo i dati tramite {@link ShapeFileManager}.
@@ -57,11 +88,26 @@ public class Save implements Command {
             file = chooser.showSaveDialog(stage);
         }
 
+        if (file != null && async) {
+            fileManager.saveToFileAsync(shapes, file).whenComplete((result, error) -> Platform.runLater(() -> {
+                if (error != null) {
+                    Throwable cause = error.getCause() != null ? error.getCause() : error;
+                    LOG.error("[SAVE ERROR] Errore durante il salvataggio: " + cause.getMessage(), cause);
+                    if (onFailed != null) {
+                        onFailed.accept(cause);
+                    }
+                } else if (onSaved != null) {
+                    onSaved.accept(result);
+                }
+            }));
+            return;
+        }
+
         if (file != null) {
             try {
                 fileManager.saveToFile(shapes, file);
             } catch (IOException e) {
-                e.printStackTrace();
+                LOG.error("[SAVE ERROR] Errore durante il salvataggio: " + e.getMessage(), e);
             }
         }
     }
@@ -5,7 +5,7 @@ import it.unisa.progettosadgruppo19.command.receivers.ShapeManagerReceiver;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -21,7 +21,7 @@ public class MultiDeleteCommand implements UndoableCommand {
     public MultiDeleteCommand(ShapeManagerReceiver shapeManager, List<Shape> shapes) {
         this.shapeManager = shapeManager;
         this.shapesToDelete = new ArrayList<>(shapes);
-        this.originalIndices = new HashMap<>();
+        this.originalIndices = new IdentityHashMap<>();
 
         // Salva gli indici originali per l'undo
         for (Shape shape : shapes) {
@@ -32,9 +32,7 @@ public class MultiDeleteCommand implements UndoableCommand {
     @Override
     public void execute() {
         System.out.println("[MULTI-DELETE] Eliminazione di " + shapesToDelete.size() + " shape");
-        for (Shape shape : shapesToDelete) {
-            shapeManager.removeShape(shape);
-        }
+        shapeManager.removeShapes(shapesToDelete);
     }
 
     @Override
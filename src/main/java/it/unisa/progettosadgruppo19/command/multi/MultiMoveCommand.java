@@ -1,8 +1,10 @@
 package it.unisa.progettosadgruppo19.command.multi;
 
+import it.unisa.progettosadgruppo19.command.MergeableCommand;
 import it.unisa.progettosadgruppo19.command.MouseMultiInputs;
 import it.unisa.progettosadgruppo19.command.UndoableCommand;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import it.unisa.progettosadgruppo19.util.Log;
 import javafx.scene.input.MouseEvent;
 
 import java.util.HashMap;
@@ -12,11 +14,13 @@ import java.util.Map;
 /**
  * Comando per spostare multiple shape simultaneamente.
  */
-public class MultiMoveCommand implements MouseMultiInputs, UndoableCommand {
+public class MultiMoveCommand implements MouseMultiInputs, MergeableCommand {
+
+    private static final Log LOG = Log.get(MultiMoveCommand.class);
 
     private final List<Shape> shapes;
-    private final double deltaX;
-    private final double deltaY;
+    private double deltaX;
+    private double deltaY;
     private final Map<Shape, Double> originalX;
     private final Map<Shape, Double> originalY;
 
@@ -36,7 +40,7 @@ public class MultiMoveCommand implements MouseMultiInputs, UndoableCommand {
 
     @Override
     public void execute() {
-        System.out.println("[MULTI-MOVE] Spostamento di " + shapes.size() + " shape di (" + deltaX + ", " + deltaY + ")");
+        LOG.debug(() -> "[MULTI-MOVE] Spostamento di " + shapes.size() + " shape di (" + deltaX + ", " + deltaY + ")");
         for (Shape shape : shapes) {
             double newX = originalX.get(shape) + deltaX;
             double newY = originalY.get(shape) + deltaY;
@@ -47,13 +51,27 @@ public class MultiMoveCommand implements MouseMultiInputs, UndoableCommand {
 
     @Override
     public void undo() {
-        System.out.println("[MULTI-MOVE UNDO] Ripristino posizioni originali di " + shapes.size() + " shape");
+        LOG.debug(() -> "[MULTI-MOVE UNDO] Ripristino posizioni originali di " + shapes.size() + " shape");
         for (Shape shape : shapes) {
             shape.setX(originalX.get(shape));
             shape.setY(originalY.get(shape));
         }
     }
 
+    /**
+     * Assorbe uno spostamento successivo dello stesso insieme di shape
+     * sommandone lo spostamento.
+     */
+    @Override
+    public boolean mergeWith(UndoableCommand next) {
+        if (next instanceof MultiMoveCommand other && MultiRotateCommand.sameShapes(shapes, other.shapes)) {
+            this.deltaX += other.deltaX;
+            this.deltaY += other.deltaY;
+            return true;
+        }
+        return false;
+    }
+
     @Override
     public void onPressed(MouseEvent e) {
     }
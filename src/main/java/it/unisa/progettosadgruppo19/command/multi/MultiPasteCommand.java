@@ -5,6 +5,7 @@ import it.unisa.progettosadgruppo19.command.receivers.ShapeManagerReceiver;
 import it.unisa.progettosadgruppo19.command.receivers.ClipboardReceiver;
 import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import it.unisa.progettosadgruppo19.util.Log;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,6 +19,8 @@ import java.util.List;
  */
 public class MultiPasteCommand implements UndoableCommand {
 
+    private static final Log LOG = Log.get(MultiPasteCommand.class);
+
     private final ClipboardReceiver clipboard;
     private final ShapeManagerReceiver shapeManager;
     private final double x, y;
@@ -69,9 +72,9 @@ public class MultiPasteCommand implements UndoableCommand {
         }
 
         if (pastedShapes.isEmpty()) {
-            System.out.println("[MULTI-PASTE] Nessuna shape da incollare");
+            LOG.debug("[MULTI-PASTE] Nessuna shape da incollare");
         } else {
-            System.out.println("[MULTI-PASTE] Incollate " + pastedShapes.size() + " shape");
+            LOG.debug(() -> "[MULTI-PASTE] Incollate " + pastedShapes.size() + " shape");
         }
     }
 
@@ -83,7 +86,7 @@ public class MultiPasteCommand implements UndoableCommand {
             List<Shape> clipboardShapes = MultiCopyCommand.MultiClipboardManager.getClipboard();
 
             if (clipboardShapes.isEmpty()) {
-                System.out.println("[MULTI-PASTE] Clipboard multiplo vuoto");
+                LOG.debug("[MULTI-PASTE] Clipboard multiplo vuoto");
                 return;
             }
 
@@ -96,7 +99,7 @@ public class MultiPasteCommand implements UndoableCommand {
             double deltaX = x - centerX;
             double deltaY = y - centerY;
 
-            System.out.println("[MULTI-PASTE] Incollaggio gruppo di " + clipboardShapes.size()
+            LOG.debug(() -> "[MULTI-PASTE] Incollaggio gruppo di " + clipboardShapes.size()
                     + " shape con offset (" + deltaX + ", " + deltaY + ")");
 
             for (Shape originalShape : clipboardShapes) {
@@ -114,7 +117,7 @@ public class MultiPasteCommand implements UndoableCommand {
                     independentCopy.getNode().setUserData(independentCopy);
                     pastedShapes.add(independentCopy);
 
-                    System.out.println("[MULTI-PASTE]   Incollata: "
+                    LOG.debug(() -> "[MULTI-PASTE]   Incollata: "
                             + independentCopy.getClass().getSimpleName()
                             + " @ (" + newX + ", " + newY + ")");
                 } else {
@@ -136,7 +139,7 @@ public class MultiPasteCommand implements UndoableCommand {
         Shape originalShape = clipboard.getClipboard();
 
         if (originalShape == null) {
-            System.out.println("[MULTI-PASTE] Clipboard standard vuoto");
+            LOG.debug("[MULTI-PASTE] Clipboard standard vuoto");
             return;
         }
 
@@ -153,7 +156,7 @@ public class MultiPasteCommand implements UndoableCommand {
                 independentCopy.getNode().setUserData(independentCopy);
                 pastedShapes.add(independentCopy);
 
-                System.out.println("[MULTI-PASTE] Shape incollata: "
+                LOG.debug(() -> "[MULTI-PASTE] Shape incollata: "
                         + independentCopy.getClass().getSimpleName()
                         + " @ (" + x + ", " + y + ")");
             } else {
@@ -235,15 +238,31 @@ public class MultiPasteCommand implements UndoableCommand {
         for (Shape shape : pastedShapes) {
             try {
                 shapeManager.removeShape(shape);
-                System.out.println("[UNDO MULTI-PASTE] Shape rimossa: " + shape.getClass().getSimpleName());
+                LOG.debug(() -> "[UNDO MULTI-PASTE] Shape rimossa: " + shape.getClass().getSimpleName());
             } catch (Exception e) {
                 System.err.println("[UNDO MULTI-PASTE] Errore nella rimozione: " + e.getMessage());
             }
         }
 
         if (!pastedShapes.isEmpty()) {
-            System.out.println("[UNDO MULTI-PASTE] Rimosse " + pastedShapes.size() + " shape");
+            LOG.debug(() -> "[UNDO MULTI-PASTE] Rimosse " + pastedShapes.size() + " shape");
+        }
+    }
+
+    /**
+     * Reinserisce le stesse shape incollate, invece di crearne nuove copie
+     * dal contenuto corrente degli appunti.
+     */
+    @Override
+    public void redo() {
+        if (pastedShapes.isEmpty()) {
+            execute();
+            return;
+        }
+        for (Shape shape : pastedShapes) {
+            shapeManager.addShape(shape);
         }
+        LOG.debug(() -> "[REDO MULTI-PASTE] Reinserite " + pastedShapes.size() + " shape");
     }
 
     /**
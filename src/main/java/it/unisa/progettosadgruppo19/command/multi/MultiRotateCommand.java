@@ -1,8 +1,10 @@
 package it.unisa.progettosadgruppo19.command.multi;
 
+import it.unisa.progettosadgruppo19.command.MergeableCommand;
 import it.unisa.progettosadgruppo19.command.UndoableCommand;
 import it.unisa.progettosadgruppo19.command.receivers.ShapeManagerReceiver;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import it.unisa.progettosadgruppo19.util.Log;
 
 import java.util.HashMap;
 import java.util.List;
@@ -11,11 +13,13 @@ import java.util.Map;
 /**
  * Comando per ruotare multiple shape simultaneamente.
  */
-public class MultiRotateCommand implements UndoableCommand {
+public class MultiRotateCommand implements MergeableCommand {
+
+    private static final Log LOG = Log.get(MultiRotateCommand.class);
 
     private final ShapeManagerReceiver shapeManager;
     private final List<Shape> shapes;
-    private final double newRotation;
+    private double newRotation;
     private final Map<Shape, Double> originalRotations;
 
     public MultiRotateCommand(ShapeManagerReceiver shapeManager, List<Shape> shapes, double rotation) {
@@ -32,7 +36,7 @@ public class MultiRotateCommand implements UndoableCommand {
 
     @Override
     public void execute() {
-        System.out.println("[MULTI-ROTATE] Rotazione di " + shapes.size() + " shape a " + newRotation + "°");
+        LOG.debug(() -> "[MULTI-ROTATE] Rotazione di " + shapes.size() + " shape a " + newRotation + "°");
         for (Shape shape : shapes) {
             shapeManager.rotateShape(shape, newRotation);
         }
@@ -40,9 +44,33 @@ public class MultiRotateCommand implements UndoableCommand {
 
     @Override
     public void undo() {
-        System.out.println("[MULTI-ROTATE UNDO] Ripristino rotazioni originali di " + shapes.size() + " shape");
+        LOG.debug(() -> "[MULTI-ROTATE UNDO] Ripristino rotazioni originali di " + shapes.size() + " shape");
         for (Shape shape : shapes) {
             shapeManager.rotateShape(shape, originalRotations.get(shape));
         }
     }
+
+    /**
+     * Assorbe una rotazione successiva dello stesso insieme di shape.
+     */
+    @Override
+    public boolean mergeWith(UndoableCommand next) {
+        if (next instanceof MultiRotateCommand other && sameShapes(shapes, other.shapes)) {
+            this.newRotation = other.newRotation;
+            return true;
+        }
+        return false;
+    }
+
+    static boolean sameShapes(List<Shape> a, List<Shape> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -3,11 +3,9 @@ package it.unisa.progettosadgruppo19.command.polygon;
 import it.unisa.progettosadgruppo19.command.UndoableCommand;
 import it.unisa.progettosadgruppo19.command.MouseMultiInputs;
 import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
+import it.unisa.progettosadgruppo19.util.GeometryUtils;
+import it.unisa.progettosadgruppo19.util.Log;
 import javafx.scene.input.MouseEvent;
-import javafx.scene.shape.Polygon;
-
-import java.util.ArrayList;
-import java.util.List;
 
 /**
  * Comando undoable per spostare un poligono. Gestisce lo spostamento di tutti i
@@ -15,11 +13,13 @@ import java.util.List;
  */
 public class MovePolygon implements MouseMultiInputs, UndoableCommand {
 
+    private static final Log LOG = Log.get(MovePolygon.class);
+
     private final FreeFormPolygonShape polygonShape;
     private final double oldX, oldY;
     private final double newX, newY;
-    private List<Double> oldPoints;
-    private List<Double> newPoints;
+    private final double[] oldPoints;
+    private final double[] newPoints;
 
     /**
      * Costruisce un comando di spostamento per il poligono.
@@ -42,41 +42,30 @@ public class MovePolygon implements MouseMultiInputs, UndoableCommand {
         double deltaY = newY - oldY;
 
         // Salva i punti originali e calcola quelli nuovi
-        this.oldPoints = new ArrayList<>(polygonShape.getPoints());
-        this.newPoints = new ArrayList<>();
-
-        for (int i = 0; i < oldPoints.size(); i += 2) {
-            newPoints.add(oldPoints.get(i) + deltaX);      // X
-            newPoints.add(oldPoints.get(i + 1) + deltaY);  // Y
-        }
+        this.oldPoints = polygonShape.getCoordinates();
+        this.newPoints = oldPoints.clone();
+        GeometryUtils.translate(newPoints, newPoints.length, deltaX, deltaY);
     }
 
     @Override
     public void execute() {
         applyPoints(newPoints);
-        System.out.println("[MOVE POLYGON] Spostato da (" + oldX + ", " + oldY + ") a (" + newX + ", " + newY + ")");
+        LOG.debug(() -> "[MOVE POLYGON] Spostato da (" + oldX + ", " + oldY + ") a (" + newX + ", " + newY + ")");
     }
 
     @Override
     public void undo() {
         applyPoints(oldPoints);
-        System.out.println("[UNDO MOVE POLYGON] Ripristinata posizione originale (" + oldX + ", " + oldY + ")");
+        LOG.debug(() -> "[UNDO MOVE POLYGON] Ripristinata posizione originale (" + oldX + ", " + oldY + ")");
     }
 
     /**
      * Applica i punti specificati al poligono.
      */
-    private void applyPoints(List<Double> points) {
+    private void applyPoints(double[] points) {
         try {
-            // Aggiorna il nodo JavaFX
-            Polygon fxPolygon = (Polygon) polygonShape.getNode();
-            fxPolygon.getPoints().setAll(points);
-
-            // Aggiorna anche la lista interna del poligono
-            List<Double> internalPoints = polygonShape.getPoints();
-            internalPoints.clear();
-            internalPoints.addAll(points);
-
+            // Aggiorna il buffer interno e il nodo JavaFX in un solo passaggio
+            polygonShape.setAllPoints(points, points.length);
         } catch (Exception e) {
             System.err.println("[MOVE POLYGON ERROR] " + e.getMessage());
             e.printStackTrace();
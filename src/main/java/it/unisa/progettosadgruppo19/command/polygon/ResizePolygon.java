@@ -3,10 +3,9 @@ package it.unisa.progettosadgruppo19.command.polygon;
 import it.unisa.progettosadgruppo19.command.UndoableCommand;
 import it.unisa.progettosadgruppo19.command.MouseMultiInputs;
 import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
+import it.unisa.progettosadgruppo19.util.Log;
 import javafx.scene.input.MouseEvent;
-import javafx.scene.shape.Polygon;
 
-import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -15,9 +14,11 @@ import java.util.List;
  */
 public class ResizePolygon implements MouseMultiInputs, UndoableCommand {
 
+    private static final Log LOG = Log.get(ResizePolygon.class);
+
     private final FreeFormPolygonShape polygonShape;
-    private final List<Double> oldPoints;
-    private final List<Double> newPoints;
+    private final double[] oldPoints;
+    private final double[] newPoints;
 
     /**
      * Costruisce un comando di ridimensionamento per il poligono.
@@ -27,37 +28,46 @@ public class ResizePolygon implements MouseMultiInputs, UndoableCommand {
      * @param newPoints i punti dopo il ridimensionamento
      */
     public ResizePolygon(FreeFormPolygonShape polygonShape, List<Double> oldPoints, List<Double> newPoints) {
+        this(polygonShape, toArray(oldPoints), toArray(newPoints));
+    }
+
+    /**
+     * Costruisce un comando di ridimensionamento a partire da coordinate
+     * primitive [x0,y0,x1,y1,...]; gli array vengono copiati.
+     */
+    public ResizePolygon(FreeFormPolygonShape polygonShape, double[] oldPoints, double[] newPoints) {
         this.polygonShape = polygonShape;
-        this.oldPoints = new ArrayList<>(oldPoints);
-        this.newPoints = new ArrayList<>(newPoints);
+        this.oldPoints = oldPoints.clone();
+        this.newPoints = newPoints.clone();
+    }
+
+    private static double[] toArray(List<Double> points) {
+        double[] result = new double[points.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = points.get(i);
+        }
+        return result;
     }
 
     @Override
     public void execute() {
         applyPoints(newPoints);
-        System.out.println("[RESIZE POLYGON] Applicati nuovi punti: " + newPoints.size() / 2 + " vertici");
+        LOG.debug(() -> "[RESIZE POLYGON] Applicati nuovi punti: " + newPoints.length / 2 + " vertici");
     }
 
     @Override
     public void undo() {
         applyPoints(oldPoints);
-        System.out.println("[UNDO RESIZE POLYGON] Ripristinati punti originali: " + oldPoints.size() / 2 + " vertici");
+        LOG.debug(() -> "[UNDO RESIZE POLYGON] Ripristinati punti originali: " + oldPoints.length / 2 + " vertici");
     }
 
     /**
      * Applica i punti specificati al poligono.
      */
-    private void applyPoints(List<Double> points) {
+    private void applyPoints(double[] points) {
         try {
-            // Aggiorna il nodo JavaFX
-            Polygon fxPolygon = (Polygon) polygonShape.getNode();
-            fxPolygon.getPoints().setAll(points);
-
-            // Aggiorna anche la lista interna del poligono
-            List<Double> internalPoints = polygonShape.getPoints();
-            internalPoints.clear();
-            internalPoints.addAll(points);
-
+            // Aggiorna il buffer interno e il nodo JavaFX in un solo passaggio
+            polygonShape.setAllPoints(points, points.length);
         } catch (Exception e) {
             System.err.println("[RESIZE POLYGON ERROR] " + e.getMessage());
             e.printStackTrace();
@@ -3,6 +3,8 @@ package it.unisa.progettosadgruppo19.command.receivers;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 import javafx.scene.Node;
 
+import java.util.Collection;
+
 /**
  * Interfaccia che definisce le operazioni di gestione delle {@link Shape}
  * all’interno del contesto di disegno (aggiunta, rimozione e posizionamento).
@@ -23,6 +25,18 @@ public interface ShapeManagerReceiver {
      */
     void removeShape(Shape shape);
 
+    /**
+     * Rimuove tutte le {@link Shape} specificate. Le implementazioni possono
+     * eseguire la rimozione in un'unica passata.
+     *
+     * @param shapes le shape da rimuovere
+     */
+    default void removeShapes(Collection<? extends Shape> shapes) {
+        for (Shape shape : shapes) {
+            removeShape(shape);
+        }
+    }
+
     /**
      * Restituisce l'indice (zero-based) della {@link Shape} all’interno della
      * collezione di disegno.
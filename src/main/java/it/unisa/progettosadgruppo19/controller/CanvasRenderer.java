@@ -0,0 +1,449 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.util.DirtyRegion;
+import it.unisa.progettosadgruppo19.util.RTree;
+
+import javafx.animation.AnimationTimer;
+import javafx.beans.InvalidationListener;
+import javafx.beans.Observable;
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Circle;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.CubicCurveTo;
+import javafx.scene.shape.Ellipse;
+import javafx.scene.shape.HLineTo;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+import javafx.scene.shape.Polygon;
+import javafx.scene.shape.Polyline;
+import javafx.scene.shape.QuadCurveTo;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.shape.VLineTo;
+import javafx.scene.text.Text;
+import javafx.scene.transform.Transform;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Backend di rendering immediato su {@link Canvas}.
+ * <p>
+ * I nodi delle shape restano il modello: vengono aggiunti a un Pane che non
+ * fa parte della scena (il "Pane modello"), su cui continuano a lavorare
+ * {@link ShapeManager}, i comandi e l'hit-testing di
+ * {@link MouseEventHandler}. Non essendo nella scena, questi nodi non
+ * partecipano ai passaggi di CSS, layout e picking di JavaFX; il renderer li
+ * disegna invece su un unico Canvas inserito nel Pane visibile.
+ * <p>
+ * Ogni modifica visiva di un nodo (bounds, colori, effetto, punti,
+ * aggiunta/rimozione, z-order) marca come sporche la vecchia e la nuova
+ * area occupata. A ogni pulse vengono ridisegnate solo le regioni sporche,
+ * interrogando un {@link RTree} per trovare i nodi coinvolti e rispettando
+ * l'ordine dei figli del Pane modello.
+ * <p>
+ * Il Canvas è figlio del Pane visibile e ne segue quindi la trasformazione di
+ * zoom: ingrandendo, il contenuto viene scalato come immagine.
+ */
+public class CanvasRenderer {
+
+    private static final int MAX_DIRTY_REGIONS = 8;
+
+    private final Pane modelPane;
+    private final Canvas canvas;
+    private final RTree<Node> tree = new RTree<>();
+    private final Map<Node, InvalidationListener> listeners = new IdentityHashMap<>();
+    private final DirtyRegion dirty = new DirtyRegion(MAX_DIRTY_REGIONS);
+    private final Map<Node, double[]> paintedBounds = new IdentityHashMap<>();
+    private final Map<Node, Integer> order = new IdentityHashMap<>();
+    private boolean orderValid = false;
+
+    private final AnimationTimer timer = new AnimationTimer() {
+        @Override
+        public void handle(long now) {
+            if (!dirty.isEmpty()) {
+                paint();
+            }
+        }
+    };
+
+    private long lastPaintNanos;
+    private int lastPaintedNodes;
+
+    /**
+     * Crea il renderer per il Pane modello indicato, disegnando su un Canvas
+     * aggiunto in fondo ai figli di {@code host}. Il Pane modello viene
+     * mantenuto delle stesse dimensioni del Pane visibile, così che il codice
+     * che ne legge larghezza e altezza continui a funzionare.
+     */
+    public CanvasRenderer(Pane modelPane, Pane host) {
+        this.modelPane = modelPane;
+        this.canvas = new Canvas();
+        canvas.setMouseTransparent(true);
+        canvas.setManaged(false);
+        canvas.widthProperty().bind(host.widthProperty());
+        canvas.heightProperty().bind(host.heightProperty());
+        host.getChildren().add(0, canvas);
+
+        InvalidationListener resize = obs -> {
+            modelPane.resize(host.getWidth(), host.getHeight());
+            invalidateAll();
+        };
+        host.widthProperty().addListener(resize);
+        host.heightProperty().addListener(resize);
+        modelPane.resize(host.getWidth(), host.getHeight());
+
+        for (Node node : modelPane.getChildren()) {
+            track(node);
+        }
+        modelPane.getChildren().addListener(this::onChildrenChanged);
+    }
+
+    public void start() {
+        invalidateAll();
+        timer.start();
+    }
+
+    public void stop() {
+        timer.stop();
+    }
+
+    public Canvas getCanvas() {
+        return canvas;
+    }
+
+    /**
+     * Durata in nanosecondi dell'ultimo ridisegno.
+     */
+    public long getLastPaintNanos() {
+        return lastPaintNanos;
+    }
+
+    /**
+     * Numero di nodi disegnati nell'ultimo ridisegno.
+     */
+    public int getLastPaintedNodes() {
+        return lastPaintedNodes;
+    }
+
+    /**
+     * Marca come sporca l'intera superficie del Canvas.
+     */
+    public void invalidateAll() {
+        dirty.add(0, 0, Math.max(1, canvas.getWidth()), Math.max(1, canvas.getHeight()));
+    }
+
+    // ---------------------------------------------------------------------
+    // Tracciamento delle modifiche
+    // ---------------------------------------------------------------------
+
+    private void onChildrenChanged(ListChangeListener.Change<? extends Node> change) {
+        orderValid = false;
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                for (int i = change.getFrom(); i < change.getTo(); i++) {
+                    markDirty(change.getList().get(i));
+                }
+                continue;
+            }
+            for (Node removed : change.getRemoved()) {
+                untrack(removed);
+            }
+            for (Node added : change.getAddedSubList()) {
+                track(added);
+            }
+        }
+    }
+
+    private void track(Node node) {
+        if (listeners.containsKey(node)) {
+            // Nodo spostato all'interno del Pane (cambio di z-order)
+            markDirty(node);
+            return;
+        }
+        InvalidationListener listener = obs -> markDirty(node);
+        listeners.put(node, listener);
+
+        node.boundsInParentProperty().addListener(listener);
+        node.visibleProperty().addListener(listener);
+        node.opacityProperty().addListener(listener);
+        node.effectProperty().addListener(listener);
+        if (node instanceof javafx.scene.shape.Shape shape) {
+            shape.fillProperty().addListener(listener);
+            shape.strokeProperty().addListener(listener);
+        }
+        Observable content = contentOf(node);
+        if (content != null) {
+            content.addListener(listener);
+        }
+        markDirty(node);
+    }
+
+    private void untrack(Node node) {
+        if (node.getParent() == modelPane) {
+            return;
+        }
+        InvalidationListener listener = listeners.remove(node);
+        if (listener != null) {
+            node.boundsInParentProperty().removeListener(listener);
+            node.visibleProperty().removeListener(listener);
+            node.opacityProperty().removeListener(listener);
+            node.effectProperty().removeListener(listener);
+            if (node instanceof javafx.scene.shape.Shape shape) {
+                shape.fillProperty().removeListener(listener);
+                shape.strokeProperty().removeListener(listener);
+            }
+            Observable content = contentOf(node);
+            if (content != null) {
+                content.removeListener(listener);
+            }
+        }
+        markDirty(node);
+        tree.remove(node);
+    }
+
+    /**
+     * Contenuto che può cambiare l'aspetto del nodo senza modificarne i
+     * bounds (ad esempio un vertice interno di un poligono).
+     */
+    private static Observable contentOf(Node node) {
+        if (node instanceof Polygon polygon) {
+            return polygon.getPoints();
+        }
+        if (node instanceof Polyline polyline) {
+            return polyline.getPoints();
+        }
+        if (node instanceof Path path) {
+            return path.getElements();
+        }
+        if (node instanceof Text text) {
+            return text.textProperty();
+        }
+        return null;
+    }
+
+    /**
+     * Marca come sporche l'area disegnata in precedenza e quella attuale del
+     * nodo, aggiornandone la posizione nell'indice. La lettura dei bounds
+     * riattiva inoltre il listener di invalidazione.
+     */
+    private void markDirty(Node node) {
+        double[] previous = paintedBounds.get(node);
+        if (previous != null) {
+            dirty.add(previous[0], previous[1], previous[2], previous[3]);
+        }
+        if (node.getParent() != modelPane) {
+            paintedBounds.remove(node);
+            return;
+        }
+        Bounds b = node.getBoundsInParent();
+        double[] current = {b.getMinX(), b.getMinY(), b.getMaxX(), b.getMaxY()};
+        paintedBounds.put(node, current);
+        tree.update(node, current[0], current[1], current[2], current[3]);
+        dirty.add(current[0], current[1], current[2], current[3]);
+    }
+
+    // ---------------------------------------------------------------------
+    // Disegno
+    // ---------------------------------------------------------------------
+
+    private void paint() {
+        long start = System.nanoTime();
+        GraphicsContext gc = canvas.getGraphicsContext2D();
+        if (!orderValid) {
+            order.clear();
+            List<Node> children = modelPane.getChildren();
+            for (int i = 0; i < children.size(); i++) {
+                order.put(children.get(i), i);
+            }
+            orderValid = true;
+        }
+
+        List<Node> visible = new ArrayList<>();
+        int painted = 0;
+        for (double[] r : dirty.getRegions()) {
+            // Margine di un pixel per l'antialiasing dei bordi
+            double minX = Math.floor(r[0]) - 1;
+            double minY = Math.floor(r[1]) - 1;
+            double maxX = Math.ceil(r[2]) + 1;
+            double maxY = Math.ceil(r[3]) + 1;
+
+            gc.save();
+            gc.beginPath();
+            gc.rect(minX, minY, maxX - minX, maxY - minY);
+            gc.clip();
+            gc.clearRect(minX, minY, maxX - minX, maxY - minY);
+
+            visible.clear();
+            tree.search(minX, minY, maxX, maxY, visible::add);
+            visible.sort(Comparator.comparingInt(n -> order.getOrDefault(n, 0)));
+            for (Node node : visible) {
+                paintNode(gc, node);
+            }
+            painted += visible.size();
+            gc.restore();
+        }
+        dirty.clear();
+
+        lastPaintedNodes = painted;
+        lastPaintNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Disegna un nodo shape sul contesto grafico, applicando trasformazioni,
+     * opacità, effetto, colori e tratteggio del nodo.
+     */
+    static void paintNode(GraphicsContext gc, Node node) {
+        if (!node.isVisible() || !(node instanceof javafx.scene.shape.Shape shape)) {
+            return;
+        }
+        gc.save();
+        Transform t = node.getLocalToParentTransform();
+        gc.transform(t.getMxx(), t.getMyx(), t.getMxy(), t.getMyy(), t.getTx(), t.getTy());
+        gc.setGlobalAlpha(node.getOpacity());
+        gc.setEffect(node.getEffect());
+
+        Paint fill = shape.getFill();
+        Paint stroke = shape.getStroke();
+        if (fill != null) {
+            gc.setFill(fill);
+        }
+        if (stroke != null) {
+            gc.setStroke(stroke);
+            gc.setLineWidth(shape.getStrokeWidth());
+            gc.setLineCap(shape.getStrokeLineCap());
+            gc.setLineJoin(shape.getStrokeLineJoin());
+            if (!shape.getStrokeDashArray().isEmpty()) {
+                double[] dashes = new double[shape.getStrokeDashArray().size()];
+                for (int i = 0; i < dashes.length; i++) {
+                    dashes[i] = shape.getStrokeDashArray().get(i);
+                }
+                gc.setLineDashes(dashes);
+                gc.setLineDashOffset(shape.getStrokeDashOffset());
+            }
+        }
+
+        if (shape instanceof Line line) {
+            if (stroke != null) {
+                gc.strokeLine(line.getStartX(), line.getStartY(), line.getEndX(), line.getEndY());
+            }
+        } else if (shape instanceof Rectangle rect) {
+            double aw = rect.getArcWidth(), ah = rect.getArcHeight();
+            if (fill != null) {
+                gc.fillRoundRect(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight(), aw, ah);
+            }
+            if (stroke != null) {
+                gc.strokeRoundRect(rect.getX(), rect.getY(), rect.getWidth(), rect.getHeight(), aw, ah);
+            }
+        } else if (shape instanceof Ellipse ell) {
+            double x = ell.getCenterX() - ell.getRadiusX(), y = ell.getCenterY() - ell.getRadiusY();
+            double w = ell.getRadiusX() * 2, h = ell.getRadiusY() * 2;
+            if (fill != null) {
+                gc.fillOval(x, y, w, h);
+            }
+            if (stroke != null) {
+                gc.strokeOval(x, y, w, h);
+            }
+        } else if (shape instanceof Circle c) {
+            double r = c.getRadius();
+            if (fill != null) {
+                gc.fillOval(c.getCenterX() - r, c.getCenterY() - r, r * 2, r * 2);
+            }
+            if (stroke != null) {
+                gc.strokeOval(c.getCenterX() - r, c.getCenterY() - r, r * 2, r * 2);
+            }
+        } else if (shape instanceof Polygon polygon) {
+            double[][] xy = split(polygon.getPoints());
+            if (fill != null) {
+                gc.fillPolygon(xy[0], xy[1], xy[0].length);
+            }
+            if (stroke != null) {
+                gc.strokePolygon(xy[0], xy[1], xy[0].length);
+            }
+        } else if (shape instanceof Polyline polyline) {
+            double[][] xy = split(polyline.getPoints());
+            if (stroke != null) {
+                gc.strokePolyline(xy[0], xy[1], xy[0].length);
+            }
+        } else if (shape instanceof Text text) {
+            gc.setFont(text.getFont());
+            gc.setTextBaseline(text.getTextOrigin());
+            if (fill != null) {
+                gc.fillText(text.getText(), text.getX(), text.getY());
+            }
+            if (stroke != null) {
+                gc.strokeText(text.getText(), text.getX(), text.getY());
+            }
+        } else if (shape instanceof Path path) {
+            tracePath(gc, path.getElements());
+            if (fill != null) {
+                gc.fill();
+            }
+            if (stroke != null) {
+                gc.stroke();
+            }
+        }
+        gc.restore();
+    }
+
+    private static double[][] split(List<Double> points) {
+        int n = points.size() / 2;
+        double[] xs = new double[n];
+        double[] ys = new double[n];
+        for (int i = 0; i < n; i++) {
+            xs[i] = points.get(2 * i);
+            ys[i] = points.get(2 * i + 1);
+        }
+        return new double[][]{xs, ys};
+    }
+
+    /**
+     * Riporta sul contesto grafico gli elementi di un {@link Path}, gestendo
+     * sia le coordinate assolute sia quelle relative.
+     */
+    private static void tracePath(GraphicsContext gc, List<PathElement> elements) {
+        gc.beginPath();
+        double cx = 0, cy = 0;
+        for (PathElement el : elements) {
+            double ox = el.isAbsolute() ? 0 : cx;
+            double oy = el.isAbsolute() ? 0 : cy;
+            if (el instanceof MoveTo m) {
+                cx = ox + m.getX();
+                cy = oy + m.getY();
+                gc.moveTo(cx, cy);
+            } else if (el instanceof LineTo l) {
+                cx = ox + l.getX();
+                cy = oy + l.getY();
+                gc.lineTo(cx, cy);
+            } else if (el instanceof HLineTo h) {
+                cx = ox + h.getX();
+                gc.lineTo(cx, cy);
+            } else if (el instanceof VLineTo v) {
+                cy = oy + v.getY();
+                gc.lineTo(cx, cy);
+            } else if (el instanceof QuadCurveTo q) {
+                gc.quadraticCurveTo(ox + q.getControlX(), oy + q.getControlY(), ox + q.getX(), oy + q.getY());
+                cx = ox + q.getX();
+                cy = oy + q.getY();
+            } else if (el instanceof CubicCurveTo c) {
+                gc.bezierCurveTo(ox + c.getControlX1(), oy + c.getControlY1(),
+                        ox + c.getControlX2(), oy + c.getControlY2(), ox + c.getX(), oy + c.getY());
+                cx = ox + c.getX();
+                cy = oy + c.getY();
+            } else if (el instanceof ClosePath) {
+                gc.closePath();
+            }
+        }
+    }
+}
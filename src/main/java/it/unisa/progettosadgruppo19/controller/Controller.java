@@ -24,10 +24,13 @@ import it.unisa.progettosadgruppo19.command.multi.MultiChangeStrokeCommand;
 import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.*;
 import it.unisa.progettosadgruppo19.command.*;
-import it.unisa.progettosadgruppo19.factory.TextShapeCreator;
+import it.unisa.progettosadgruppo19.factory.ConcreteShapeCreator;
+import it.unisa.progettosadgruppo19.factory.ShapeCreator;
+import it.unisa.progettosadgruppo19.util.Log;
 
 import javafx.fxml.FXML;
 import javafx.scene.control.*;
+import javafx.beans.property.ReadOnlyBooleanProperty;
 import javafx.scene.layout.Pane;
 import javafx.stage.Stage;
 import javafx.scene.transform.Scale;
@@ -50,8 +53,10 @@ import javafx.scene.paint.Color;
  */
 public class Controller {
 
-//    @FXML
-//    private ScrollPane scrollPane;
+    private static final Log LOG = Log.get(Controller.class);
+
+    @FXML
+    private ScrollPane scrollPane;
     @FXML
     private Button mirrorHorizontalButton;
 
@@ -74,20 +79,27 @@ public class Controller {
     @FXML
     private Button lineButton, rectButton, ellipseButton, polygonButton, saveButton, loadButton, deleteButton, copyButton,
             cutButton, pasteButton, zoomInButton, zoomOutButton, bringToFrontButton, sendToBackButton, undoButton,
-            gridButton;
+            redoButton, gridButton;
     @FXML
     private ColorPicker strokePicker, fillPicker;
 
     @FXML
     private Slider rotateSlider;
 
+    @FXML
+    private ProgressBar loadProgressBar;
+    @FXML
+    private Button cancelLoadButton;
+    @FXML
+    private Label fileStatusLabel;
+
     // NUOVI CAMPI PER SELEZIONE MULTIPLA
     @FXML
     private Button multiSelectButton, selectAllButton, clearSelectionButton;
     @FXML
     private Label selectionCountLabel, selectionInfoLabel;
 
-    private final List<AbstractShape> currentShapes = new ArrayList<>();
+    private final List<AbstractShape> currentShapes = new ShapeList();
     private MouseEventHandler mouseHandler;
     private PolygonMouseEventHandler polygonHandler;
     private ShapeManager shapeManager;
@@ -95,8 +107,23 @@ public class Controller {
     private final ZoomManager zoomManager = new ZoomManager();
     private final Scale scaleTransform = new Scale(1, 1, 0, 0);
     private StackUndoInvoker commandInvoker = new StackUndoInvoker();
+    private RecoveryJournal recoveryJournal;
+
+    /**
+     * Ultima rotazione richiesta dallo slider e non ancora applicata; NaN se
+     * non c'è nessuna applicazione in attesa.
+     */
+    private double pendingRotation = Double.NaN;
+    private boolean sealPendingRotation;
     private GridManager gridManager;
 
+    // Pane che contiene i nodi delle shape: coincide con drawingPane, tranne
+    // nella modalità Canvas in cui è un Pane modello esterno alla scena
+    private Pane shapePane;
+    private CanvasRenderer canvasRenderer;
+    private ViewportCuller viewportCuller;
+    private ProgressiveLoader progressiveLoader;
+
     // NUOVO: Manager per selezione multipla
     private MultipleSelectionManager multipleSelectionManager;
 
@@ -111,17 +138,29 @@ public class Controller {
     public void initialize() {
         fontSizeSpinner.setValueFactory(new SpinnerValueFactory.IntegerSpinnerValueFactory(8, 72, 12));
         drawingPane.getTransforms().add(scaleTransform);
+        shapePane = createShapePane(RenderMode.fromSystemProperty());
 
-        mouseHandler = new MouseEventHandler(drawingPane, currentShapes);
-        shapeManager = new ShapeManager(currentShapes, drawingPane);
-        gridManager = new GridManager(drawingPane);
+        mouseHandler = new MouseEventHandler(shapePane, currentShapes);
+        mouseHandler.setOverlayPane(drawingPane);
+        shapeManager = new ShapeManager(currentShapes, shapePane);
+        gridManager = new GridManager(shapePane);
+        installViewportCulling();
+        // le shape fuori vista sono staccate dal Pane ma restano nel disegno
+        commandInvoker.setLiveShapes(shape -> shapeManager.containsNode(shape.getNode()));
 
         // NUOVO: Inizializza il manager per la selezione multipla
         multipleSelectionManager = new MultipleSelectionManager();
 
+        // Un solo livello di evidenziazione per selezione singola e multipla,
+        // sopra le shape anche in modalità Canvas
+        SelectionOverlay selectionOverlay = new SelectionOverlay(drawingPane);
+        multipleSelectionManager.setOverlay(selectionOverlay);
+        mouseHandler.setSelectionOverlay(selectionOverlay);
+
         mouseHandler.setSelectedShape(selectedShape);
         mouseHandler.setToolActive(true);
         mouseHandler.setInvoker(commandInvoker);
+        mouseHandler.setShapeManager(shapeManager);
 
         // NUOVO: Imposta il manager selezione multipla nel mouse handler
         mouseHandler.setMultipleSelectionManager(multipleSelectionManager);
@@ -158,10 +197,11 @@ public class Controller {
         sendToBackButton.setOnAction(e -> sendSelectionToBack());
 
         undoButton.setOnAction(e -> onUndo());
+        redoButton.setOnAction(e -> onRedo());
 
         gridButton.setOnAction(e -> {
             // se la griglia non è già presente, chiedi la dimensione
-            if (gridManager.getGridLayerCount() == 0) {
+            if (!gridManager.isGridVisible()) {
                 TextInputDialog dialog = new TextInputDialog("20");
                 dialog.setTitle("Imposta dimensione griglia");
                 dialog.setHeaderText("Dimensione dei quadrati della griglia");
@@ -192,23 +232,31 @@ public class Controller {
             double s = zoomManager.zoomIn();
             scaleTransform.setX(s);
             scaleTransform.setY(s);
+            gridManager.setZoom(s);
         });
 
         zoomOutButton.setOnAction(e -> {
             double s = zoomManager.zoomOut();
             scaleTransform.setX(s);
             scaleTransform.setY(s);
+            gridManager.setZoom(s);
         });
 
         // MODIFICATO: Slider rotazione con supporto selezione multipla
+        // Le variazioni ravvicinate dello slider (tastiera, click sulla barra)
+        // vengono raccolte e applicate una sola volta per pulse; i comandi
+        // risultanti sono poi fusi dall'invoker in un'unica voce di undo. Un
+        // trascinamento del cursore è un gesto a sé: diventa una voce propria
         rotateSlider.valueProperty().addListener((obs, oldValue, newValue) -> {
             if (!rotateSlider.isValueChanging()) {
-                rotateSelection(Math.floor(newValue.doubleValue()));
+                scheduleRotation(Math.floor(newValue.doubleValue()), false);
             }
         });
         rotateSlider.valueChangingProperty().addListener((obs, wasChanging, isNowChanging) -> {
-            if (!isNowChanging && wasChanging) {
-                rotateSelection(Math.floor(rotateSlider.getValue()));
+            if (isNowChanging) {
+                commandInvoker.sealLast();
+            } else if (wasChanging) {
+                scheduleRotation(Math.floor(rotateSlider.getValue()), true);
             }
         });
 
@@ -242,16 +290,13 @@ public class Controller {
             clearSelectionButton.setOnAction(e -> clearAllSelection());
         }
 
-        // NUOVO: Timer per aggiornare le informazioni di selezione
-        javafx.animation.Timeline selectionUpdateTimer = new javafx.animation.Timeline(
-                new javafx.animation.KeyFrame(javafx.util.Duration.millis(500), e -> updateSelectionInfo())
-        );
-        selectionUpdateTimer.setCycleCount(javafx.animation.Timeline.INDEFINITE);
-        selectionUpdateTimer.play();
+        setupSelectionStateUpdates();
 
         // NUOVO: Imposta scorciatoie da tastiera
         setupKeyboardShortcuts();
 
+        setupRecoveryJournal();
+
         mirrorHorizontalButton.setOnAction(e -> {
             Shape selected = mouseHandler.getSelectedShapeInstance();
             if (selected != null) {
@@ -267,6 +312,33 @@ public class Controller {
         });
     }
 
+    /**
+     * Accoda la rotazione richiesta dallo slider: se un'applicazione è già in
+     * attesa viene aggiornato solo il valore, così che più variazioni nello
+     * stesso pulse producano un unico comando.
+     *
+     * @param endsGesture vero a fine trascinamento: dopo la rotazione la voce
+     * di undo viene chiusa e non si fonde con le variazioni successive
+     */
+    private void scheduleRotation(double value, boolean endsGesture) {
+        boolean alreadyScheduled = !Double.isNaN(pendingRotation);
+        pendingRotation = value;
+        sealPendingRotation |= endsGesture;
+        if (alreadyScheduled) {
+            return;
+        }
+        Platform.runLater(() -> {
+            double target = pendingRotation;
+            boolean seal = sealPendingRotation;
+            pendingRotation = Double.NaN;
+            sealPendingRotation = false;
+            rotateSelection(target);
+            if (seal) {
+                commandInvoker.sealLast();
+            }
+        });
+    }
+
     /**
      * MODIFICATO: Rotazione con supporto selezione multipla.
      */
@@ -274,12 +346,12 @@ public class Controller {
         if (multipleSelectionManager.hasSelection()) {
             List<Shape> selectedShapes = multipleSelectionManager.getSelectedShapes();
 
-            System.out.println("[CONTROLLER] Rotazione selezione multipla a " + value + "°");
+            LOG.debug(() -> "[CONTROLLER] Rotazione selezione multipla a " + value + "°");
 
             MultiRotateCommand command = new MultiRotateCommand(shapeManager, selectedShapes, value);
             commandInvoker.execute(command);
 
-            System.out.println("[CONTROLLER] Rotazione applicata a " + selectedShapes.size() + " shape");
+            LOG.debug(() -> "[CONTROLLER] Rotazione applicata a " + selectedShapes.size() + " shape");
         } else {
             // Comportamento normale per singola selezione
             rotateSelected(value);
@@ -289,13 +361,11 @@ public class Controller {
     private void rotateSelected(double value) {
         Shape shape = mouseHandler.getSelectedShapeInstance();
 
-        System.out.print("cambio rotazione a " + value + "°");
-
         if (shape != null) {
-            System.out.println(".");
+            LOG.debug(() -> "[CONTROLLER] Cambio rotazione a " + value + "°");
             commandInvoker.execute(new Rotate(shapeManager, shape, value));
         } else {
-            System.out.println(",ma nessua figura è selezionata");
+            LOG.debug(() -> "[CONTROLLER] Cambio rotazione a " + value + "°, ma nessuna figura è selezionata");
         }
     }
 
@@ -310,7 +380,7 @@ public class Controller {
         if (polygonHandler != null) {
             polygonHandler.detach();
             polygonHandler = null;
-            System.out.println("[CONTROLLER] PolygonHandler detached.");
+            LOG.debug("[CONTROLLER] PolygonHandler detached.");
         }
 
         // Disattiva il mouse handler standard
@@ -331,7 +401,58 @@ public class Controller {
         // Ripristina il comportamento standard del mouse
         drawingPane.setOnMouseClicked(mouseHandler::onMouseClick);
 
-        System.out.println("[CONTROLLER] Modalità neutra attivata");
+        LOG.debug("[CONTROLLER] Modalità neutra attivata");
+    }
+
+    /**
+     * Attiva il culling delle shape fuori vista. L'area visibile è ricavata
+     * dalla trasformazione di zoom e dalla posizione dello ScrollPane, e viene
+     * ricalcolata a ogni scroll, zoom o ridimensionamento.
+     */
+    private void installViewportCulling() {
+        if (scrollPane == null) {
+            return;
+        }
+        viewportCuller = ViewportCuller.install(shapePane, this::computeVisibleRect);
+        javafx.beans.InvalidationListener refresh = obs -> viewportCuller.requestUpdate();
+        scrollPane.hvalueProperty().addListener(refresh);
+        scrollPane.vvalueProperty().addListener(refresh);
+        scrollPane.viewportBoundsProperty().addListener(refresh);
+        scaleTransform.xProperty().addListener(refresh);
+        scaleTransform.yProperty().addListener(refresh);
+        drawingPane.layoutBoundsProperty().addListener(refresh);
+    }
+
+    private double[] computeVisibleRect() {
+        javafx.geometry.Bounds viewport = scrollPane.getViewportBounds();
+        javafx.geometry.Bounds content = drawingPane.getBoundsInParent();
+        double hRange = scrollPane.getHmax() - scrollPane.getHmin();
+        double vRange = scrollPane.getVmax() - scrollPane.getVmin();
+        double h = hRange > 0 ? (scrollPane.getHvalue() - scrollPane.getHmin()) / hRange : 0;
+        double v = vRange > 0 ? (scrollPane.getVvalue() - scrollPane.getVmin()) / vRange : 0;
+        return ViewportCuller.visibleRect(scaleTransform.getX(), scaleTransform.getY(), h, v,
+                content.getWidth(), content.getHeight(), viewport.getWidth(), viewport.getHeight());
+    }
+
+    /**
+     * Prepara il Pane che conterrà i nodi delle shape in base alla modalità
+     * di rendering scelta all'avvio. In modalità Canvas i nodi restano in un
+     * Pane modello disegnato da {@link CanvasRenderer}, mentre drawingPane
+     * continua a ricevere gli eventi del mouse e a ospitare i controlli
+     * temporanei (campi di testo).
+     */
+    private Pane createShapePane(RenderMode mode) {
+        Pane pane = drawingPane;
+        if (mode == RenderMode.CANVAS) {
+            pane = new Pane();
+            canvasRenderer = new CanvasRenderer(pane, drawingPane);
+            canvasRenderer.start();
+        }
+        if (FrameTimeMonitor.isEnabled()) {
+            new FrameTimeMonitor(mode.name()).start();
+        }
+        LOG.debug(() -> "[CONTROLLER] Modalità di rendering: " + mode);
+        return pane;
     }
 
     /**
@@ -356,11 +477,12 @@ public class Controller {
             // Creo SEMPRE un nuovo PolygonMouseEventHandler per evitare problemi di stato
             // Non riutilizzare mai un handler precedente
             polygonHandler = new PolygonMouseEventHandler(
+                    shapePane,
                     drawingPane,
                     // Faccio un cast: nella lista currentShapes ci possono essere anche altri AbstractShape,
                     // ma il costruttore di PolygonMouseEventHandler considera solo FreeFormPolygonShape.
                     (List<FreeFormPolygonShape>) (List<?>) currentShapes,
-                    new ShapeManager(currentShapes, drawingPane),
+                    shapeManager,
                     strokePicker.getValue(),
                     fillPicker.getValue(),
                     this::setNeutralTool // Callback per tornare automaticamente in modalità neutra
@@ -369,7 +491,7 @@ public class Controller {
             // Evidenzia il pulsante attivo
             polygonButton.getStyleClass().add("active-tool");
 
-            System.out.println("[CONTROLLER] Tool Poligono attivato.");
+            LOG.debug("[CONTROLLER] Tool Poligono attivato.");
 
         } else {
             selectedShape = tipo;
@@ -405,8 +527,47 @@ public class Controller {
      * Esegue il comando di salvataggio su file.
      */
     private void onSave() {
+        if (isLoading()) {
+            return;
+        }
         Stage stage = (Stage) saveButton.getScene().getWindow();
-        new Save(stage, currentShapes, fileManager).execute();
+        Save save = new Save(stage, currentShapes, fileManager);
+        save.setAsync(true);
+        save.setOnSaved(result -> setFileStatus(String.format("Salvato %s: %d forme, %d KB in %d ms%s",
+                result.file().getName(), result.shapeCount(), result.bytes() / 1024,
+                result.snapshotMillis() + result.writeMillis(),
+                result.incremental() ? " (incrementale, " + result.changedShapes() + " modifiche)" : "")));
+        save.setOnFailed(error -> setFileStatus("Errore di salvataggio: " + error.getMessage()));
+        save.execute();
+    }
+
+    /**
+     * Collega il journal di recupero all'invoker e al gestore dei file e, se
+     * la sessione precedente si è interrotta con modifiche non salvate, ne
+     * ricostruisce il disegno.
+     */
+    private void setupRecoveryJournal() {
+        recoveryJournal = new RecoveryJournal(RecoveryJournal.defaultFile(), currentShapes);
+        RecoveryJournal.Recovery recovery = recoveryJournal.recover(fileManager);
+        if (recovery != null) {
+            List<AbstractShape> shapes = fileManager.rebuildShapes(recovery.data());
+            for (AbstractShape shape : shapes) {
+                currentShapes.add(shape);
+                shapePane.getChildren().add(shape.getNode());
+            }
+            recoveryJournal.resume(recovery, shapes);
+            setFileStatus("Recuperate " + shapes.size() + " forme dalla sessione precedente"
+                    + (recovery.baseFile() != null ? " (" + recovery.baseFile().getName() + ")" : ""));
+        }
+        fileManager.setRecoveryJournal(recoveryJournal);
+        commandInvoker.addHistoryListener(recoveryJournal);
+        Runtime.getRuntime().addShutdownHook(new Thread(recoveryJournal::close, "recovery-journal-close"));
+    }
+
+    private void setFileStatus(String text) {
+        if (fileStatusLabel != null) {
+            fileStatusLabel.setText(text);
+        }
     }
 
     /**
@@ -415,11 +576,48 @@ public class Controller {
     private void onLoad() {
         Stage stage = (Stage) loadButton.getScene().getWindow();
 
-        // Forza pulizia prima del caricamento
-        drawingPane.getChildren().clear();
-        currentShapes.clear();
+        // Le shape selezionate stanno per essere sostituite
+        mouseHandler.setSelectedShapeInstance(null);
+        multipleSelectionManager.clearSelection();
 
-        new Load(stage, currentShapes, drawingPane, fileManager).execute();
+        Load load = new Load(stage, currentShapes, shapePane, fileManager);
+        load.setProgressiveLoader(getProgressiveLoader());
+        load.execute();
+    }
+
+    /**
+     * Restituisce il caricatore progressivo, creandolo al primo uso e
+     * collegandolo alla barra di avanzamento e al pulsante di annullamento.
+     * Durante il caricamento salvataggio, strumenti di disegno e undo/redo
+     * restano disabilitati.
+     */
+    private ProgressiveLoader getProgressiveLoader() {
+        if (progressiveLoader == null) {
+            progressiveLoader = new ProgressiveLoader(fileManager, shapePane, currentShapes);
+            if (loadProgressBar != null) {
+                loadProgressBar.progressProperty().bind(progressiveLoader.progressProperty());
+                loadProgressBar.visibleProperty().bind(progressiveLoader.runningProperty());
+                loadProgressBar.managedProperty().bind(progressiveLoader.runningProperty());
+            }
+            if (cancelLoadButton != null) {
+                cancelLoadButton.visibleProperty().bind(progressiveLoader.runningProperty());
+                cancelLoadButton.managedProperty().bind(progressiveLoader.runningProperty());
+                cancelLoadButton.setOnAction(e -> progressiveLoader.cancel());
+            }
+            // Finché il caricamento non è completo il disegno è parziale:
+            // salvarlo, modificarlo o annullare comandi lo corromperebbe
+            ReadOnlyBooleanProperty loading = progressiveLoader.runningProperty();
+            for (Control control : List.of(saveButton, undoButton, redoButton, lineButton, rectButton,
+                    ellipseButton, polygonButton, textButton, pasteButton)) {
+                control.disableProperty().bind(loading);
+            }
+            drawingPane.disableProperty().bind(loading);
+        }
+        return progressiveLoader;
+    }
+
+    private boolean isLoading() {
+        return progressiveLoader != null && progressiveLoader.isRunning();
     }
 
     /**
@@ -431,7 +629,7 @@ public class Controller {
 
         updateMultiSelectButtonAppearance();
 
-        System.out.println("[CONTROLLER] Modalità selezione multipla: " + (isActive ? "ATTIVATA" : "DISATTIVATA"));
+        LOG.debug(() -> "[CONTROLLER] Modalità selezione multipla: " + (isActive ? "ATTIVATA" : "DISATTIVATA"));
     }
 
     /**
@@ -445,7 +643,7 @@ public class Controller {
             MultiChangeStrokeCommand command = new MultiChangeStrokeCommand(selectedShapes, newStroke);
             mouseHandler.applyUndoableStrategy(command);
 
-            System.out.println("[CONTROLLER] Stroke applicato a " + selectedShapes.size() + " shape");
+            LOG.debug(() -> "[CONTROLLER] Stroke applicato a " + selectedShapes.size() + " shape");
         } else {
             // Comportamento normale per singola selezione
             applyStroke();
@@ -463,7 +661,7 @@ public class Controller {
             MultiChangeFillCommand command = new MultiChangeFillCommand(selectedShapes, newFill);
             mouseHandler.applyUndoableStrategy(command);
 
-            System.out.println("[CONTROLLER] Fill applicato a " + selectedShapes.size() + " shape");
+            LOG.debug(() -> "[CONTROLLER] Fill applicato a " + selectedShapes.size() + " shape");
         } else {
             // Comportamento normale per singola selezione
             applyFill();
@@ -509,7 +707,7 @@ public class Controller {
             // Pulisce la selezione dopo l'eliminazione
             multipleSelectionManager.clearSelection();
 
-            System.out.println("[CONTROLLER] Eliminate " + selectedShapes.size() + " shape");
+            LOG.debug(() -> "[CONTROLLER] Eliminate " + selectedShapes.size() + " shape");
         } else {
             // Comportamento normale per singola selezione
             Shape selected = mouseHandler.getSelectedShapeInstance();
@@ -530,7 +728,7 @@ public class Controller {
             MultiCopyCommand command = new MultiCopyCommand(mouseHandler, selectedShapes);
             commandInvoker.execute(command);
 
-            System.out.println("[CONTROLLER] Copiate " + selectedShapes.size() + " shape");
+            LOG.debug(() -> "[CONTROLLER] Copiate " + selectedShapes.size() + " shape");
         } else {
             // Comportamento normale per singola selezione
             Shape selected = mouseHandler.getSelectedShapeInstance();
@@ -556,7 +754,7 @@ public class Controller {
                 multipleSelectionManager.removeFromSelection(firstShape);
             }
 
-            System.out.println("[CONTROLLER] Tagliata prima shape della selezione");
+            LOG.debug("[CONTROLLER] Tagliata prima shape della selezione");
         } else {
             // Comportamento normale per singola selezione
             Shape selected = mouseHandler.getSelectedShapeInstance();
@@ -573,19 +771,19 @@ public class Controller {
     private void bringSelectionToFront() {
         if (multipleSelectionManager.hasSelection()) {
             List<Shape> selectedShapes = multipleSelectionManager.getSelectedShapes();
-            int maxIndex = drawingPane.getChildren().size() - 1;
+            int maxIndex = shapeManager.getLayerCount() - 1;
 
             for (Shape shape : selectedShapes) {
                 commandInvoker.execute(new ZLevelsToFront(shapeManager, shape, maxIndex));
             }
 
-            System.out.println("[CONTROLLER] Portate in primo piano " + selectedShapes.size() + " shape");
+            LOG.debug(() -> "[CONTROLLER] Portate in primo piano " + selectedShapes.size() + " shape");
         } else {
             // Comportamento normale per singola selezione
             Shape selected = mouseHandler.getSelectedShapeInstance();
             if (selected != null) {
-                int maxIndex = drawingPane.getChildren().size() - 1;
-                System.out.println("[FRONT] Portando " + selected.getClass().getSimpleName() + " all'indice " + maxIndex);
+                int maxIndex = shapeManager.getLayerCount() - 1;
+                LOG.debug(() -> "[FRONT] Portando " + selected.getClass().getSimpleName() + " all'indice " + maxIndex);
                 commandInvoker.execute(new ZLevelsToFront(shapeManager, selected, maxIndex));
             }
         }
@@ -603,13 +801,13 @@ public class Controller {
                 commandInvoker.execute(new ZLevelsToBack(shapeManager, shape, gridCount));
             }
 
-            System.out.println("[CONTROLLER] Portate in secondo piano " + selectedShapes.size() + " shape");
+            LOG.debug(() -> "[CONTROLLER] Portate in secondo piano " + selectedShapes.size() + " shape");
         } else {
             // Comportamento normale per singola selezione
             Shape selected = mouseHandler.getSelectedShapeInstance();
             if (selected != null) {
                 int gridCount = gridManager.getGridLayerCount();
-                System.out.println("[BACK] Portando " + selected.getClass().getSimpleName() + " all'indice " + gridCount);
+                LOG.debug(() -> "[BACK] Portando " + selected.getClass().getSimpleName() + " all'indice " + gridCount);
                 commandInvoker.execute(new ZLevelsToBack(shapeManager, selected, gridCount));
             }
         }
@@ -623,7 +821,7 @@ public class Controller {
             List<AbstractShape> allShapes = new ArrayList<>(currentShapes);
             multipleSelectionManager.selectAll(allShapes);
 
-            System.out.println("[CONTROLLER] Selezionate tutte le shape: " + allShapes.size());
+            LOG.debug(() -> "[CONTROLLER] Selezionate tutte le shape: " + allShapes.size());
         }
     }
 
@@ -633,7 +831,7 @@ public class Controller {
     private void clearAllSelection() {
         multipleSelectionManager.clearSelection();
         mouseHandler.setSelectedShapeInstance(null);
-        System.out.println("[CONTROLLER] Selezione pulita");
+        LOG.debug("[CONTROLLER] Selezione pulita");
     }
 
     /**
@@ -646,7 +844,7 @@ public class Controller {
             MultiMoveCommand command = new MultiMoveCommand(selectedShapes, deltaX, deltaY);
             mouseHandler.applyUndoableStrategy(command);
 
-            System.out.println("[CONTROLLER] Spostate " + selectedShapes.size() + " shape di (" + deltaX + ", " + deltaY + ")");
+            LOG.debug(() -> "[CONTROLLER] Spostate " + selectedShapes.size() + " shape di (" + deltaX + ", " + deltaY + ")");
         }
     }
 
@@ -725,6 +923,20 @@ public class Controller {
                         clearAllSelection();
                         event.consume();
                     }
+                    case Z -> {
+                        // Ctrl+Z: Annulla, Ctrl+Shift+Z: Ripeti
+                        if (event.isShiftDown()) {
+                            onRedo();
+                        } else {
+                            onUndo();
+                        }
+                        event.consume();
+                    }
+                    case Y -> {
+                        // Ctrl+Y: Ripeti
+                        onRedo();
+                        event.consume();
+                    }
                     case M -> {
                         // Ctrl+M: Toggle modalità multi-selezione
                         toggleMultipleSelectionMode();
@@ -836,14 +1048,26 @@ public class Controller {
             }
         });
 
-        // Listener per aggiornamento stato controlli
-        Platform.runLater(() -> {
-            javafx.animation.Timeline controlsUpdateTimer = new javafx.animation.Timeline(
-                    new javafx.animation.KeyFrame(javafx.util.Duration.millis(300), e -> updateControlsState())
-            );
-            controlsUpdateTimer.setCycleCount(javafx.animation.Timeline.INDEFINITE);
-            controlsUpdateTimer.play();
+    }
+
+    /**
+     * Aggiorna etichette e controlli solo quando la selezione o il numero di
+     * shape cambiano, invece di interrogarli periodicamente. Le notifiche
+     * arrivate nello stesso pulse producono un solo aggiornamento; senza
+     * modifiche il thread JavaFX resta inattivo.
+     */
+    private void setupSelectionStateUpdates() {
+        PulseCoalescer selectionStateUpdate = new PulseCoalescer(() -> {
+            updateSelectionInfo();
+            updateControlsState();
         });
+        multipleSelectionManager.addSelectionListener(selectionStateUpdate::request);
+        mouseHandler.addSelectionListener(selectionStateUpdate::request);
+        // il pulsante "seleziona tutto" dipende anche dalla presenza di shape
+        shapePane.getChildren().addListener((javafx.beans.InvalidationListener) obs -> selectionStateUpdate.request());
+
+        updateSelectionInfo();
+        updateControlsState();
     }
 
     /**
@@ -913,7 +1137,7 @@ public class Controller {
      */
     public void duplicateSelection() {
         if (!multipleSelectionManager.hasSelection()) {
-            System.out.println("[DUPLICATE] Nessuna selezione da duplicare");
+            LOG.debug("[DUPLICATE] Nessuna selezione da duplicare");
             return;
         }
 
@@ -935,13 +1159,13 @@ public class Controller {
                     // Aggiungi al canvas
                     AbstractShape abstractClone = AbstractShape.unwrapToAbstract(clonedShape);
                     currentShapes.add(abstractClone);
-                    drawingPane.getChildren().add(clonedShape.getNode());
+                    shapePane.getChildren().add(clonedShape.getNode());
                     clonedShape.getNode().setUserData(clonedShape);
 
                     duplicatedShapes.add(abstractClone);
                 }
             } catch (Exception e) {
-                System.err.println("[DUPLICATE] Errore nella duplicazione: " + e.getMessage());
+                LOG.warn("[DUPLICATE] Errore nella duplicazione: " + e.getMessage());
             }
         }
 
@@ -950,7 +1174,7 @@ public class Controller {
             multipleSelectionManager.clearSelection();
             multipleSelectionManager.selectAll(duplicatedShapes);
 
-            System.out.println("[DUPLICATE] Duplicate " + duplicatedShapes.size() + " shape");
+            LOG.debug(() -> "[DUPLICATE] Duplicate " + duplicatedShapes.size() + " shape");
         }
     }
 
@@ -984,7 +1208,23 @@ public class Controller {
      */
     @FXML
     private void onUndo() {
+        if (isLoading()) {
+            return;
+        }
         commandInvoker.undo();
+        LOG.debug(() -> "[CONTROLLER] Cronologia: " + commandInvoker.getHistoryInfo());
+    }
+
+    /**
+     * Ripete l'ultimo comando annullato (redo).
+     */
+    @FXML
+    private void onRedo() {
+        if (isLoading()) {
+            return;
+        }
+        commandInvoker.redo();
+        LOG.debug(() -> "[CONTROLLER] Cronologia: " + commandInvoker.getHistoryInfo());
     }
 
     /**
@@ -994,18 +1234,18 @@ public class Controller {
         Shape clipboardShape = mouseHandler.getClipboard();
 
         if (clipboardShape == null) {
-            System.out.println("[PASTE MODE] Clipboard vuoto - nessuna operazione");
+            LOG.debug("[PASTE MODE] Clipboard vuoto - nessuna operazione");
             return;
         }
 
-        System.out.println("[PASTE MODE] Attivato: clicca sul canvas per incollare "
+        LOG.debug(() -> "[PASTE MODE] Attivato: clicca sul canvas per incollare "
                 + clipboardShape.getClass().getSimpleName());
 
         drawingPane.setOnMouseClicked(event -> {
             double clickX = event.getX();
             double clickY = event.getY();
 
-            System.out.println("[PASTE MODE] Click rilevato su: " + clickX + ", " + clickY);
+            LOG.debug(() -> "[PASTE MODE] Click rilevato su: " + clickX + ", " + clickY);
 
             // Esegui il comando paste migliorato
             commandInvoker.execute(new Paste(mouseHandler, shapeManager, clickX, clickY));
@@ -1013,7 +1253,7 @@ public class Controller {
             // Ripristina il comportamento normale del mouse
             setupMultiSelectionListeners();
 
-            System.out.println("[PASTE MODE] Modalità paste disattivata");
+            LOG.debug("[PASTE MODE] Modalità paste disattivata");
         });
     }
 
@@ -1060,7 +1300,7 @@ public class Controller {
 
             double fontSize = fontSizeSpinner.getValue();
 
-            TextShapeCreator factory = new TextShapeCreator();
+            ShapeCreator factory = ConcreteShapeCreator.getCreator("Testo");
             Shape shape = factory.createShape(
                     text, x, y,
                     strokePicker.getValue() != null ? strokePicker.getValue() : javafx.scene.paint.Color.BLACK,
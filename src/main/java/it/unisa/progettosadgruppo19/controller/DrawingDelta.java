@@ -0,0 +1,310 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.adapter.ShapeAdapter;
+import it.unisa.progettosadgruppo19.model.serialization.BinaryDrawingFormat;
+import it.unisa.progettosadgruppo19.model.serialization.DrawingStats;
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Differenze tra il disegno corrente e uno stato registrato in precedenza
+ * (un salvataggio su file o un record del journal), espresse come segmento
+ * di {@link BinaryDrawingFormat}: shape rimosse, modificate e aggiunte in
+ * coda.
+ * <p>
+ * Lo stato registrato è identificato da una traccia e da una generazione
+ * ({@link AbstractShape#getSavedSlot(int, long)}) e da un valore
+ * dell'orologio delle modifiche. Con una {@link ShapeList} il calcolo parte
+ * dalle modifiche raccolte dalla lista e legge solo le shape cambiate;
+ * altrimenti, o quando sono state rimosse shape prima della coda dello
+ * stato registrato, legge due campi per ogni shape. In entrambi i casi copia
+ * solo i dati delle shape cambiate; va eseguito sul thread JavaFX.
+ */
+final class DrawingDelta {
+
+    final int countBefore;
+    final int[] removed;
+    final int[] updatePositions;
+    final List<ShapeData> updates;
+    final List<ShapeData> appends;
+
+    /**
+     * Generazione con cui sono marcate le shape dopo il calcolo.
+     */
+    final long generation;
+
+    private DrawingDelta(int countBefore, int[] removed, int[] updatePositions,
+            List<ShapeData> updates, List<ShapeData> appends, long generation) {
+        this.countBefore = countBefore;
+        this.removed = removed;
+        this.updatePositions = updatePositions;
+        this.updates = updates;
+        this.appends = appends;
+        this.generation = generation;
+    }
+
+    /**
+     * Calcola le differenze rispetto allo stato registrato e marca le shape
+     * con la nuova generazione, oppure con quella dello stato registrato se
+     * le posizioni delle shape rimaste non cambiano ({@link #generation}).
+     *
+     * @param shapes shape del disegno, in ordine
+     * @param track traccia delle posizioni
+     * @param baseGeneration generazione dello stato registrato
+     * @param baseCount numero di shape dello stato registrato
+     * @param baseStamp orologio delle modifiche allo stato registrato
+     * @param nextGeneration generazione con cui marcare le shape
+     * @return le differenze, oppure null (senza modificare le shape) se
+     * l'ordine delle shape è cambiato
+     */
+    static DrawingDelta compute(List<AbstractShape> shapes, int track, long baseGeneration, int baseCount,
+            long baseStamp, long nextGeneration) {
+        if (shapes instanceof ShapeList list) {
+            ShapeList.Changes changes = list.getChanges(track, baseGeneration);
+            if (changes != null) {
+                DrawingDelta delta = fromChanges(list, changes, track, baseCount, baseStamp);
+                if (delta != null) {
+                    return delta;
+                }
+            }
+        }
+
+        // Le shape registrate devono comparire nello stesso ordine e quelle
+        // nuove solo in coda; altrimenti l'ordine è cambiato
+        BitSet present = new BitSet(baseCount);
+        int previous = -1;
+        int firstNew = shapes.size();
+        for (int i = 0; i < shapes.size(); i++) {
+            int slot = shapes.get(i).getSavedSlot(track, baseGeneration);
+            if (slot < 0) {
+                if (firstNew == shapes.size()) {
+                    firstNew = i;
+                }
+                continue;
+            }
+            if (firstNew < shapes.size() || slot <= previous || slot >= baseCount) {
+                return null;
+            }
+            present.set(slot);
+            previous = slot;
+        }
+
+        int[] removed = new int[baseCount - present.cardinality()];
+        for (int slot = present.nextClearBit(0), k = 0; slot < baseCount; slot = present.nextClearBit(slot + 1)) {
+            removed[k++] = slot;
+        }
+
+        List<Integer> positions = new ArrayList<>();
+        List<ShapeData> updates = new ArrayList<>();
+        List<ShapeData> appends = new ArrayList<>(shapes.size() - firstNew);
+        for (int i = 0; i < shapes.size(); i++) {
+            AbstractShape shape = shapes.get(i);
+            if (i >= firstNew) {
+                appends.add(new ShapeAdapter(shape).getShapeData());
+                shape.rearmModificationTracking();
+            } else if (shape.getModificationStamp() > baseStamp) {
+                positions.add(i);
+                updates.add(new ShapeAdapter(shape).getShapeData());
+                shape.rearmModificationTracking();
+            }
+            mark(shapes, shape, track, nextGeneration, i);
+        }
+        marked(shapes, track, nextGeneration);
+        int[] updatePositions = positions.stream().mapToInt(Integer::intValue).toArray();
+        return new DrawingDelta(baseCount, removed, updatePositions, updates, appends, nextGeneration);
+    }
+
+    /**
+     * Calcola le differenze dalle modifiche raccolte dalla lista, leggendo
+     * solo le shape modificate, rimosse o aggiunte. Le shape rimaste
+     * mantengono posizione e generazione dello stato registrato.
+     *
+     * @return le differenze, oppure null (senza modificare le shape) se sono
+     * state rimosse shape prima della coda dello stato registrato: le
+     * posizioni successive cambierebbero e andrebbero rimarcate tutte
+     */
+    private static DrawingDelta fromChanges(ShapeList shapes, ShapeList.Changes changes, int track,
+            int baseCount, long baseStamp) {
+        long generation = changes.generation;
+        int removedCount = 0;
+        int firstRemoved = baseCount;
+        for (AbstractShape shape : changes.removed) {
+            int slot = shape.getSavedSlot(track, generation);
+            if (slot >= 0) {
+                removedCount++;
+                firstRemoved = Math.min(firstRemoved, slot);
+            }
+        }
+        int kept = baseCount - removedCount;
+        if (firstRemoved < kept || shapes.size() < kept) {
+            return null;
+        }
+
+        List<AbstractShape> modified = new ArrayList<>();
+        for (AbstractShape shape : changes.modified) {
+            int slot = shape.getSavedSlot(track, generation);
+            if (slot >= 0 && slot < kept && shape.getModificationStamp() > baseStamp) {
+                modified.add(shape);
+            }
+        }
+        modified.sort(Comparator.comparingInt(shape -> shape.getSavedSlot(track, generation)));
+
+        int[] removed = new int[removedCount];
+        for (int k = 0; k < removedCount; k++) {
+            removed[k] = kept + k;
+        }
+        for (AbstractShape shape : changes.removed) {
+            if (shape.getSavedSlot(track, generation) >= 0) {
+                shape.setSavedSlot(track, -1, -1);
+            }
+        }
+
+        int[] updatePositions = new int[modified.size()];
+        List<ShapeData> updates = new ArrayList<>(modified.size());
+        for (int k = 0; k < modified.size(); k++) {
+            AbstractShape shape = modified.get(k);
+            updatePositions[k] = shape.getSavedSlot(track, generation);
+            updates.add(new ShapeAdapter(shape).getShapeData());
+            shape.rearmModificationTracking();
+        }
+
+        List<ShapeData> appends = new ArrayList<>(shapes.size() - kept);
+        for (int i = kept; i < shapes.size(); i++) {
+            AbstractShape shape = shapes.get(i);
+            appends.add(new ShapeAdapter(shape).getShapeData());
+            shape.rearmModificationTracking();
+            mark(shapes, shape, track, generation, i);
+        }
+        shapes.resetChanges(track, generation);
+        return new DrawingDelta(baseCount, removed, updatePositions, updates, appends, generation);
+    }
+
+    /**
+     * Differenze che sostituiscono l'intero stato registrato con il disegno
+     * corrente: tutte le shape registrate vengono rimosse e quelle correnti
+     * aggiunte.
+     */
+    static DrawingDelta full(List<AbstractShape> shapes, int track, int baseCount, long nextGeneration) {
+        List<ShapeData> appends = new ArrayList<>(shapes.size());
+        for (int i = 0; i < shapes.size(); i++) {
+            AbstractShape shape = shapes.get(i);
+            appends.add(new ShapeAdapter(shape).getShapeData());
+            shape.rearmModificationTracking();
+            mark(shapes, shape, track, nextGeneration, i);
+        }
+        marked(shapes, track, nextGeneration);
+        return replacing(baseCount, appends, nextGeneration);
+    }
+
+    /**
+     * Differenze che sostituiscono l'intero stato registrato con i dati
+     * indicati. Non legge le shape: può essere usato fuori dal thread JavaFX.
+     */
+    static DrawingDelta replacing(int baseCount, List<ShapeData> data) {
+        return replacing(baseCount, data, -1);
+    }
+
+    private static DrawingDelta replacing(int baseCount, List<ShapeData> data, long generation) {
+        int[] removed = new int[baseCount];
+        for (int i = 0; i < baseCount; i++) {
+            removed[i] = i;
+        }
+        return new DrawingDelta(baseCount, removed, new int[0], List.of(), data, generation);
+    }
+
+    /**
+     * Registra la posizione della shape nello stato di una traccia e, se la
+     * lista raccoglie le modifiche ({@link ShapeList}), fa sì che la shape
+     * le segnali. Dopo aver marcato tutte le shape va chiamato
+     * {@link #marked(List, int, long)}.
+     */
+    static void mark(List<AbstractShape> shapes, AbstractShape shape, int track, long generation, int slot) {
+        shape.setSavedSlot(track, generation, slot);
+        shape.setModificationListener(shapes instanceof ShapeList list ? list.modificationListener() : null);
+    }
+
+    /**
+     * Indica che tutte le shape della lista sono state marcate con la
+     * generazione indicata: da qui la lista raccoglie le modifiche della
+     * traccia.
+     */
+    static void marked(List<AbstractShape> shapes, int track, long generation) {
+        if (shapes instanceof ShapeList list) {
+            list.resetChanges(track, generation);
+        }
+    }
+
+    /**
+     * Numero di shape rimosse, modificate o aggiunte.
+     */
+    int changedShapes() {
+        return removed.length + updatePositions.length + appends.size();
+    }
+
+    boolean isEmpty() {
+        return changedShapes() == 0;
+    }
+
+    int countAfter() {
+        return countBefore - removed.length + appends.size();
+    }
+
+    /**
+     * Tag di tipo delle shape dopo le differenze, dati quelli dello stato
+     * registrato: le shape modificate mantengono il loro tipo.
+     */
+    byte[] tagsAfter(byte[] tagsBefore) {
+        byte[] tags = new byte[countAfter()];
+        int kept = 0;
+        int next = 0;
+        for (int i = 0; i < countBefore; i++) {
+            if (next < removed.length && removed[next] == i) {
+                next++;
+            } else {
+                tags[kept++] = tagsBefore[i];
+            }
+        }
+        for (ShapeData data : appends) {
+            tags[kept++] = BinaryDrawingFormat.tagFor(data.getType());
+        }
+        return tags;
+    }
+
+    /**
+     * Statistiche del disegno dopo le differenze, dati quelle e i tag dello
+     * stato registrato. I conteggi sono esatti; il rettangolo include quello
+     * precedente e le shape modificate o aggiunte.
+     */
+    DrawingStats statsAfter(DrawingStats before, byte[] tagsBefore) {
+        DrawingStats stats = before.copy();
+        for (int position : removed) {
+            stats.remove(tagsBefore[position]);
+        }
+        for (ShapeData data : updates) {
+            stats.add(data);
+            stats.remove(BinaryDrawingFormat.tagFor(data.getType()));
+        }
+        for (ShapeData data : appends) {
+            stats.add(data);
+        }
+        return stats;
+    }
+
+    /**
+     * Scrive le differenze come segmento di {@link BinaryDrawingFormat}.
+     *
+     * @param stats statistiche del disegno dopo le differenze, oppure null
+     * @return il numero di byte scritti
+     */
+    long write(long segmentStart, DrawingStats stats, OutputStream out) throws IOException {
+        return BinaryDrawingFormat.writeSegment(countBefore, removed, updatePositions, updates, appends,
+                segmentStart, stats, out);
+    }
+}
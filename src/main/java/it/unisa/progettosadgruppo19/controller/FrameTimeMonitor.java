@@ -0,0 +1,54 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Misura l'intervallo tra pulse consecutivi e ne stampa periodicamente media
+ * e massimo, per confrontare i tempi di frame delle diverse modalità di
+ * rendering su disegni di grandi dimensioni.
+ * <p>
+ * Si attiva all'avvio con {@code -D}{@value #PROPERTY}{@code =true}.
+ */
+public class FrameTimeMonitor extends AnimationTimer {
+
+    public static final String PROPERTY = "drawing.frameStats";
+
+    private static final long REPORT_INTERVAL_NANOS = 5_000_000_000L;
+
+    private final String label;
+    private long lastFrame = -1;
+    private long windowStart = -1;
+    private long totalNanos;
+    private long maxNanos;
+    private int frames;
+
+    public FrameTimeMonitor(String label) {
+        this.label = label;
+    }
+
+    public static boolean isEnabled() {
+        return Boolean.getBoolean(PROPERTY);
+    }
+
+    @Override
+    public void handle(long now) {
+        if (lastFrame >= 0) {
+            long delta = now - lastFrame;
+            totalNanos += delta;
+            maxNanos = Math.max(maxNanos, delta);
+            frames++;
+        } else {
+            windowStart = now;
+        }
+        lastFrame = now;
+
+        if (now - windowStart >= REPORT_INTERVAL_NANOS && frames > 0) {
+            System.out.printf("[FRAME] %s: %d frame, media %.2f ms, max %.2f ms%n",
+                    label, frames, totalNanos / 1e6 / frames, maxNanos / 1e6);
+            windowStart = now;
+            totalNanos = 0;
+            maxNanos = 0;
+            frames = 0;
+        }
+    }
+}
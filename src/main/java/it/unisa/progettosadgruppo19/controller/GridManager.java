@@ -1,13 +1,16 @@
-
 /*
  * Click nbfs://nbhost/SystemFileSystem/Templates/Licenses/license-default.txt to change this license
  * Click nbfs://nbhost/SystemFileSystem/Templates/Classes/Class.java to edit this template
  */
 package it.unisa.progettosadgruppo19.controller;
 
+import javafx.beans.InvalidationListener;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -15,20 +18,37 @@ import java.util.List;
 /**
  * Gestisce la visualizzazione di una griglia sul Pane di disegno permettendo di
  * attivarla/disattivarla e di impostarne la spaziatura.
+ * <p>
+ * La griglia è un unico nodo {@link Path}, tenuto in fondo ai figli del Pane:
+ * attivarla o disattivarla ne cambia solo la visibilità, mentre il percorso
+ * viene ricostruito soltanto quando cambiano spaziatura, dimensioni del Pane
+ * o livello di zoom.
  */
 public class GridManager {
 
-    private final List<Line> gridLines = new ArrayList<>();
+    private static final double DASH = 2.0;
+    private static final double GAP = 4.0;
+
+    private final Path gridPath = new Path();
     private final Pane drawingPane;
     private boolean gridVisible = false;
+    private boolean stale = true;
 
     private double spacing = 20;
+    private double zoom = 1.0;
 
     /**
      * Permette di cambiare la spaziatura della griglia
      */
     public void setSpacing(double spacing) {
-        this.spacing = spacing;
+        if (spacing > 0 && spacing != this.spacing) {
+            this.spacing = spacing;
+            invalidate();
+        }
+    }
+
+    public double getSpacing() {
+        return spacing;
     }
 
     /**
@@ -39,14 +59,25 @@ public class GridManager {
      */
     public GridManager(Pane drawingPane) {
         this.drawingPane = drawingPane;
+
+        gridPath.setStroke(Color.LIGHTGRAY);
+        gridPath.setMouseTransparent(true);
+        gridPath.setManaged(false);
+        gridPath.setVisible(false);
+        applyZoomToStroke();
+
+        InvalidationListener resize = obs -> invalidate();
+        drawingPane.widthProperty().addListener(resize);
+        drawingPane.heightProperty().addListener(resize);
     }
 
     /**
-     * Attiva o disattiva la griglia. Se attivata, disegna la griglia con la
-     * spaziatura corrente; se disattivata, la rimuove.
+     * Attiva o disattiva la griglia. Se attivata, mostra la griglia con la
+     * spaziatura corrente; se disattivata, la nasconde.
      */
     public void toggleGrid() {
-        gridVisible = !gridVisible;
+        // dopo uno svuotamento del Pane la griglia non è più mostrata
+        gridVisible = !isGridVisible();
 
         if (gridVisible) {
             drawGrid();
@@ -56,49 +87,93 @@ public class GridManager {
     }
 
     /**
-     * Disegna le linee orizzontali e verticali sulla base dello spazio
-     * impostato e delle dimensioni del Pane.
+     * Indica se la griglia è attualmente mostrata sul Pane.
      */
-    private void drawGrid() {
-        //final double spacing = 20;
-        final double width = drawingPane.getWidth();
-        final double height = drawingPane.getHeight();
+    public boolean isGridVisible() {
+        return gridVisible && gridPath.getParent() == drawingPane;
+    }
 
-        for (double x = 0; x < width; x += spacing) {
-            Line line = new Line(x, 0, x, height);
-            line.setStroke(Color.LIGHTGRAY);
-            line.getStrokeDashArray().addAll(2.0, 4.0);
-            line.setMouseTransparent(true);
-            drawingPane.getChildren().add(0, line);
-            gridLines.add(line);
+    /**
+     * Aggiorna la griglia al fattore di zoom del Pane: lo spessore e il
+     * tratteggio vengono compensati così che le linee restino sottili.
+     */
+    public void setZoom(double zoom) {
+        if (zoom > 0 && zoom != this.zoom) {
+            this.zoom = zoom;
+            applyZoomToStroke();
         }
+    }
 
-        for (double y = 0; y < height; y += spacing) {
-            Line line = new Line(0, y, width, y);
-            line.setStroke(Color.LIGHTGRAY);
-            line.getStrokeDashArray().addAll(2.0, 4.0);
-            line.setMouseTransparent(true);
-            drawingPane.getChildren().add(0, line);
-            gridLines.add(line);
+    /**
+     * Mostra il nodo della griglia, inserendolo in fondo ai figli del Pane se
+     * non è già presente (ad esempio dopo uno svuotamento del disegno) e
+     * ricostruendone il percorso solo se non più valido.
+     */
+    private void drawGrid() {
+        if (stale) {
+            rebuildPath();
         }
+        if (gridPath.getParent() != drawingPane) {
+            drawingPane.getChildren().add(0, gridPath);
+        }
+        gridPath.setVisible(true);
     }
 
     /**
-     * Rimuove tutte le linee della griglia dal Pane di disegno e svuota la
-     * lista interna.
+     * Nasconde la griglia senza rimuoverla dal Pane.
      */
     private void removeGrid() {
-        drawingPane.getChildren().removeAll(gridLines);
-        gridLines.clear();
+        gridPath.setVisible(false);
     }
 
     /**
-     * Restituisce il numero di linee attualmente visibili (layer di griglia).
+     * Restituisce il numero di nodi di griglia presenti in fondo ai figli del
+     * Pane, da usare come primo indice disponibile per le shape.
      *
-     * @return dimensione della lista di linee disegnate.
+     * @return 1 se il nodo della griglia è nel Pane, 0 altrimenti.
      */
     public int getGridLayerCount() {
-        return gridLines.size();
+        return gridPath.getParent() == drawingPane ? 1 : 0;
+    }
+
+    Path getGridNode() {
+        return gridPath;
+    }
+
+    private void invalidate() {
+        stale = true;
+        if (isGridVisible()) {
+            rebuildPath();
+        }
+    }
+
+    /**
+     * Ricostruisce le linee orizzontali e verticali sulla base dello spazio
+     * impostato e delle dimensioni del Pane, con un'unica modifica della lista
+     * degli elementi del percorso.
+     */
+    private void rebuildPath() {
+        final double width = drawingPane.getWidth();
+        final double height = drawingPane.getHeight();
+        List<PathElement> elements = new ArrayList<>();
+
+        for (double x = 0; x < width; x += spacing) {
+            elements.add(new MoveTo(x, 0));
+            elements.add(new LineTo(x, height));
+        }
+
+        for (double y = 0; y < height; y += spacing) {
+            elements.add(new MoveTo(0, y));
+            elements.add(new LineTo(width, y));
+        }
+
+        gridPath.getElements().setAll(elements);
+        stale = false;
+    }
+
+    private void applyZoomToStroke() {
+        gridPath.setStrokeWidth(1.0 / zoom);
+        gridPath.getStrokeDashArray().setAll(DASH / zoom, GAP / zoom);
     }
 
 }
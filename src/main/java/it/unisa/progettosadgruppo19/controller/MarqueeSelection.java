@@ -0,0 +1,146 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.Shape;
+
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Selezione a rettangolo (marquee) sul Pane di disegno.
+ * <p>
+ * Durante il trascinamento viene mostrato un rettangolo tratteggiato,
+ * trasparente al mouse e quindi ignorato da {@link ShapeSpatialIndex}.
+ * Al rilascio le shape vengono raccolte con un'unica interrogazione
+ * dell'indice spaziale, senza scorrere tutte le shape del disegno.
+ * <p>
+ * La modalità dipende dalla direzione del trascinamento, come nei comuni
+ * programmi CAD: da sinistra verso destra vengono selezionate solo le shape
+ * interamente contenute ({@link Mode#CONTAINS}), da destra verso sinistra
+ * anche quelle che intersecano il rettangolo ({@link Mode#INTERSECTS}).
+ */
+public class MarqueeSelection {
+
+    /**
+     * Criterio con cui una shape viene inclusa nella selezione.
+     */
+    public enum Mode {
+        CONTAINS,
+        INTERSECTS
+    }
+
+    private final Pane pane;
+    private final ShapeSpatialIndex index;
+    private final Rectangle marquee = new Rectangle();
+
+    private double startX, startY;
+    private double endX, endY;
+    private boolean active = false;
+
+    public MarqueeSelection(ShapeSpatialIndex index) {
+        this.index = index;
+        this.pane = index.getPane();
+
+        marquee.setMouseTransparent(true);
+        marquee.setManaged(false);
+        marquee.setFill(Color.rgb(30, 144, 255, 0.12));
+        marquee.setStroke(Color.DODGERBLUE);
+        marquee.getStrokeDashArray().setAll(6.0, 4.0);
+    }
+
+    /**
+     * Inizia una nuova selezione a rettangolo dal punto indicato.
+     */
+    public void start(double x, double y) {
+        startX = endX = x;
+        startY = endY = y;
+        active = true;
+        updateRectangle();
+        if (marquee.getParent() == null) {
+            pane.getChildren().add(marquee);
+        }
+    }
+
+    /**
+     * Aggiorna l'angolo opposto del rettangolo durante il trascinamento.
+     */
+    public void update(double x, double y) {
+        if (!active) {
+            return;
+        }
+        endX = x;
+        endY = y;
+        updateRectangle();
+    }
+
+    /**
+     * Termina la selezione, rimuove il rettangolo dal Pane e restituisce le
+     * shape individuate.
+     */
+    public List<Shape> finish(double x, double y) {
+        update(x, y);
+        cancel();
+        return collect(Math.min(startX, endX), Math.min(startY, endY),
+                Math.max(startX, endX), Math.max(startY, endY), getMode());
+    }
+
+    /**
+     * Annulla la selezione in corso senza raccogliere shape.
+     */
+    public void cancel() {
+        active = false;
+        pane.getChildren().remove(marquee);
+    }
+
+    public boolean isActive() {
+        return active;
+    }
+
+    /**
+     * Modalità corrente, determinata dalla direzione del trascinamento.
+     */
+    public Mode getMode() {
+        return endX >= startX ? Mode.CONTAINS : Mode.INTERSECTS;
+    }
+
+    /**
+     * Restituisce le shape del rettangolo indicato (in coordinate del Pane)
+     * secondo la modalità richiesta.
+     * <p>
+     * L'indice restituisce i candidati i cui bounds intersecano il
+     * rettangolo; per {@link Mode#CONTAINS} si verifica che i bounds siano
+     * interamente inclusi, per {@link Mode#INTERSECTS} si verifica
+     * l'intersezione con la geometria effettiva del nodo.
+     */
+    public List<Shape> collect(double minX, double minY, double maxX, double maxY, Mode mode) {
+        Bounds area = new BoundingBox(minX, minY, maxX - minX, maxY - minY);
+        List<Node> candidates = index.queryRect(minX, minY, maxX, maxY);
+        List<Shape> result = new ArrayList<>(candidates.size());
+
+        for (Node node : candidates) {
+            if (!(node.getUserData() instanceof Shape shape)) {
+                continue;
+            }
+            boolean hit = mode == Mode.CONTAINS
+                    ? area.contains(node.getBoundsInParent())
+                    : node.intersects(node.parentToLocal(area));
+            if (hit) {
+                result.add(shape);
+            }
+        }
+        return result;
+    }
+
+    private void updateRectangle() {
+        marquee.setX(Math.min(startX, endX));
+        marquee.setY(Math.min(startY, endY));
+        marquee.setWidth(Math.abs(endX - startX));
+        marquee.setHeight(Math.abs(endY - startY));
+    }
+}
@@ -7,6 +7,7 @@ import it.unisa.progettosadgruppo19.command.UndoableCommand;
 import it.unisa.progettosadgruppo19.command.MouseMultiInputs;
 import it.unisa.progettosadgruppo19.command.StackUndoInvoker;
 import it.unisa.progettosadgruppo19.command.multi.MultiMoveCommand;
+import it.unisa.progettosadgruppo19.command.polygon.ResizePolygon;
 import it.unisa.progettosadgruppo19.decorator.FillDecorator;
 import it.unisa.progettosadgruppo19.decorator.StrokeDecorator;
 import it.unisa.progettosadgruppo19.factory.ConcreteShapeCreator;
@@ -19,9 +20,10 @@ import it.unisa.progettosadgruppo19.command.receivers.ClipboardReceiver;
 import it.unisa.progettosadgruppo19.model.shapes.TextShape;
 import it.unisa.progettosadgruppo19.strategy.*;
 import it.unisa.progettosadgruppo19.util.GeometryUtils;
+import it.unisa.progettosadgruppo19.util.Log;
 
+import javafx.geometry.Point2D;
 import javafx.scene.Node;
-import javafx.scene.effect.DropShadow;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
@@ -32,6 +34,7 @@ import javafx.scene.shape.Polygon;
 
 import java.util.List;
 import java.util.ArrayList;
+import java.util.Arrays;
 import javafx.scene.control.TextField;
 import javafx.scene.text.Text;
 
@@ -45,8 +48,12 @@ import javafx.scene.text.Text;
  */
 public class MouseEventHandler implements ClipboardReceiver {
 
+    private static final Log LOG = Log.get(MouseEventHandler.class);
+
     private final Pane drawingPane;
+    private Pane overlayPane;
     private final List<AbstractShape> currentShapes;
+    private ShapeSpatialIndex spatialIndex;
 
     private String text;
     private double toolbarHeight = 50;
@@ -72,11 +79,17 @@ public class MouseEventHandler implements ClipboardReceiver {
 
     // Variabili specifiche per i poligoni
     private double origPolygonX, origPolygonY, origPolygonWidth, origPolygonHeight;
-    private List<Double> origPolygonPoints;
+    private double[] origPolygonPoints;
+    // Buffer riutilizzato durante il resize dei poligoni per evitare allocazioni per evento
+    private double[] polygonResizeBuffer;
+    // Buffer riutilizzato nel test di contenimento dei poligoni, al posto della lista di Double del nodo
+    private double[] hitTestBuffer;
 
     private static final double HANDLE_RADIUS = 6.0;
     private static final double ELLIPSE_BORDER_TOLERANCE = 6.0;
     private static final double POLYGON_BORDER_TOLERANCE = 8.0;
+    // Margine della query sull'indice: copre la tolleranza massima dei test di hit
+    private static final double HIT_QUERY_TOLERANCE = 10.0;
 
     private Shape shapeToPaste;
     private Shape clipboardBuffer;
@@ -85,12 +98,26 @@ public class MouseEventHandler implements ClipboardReceiver {
     private double pressX, pressY;
 
     private StackUndoInvoker invoker;
+    private ShapeManager shapeManager;
 
     // NUOVI CAMPI PER SELEZIONE MULTIPLA
     private MultipleSelectionManager multipleSelectionManager;
     private boolean isDraggingSelection = false;
     private double selectionDragStartX, selectionDragStartY;
 
+    // Selezione a rettangolo (marquee), creata al primo utilizzo
+    private MarqueeSelection marqueeSelection;
+
+    // Livello che evidenzia la shape selezionata, creato al primo utilizzo
+    private SelectionOverlay selectionOverlay;
+    private final List<SelectionListener> selectionListeners = new ArrayList<>(1);
+    private boolean suppressNextClick = false;
+
+    // Trascinamento: gli eventi registrano solo l'ultima posizione, applicata
+    // una volta per pulse
+    private final PulseCoalescer dragPulse = new PulseCoalescer(this::applyPendingDrag);
+    private double pendingDragX, pendingDragY;
+
     public void setFontSize(double fontSize) {
         this.fontSize = fontSize;
     }
@@ -109,10 +136,19 @@ public class MouseEventHandler implements ClipboardReceiver {
      */
     public MouseEventHandler(Pane drawingPane, List<AbstractShape> currentShapes) {
         this.drawingPane = drawingPane;
+        this.overlayPane = drawingPane;
         this.currentShapes = currentShapes;
         this.shapeToPaste = null;
     }
 
+    /**
+     * Imposta il Pane visibile su cui mostrare i controlli temporanei, come il
+     * campo di modifica del testo. Di default coincide con il Pane delle shape.
+     */
+    public void setOverlayPane(Pane overlayPane) {
+        this.overlayPane = overlayPane != null ? overlayPane : drawingPane;
+    }
+
     // NUOVO SETTER PER SELEZIONE MULTIPLA
     public void setMultipleSelectionManager(MultipleSelectionManager manager) {
         this.multipleSelectionManager = manager;
@@ -136,7 +172,58 @@ public class MouseEventHandler implements ClipboardReceiver {
     }
 
     public void setSelectedShapeInstance(Shape shape) {
-        this.selectedShapeInstance = shape;
+        changeSelectedShape(shape);
+    }
+
+    /**
+     * Imposta il livello di evidenziazione, condiviso con la selezione
+     * multipla. Di default ne viene creato uno sul Pane dei controlli
+     * temporanei.
+     */
+    public void setSelectionOverlay(SelectionOverlay selectionOverlay) {
+        this.selectionOverlay = selectionOverlay;
+    }
+
+    /**
+     * Registra un osservatore dei cambi della selezione singola.
+     */
+    public void addSelectionListener(SelectionListener listener) {
+        selectionListeners.add(listener);
+    }
+
+    public void removeSelectionListener(SelectionListener listener) {
+        selectionListeners.remove(listener);
+    }
+
+    private SelectionOverlay getSelectionOverlay() {
+        if (selectionOverlay == null) {
+            selectionOverlay = new SelectionOverlay(overlayPane);
+        }
+        return selectionOverlay;
+    }
+
+    /**
+     * Cambia la shape selezionata spostando l'evidenziazione: viene toccato
+     * solo il contorno della shape precedente, non tutte le shape del Pane.
+     * Gli osservatori sono notificati solo se la selezione cambia davvero.
+     */
+    private void changeSelectedShape(Shape shape) {
+        Shape previous = selectedShapeInstance;
+        selectedShapeInstance = shape;
+        boolean changed = previous == null
+                ? shape != null
+                : shape == null || previous.getNode() != shape.getNode();
+        if (previous != null && changed) {
+            getSelectionOverlay().remove(previous);
+        }
+        if (shape != null) {
+            getSelectionOverlay().add(shape);
+        }
+        if (changed) {
+            for (SelectionListener listener : selectionListeners) {
+                listener.selectionChanged();
+            }
+        }
     }
 
     @Override
@@ -162,85 +249,124 @@ public class MouseEventHandler implements ClipboardReceiver {
     }
 
     /**
-     * Verifica se un punto è vicino a una linea usando GeometryUtils.
+     * Imposta il gestore condiviso con il Controller, così che i suoi indici
+     * restino allineati con le shape create da questo handler.
      */
-    private boolean isNearLine(double px, double py, double x1, double y1, double x2, double y2, double tolerance) {
-        return GeometryUtils.isNearLine(px, py, x1, y1, x2, y2, tolerance);
+    public void setShapeManager(ShapeManager shapeManager) {
+        this.shapeManager = shapeManager;
+    }
+
+    private ShapeManager getShapeManager() {
+        if (shapeManager == null) {
+            shapeManager = new ShapeManager(currentShapes, drawingPane);
+        }
+        return shapeManager;
     }
 
     /**
-     * Trova la shape più in alto (ultimo nell'ordine Z) al punto specificato.
+     * Verifica se un punto è vicino a una linea usando GeometryUtils.
      */
-    private Shape findShapeAtPoint(double x, double y) {
-        // Cerca dall'ultimo al primo (ordine Z inverso) per trovare la shape più in alto
-        for (int i = drawingPane.getChildren().size() - 1; i >= 0; i--) {
-            Node node = drawingPane.getChildren().get(i);
-
-            if (!(node instanceof javafx.scene.shape.Shape fxShape)) {
-                continue;
-            }
+    private boolean isNearLine(double px, double py, double x1, double y1, double x2, double y2, double tolerance) {
+        return GeometryUtils.isNearLine(px, py, x1, y1, x2, y2, tolerance);
+    }
 
-            boolean isHit = false;
-            String nodeType = fxShape.getClass().getSimpleName();
+    private ShapeSpatialIndex getSpatialIndex() {
+        if (spatialIndex == null) {
+            spatialIndex = ShapeSpatialIndex.of(drawingPane);
+        }
+        return spatialIndex;
+    }
 
-            if (fxShape instanceof Line line) {
-                double sx = line.getStartX(), sy = line.getStartY();
-                double ex = line.getEndX(), ey = line.getEndY();
-                isHit = GeometryUtils.isNearLine(x, y, sx, sy, ex, ey, HANDLE_RADIUS);
-            } else if (fxShape instanceof Polygon polygon) {
-                // Test migliorato per poligoni
-                isHit = polygon.contains(x, y);
-                if (!isHit) {
-                    isHit = GeometryUtils.isPointInPolygon(x, y, polygon.getPoints());
-                }
-                if (!isHit) {
-                    isHit = GeometryUtils.isNearPolygonBorder(x, y, polygon.getPoints(), 10.0);
-                }
-            } else {
-                isHit = fxShape.contains(x, y);
-                System.out.println("x " + x + " y " + y + " " + isHit);
-            }
+    private MarqueeSelection getMarqueeSelection() {
+        if (marqueeSelection == null) {
+            marqueeSelection = new MarqueeSelection(getSpatialIndex());
+        }
+        return marqueeSelection;
+    }
 
-            if (isHit) {
-                Object userData = fxShape.getUserData();
-                if (userData instanceof Shape shape) {
-                    System.out.println("[FIND SHAPE] Trovata: " + shape.getClass().getSimpleName());
-                    return shape;
-                }
-            }
+    /**
+     * Conclude la selezione a rettangolo: le shape individuate con una sola
+     * interrogazione dell'indice vengono passate in blocco al gestore della
+     * selezione multipla. Con CTRL premuto si aggiungono alla selezione
+     * corrente, altrimenti la sostituiscono.
+     */
+    private void finishMarqueeSelection(MouseEvent e) {
+        double x = Math.min(Math.max(0, e.getX()), drawingPane.getWidth());
+        double y = Math.min(Math.max(toolbarHeight, e.getY()), drawingPane.getHeight());
+        if (!isDragging) {
+            // Semplice click su area vuota: gestito da onMouseClick
+            marqueeSelection.cancel();
+            return;
         }
 
-        System.out.println("[FIND SHAPE] Nessuna shape trovata al punto (" + x + ", " + y + ")");
-        return null;
+        List<Shape> found = marqueeSelection.finish(x, y);
+        MarqueeSelection.Mode mode = marqueeSelection.getMode();
+        multipleSelectionManager.selectShapes(found, e.isControlDown());
+        changeSelectedShape(null);
+        suppressNextClick = true;
+        isDragging = false;
+        LOG.debug(() -> "[MARQUEE] Selezione " + mode + ": " + found.size() + " shape");
     }
 
     /**
-     * Rimuove tutti gli effetti visivi dalle shape.
+     * Trova la shape più in alto (ultimo nell'ordine Z) al punto specificato.
+     * I candidati vengono estratti dall'indice spaziale del Pane; il test di
+     * contenimento preciso viene eseguito solo su questi e, in caso di più
+     * corrispondenze, vince quella con indice Z maggiore.
      */
-    private void clearAllVisualEffects() {
-        for (Node node : drawingPane.getChildren()) {
-            if (node instanceof javafx.scene.shape.Shape fxShape) {
-                fxShape.setStrokeWidth(1);
-                fxShape.setEffect(null);
+    Shape findShapeAtPoint(double x, double y) {
+        Shape topmost = null;
+        int topmostZ = -1;
+
+        for (Node node : getSpatialIndex().query(x, y, HIT_QUERY_TOLERANCE)) {
+            if (!(node instanceof javafx.scene.shape.Shape fxShape)
+                    || !(fxShape.getUserData() instanceof Shape shape)
+                    || !isHit(shape, fxShape, x, y)) {
+                continue;
+            }
+            int z = getSpatialIndex().zOrderOf(fxShape);
+            if (z > topmostZ) {
+                topmostZ = z;
+                topmost = shape;
             }
         }
+
+        Shape found = topmost;
+        LOG.debug(() -> found != null
+                ? "[FIND SHAPE] Trovata: " + found.getClass().getSimpleName()
+                : "[FIND SHAPE] Nessuna shape trovata al punto (" + x + ", " + y + ")");
+        return found;
     }
 
     /**
-     * Applica l'effetto visivo di selezione a una shape.
+     * Test di contenimento preciso del punto per il tipo di nodo indicato.
+     * Il punto viene riportato nelle coordinate locali del nodo, così che
+     * rotazioni e specchiature coincidano con i bounds usati dall'indice.
      */
-    private void applySelectionEffect(Shape shape) {
-        try {
-            Node node = shape.getNode();
-            if (node instanceof javafx.scene.shape.Shape fxShape) {
-                DropShadow ds = new DropShadow();
-                ds.setRadius(10);
-                ds.setColor(Color.BLACK);
-                fxShape.setEffect(ds);
+    private boolean isHit(Shape shape, javafx.scene.shape.Shape fxShape, double x, double y) {
+        Point2D local = fxShape.parentToLocal(x, y);
+        double lx = local.getX(), ly = local.getY();
+
+        if (fxShape instanceof Line line) {
+            return GeometryUtils.isNearLine(lx, ly, line.getStartX(), line.getStartY(),
+                    line.getEndX(), line.getEndY(), HANDLE_RADIUS);
+        }
+        if (fxShape instanceof Polygon polygon) {
+            if (polygon.contains(lx, ly)) {
+                return true;
             }
-        } catch (Exception e) {
-            System.err.println("[SELECTION EFFECT] Errore: " + e.getMessage());
+            // Test migliorato per poligoni, sul buffer primitivo delle
+            // coordinate invece che sulla lista di Double del nodo
+            if (AbstractShape.unwrapToAbstract(shape) instanceof FreeFormPolygonShape freeForm) {
+                hitTestBuffer = freeForm.copyCoordinates(hitTestBuffer);
+                int length = freeForm.getCoordinateCount();
+                return GeometryUtils.isPointInPolygon(lx, ly, hitTestBuffer, length)
+                        || GeometryUtils.isNearPolygonBorder(lx, ly, hitTestBuffer, length, 10.0);
+            }
+            return GeometryUtils.isPointInPolygon(lx, ly, polygon.getPoints())
+                    || GeometryUtils.isNearPolygonBorder(lx, ly, polygon.getPoints(), 10.0);
         }
+        return fxShape.contains(lx, ly);
     }
 
     private void startTextEditing(TextShape textShape) {
@@ -253,7 +379,7 @@ public class MouseEventHandler implements ClipboardReceiver {
         textField.setLayoutY(y);
         textField.setPrefColumnCount(10);
 
-        drawingPane.getChildren().add(textField);
+        overlayPane.getChildren().add(textField);
         textField.requestFocus();
 
         // Quando si conferma o perde focus, aggiorna il testo e rimuovi il TextField
@@ -270,14 +396,19 @@ public class MouseEventHandler implements ClipboardReceiver {
         if (newText != null && !newText.trim().isEmpty()) {
             ((Text) textShape.getNode()).setText(newText);
         }
-        drawingPane.getChildren().remove(textField);
+        overlayPane.getChildren().remove(textField);
     }
 
     /**
      * METODO MODIFICATO - Evento mouse clicked con supporto selezione multipla.
      */
     public void onMouseClick(MouseEvent e) {
-        System.out.println("[CLICK] Click su (" + e.getX() + ", " + e.getY() + ")");
+        LOG.debug(() -> "[CLICK] Click su (" + e.getX() + ", " + e.getY() + ")");
+        if (suppressNextClick) {
+            // Il click segue il rilascio di una selezione a rettangolo
+            suppressNextClick = false;
+            return;
+        }
         if (e.getClickCount() == 2 && selectedShapeInstance instanceof TextShape textShape) {
             startTextEditing(textShape);
             return;  // Esci dal metodo per evitare altre azioni
@@ -298,32 +429,28 @@ public class MouseEventHandler implements ClipboardReceiver {
             if (clickedShape != null) {
                 // Toggle della selezione per la shape cliccata
                 multipleSelectionManager.toggleSelection(clickedShape);
-                System.out.println("[MULTI-SELECT] Toggle shape: " + clickedShape.getClass().getSimpleName());
+                LOG.debug(() -> "[MULTI-SELECT] Toggle shape: " + clickedShape.getClass().getSimpleName());
             } else {
                 // Click su area vuota: pulisce la selezione se non si tiene CTRL
                 if (!e.isControlDown()) {
                     multipleSelectionManager.clearSelection();
-                    System.out.println("[MULTI-SELECT] Selezione pulita (click su area vuota)");
+                    LOG.debug("[MULTI-SELECT] Selezione pulita (click su area vuota)");
                 }
             }
 
             // Non impostare selectedShapeInstance in modalità multi-selezione
-            selectedShapeInstance = null;
+            changeSelectedShape(null);
             return;
         }
 
-        // Modalità di selezione singola (comportamento originale)
-        // Reset degli effetti visivi
-        clearAllVisualEffects();
-
-        selectedShapeInstance = clickedShape;
+        // Modalità di selezione singola: l'evidenziazione passa dalla shape
+        // precedente a quella cliccata
+        changeSelectedShape(clickedShape);
 
         if (selectedShapeInstance != null) {
-            // Applica effetto visivo di selezione
-            applySelectionEffect(selectedShapeInstance);
-            System.out.println("[CLICK] ✅ SELEZIONATO: " + selectedShapeInstance.getClass().getSimpleName());
+            LOG.debug(() -> "[CLICK] ✅ SELEZIONATO: " + selectedShapeInstance.getClass().getSimpleName());
         } else {
-            System.out.println("[CLICK] ❌ Nessuna shape selezionata");
+            LOG.debug("[CLICK] ❌ Nessuna shape selezionata");
             if (toolActive) {
                 return;
             }
@@ -337,9 +464,25 @@ public class MouseEventHandler implements ClipboardReceiver {
     public void onPressed(MouseEvent e) {
         double x = e.getX();
         double y = e.getY();
+        dragPulse.cancel();
         isDragging = false;
         pressX = x;
         pressY = y;
+        // un nuovo gesto non prolunga la voce di undo del precedente
+        if (invoker != null) {
+            invoker.sealLast();
+        }
+
+        suppressNextClick = false;
+
+        if (multipleSelectionManager != null && multipleSelectionManager.isMultipleSelectionMode()
+                && shapeToPaste == null && findShapeAtPoint(x, y) == null) {
+            // Pressione su area vuota: inizia la selezione a rettangolo
+            getMarqueeSelection().start(x, y);
+            isDraggingSelection = false;
+            LOG.debug(() -> "[MARQUEE] Inizio selezione a rettangolo da (" + x + ", " + y + ")");
+            return;
+        }
 
         // NUOVO: Gestione trascinamento selezione multipla
         if (multipleSelectionManager != null && multipleSelectionManager.hasSelection()) {
@@ -350,7 +493,7 @@ public class MouseEventHandler implements ClipboardReceiver {
                 isDraggingSelection = true;
                 selectionDragStartX = x;
                 selectionDragStartY = y;
-                System.out.println("[MULTI-DRAG] Inizio trascinamento gruppo da (" + x + ", " + y + ")");
+                LOG.debug(() -> "[MULTI-DRAG] Inizio trascinamento gruppo da (" + x + ", " + y + ")");
                 return;
             } else {
                 // Click su shape non selezionata o area vuota
@@ -358,12 +501,12 @@ public class MouseEventHandler implements ClipboardReceiver {
             }
         }
 
-        System.out.println("[PRESSED] Click su (" + x + ", " + y + ")");
+        LOG.debug(() -> "[PRESSED] Click su (" + x + ", " + y + ")");
 
         if (selectedShapeInstance != null) {
             selectedShapeInstance = AbstractShape.unwrapToAbstract(selectedShapeInstance);
             Node node = selectedShapeInstance.getNode();
-            System.out.println("[PRESSED] Shape selezionata: " + selectedShapeInstance.getClass().getSimpleName());
+            LOG.debug(() -> "[PRESSED] Shape selezionata: " + selectedShapeInstance.getClass().getSimpleName());
 
             if (node instanceof Line line) {
                 double sx = line.getStartX(), sy = line.getStartY();
@@ -371,12 +514,12 @@ public class MouseEventHandler implements ClipboardReceiver {
 
                 if (Math.hypot(x - sx, y - sy) < HANDLE_RADIUS) {
                     currentResizeMode = ResizeMode.LINE_START;
-                    System.out.println("[PRESSED] Modalità resize LINE_START");
+                    LOG.debug("[PRESSED] Modalità resize LINE_START");
                     return;
                 }
                 if (Math.hypot(x - ex, y - ey) < HANDLE_RADIUS) {
                     currentResizeMode = ResizeMode.LINE_END;
-                    System.out.println("[PRESSED] Modalità resize LINE_END");
+                    LOG.debug("[PRESSED] Modalità resize LINE_END");
                     return;
                 }
             } else if (node instanceof Rectangle rect) {
@@ -422,7 +565,7 @@ public class MouseEventHandler implements ClipboardReceiver {
                         default ->
                             y;
                     };
-                    System.out.println("[PRESSED] Modalità resize RECT: " + currentResizeMode);
+                    LOG.debug(() -> "[PRESSED] Modalità resize RECT: " + currentResizeMode);
                     return;
                 }
             } else if (node instanceof Ellipse ell) {
@@ -433,12 +576,12 @@ public class MouseEventHandler implements ClipboardReceiver {
                 double d = Math.hypot(dx, dy);
                 if (Math.abs(d - 1) < ELLIPSE_BORDER_TOLERANCE / Math.max(rx, ry)) {
                     currentResizeMode = ResizeMode.ELLIPSE_BORDER;
-                    System.out.println("[PRESSED] Modalità resize ELLIPSE_BORDER");
+                    LOG.debug("[PRESSED] Modalità resize ELLIPSE_BORDER");
                     return;
                 }
             } else if (node instanceof Polygon && selectedShapeInstance instanceof FreeFormPolygonShape polygonShape) {
                 // CORREZIONE: Migliore rilevamento per i poligoni
-                System.out.println("[PRESSED] Controllo poligono per resize/move");
+                LOG.debug("[PRESSED] Controllo poligono per resize/move");
 
                 if (polygonShape.isNearBorder(x, y, POLYGON_BORDER_TOLERANCE)) {
                     currentResizeMode = ResizeMode.POLYGON_BORDER;
@@ -447,17 +590,17 @@ public class MouseEventHandler implements ClipboardReceiver {
                     origPolygonY = polygonShape.getY();
                     origPolygonWidth = polygonShape.getWidth();
                     origPolygonHeight = polygonShape.getHeight();
-                    origPolygonPoints = new ArrayList<>(polygonShape.getPoints());
+                    origPolygonPoints = polygonShape.getCoordinates();
 
                     // Imposta il punto di ancoraggio per il resize
                     double[] center = polygonShape.getCenter();
                     resizeAnchorX = center[0];
                     resizeAnchorY = center[1];
 
-                    System.out.println("[PRESSED] Modalità resize POLYGON_BORDER");
+                    LOG.debug("[PRESSED] Modalità resize POLYGON_BORDER");
                     return;
                 } else {
-                    System.out.println("[PRESSED] Click interno al poligono - modalità movimento");
+                    LOG.debug("[PRESSED] Click interno al poligono - modalità movimento");
                 }
             } else if (node instanceof javafx.scene.text.Text textNode) {
                 origX = textNode.getX();
@@ -466,7 +609,7 @@ public class MouseEventHandler implements ClipboardReceiver {
         }
 
         if (currentResizeMode != ResizeMode.NONE) {
-            System.out.println("[PRESSED] Resize mode attivo: " + currentResizeMode);
+            LOG.debug(() -> "[PRESSED] Resize mode attivo: " + currentResizeMode);
             return;
         }
 
@@ -492,15 +635,15 @@ public class MouseEventHandler implements ClipboardReceiver {
                 // CORREZIONE: Salva la posizione originale del poligono per il movimento
                 origX = polygonShape.getX();
                 origY = polygonShape.getY();
-                System.out.println("[PRESSED] Preparato per movimento poligono da (" + origX + ", " + origY + ")");
+                LOG.debug(() -> "[PRESSED] Preparato per movimento poligono da (" + origX + ", " + origY + ")");
             }
 
-            System.out.println("[PRESSED] Preparato per movimento/resize");
+            LOG.debug("[PRESSED] Preparato per movimento/resize");
             return;
         }
 
         if (!toolActive || selectedShape == null) {
-            System.out.println("[PRESSED] Tool non attivo o shape non selezionata");
+            LOG.debug("[PRESSED] Tool non attivo o shape non selezionata");
             return;
         }
 
@@ -509,7 +652,7 @@ public class MouseEventHandler implements ClipboardReceiver {
 
         if ("Testo".equals(selectedShape)) {
             if (text == null || text.isEmpty()) {
-                System.out.println("Testo vuoto, shape testo non creata.");
+                LOG.debug("Testo vuoto, shape testo non creata.");
                 return;
             }
             double fontSize = 12;
@@ -520,7 +663,7 @@ public class MouseEventHandler implements ClipboardReceiver {
         }
 
         if (baseShape == null) {
-            System.out.println("Errore nella creazione della shape");
+            LOG.warn("Errore nella creazione della shape");
             return;
         }
 
@@ -531,11 +674,16 @@ public class MouseEventHandler implements ClipboardReceiver {
         tempShape.getNode().setUserData(tempShape);
         drawingPane.getChildren().add(tempShape.getNode());
 
-        System.out.println("[PRESSED] Creata nuova shape: " + tempShape.getClass().getSimpleName());
+        LOG.debug(() -> "[PRESSED] Creata nuova shape: " + tempShape.getClass().getSimpleName());
     }
 
     /**
      * METODO MODIFICATO - Evento mouse dragged con supporto selezione multipla.
+     * <p>
+     * Registra solo l'ultima posizione del puntatore: spostamenti,
+     * trascinamenti di gruppo, ridimensionamenti e disegno vengono applicati
+     * una volta per pulse da {@link #applyPendingDrag()}, anche se il mouse
+     * genera più eventi per frame.
      */
     public void onDragged(MouseEvent e) {
         double x = Math.min(Math.max(0, e.getX()), drawingPane.getWidth());
@@ -546,7 +694,25 @@ public class MouseEventHandler implements ClipboardReceiver {
 
         if (!isDragging) {
             isDragging = true;
-            System.out.println("[DRAGGED] Iniziato trascinamento");
+            LOG.debug("[DRAGGED] Iniziato trascinamento");
+        }
+
+        pendingDragX = x;
+        pendingDragY = y;
+        dragPulse.request();
+    }
+
+    /**
+     * Applica l'ultima posizione registrata da {@link #onDragged}. Eseguito al
+     * più una volta per pulse e, prima di chiudere il gesto, dal rilascio.
+     */
+    private void applyPendingDrag() {
+        double x = pendingDragX;
+        double y = pendingDragY;
+
+        if (marqueeSelection != null && marqueeSelection.isActive()) {
+            marqueeSelection.update(x, y);
+            return;
         }
 
         // NUOVO: Gestione trascinamento selezione multipla
@@ -580,8 +746,6 @@ public class MouseEventHandler implements ClipboardReceiver {
             // Aggiorna la posizione di riferimento
             selectionDragStartX = x;
             selectionDragStartY = y;
-
-            System.out.println("[MULTI-DRAG] Spostamento gruppo: (" + deltaX + ", " + deltaY + ")");
             return;
         }
 
@@ -639,7 +803,6 @@ public class MouseEventHandler implements ClipboardReceiver {
                 case POLYGON_BORDER -> {
                     // CORREZIONE: Ridimensionamento migliorato del poligono
                     if (selectedShapeInstance instanceof FreeFormPolygonShape polygonShape) {
-                        System.out.println("[DRAGGED] Ridimensionamento poligono");
                         resizePolygonImproved(polygonShape, x, y);
                     }
                 }
@@ -674,7 +837,6 @@ public class MouseEventHandler implements ClipboardReceiver {
                 return;
             } else if (node instanceof Polygon && selectedShapeInstance instanceof FreeFormPolygonShape polygonShape) {
                 // CORREZIONE: Spostamento migliorato del poligono
-                System.out.println("[DRAGGED] Spostamento poligono dx=" + dx + ", dy=" + dy);
                 polygonShape.translate(dx, dy);
             }
 
@@ -705,8 +867,8 @@ public class MouseEventHandler implements ClipboardReceiver {
      * Ridimensiona un poligono migliorato con gestione più precisa.
      */
     private void resizePolygonImproved(FreeFormPolygonShape polygonShape, double mouseX, double mouseY) {
-        if (origPolygonPoints == null || origPolygonPoints.isEmpty()) {
-            System.out.println("[RESIZE] Punti originali non disponibili");
+        if (origPolygonPoints == null || origPolygonPoints.length == 0) {
+            LOG.debug("[RESIZE] Punti originali non disponibili");
             return;
         }
 
@@ -723,28 +885,18 @@ public class MouseEventHandler implements ClipboardReceiver {
             // Calcola il fattore di scala (minimo 0.1 per evitare dimensioni troppo piccole)
             double scaleFactor = Math.max(0.1, currentDistance / Math.max(originalDistance, 1.0));
 
-            System.out.println("[RESIZE] ScaleFactor: " + scaleFactor + " (dist orig: " + originalDistance + ", curr: " + currentDistance + ")");
-
-            List<Double> newPoints = new ArrayList<>();
-
-            for (int i = 0; i < origPolygonPoints.size(); i += 2) {
-                double origX = origPolygonPoints.get(i);
-                double origY = origPolygonPoints.get(i + 1);
-
-                // Scala rispetto al centro
-                double newX = centerX + (origX - centerX) * scaleFactor;
-                double newY = centerY + (origY - centerY) * scaleFactor;
-
-                newPoints.add(newX);
-                newPoints.add(newY);
+            // Scala in place su un buffer riutilizzato e aggiorna il nodo una sola volta
+            int length = origPolygonPoints.length;
+            if (polygonResizeBuffer == null || polygonResizeBuffer.length < length) {
+                polygonResizeBuffer = new double[length];
             }
+            System.arraycopy(origPolygonPoints, 0, polygonResizeBuffer, 0, length);
+            GeometryUtils.scale(polygonResizeBuffer, length, centerX, centerY, scaleFactor, scaleFactor);
 
-            // Aggiorna i punti nel poligono
-            polygonShape.setAllPoints(newPoints);
+            polygonShape.setAllPoints(polygonResizeBuffer, length);
 
         } catch (Exception e) {
-            System.err.println("[RESIZE POLYGON ERROR] " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("[RESIZE POLYGON ERROR] " + e.getMessage(), e);
         }
     }
 
@@ -753,6 +905,14 @@ public class MouseEventHandler implements ClipboardReceiver {
      * multipla.
      */
     public void onReleased(MouseEvent e) {
+        // L'ultima posizione trascinata va applicata prima di chiudere il gesto
+        dragPulse.flush();
+
+        if (marqueeSelection != null && marqueeSelection.isActive()) {
+            finishMarqueeSelection(e);
+            return;
+        }
+
         // NUOVO: Gestione fine trascinamento selezione multipla
         if (isDraggingSelection && multipleSelectionManager != null && multipleSelectionManager.hasSelection()) {
             double totalDeltaX = e.getX() - pressX;
@@ -767,7 +927,7 @@ public class MouseEventHandler implements ClipboardReceiver {
                     invoker.execute(moveCommand);
                 }
 
-                System.out.println("[MULTI-DRAG END] Movimento gruppo completato: (" + totalDeltaX + ", " + totalDeltaY + ")");
+                LOG.debug(() -> "[MULTI-DRAG END] Movimento gruppo completato: (" + totalDeltaX + ", " + totalDeltaY + ")");
             }
 
             isDraggingSelection = false;
@@ -825,28 +985,11 @@ public class MouseEventHandler implements ClipboardReceiver {
                         newStartX, newStartY, newEndX, newEndY));
             } else if (fx instanceof Polygon && selectedShapeInstance instanceof FreeFormPolygonShape polygonShape) {
                 // CORREZIONE: Usa il comando appropriato per il poligono
-                if (origPolygonPoints != null && !origPolygonPoints.equals(polygonShape.getPoints())) {
-                    System.out.println("[POLYGON RESIZE] Creando comando ResizePolygon");
-                    // Crea un comando personalizzato inline
-                    UndoableCommand resizeCommand = new UndoableCommand() {
-                        private final List<Double> oldPoints = new ArrayList<>(origPolygonPoints);
-                        private final List<Double> newPoints = new ArrayList<>(polygonShape.getPoints());
-
-                        @Override
-                        public void execute() {
-                            polygonShape.setAllPoints(newPoints);
-                            System.out.println("[POLYGON RESIZE] Applicato resize");
-                        }
-
-                        @Override
-                        public void undo() {
-                            polygonShape.setAllPoints(oldPoints);
-                            System.out.println("[POLYGON RESIZE UNDO] Ripristinato stato originale");
-                        }
-                    };
-
+                double[] newPoints = polygonShape.getCoordinates();
+                if (origPolygonPoints != null && !Arrays.equals(origPolygonPoints, newPoints)) {
+                    LOG.debug("[POLYGON RESIZE] Creando comando ResizePolygon");
                     if (invoker != null) {
-                        invoker.execute(resizeCommand);
+                        invoker.execute(new ResizePolygon(polygonShape, origPolygonPoints, newPoints));
                     }
                 }
             }
@@ -896,7 +1039,7 @@ public class MouseEventHandler implements ClipboardReceiver {
                 double newX = polygonShape.getX();
                 double newY = polygonShape.getY();
                 if (Math.abs(origX - newX) > 0.1 || Math.abs(origY - newY) > 0.1) {
-                    System.out.println("[POLYGON MOVE] Da (" + origX + ", " + origY + ") a (" + newX + ", " + newY + ")");
+                    LOG.debug(() -> "[POLYGON MOVE] Da (" + origX + ", " + origY + ") a (" + newX + ", " + newY + ")");
 
                     // Crea comando move personalizzato per poligono
                     UndoableCommand moveCommand = new UndoableCommand() {
@@ -908,13 +1051,13 @@ public class MouseEventHandler implements ClipboardReceiver {
                         @Override
                         public void execute() {
                             polygonShape.moveTo(newX_final, newY_final);
-                            System.out.println("[POLYGON MOVE] Spostato a (" + newX_final + ", " + newY_final + ")");
+                            LOG.debug(() -> "[POLYGON MOVE] Spostato a (" + newX_final + ", " + newY_final + ")");
                         }
 
                         @Override
                         public void undo() {
                             polygonShape.moveTo(oldX, oldY);
-                            System.out.println("[POLYGON MOVE UNDO] Ripristinato a (" + oldX + ", " + oldY + ")");
+                            LOG.debug(() -> "[POLYGON MOVE UNDO] Ripristinato a (" + oldX + ", " + oldY + ")");
                         }
                     };
 
@@ -942,7 +1085,7 @@ public class MouseEventHandler implements ClipboardReceiver {
         // Rilascio dopo vero trascinamento: crea figura
         if (tempShape != null) {
             tempShape.onRelease();
-            applyUndoableStrategy(new Create(new ShapeManager(currentShapes, drawingPane), tempShape));
+            applyUndoableStrategy(new Create(getShapeManager(), tempShape));
             tempShape = null;
             toolActive = false;
         }
@@ -972,18 +1115,17 @@ public class MouseEventHandler implements ClipboardReceiver {
                     currentShapes.add(baseShape);
                     setSelectedShapeInstance(independentCopy);
 
-                    System.out.println("[PASTE] Figura incollata: " + independentCopy.getClass().getSimpleName()
+                    LOG.debug(() -> "[PASTE] Figura incollata: " + independentCopy.getClass().getSimpleName()
                             + " @ (" + x + ", " + y + ")");
                 } else {
-                    System.err.println("[PASTE] Impossibile creare una copia della shape");
+                    LOG.warn("[PASTE] Impossibile creare una copia della shape");
                 }
             } else {
-                System.out.println("[PASTE] Nessuna shape da incollare");
+                LOG.debug("[PASTE] Nessuna shape da incollare");
             }
 
         } catch (Exception e) {
-            System.err.println("[PASTE ERROR] " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("[PASTE ERROR] " + e.getMessage(), e);
         }
     }
 
@@ -999,21 +1141,20 @@ public class MouseEventHandler implements ClipboardReceiver {
             Shape clonedShape = originalShape.clone();
 
             if (clonedShape == null) {
-                System.err.println("[DEEP COPY] Il metodo clone ha restituito null");
+                LOG.warn("[DEEP COPY] Il metodo clone ha restituito null");
                 return null;
             }
 
             if (clonedShape.getNode() == originalShape.getNode()) {
-                System.err.println("[DEEP COPY] ATTENZIONE: La copia condivide il nodo con l'originale!");
+                LOG.warn("[DEEP COPY] ATTENZIONE: La copia condivide il nodo con l'originale!");
             }
 
-            System.out.println("[DEEP COPY] Copia creata: " + clonedShape.getClass().getSimpleName());
+            LOG.debug(() -> "[DEEP COPY] Copia creata: " + clonedShape.getClass().getSimpleName());
 
             return clonedShape;
 
         } catch (Exception e) {
-            System.err.println("[DEEP COPY ERROR] " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("[DEEP COPY ERROR] " + e.getMessage(), e);
             return null;
         }
     }
@@ -1025,13 +1166,7 @@ public class MouseEventHandler implements ClipboardReceiver {
         if (multipleSelectionManager != null && multipleSelectionManager.isMultipleSelectionMode()) {
             multipleSelectionManager.clearSelection();
         } else {
-            // Comportamento originale
-            if (selectedShapeInstance != null) {
-                javafx.scene.shape.Shape fx = (javafx.scene.shape.Shape) selectedShapeInstance.getNode();
-                fx.setStrokeWidth(1);
-                fx.setEffect(null);
-                selectedShapeInstance = null;
-            }
+            changeSelectedShape(null);
         }
     }
 
@@ -1041,6 +1176,21 @@ public class MouseEventHandler implements ClipboardReceiver {
         context.onReleased(null);
     }
 
+    /**
+     * Senza pulse JavaFX (ad esempio nei test) le posizioni trascinate
+     * vengono applicate solo da {@link #flushPendingDrag()} o dal rilascio.
+     */
+    void setManualDragPulse(boolean manual) {
+        dragPulse.setManual(manual);
+    }
+
+    /**
+     * Applica subito l'eventuale posizione trascinata in sospeso.
+     */
+    void flushPendingDrag() {
+        dragPulse.flush();
+    }
+
     public void setText(String text) {
         this.text = text;
     }
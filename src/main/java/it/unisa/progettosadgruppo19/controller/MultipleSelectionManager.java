@@ -1,48 +1,78 @@
 package it.unisa.progettosadgruppo19.controller;
 
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
-import javafx.scene.Node;
-import javafx.scene.effect.DropShadow;
-import javafx.scene.paint.Color;
+import it.unisa.progettosadgruppo19.util.Log;
+import javafx.geometry.Bounds;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.HashSet;
 
 /**
  * Gestisce la selezione multipla delle shape. Supporta l'aggiunta/rimozione di
- * shape dalla selezione e l'applicazione di effetti visivi per indicare lo
- * stato di selezione.
+ * shape dalla selezione; lo stato di selezione viene mostrato da un
+ * {@link SelectionOverlay}, se impostato.
  */
 public class MultipleSelectionManager {
 
+    private static final Log LOG = Log.get(MultipleSelectionManager.class);
+
     private final Set<Shape> selectedShapes;
     private boolean multipleSelectionMode;
-    private final DropShadow selectionEffect;
+    private SelectionOverlay overlay;
+    private final List<SelectionListener> listeners = new ArrayList<>(1);
 
     public MultipleSelectionManager() {
         this.selectedShapes = new HashSet<>();
         this.multipleSelectionMode = false;
+    }
+
+    /**
+     * Imposta il livello su cui evidenziare le shape selezionate. Le shape
+     * già selezionate vengono evidenziate subito.
+     */
+    public void setOverlay(SelectionOverlay overlay) {
+        if (this.overlay != null) {
+            this.overlay.removeAll(selectedShapes);
+        }
+        this.overlay = overlay;
+        if (overlay != null) {
+            overlay.addAll(selectedShapes);
+        }
+    }
+
+    public void addSelectionListener(SelectionListener listener) {
+        listeners.add(listener);
+    }
 
-        // Configura l'effetto visivo per le shape selezionate
-        this.selectionEffect = new DropShadow();
-        this.selectionEffect.setRadius(8);
-        this.selectionEffect.setColor(Color.BLUE);
-        this.selectionEffect.setSpread(0.3);
+    public void removeSelectionListener(SelectionListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireSelectionChanged() {
+        for (SelectionListener listener : listeners) {
+            listener.selectionChanged();
+        }
     }
 
     /**
      * Attiva/disattiva la modalità di selezione multipla.
      */
     public void setMultipleSelectionMode(boolean enabled) {
+        boolean changed = multipleSelectionMode != enabled;
         this.multipleSelectionMode = enabled;
-        System.out.println("[MULTI-SELECT] Modalità selezione multipla: " + (enabled ? "ATTIVA" : "DISATTIVA"));
+        LOG.debug(() -> "[MULTI-SELECT] Modalità selezione multipla: " + (enabled ? "ATTIVA" : "DISATTIVA"));
 
         // Se disattivo la modalità, deseleziono tutto
         if (!enabled) {
             clearSelection();
         }
+        if (changed) {
+            fireSelectionChanged();
+        }
     }
 
     /**
@@ -63,8 +93,9 @@ public class MultipleSelectionManager {
         boolean added = selectedShapes.add(shape);
         if (added) {
             applySelectionEffect(shape);
-            System.out.println("[MULTI-SELECT] Aggiunta alla selezione: " + shape.getClass().getSimpleName()
+            LOG.debug(() -> "[MULTI-SELECT] Aggiunta alla selezione: " + shape.getClass().getSimpleName()
                     + " (totale: " + selectedShapes.size() + ")");
+            fireSelectionChanged();
         }
     }
 
@@ -79,8 +110,9 @@ public class MultipleSelectionManager {
         boolean removed = selectedShapes.remove(shape);
         if (removed) {
             removeSelectionEffect(shape);
-            System.out.println("[MULTI-SELECT] Rimossa dalla selezione: " + shape.getClass().getSimpleName()
+            LOG.debug(() -> "[MULTI-SELECT] Rimossa dalla selezione: " + shape.getClass().getSimpleName()
                     + " (totale: " + selectedShapes.size() + ")");
+            fireSelectionChanged();
         }
     }
 
@@ -131,55 +163,89 @@ public class MultipleSelectionManager {
      * Pulisce la selezione rimuovendo tutte le shape.
      */
     public void clearSelection() {
-        for (Shape shape : new ArrayList<>(selectedShapes)) {
-            removeSelectionEffect(shape);
+        if (selectedShapes.isEmpty()) {
+            return;
+        }
+        // solo i contorni delle shape selezionate, non tutte quelle del disegno
+        if (overlay != null) {
+            overlay.removeAll(selectedShapes);
         }
         selectedShapes.clear();
-        System.out.println("[MULTI-SELECT] Selezione pulita");
+        LOG.debug("[MULTI-SELECT] Selezione pulita");
+        fireSelectionChanged();
     }
 
     /**
      * Seleziona tutte le shape fornite.
      */
     public void selectAll(List<? extends Shape> shapes) {
-        clearSelection();
-        for (Shape shape : shapes) {
-            addToSelection(shape);
+        selectShapes(shapes, false);
+        LOG.debug(() -> "[MULTI-SELECT] Selezionate tutte le shape: " + selectedShapes.size());
+    }
+
+    /**
+     * Aggiunge in blocco le shape fornite alla selezione corrente.
+     *
+     * @return numero di shape effettivamente aggiunte
+     */
+    public int addAllToSelection(Collection<? extends Shape> shapes) {
+        return selectShapes(shapes, true);
+    }
+
+    /**
+     * Imposta in blocco la selezione. Con {@code additive} a false la
+     * selezione precedente viene sostituita: l'evidenziazione viene tolta
+     * solo alle shape che escono dalla selezione e aggiunta solo a quelle
+     * nuove, con una modifica in blocco del livello e un solo messaggio di
+     * log, così da poter selezionare migliaia di shape con un solo gesto.
+     *
+     * @return numero di shape aggiunte alla selezione
+     */
+    public int selectShapes(Collection<? extends Shape> shapes, boolean additive) {
+        Set<Shape> target = new HashSet<>(shapes);
+        target.remove(null);
+
+        List<Shape> removed = new ArrayList<>();
+        if (!additive) {
+            selectedShapes.removeIf(shape -> !target.contains(shape) && removed.add(shape));
+            if (overlay != null) {
+                overlay.removeAll(removed);
+            }
+        }
+
+        List<Shape> added = new ArrayList<>();
+        for (Shape shape : target) {
+            if (selectedShapes.add(shape)) {
+                added.add(shape);
+            }
+        }
+        if (overlay != null) {
+            overlay.addAll(added);
         }
-        System.out.println("[MULTI-SELECT] Selezionate tutte le shape: " + selectedShapes.size());
+
+        LOG.debug(() -> "[MULTI-SELECT] Selezione in blocco: " + added.size() + " aggiunte"
+                + " (totale: " + selectedShapes.size() + ")");
+        if (!added.isEmpty() || !removed.isEmpty()) {
+            fireSelectionChanged();
+        }
+        return added.size();
     }
 
     /**
-     * Applica l'effetto visivo di selezione a una shape.
+     * Evidenzia una shape sul livello di selezione.
      */
     private void applySelectionEffect(Shape shape) {
-        try {
-            Node node = shape.getNode();
-            if (node instanceof javafx.scene.shape.Shape fxShape) {
-                // Crea un nuovo effetto per ogni shape per evitare condivisioni
-                DropShadow effect = new DropShadow();
-                effect.setRadius(selectionEffect.getRadius());
-                effect.setColor(selectionEffect.getColor());
-                effect.setSpread(selectionEffect.getSpread());
-
-                fxShape.setEffect(effect);
-            }
-        } catch (Exception e) {
-            System.err.println("[MULTI-SELECT] Errore nell'applicazione dell'effetto: " + e.getMessage());
+        if (overlay != null) {
+            overlay.add(shape);
         }
     }
 
     /**
-     * Rimuove l'effetto visivo di selezione da una shape.
+     * Toglie l'evidenziazione di una shape dal livello di selezione.
      */
     private void removeSelectionEffect(Shape shape) {
-        try {
-            Node node = shape.getNode();
-            if (node instanceof javafx.scene.shape.Shape fxShape) {
-                fxShape.setEffect(null);
-            }
-        } catch (Exception e) {
-            System.err.println("[MULTI-SELECT] Errore nella rimozione dell'effetto: " + e.getMessage());
+        if (overlay != null) {
+            overlay.remove(shape);
         }
     }
 
@@ -218,21 +284,18 @@ public class MultipleSelectionManager {
             return new double[]{0, 0, 0, 0}; // minX, minY, maxX, maxY
         }
 
-        double minX = Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE;
-        double maxY = Double.MIN_VALUE;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
 
+        // Bounds in cache sulla shape, comprensivi della rotazione
         for (Shape shape : selectedShapes) {
-            double x = shape.getX();
-            double y = shape.getY();
-            double width = shape.getWidth();
-            double height = shape.getHeight();
-
-            minX = Math.min(minX, x);
-            minY = Math.min(minY, y);
-            maxX = Math.max(maxX, x + width);
-            maxY = Math.max(maxY, y + height);
+            Bounds bounds = AbstractShape.unwrapToAbstract(shape).getBounds();
+            minX = Math.min(minX, bounds.getMinX());
+            minY = Math.min(minY, bounds.getMinY());
+            maxX = Math.max(maxX, bounds.getMaxX());
+            maxY = Math.max(maxY, bounds.getMaxY());
         }
 
         return new double[]{minX, minY, maxX, maxY};
@@ -39,10 +39,10 @@ public class PolygonEditMode {
      * vicino
      */
     public static int getVertexIndex(FreeFormPolygonShape polygon, double x, double y) {
-        List<Double> points = polygon.getPoints();
-        for (int i = 0; i < points.size(); i += 2) {
-            double vx = points.get(i);
-            double vy = points.get(i + 1);
+        int count = polygon.getCoordinateCount();
+        for (int i = 0; i + 1 < count; i += 2) {
+            double vx = polygon.getCoordinate(i);
+            double vy = polygon.getCoordinate(i + 1);
             if (Math.hypot(x - vx, y - vy) <= VERTEX_DETECTION_TOLERANCE) {
                 return i / 2; // Restituisce l'indice del vertice
             }
@@ -126,21 +126,8 @@ public class PolygonEditMode {
      * @return true se il vertice è stato spostato con successo
      */
     public static boolean moveVertex(FreeFormPolygonShape polygon, int vertexIndex, double newX, double newY) {
-        List<Double> points = polygon.getPoints();
-        int pointIndex = vertexIndex * 2;
-
-        if (pointIndex < 0 || pointIndex + 1 >= points.size()) {
-            return false;
-        }
-
-        // Aggiorna le coordinate del vertice
-        points.set(pointIndex, newX);
-        points.set(pointIndex + 1, newY);
-
-        // Riapplica i punti al poligono JavaFX
-        ((javafx.scene.shape.Polygon) polygon.getNode()).getPoints().setAll(points);
-
-        return true;
+        // Aggiorna buffer interno e nodo JavaFX solo per il vertice interessato
+        return polygon.setVertex(vertexIndex, newX, newY);
     }
 
     /**
@@ -154,20 +141,7 @@ public class PolygonEditMode {
      * @return true se il vertice è stato inserito con successo
      */
     public static boolean insertVertex(FreeFormPolygonShape polygon, int afterVertexIndex, double x, double y) {
-        List<Double> points = new ArrayList<>(polygon.getPoints());
-        int insertIndex = (afterVertexIndex + 1) * 2;
-
-        if (insertIndex < 0 || insertIndex > points.size()) {
-            return false;
-        }
-
-        points.add(insertIndex, x);
-        points.add(insertIndex + 1, y);
-
-        // Riapplica i punti al poligono JavaFX
-        ((javafx.scene.shape.Polygon) polygon.getNode()).getPoints().setAll(points);
-
-        return true;
+        return polygon.insertVertex(afterVertexIndex, x, y);
     }
 
     /**
@@ -178,25 +152,12 @@ public class PolygonEditMode {
      * @return true se il vertice è stato rimosso con successo
      */
     public static boolean removeVertex(FreeFormPolygonShape polygon, int vertexIndex) {
-        List<Double> points = new ArrayList<>(polygon.getPoints());
-
         // Non permettere di scendere sotto i 3 vertici
-        if (points.size() <= 6) { // 3 vertici = 6 coordinate
+        if (polygon.getVertexCount() <= 3) {
             return false;
         }
 
-        int pointIndex = vertexIndex * 2;
-        if (pointIndex < 0 || pointIndex + 1 >= points.size()) {
-            return false;
-        }
-
-        points.remove(pointIndex + 1); // Rimuovi Y
-        points.remove(pointIndex);     // Rimuovi X
-
-        // Riapplica i punti al poligono JavaFX
-        ((javafx.scene.shape.Polygon) polygon.getNode()).getPoints().setAll(points);
-
-        return true;
+        return polygon.removeVertex(vertexIndex);
     }
 
     /**
@@ -6,7 +6,9 @@ import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 import it.unisa.progettosadgruppo19.decorator.FillDecorator;
 import it.unisa.progettosadgruppo19.decorator.StrokeDecorator;
+import it.unisa.progettosadgruppo19.util.Log;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.Node;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
@@ -20,7 +22,10 @@ import java.util.List;
  */
 public class PolygonMouseEventHandler {
 
+    private static final Log LOG = Log.get(PolygonMouseEventHandler.class);
+
     private final Pane drawingPane;
+    private final Node eventSource;
     private final List<FreeFormPolygonShape> polygonList;
     private final ShapeManagerReceiver shapeManager;
     private final Color strokeColor, fillColor;
@@ -40,14 +45,29 @@ public class PolygonMouseEventHandler {
             Color strokeColor,
             Color fillColor,
             Runnable onComplete) {
+        this(drawingPane, drawingPane, polygonList, shapeManager, strokeColor, fillColor, onComplete);
+    }
+
+    /**
+     * Variante in cui i click vengono ricevuti da un nodo diverso dal Pane
+     * che contiene le shape (ad esempio in modalità di rendering Canvas).
+     */
+    public PolygonMouseEventHandler(Pane drawingPane,
+            Node eventSource,
+            List<FreeFormPolygonShape> polygonList,
+            ShapeManagerReceiver shapeManager,
+            Color strokeColor,
+            Color fillColor,
+            Runnable onComplete) {
         this.drawingPane = drawingPane;
+        this.eventSource = eventSource;
         this.polygonList = polygonList;
         this.shapeManager = shapeManager;
         this.strokeColor = strokeColor;
         this.fillColor = fillColor;
         this.onComplete = onComplete;
 
-        drawingPane.addEventHandler(MouseEvent.MOUSE_CLICKED, this::onMouseClick);
+        eventSource.addEventHandler(MouseEvent.MOUSE_CLICKED, this::onMouseClick);
     }
 
     private void addVertexIndicator(double x, double y) {
@@ -87,14 +107,14 @@ public class PolygonMouseEventHandler {
                 Object currentUserData = decoratedPolygon.getNode().getUserData();
                 if (currentUserData == null || currentUserData != decoratedPolygon) {
                     decoratedPolygon.getNode().setUserData(decoratedPolygon);
-                    System.out.println("[POLYGON] UserData impostato/corretto");
+                    LOG.debug("[POLYGON] UserData impostato/corretto");
 
                     // Verifica doppia
                     Object verifyUserData = decoratedPolygon.getNode().getUserData();
                     if (verifyUserData != decoratedPolygon) {
                         System.err.println("[POLYGON] ERRORE CRITICO: UserData non si è impostato correttamente!");
                     } else {
-                        System.out.println("[POLYGON] UserData verificato con successo");
+                        LOG.debug("[POLYGON] UserData verificato con successo");
                     }
                 }
             } catch (Exception e) {
@@ -141,7 +161,7 @@ public class PolygonMouseEventHandler {
 
             addVertexIndicator(x, y);
 
-            System.out.println("[POLYGON] Primo vertice aggiunto. UserData verificato: "
+            LOG.debug(() -> "[POLYGON] Primo vertice aggiunto. UserData verificato: "
                     + (decoratedPolygon.getNode().getUserData() != null));
             return;
         }
@@ -164,14 +184,14 @@ public class PolygonMouseEventHandler {
                 CreateFreeFormPolygon cmd = new CreateFreeFormPolygon(shapeManager, decoratedPolygon);
                 cmd.execute();
 
-                System.out.println("[POLYGON] Poligono chiuso con " + basePolygon.getVertexCount() + " vertici.");
-                System.out.println("[POLYGON] UserData finale verificato: "
+                LOG.debug(() -> "[POLYGON] Poligono chiuso con " + basePolygon.getVertexCount() + " vertici.");
+                LOG.debug(() -> "[POLYGON] UserData finale verificato: "
                         + (decoratedPolygon.getNode().getUserData() != null));
 
                 if (basePolygon.getVertexCount() >= 3) {
-                    System.out.println("[POLYGON] Area: " + String.format("%.2f", basePolygon.calculateArea()));
-                    System.out.println("[POLYGON] Perimetro: " + String.format("%.2f", basePolygon.calculatePerimeter()));
-                    System.out.println("[POLYGON] Convesso: " + basePolygon.isConvex());
+                    LOG.debug(() -> "[POLYGON] Area: " + String.format("%.2f", basePolygon.calculateArea()));
+                    LOG.debug(() -> "[POLYGON] Perimetro: " + String.format("%.2f", basePolygon.calculatePerimeter()));
+                    LOG.debug(() -> "[POLYGON] Convesso: " + basePolygon.isConvex());
                 }
 
                 // e) Reset delle variabili prima di disattivare
@@ -188,9 +208,9 @@ public class PolygonMouseEventHandler {
                     onComplete.run();
                 }
 
-                System.out.println("[POLYGON] Strumento poligono disattivato automaticamente.");
+                LOG.debug("[POLYGON] Strumento poligono disattivato automaticamente.");
             } else {
-                System.out.println("[POLYGON] Serve almeno 1 vertice aggiuntivo per chiudere il poligono. Attuali: " + basePolygon.getVertexCount());
+                LOG.debug(() -> "[POLYGON] Serve almeno 1 vertice aggiuntivo per chiudere il poligono. Attuali: " + basePolygon.getVertexCount());
             }
             return;
         }
@@ -204,15 +224,15 @@ public class PolygonMouseEventHandler {
             // CORREZIONE: Ricontrolla UserData dopo ogni modifica
             setUserDataSafely();
 
-            System.out.println("[POLYGON] Vertice " + basePolygon.getVertexCount() + " aggiunto.");
+            LOG.debug(() -> "[POLYGON] Vertice " + basePolygon.getVertexCount() + " aggiunto.");
             if (basePolygon.canClose()) {
-                System.out.println("[POLYGON] Il poligono può ora essere chiuso cliccando sul primo vertice.");
+                LOG.debug("[POLYGON] Il poligono può ora essere chiuso cliccando sul primo vertice.");
             }
         }
     }
 
     public void detach() {
-        drawingPane.removeEventHandler(MouseEvent.MOUSE_CLICKED, this::onMouseClick);
+        eventSource.removeEventHandler(MouseEvent.MOUSE_CLICKED, this::onMouseClick);
 
         if (startIndicator != null) {
             drawingPane.getChildren().remove(startIndicator);
@@ -226,7 +246,7 @@ public class PolygonMouseEventHandler {
             polygonList.remove(basePolygon);
             decoratedPolygon = null;
             basePolygon = null;
-            System.out.println("[POLYGON] Poligono incompleto rimosso.");
+            LOG.debug("[POLYGON] Poligono incompleto rimosso.");
         }
 
         isActive = false;
@@ -250,6 +270,6 @@ public class PolygonMouseEventHandler {
 
     public void reactivate() {
         isActive = true;
-        System.out.println("[POLYGON] Handler riattivato.");
+        LOG.debug("[POLYGON] Handler riattivato.");
     }
 }
@@ -0,0 +1,401 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.serialization.BinaryDrawingFormat;
+import it.unisa.progettosadgruppo19.model.serialization.DrawingData;
+import it.unisa.progettosadgruppo19.model.serialization.MappedDrawing;
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.util.Log;
+import javafx.animation.AnimationTimer;
+import javafx.beans.property.DoubleProperty;
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.SimpleDoubleProperty;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Caricamento progressivo di un disegno che non blocca l'interfaccia.
+ * <p>
+ * Il disegno viene diviso in blocchi di record consecutivi, decodificati e
+ * trasformati in shape in parallelo su un {@link ForkJoinPool} (i nodi non
+ * ancora agganciati alla scena possono essere creati fuori dal thread
+ * JavaFX). Per i file binari i blocchi sono intervalli dell'indice di
+ * {@link MappedDrawing}: ogni record si decodifica dal suo offset, senza
+ * leggere i precedenti. Un thread coordinatore pubblica i blocchi nell'ordine
+ * del file, cioè nello z-order, mantenendone in lavorazione solo pochi alla
+ * volta. Un {@link AnimationTimer} sul thread JavaFX aggancia ad ogni pulse i
+ * lotti pronti al pane, fermandosi allo scadere del budget di tempo del
+ * frame: l'utente può scorrere e osservare il disegno mentre il resto viene
+ * ancora caricato.
+ * <p>
+ * Il caricamento può essere annullato: le shape già agganciate restano nel
+ * disegno.
+ */
+public class ProgressiveLoader {
+
+    private static final Log LOG = Log.get(ProgressiveLoader.class);
+
+    /**
+     * Budget predefinito per l'aggancio delle shape in ogni pulse (8 ms).
+     */
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 8_000_000L;
+
+    /**
+     * Numero predefinito di shape per blocco decodificato, che è anche il
+     * lotto pubblicato al thread JavaFX.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    /**
+     * Blocchi in lavorazione contemporaneamente per ogni thread del pool:
+     * limita la memoria occupata dalle shape decodificate ma non ancora
+     * pubblicate.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private final ShapeFileManager fileManager;
+    private final Pane pane;
+    private final List<AbstractShape> currentShapes;
+
+    private long frameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+    private final DoubleProperty progress = new SimpleDoubleProperty(0);
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(false);
+
+    /**
+     * Stato di un singolo caricamento, condiviso con il suo thread di
+     * lettura. Ogni avvio ne crea uno nuovo, così che un thread annullato non
+     * possa pubblicare lotti nel caricamento successivo.
+     */
+    private static final class Job {
+
+        final ConcurrentLinkedQueue<List<AbstractShape>> ready = new ConcurrentLinkedQueue<>();
+        volatile int total = -1;
+        volatile boolean decodeDone;
+        volatile boolean cancelled;
+        volatile Exception failure;
+    }
+
+    private Job job = new Job();
+
+    // Stato del thread JavaFX
+    private AnimationTimer timer;
+    private int attached;
+    private long startNanos;
+    private File currentFile;
+    private Runnable onFinished;
+
+    /**
+     * @param fileManager gestore usato per leggere i file legacy e
+     * ricostruire le shape
+     * @param pane pane a cui agganciare i nodi
+     * @param currentShapes lista delle shape del disegno, riempita in ordine
+     */
+    public ProgressiveLoader(ShapeFileManager fileManager, Pane pane, List<AbstractShape> currentShapes) {
+        this.fileManager = fileManager;
+        this.pane = pane;
+        this.currentShapes = currentShapes;
+    }
+
+    /**
+     * Avvia il caricamento del file, sostituendo il disegno corrente. Un
+     * eventuale caricamento in corso viene annullato.
+     */
+    public void start(File file) {
+        begin(file);
+        if (timer == null) {
+            timer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    attachPending(frameBudgetNanos);
+                }
+            };
+        }
+        timer.start();
+    }
+
+    /**
+     * Prepara il disegno e avvia il thread di lettura, senza avviare il timer
+     * dei pulse.
+     */
+    void begin(File file) {
+        if (isRunning()) {
+            cancel();
+        }
+        Job current = new Job();
+        job = current;
+        attached = 0;
+        currentFile = file;
+        startNanos = System.nanoTime();
+
+        ViewportCuller culler = ViewportCuller.forPane(pane);
+        if (culler != null) {
+            // le shape fuori vista del disegno precedente non sono figlie del pane
+            culler.clear();
+        }
+        pane.getChildren().clear();
+        currentShapes.clear();
+        progress.set(-1);
+        running.set(true);
+
+        LOG.info(() -> "[LOAD] Caricamento progressivo di " + file.getName());
+        Thread worker = new Thread(() -> decode(file, current), "drawing-loader");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Lettura dei dati di un intervallo di record.
+     */
+    @FunctionalInterface
+    private interface ChunkReader {
+
+        List<ShapeData> read(int from, int to) throws IOException;
+    }
+
+    /**
+     * Corpo del thread coordinatore: apre il file e ne fa decodificare i
+     * blocchi dal pool.
+     */
+    private void decode(File file, Job job) {
+        try {
+            if (BinaryDrawingFormat.isBinaryFile(file) && file.length() <= Integer.MAX_VALUE) {
+                try (MappedDrawing drawing = MappedDrawing.open(file)) {
+                    job.total = drawing.size();
+                    decodeChunks(drawing.size(), drawing::read, job);
+                }
+            } else {
+                // Il formato legacy va letto per intero prima di poter
+                // costruire le shape
+                DrawingData data = fileManager.loadFromFile(file);
+                List<ShapeData> shapes = data.getShapes();
+                job.total = shapes.size();
+                decodeChunks(shapes.size(), shapes::subList, job);
+            }
+        } catch (Exception e) {
+            job.failure = e;
+        } finally {
+            job.decodeDone = true;
+        }
+    }
+
+    /**
+     * Sottomette al pool un blocco alla volta e pubblica i blocchi completati
+     * nell'ordine del file. Oltre un certo numero di blocchi in lavorazione
+     * attende il più vecchio prima di sottometterne altri.
+     */
+    private void decodeChunks(int count, ChunkReader reader, Job job) throws Exception {
+        int size = batchSize;
+        int window = Math.max(2, pool.getParallelism() * CHUNKS_PER_THREAD);
+        Deque<ForkJoinTask<List<AbstractShape>>> inFlight = new ArrayDeque<>(window);
+        try {
+            for (int from = 0; from < count && !job.cancelled; from += size) {
+                int start = from;
+                int end = Math.min(count, from + size);
+                inFlight.add(pool.submit(() -> buildChunk(reader, start, end, job)));
+                if (inFlight.size() >= window) {
+                    publish(await(inFlight.poll()), job);
+                }
+            }
+            while (!inFlight.isEmpty() && !job.cancelled) {
+                publish(await(inFlight.poll()), job);
+            }
+        } finally {
+            for (ForkJoinTask<List<AbstractShape>> task : inFlight) {
+                task.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Decodifica un blocco di record e ne costruisce le shape. Eseguito dai
+     * thread del pool.
+     */
+    private List<AbstractShape> buildChunk(ChunkReader reader, int from, int to, Job job) throws IOException {
+        List<ShapeData> data = reader.read(from, to);
+        List<AbstractShape> shapes = new ArrayList<>(data.size());
+        for (ShapeData shapeData : data) {
+            if (job.cancelled) {
+                break;
+            }
+            AbstractShape shape = fileManager.rebuildShape(shapeData);
+            if (shape != null) {
+                shapes.add(shape);
+            }
+        }
+        return shapes;
+    }
+
+    private static List<AbstractShape> await(ForkJoinTask<List<AbstractShape>> task) throws Exception {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception cause ? cause : e;
+        }
+    }
+
+    private static void publish(List<AbstractShape> batch, Job job) {
+        if (!batch.isEmpty() && !job.cancelled) {
+            job.ready.add(batch);
+        }
+    }
+
+    /**
+     * Aggancia al pane i lotti pronti finché non scade il budget (almeno un
+     * lotto per chiamata). Da eseguire sul thread JavaFX.
+     *
+     * @return true se il caricamento è terminato
+     */
+    boolean attachPending(long budgetNanos) {
+        if (!isRunning()) {
+            return true;
+        }
+        long deadline = System.nanoTime() + budgetNanos;
+        List<AbstractShape> toAttach = new ArrayList<>();
+        List<AbstractShape> batch;
+        do {
+            batch = job.ready.poll();
+            if (batch != null) {
+                toAttach.addAll(batch);
+            }
+        } while (batch != null && System.nanoTime() < deadline);
+
+        if (!toAttach.isEmpty()) {
+            List<Node> nodes = new ArrayList<>(toAttach.size());
+            for (AbstractShape shape : toAttach) {
+                nodes.add(shape.getNode());
+            }
+            // Un solo evento di modifica per lotto sul pane e sulla lista
+            currentShapes.addAll(toAttach);
+            pane.getChildren().addAll(nodes);
+            attached += toAttach.size();
+        }
+
+        int expected = job.total;
+        boolean decodeDone = job.decodeDone;
+        progress.set(expected <= 0 ? (decodeDone ? 1 : -1) : Math.min(1.0, attached / (double) expected));
+
+        if (decodeDone && job.ready.isEmpty()) {
+            finish();
+            return true;
+        }
+        return false;
+    }
+
+    private void finish() {
+        stopTimer();
+        running.set(false);
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+        if (job.failure != null) {
+            LOG.error("[LOAD ERROR] Errore durante il caricamento di " + currentFile.getName()
+                    + ": " + job.failure.getMessage(), job.failure);
+        } else {
+            progress.set(1);
+            fileManager.markLoaded(currentFile, currentShapes, job.total);
+            LOG.info(() -> "[LOAD] Caricamento completato: " + attached + " shape in " + elapsedMs + " ms");
+        }
+        if (onFinished != null) {
+            onFinished.run();
+        }
+    }
+
+    /**
+     * Annulla il caricamento in corso. Le shape già agganciate restano nel
+     * disegno.
+     */
+    public void cancel() {
+        if (!isRunning()) {
+            return;
+        }
+        job.cancelled = true;
+        stopTimer();
+        job.ready.clear();
+        running.set(false);
+        LOG.info(() -> "[LOAD] Caricamento annullato dopo " + attached + " shape");
+        if (onFinished != null) {
+            onFinished.run();
+        }
+    }
+
+    private void stopTimer() {
+        if (timer != null) {
+            timer.stop();
+        }
+    }
+
+    /**
+     * Avanzamento tra 0 e 1, oppure -1 finché il numero totale di shape non è
+     * noto (valore adatto a una {@code ProgressBar} indeterminata).
+     */
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress;
+    }
+
+    public ReadOnlyBooleanProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Azione eseguita sul thread JavaFX al termine del caricamento, anche se
+     * annullato o fallito.
+     */
+    public void setOnFinished(Runnable onFinished) {
+        this.onFinished = onFinished;
+    }
+
+    public void setFrameBudgetNanos(long frameBudgetNanos) {
+        this.frameBudgetNanos = Math.max(0, frameBudgetNanos);
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Imposta il pool su cui decodificare i blocchi; per default il pool
+     * comune.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool != null ? pool : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Numero di shape già agganciate al pane.
+     */
+    public int getAttachedCount() {
+        return attached;
+    }
+
+    /**
+     * Errore del thread di lettura, oppure null.
+     */
+    public Exception getFailure() {
+        return job.failure;
+    }
+
+    /**
+     * Vero quando il thread di lettura ha finito di produrre lotti.
+     */
+    boolean isDecodeDone() {
+        return job.decodeDone;
+    }
+}
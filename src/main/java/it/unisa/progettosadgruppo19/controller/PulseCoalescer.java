@@ -0,0 +1,92 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import javafx.animation.AnimationTimer;
+
+/**
+ * Raggruppa richieste frequenti (ad esempio un evento per ogni movimento del
+ * mouse) in un'unica esecuzione per pulse JavaFX.
+ * <p>
+ * {@link #request()} segnala che c'è lavoro da fare; l'azione viene eseguita
+ * al pulse successivo una sola volta, qualunque sia il numero di richieste
+ * arrivate nel frattempo. Il timer resta attivo finché arrivano richieste e
+ * si ferma al primo pulse senza lavoro. Da usare solo sul thread JavaFX.
+ */
+final class PulseCoalescer {
+
+    private final Runnable action;
+    private AnimationTimer timer;
+    private boolean running;
+    private boolean pending;
+    private boolean manual;
+
+    /**
+     * @param action azione da eseguire una volta per pulse
+     */
+    PulseCoalescer(Runnable action) {
+        this.action = action;
+    }
+
+    /**
+     * Chiede l'esecuzione dell'azione al prossimo pulse.
+     */
+    void request() {
+        pending = true;
+        if (!manual && !running) {
+            if (timer == null) {
+                timer = new AnimationTimer() {
+                    @Override
+                    public void handle(long now) {
+                        if (pending) {
+                            flush();
+                        } else {
+                            stopTimer();
+                        }
+                    }
+                };
+            }
+            timer.start();
+            running = true;
+        }
+    }
+
+    /**
+     * Esegue subito l'azione se c'è una richiesta in sospeso, ad esempio
+     * prima di chiudere un gesto.
+     */
+    void flush() {
+        if (pending) {
+            pending = false;
+            action.run();
+        }
+    }
+
+    /**
+     * Scarta la richiesta in sospeso e ferma il timer.
+     */
+    void cancel() {
+        pending = false;
+        stopTimer();
+    }
+
+    boolean isPending() {
+        return pending;
+    }
+
+    /**
+     * Senza timer: le richieste restano in sospeso finché non viene chiamato
+     * {@link #flush()}. Usato dove non ci sono pulse, come nei test.
+     */
+    void setManual(boolean manual) {
+        this.manual = manual;
+        if (manual) {
+            stopTimer();
+        }
+    }
+
+    private void stopTimer() {
+        if (timer != null && running) {
+            timer.stop();
+        }
+        running = false;
+    }
+}
@@ -0,0 +1,506 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.command.Command;
+import it.unisa.progettosadgruppo19.command.HistoryListener;
+import it.unisa.progettosadgruppo19.model.serialization.BinaryDrawingFormat;
+import it.unisa.progettosadgruppo19.model.serialization.DrawingData;
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Journal di recupero della sessione: registra gli effetti di ogni comando
+ * eseguito, annullato o ripetuto tramite lo {@link
+ * it.unisa.progettosadgruppo19.command.StackUndoInvoker}, così che dopo un
+ * crash il disegno possa essere ricostruito a partire dall'ultimo file
+ * salvato.
+ * <p>
+ * Ogni record contiene le differenze del disegno rispetto al record
+ * precedente (shape rimosse, modificate e aggiunte), nello stesso formato dei
+ * segmenti incrementali di {@link BinaryDrawingFormat}. Il record viene
+ * codificato sul thread JavaFX, leggendo solo le shape cambiate, e scritto da
+ * un thread in background su uno stream bufferizzato forzato su disco a
+ * intervalli regolari: il thread JavaFX non attende mai il disco.
+ * <p>
+ * Struttura del file (big-endian):
+ * <pre>
+ * int    JOURNAL_MAGIC ("SJNL")
+ * short  versione
+ * UTF    percorso del file di base ("" se il disegno non è mai stato salvato)
+ * long   dimensione del file di base
+ * int    numero di shape del file di base
+ * per ogni record:
+ *   byte   operazione (esecuzione, undo, redo, checkpoint)
+ *   UTF    nome del comando
+ *   segmento di {@link BinaryDrawingFormat}
+ * </pre>
+ * Ogni salvataggio o caricamento riparte da un journal vuoto che fa
+ * riferimento al nuovo file di base. Un record incompleto in coda viene
+ * ignorato.
+ */
+public class RecoveryJournal implements HistoryListener, Closeable {
+
+    private static final Log LOG = Log.get(RecoveryJournal.class);
+
+    /**
+     * Primi quattro byte del journal: "SJNL".
+     */
+    public static final int JOURNAL_MAGIC = 0x534A4E4C;
+
+    /**
+     * Versione del journal. I journal di altre versioni vengono ignorati.
+     */
+    public static final short JOURNAL_VERSION = 1;
+
+    /**
+     * Intervallo predefinito tra due sincronizzazioni su disco.
+     */
+    public static final long DEFAULT_SYNC_INTERVAL_MS = 1000;
+
+    /**
+     * Operazione dei record che sostituiscono l'intero disegno.
+     */
+    private static final byte OP_CHECKPOINT = 3;
+
+    /**
+     * Disegno ricostruito dal journal.
+     *
+     * @param data shape del file di base con i record applicati
+     * @param baseFile file di base, oppure null
+     * @param records numero di record applicati
+     * @param validLength dimensione del journal fino all'ultimo record
+     * completo
+     */
+    public record Recovery(DrawingData data, File baseFile, int records, long validLength) {
+
+    }
+
+    private final File journalFile;
+    private final List<AbstractShape> shapes;
+    private final ScheduledExecutorService writer;
+
+    // Stato del thread JavaFX
+    private long generation = 0;
+    private int count = 0;
+    private long stamp = 0;
+    private long epoch = 0;
+
+    /**
+     * Vero quando il journal su disco non descrive lo stato registrato (mai
+     * inizializzato o salvataggio di base fallito): il prossimo record sarà
+     * un checkpoint dell'intero disegno.
+     */
+    private volatile boolean broken = true;
+
+    // Stato del thread di scrittura
+    private FileOutputStream fileOut;
+    private DataOutputStream out;
+    private long acceptedEpoch = -1;
+    private boolean unsynced;
+    private long records;
+    private long writtenBytes;
+
+    /**
+     * @param journalFile file del journal
+     * @param shapes lista delle shape del disegno, osservata a ogni comando
+     */
+    public RecoveryJournal(File journalFile, List<AbstractShape> shapes) {
+        this(journalFile, shapes, DEFAULT_SYNC_INTERVAL_MS);
+    }
+
+    /**
+     * @param journalFile file del journal
+     * @param shapes lista delle shape del disegno, osservata a ogni comando
+     * @param syncIntervalMillis intervallo tra due sincronizzazioni su disco
+     */
+    public RecoveryJournal(File journalFile, List<AbstractShape> shapes, long syncIntervalMillis) {
+        this.journalFile = journalFile;
+        this.shapes = shapes;
+        this.writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "recovery-journal");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1, syncIntervalMillis);
+        writer.scheduleWithFixedDelay(this::sync, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Percorso predefinito del journal nella cartella dell'utente.
+     */
+    public static File defaultFile() {
+        return new File(System.getProperty("user.home"), ".progettosadgruppo19-recovery.journal");
+    }
+
+    public File getFile() {
+        return journalFile;
+    }
+
+    // ---------------------------------------------------------------------
+    // Thread JavaFX
+    // ---------------------------------------------------------------------
+
+    @Override
+    public void historyChanged(Operation operation, Command command) {
+        record((byte) operation.ordinal(), command.getClass().getSimpleName());
+    }
+
+    /**
+     * Registra le differenze del disegno rispetto al record precedente.
+     */
+    private void record(byte operation, String name) {
+        if (broken) {
+            checkpoint(name);
+            return;
+        }
+        long nextStamp = AbstractShape.currentModificationStamp();
+        DrawingDelta delta = DrawingDelta.compute(shapes, AbstractShape.TRACK_JOURNAL, generation, count,
+                stamp, generation + 1);
+        if (delta == null) {
+            // Ordine cambiato: il record sostituisce l'intero disegno
+            delta = DrawingDelta.full(shapes, AbstractShape.TRACK_JOURNAL, count, generation + 1);
+        }
+        generation = delta.generation;
+        count = shapes.size();
+        stamp = nextStamp;
+        if (!delta.isEmpty()) {
+            enqueue(encode(operation, name, delta), epoch);
+        }
+    }
+
+    /**
+     * Riparte da un journal senza file di base con un record che contiene
+     * l'intero disegno.
+     */
+    private void checkpoint(String name) {
+        broken = false;
+        long current = ++epoch;
+        long nextStamp = AbstractShape.currentModificationStamp();
+        DrawingDelta delta = DrawingDelta.full(shapes, AbstractShape.TRACK_JOURNAL, 0, ++generation);
+        count = shapes.size();
+        stamp = nextStamp;
+        byte[] record = encode(OP_CHECKPOINT, name, delta);
+        writer.execute(() -> restart(null, 0, null, current, CompletableFuture.completedFuture(0)));
+        enqueue(record, current);
+    }
+
+    /**
+     * Riparte da un journal vuoto che fa riferimento al file appena salvato o
+     * caricato. Va chiamato sul thread JavaFX nel momento in cui le shape
+     * vengono copiate per il salvataggio.
+     *
+     * @param base file di base
+     * @param saved shape del disegno al momento del salvataggio
+     * @param snapshot dati delle stesse shape copiati per il salvataggio,
+     * oppure null se il file le contiene tutte
+     * @param baseWritten completato con il numero di shape scritte nel file
+     * quando questo è su disco; se fallisce il journal riparte con un
+     * checkpoint al comando successivo
+     */
+    public void rebase(File base, List<AbstractShape> saved, List<ShapeData> snapshot,
+            CompletableFuture<Integer> baseWritten) {
+        broken = false;
+        long current = ++epoch;
+        mark(saved);
+        int savedCount = saved.size();
+        writer.execute(() -> restart(base, savedCount, snapshot, current, baseWritten));
+    }
+
+    /**
+     * Continua il journal da cui è stato recuperato il disegno, scartando
+     * un eventuale record incompleto in coda.
+     *
+     * @param recovery esito di {@link #recover(ShapeFileManager)}
+     * @param rebuilt shape ricostruite dai dati recuperati, nello stesso
+     * ordine
+     */
+    public void resume(Recovery recovery, List<AbstractShape> rebuilt) {
+        if (rebuilt.size() != recovery.data().getShapes().size()) {
+            broken = true;
+            return;
+        }
+        broken = false;
+        long current = ++epoch;
+        mark(rebuilt);
+        writer.execute(() -> reopen(recovery.validLength(), current));
+    }
+
+    private void mark(List<AbstractShape> list) {
+        long nextGeneration = ++generation;
+        stamp = AbstractShape.currentModificationStamp();
+        for (int i = 0; i < list.size(); i++) {
+            DrawingDelta.mark(list, list.get(i), AbstractShape.TRACK_JOURNAL, nextGeneration, i);
+            list.get(i).rearmModificationTracking();
+        }
+        DrawingDelta.marked(list, AbstractShape.TRACK_JOURNAL, nextGeneration);
+        count = list.size();
+    }
+
+    private static byte[] encode(byte operation, String name, DrawingDelta delta) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + delta.changedShapes() * 64);
+        try {
+            DataOutputStream data = new DataOutputStream(bytes);
+            data.writeByte(operation);
+            data.writeUTF(name);
+            delta.write(0, null, data);
+            data.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private void enqueue(byte[] record, long recordEpoch) {
+        writer.execute(() -> append(record, recordEpoch));
+    }
+
+    // ---------------------------------------------------------------------
+    // Thread di scrittura
+    // ---------------------------------------------------------------------
+
+    /**
+     * Riparte da un journal vuoto che fa riferimento al file di base. Se il
+     * file contiene meno shape del disegno (duplicati rimossi dal
+     * salvataggio) il primo record riporta il disegno a {@code savedCount}
+     * shape, così che i record successivi si applichino alle stesse
+     * posizioni registrate sul thread JavaFX.
+     */
+    private void restart(File base, int savedCount, List<ShapeData> snapshot, long restartEpoch,
+            CompletableFuture<Integer> baseWritten) {
+        acceptedEpoch = -1;
+        int baseCount;
+        try {
+            baseCount = baseWritten.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            broken = true;
+            return;
+        } catch (ExecutionException e) {
+            LOG.warn("[JOURNAL] Salvataggio di base fallito, il journal riparte con un checkpoint");
+            broken = true;
+            return;
+        }
+        try {
+            closeStream();
+            fileOut = new FileOutputStream(journalFile, false);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+            out.writeInt(JOURNAL_MAGIC);
+            out.writeShort(JOURNAL_VERSION);
+            out.writeUTF(base != null ? base.getAbsolutePath() : "");
+            out.writeLong(base != null ? base.length() : -1);
+            out.writeInt(baseCount);
+            records = 0;
+            writtenBytes = 0;
+            if (baseCount != savedCount) {
+                if (snapshot == null || snapshot.size() != savedCount) {
+                    LOG.warn("[JOURNAL] Il file di base non corrisponde al disegno, il journal riparte con un checkpoint");
+                    broken = true;
+                    return;
+                }
+                byte[] record = encode(OP_CHECKPOINT, "Save", DrawingDelta.replacing(baseCount, snapshot));
+                out.write(record);
+                records++;
+                writtenBytes += record.length;
+            }
+            acceptedEpoch = restartEpoch;
+            unsynced = true;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void reopen(long validLength, long reopenEpoch) {
+        acceptedEpoch = -1;
+        try {
+            closeStream();
+            try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+                raf.setLength(validLength);
+            }
+            fileOut = new FileOutputStream(journalFile, true);
+            out = new DataOutputStream(new BufferedOutputStream(fileOut, 1 << 16));
+            acceptedEpoch = reopenEpoch;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void append(byte[] record, long recordEpoch) {
+        if (recordEpoch != acceptedEpoch || out == null) {
+            return;
+        }
+        try {
+            out.write(record);
+            unsynced = true;
+            records++;
+            writtenBytes += record.length;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    /**
+     * Svuota il buffer e forza i dati su disco, se ci sono scritture nuove.
+     */
+    private void sync() {
+        if (!unsynced || out == null) {
+            return;
+        }
+        try {
+            out.flush();
+            fileOut.getFD().sync();
+            unsynced = false;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(IOException e) {
+        LOG.error("[JOURNAL] Errore di scrittura del journal: " + e.getMessage(), e);
+        acceptedEpoch = -1;
+        broken = true;
+        try {
+            closeStream();
+        } catch (IOException ignored) {
+            // lo stream è già inutilizzabile
+        }
+    }
+
+    private void closeStream() throws IOException {
+        if (out != null) {
+            DataOutputStream stream = out;
+            out = null;
+            fileOut = null;
+            stream.close();
+        }
+    }
+
+    /**
+     * Attende che i record accodati siano scritti e forzati su disco.
+     *
+     * @return false se l'attesa scade
+     */
+    public boolean flush(long timeoutMillis) {
+        try {
+            writer.submit(this::sync).get(timeoutMillis, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Scrive i record pendenti e chiude il journal, lasciandolo su disco per
+     * un eventuale recupero.
+     */
+    @Override
+    public void close() {
+        flush(2000);
+        writer.execute(() -> {
+            try {
+                closeStream();
+            } catch (IOException e) {
+                LOG.warn("[JOURNAL] Errore in chiusura: " + e.getMessage());
+            }
+        });
+        writer.shutdown();
+        LOG.info(() -> "[JOURNAL] Chiuso: " + records + " record, " + writtenBytes + " byte dall'ultimo salvataggio");
+    }
+
+    // ---------------------------------------------------------------------
+    // Recupero
+    // ---------------------------------------------------------------------
+
+    /**
+     * Ricostruisce il disegno della sessione precedente: carica il file di
+     * base e vi applica i record del journal. Va chiamato all'avvio, prima
+     * di registrare nuovi comandi.
+     *
+     * @param fileManager gestore usato per caricare il file di base
+     * @return il disegno recuperato, oppure null se non c'è nulla da
+     * recuperare o il file di base è cambiato dopo la scrittura del journal
+     */
+    public Recovery recover(ShapeFileManager fileManager) {
+        if (!journalFile.isFile() || journalFile.length() == 0) {
+            return null;
+        }
+        try {
+            byte[] bytes = Files.readAllBytes(journalFile.toPath());
+            ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+            DataInputStream in = new DataInputStream(buffer);
+
+            if (in.readInt() != JOURNAL_MAGIC || in.readShort() != JOURNAL_VERSION) {
+                LOG.warn("[JOURNAL] Journal non riconosciuto, ignorato");
+                return null;
+            }
+            String basePath = in.readUTF();
+            long baseLength = in.readLong();
+            int baseCount = in.readInt();
+            long validLength = bytes.length - buffer.available();
+
+            File base = basePath.isEmpty() ? null : new File(basePath);
+            List<ShapeData> data = new ArrayList<>();
+            if (base != null) {
+                if (!base.isFile() || base.length() != baseLength) {
+                    LOG.warn("[JOURNAL] Il file " + base.getName()
+                            + " è cambiato dopo la scrittura del journal, recupero annullato");
+                    return null;
+                }
+                data.addAll(fileManager.loadFromFile(base).getShapes());
+            }
+            if (data.size() != baseCount) {
+                LOG.warn("[JOURNAL] Il file di base non corrisponde al journal, recupero annullato");
+                return null;
+            }
+
+            int applied = 0;
+            while (buffer.available() > 0) {
+                try {
+                    in.readByte();
+                    in.readUTF();
+                    if (!BinaryDrawingFormat.applySegment(in, data)) {
+                        break;
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                applied++;
+                validLength = bytes.length - buffer.available();
+            }
+            if (applied == 0) {
+                return null;
+            }
+            Recovery recovery = new Recovery(new DrawingData(data), base, applied, validLength);
+            LOG.info(() -> "[JOURNAL] Recuperati " + recovery.records() + " record: " + data.size() + " shape"
+                    + (recovery.baseFile() != null ? " a partire da " + recovery.baseFile().getName() : ""));
+            return recovery;
+        } catch (IOException | ClassNotFoundException | RuntimeException e) {
+            LOG.warn("[JOURNAL] Recupero non riuscito: " + e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package it.unisa.progettosadgruppo19.controller;
+
+/**
+ * Backend di rendering del disegno, scelto all'avvio con la proprietà di
+ * sistema {@value #PROPERTY} ({@code pane} oppure {@code canvas}).
+ */
+public enum RenderMode {
+
+    /**
+     * Un nodo JavaFX per shape, figlio diretto del Pane di disegno.
+     */
+    PANE,
+    /**
+     * Shape disegnate su un unico Canvas da {@link CanvasRenderer}.
+     */
+    CANVAS;
+
+    public static final String PROPERTY = "drawing.renderer";
+
+    /**
+     * Restituisce la modalità indicata dalla proprietà di sistema, oppure
+     * {@link #PANE} se assente o non riconosciuta.
+     */
+    public static RenderMode fromSystemProperty() {
+        return parse(System.getProperty(PROPERTY));
+    }
+
+    static RenderMode parse(String value) {
+        if (value != null && value.trim().equalsIgnoreCase("canvas")) {
+            return CANVAS;
+        }
+        return PANE;
+    }
+}
@@ -0,0 +1,16 @@
+package it.unisa.progettosadgruppo19.controller;
+
+/**
+ * Osservatore della selezione, notificato da {@link MultipleSelectionManager}
+ * e da {@link MouseEventHandler} sul thread JavaFX ogni volta che l'insieme
+ * delle shape selezionate o la modalità di selezione cambiano. Le operazioni
+ * che non modificano la selezione non producono notifiche.
+ * <p>
+ * La notifica arriva subito dopo ogni modifica: chi aggiorna l'interfaccia
+ * dovrebbe accorparle, ad esempio con una richiesta per pulse.
+ */
+@FunctionalInterface
+public interface SelectionListener {
+
+    void selectionChanged();
+}
@@ -0,0 +1,258 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.Shape;
+
+import javafx.beans.InvalidationListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.ClosePath;
+import javafx.scene.shape.LineTo;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.Path;
+import javafx.scene.shape.PathElement;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Livello che evidenzia le shape selezionate.
+ * <p>
+ * Contorni e maniglie di tutte le shape selezionate sono disegnati da un
+ * unico {@link Path}, trasparente al mouse e quindi ignorato da
+ * {@link ShapeSpatialIndex} e da {@link ViewportCuller}, posto sopra le shape.
+ * I nodi delle shape non vengono modificati: niente effetti per nodo, che
+ * costringerebbero JavaFX a un rendering fuori schermo per ciascuna shape.
+ * <p>
+ * Le modifiche sono incrementali: aggiungere o togliere una shape tocca solo
+ * i suoi elementi del Path. Quando una shape selezionata si sposta o cambia
+ * dimensione il suo contorno viene marcato da aggiornare e ricalcolato una
+ * sola volta al pulse successivo. Da usare solo sul thread JavaFX.
+ */
+public class SelectionOverlay {
+
+    /**
+     * Lato delle maniglie agli angoli del contorno, in coordinate del Pane.
+     */
+    static final double HANDLE_SIZE = 6;
+
+    // contorno: MoveTo, 3 LineTo, ClosePath; lo stesso per ogni maniglia
+    private static final int ELEMENTS_PER_RECT = 5;
+    static final int ELEMENTS_PER_SHAPE = ELEMENTS_PER_RECT * 5;
+
+    private final Pane pane;
+    private final Path path = new Path();
+    private final Map<Node, Outline> outlines = new IdentityHashMap<>();
+    private final Set<Outline> dirty = Collections.newSetFromMap(new IdentityHashMap<>());
+    private final PulseCoalescer refresh = new PulseCoalescer(this::refreshDirty);
+
+    /**
+     * Contorno di una shape selezionata: elementi del Path e listener sui
+     * bounds del nodo.
+     */
+    private final class Outline {
+
+        final Node node;
+        final PathElement[] elements = new PathElement[ELEMENTS_PER_SHAPE];
+        final InvalidationListener boundsListener = obs -> markDirty(this);
+
+        Outline(Node node) {
+            this.node = node;
+            for (int i = 0; i < ELEMENTS_PER_SHAPE; i += ELEMENTS_PER_RECT) {
+                elements[i] = new MoveTo();
+                elements[i + 1] = new LineTo();
+                elements[i + 2] = new LineTo();
+                elements[i + 3] = new LineTo();
+                elements[i + 4] = new ClosePath();
+            }
+            update();
+        }
+
+        /**
+         * Riporta gli elementi sui bounds correnti del nodo. La lettura dei
+         * bounds riattiva anche il listener di invalidazione.
+         */
+        void update() {
+            Bounds b = node.getBoundsInParent();
+            setRect(0, b.getMinX(), b.getMinY(), b.getMaxX(), b.getMaxY());
+            double h = HANDLE_SIZE / 2;
+            setRect(1, b.getMinX() - h, b.getMinY() - h, b.getMinX() + h, b.getMinY() + h);
+            setRect(2, b.getMaxX() - h, b.getMinY() - h, b.getMaxX() + h, b.getMinY() + h);
+            setRect(3, b.getMaxX() - h, b.getMaxY() - h, b.getMaxX() + h, b.getMaxY() + h);
+            setRect(4, b.getMinX() - h, b.getMaxY() - h, b.getMinX() + h, b.getMaxY() + h);
+        }
+
+        private void setRect(int rect, double minX, double minY, double maxX, double maxY) {
+            int i = rect * ELEMENTS_PER_RECT;
+            MoveTo start = (MoveTo) elements[i];
+            start.setX(minX);
+            start.setY(minY);
+            setPoint(elements[i + 1], maxX, minY);
+            setPoint(elements[i + 2], maxX, maxY);
+            setPoint(elements[i + 3], minX, maxY);
+        }
+
+        private void setPoint(PathElement element, double x, double y) {
+            LineTo line = (LineTo) element;
+            line.setX(x);
+            line.setY(y);
+        }
+    }
+
+    /**
+     * @param pane Pane su cui disegnare il livello, nello stesso sistema di
+     * coordinate dei nodi delle shape
+     */
+    public SelectionOverlay(Pane pane) {
+        this.pane = pane;
+        path.setMouseTransparent(true);
+        path.setManaged(false);
+        path.setFill(null);
+        path.setStroke(Color.DODGERBLUE);
+        path.setStrokeWidth(1);
+    }
+
+    /**
+     * Evidenzia una shape. Non ha effetto se è già evidenziata.
+     */
+    public void add(Shape shape) {
+        if (shape != null) {
+            addAll(List.of(shape));
+        }
+    }
+
+    /**
+     * Evidenzia in blocco le shape indicate con un'unica modifica del Path.
+     */
+    public void addAll(Collection<? extends Shape> shapes) {
+        List<PathElement> added = new ArrayList<>();
+        for (Shape shape : shapes) {
+            Node node = shape != null ? shape.getNode() : null;
+            if (node == null || outlines.containsKey(node)) {
+                continue;
+            }
+            Outline outline = new Outline(node);
+            outlines.put(node, outline);
+            node.boundsInParentProperty().addListener(outline.boundsListener);
+            Collections.addAll(added, outline.elements);
+        }
+        if (!added.isEmpty()) {
+            path.getElements().addAll(added);
+            attach();
+        }
+    }
+
+    /**
+     * Toglie l'evidenziazione da una shape.
+     */
+    public void remove(Shape shape) {
+        if (shape != null) {
+            removeAll(List.of(shape));
+        }
+    }
+
+    /**
+     * Toglie l'evidenziazione dalle shape indicate, toccando solo i loro
+     * contorni.
+     */
+    public void removeAll(Collection<? extends Shape> shapes) {
+        Set<PathElement> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Shape shape : shapes) {
+            Outline outline = shape != null ? outlines.remove(shape.getNode()) : null;
+            if (outline == null) {
+                continue;
+            }
+            outline.node.boundsInParentProperty().removeListener(outline.boundsListener);
+            dirty.remove(outline);
+            Collections.addAll(removed, outline.elements);
+        }
+        if (removed.isEmpty()) {
+            return;
+        }
+        if (outlines.isEmpty()) {
+            path.getElements().clear();
+            detach();
+        } else {
+            path.getElements().removeAll(removed);
+        }
+    }
+
+    /**
+     * Toglie tutte le evidenziazioni.
+     */
+    public void clear() {
+        for (Outline outline : outlines.values()) {
+            outline.node.boundsInParentProperty().removeListener(outline.boundsListener);
+        }
+        outlines.clear();
+        dirty.clear();
+        refresh.cancel();
+        path.getElements().clear();
+        detach();
+    }
+
+    public boolean contains(Shape shape) {
+        return shape != null && outlines.containsKey(shape.getNode());
+    }
+
+    /**
+     * Numero di shape evidenziate.
+     */
+    public int size() {
+        return outlines.size();
+    }
+
+    /**
+     * Aggiorna subito i contorni in attesa del pulse successivo.
+     */
+    public void flush() {
+        refresh.flush();
+    }
+
+    Path getPath() {
+        return path;
+    }
+
+    /**
+     * Vedi {@link PulseCoalescer#setManual(boolean)}.
+     */
+    void setManualRefresh(boolean manual) {
+        refresh.setManual(manual);
+    }
+
+    private void markDirty(Outline outline) {
+        if (dirty.add(outline)) {
+            refresh.request();
+        }
+    }
+
+    private void refreshDirty() {
+        for (Outline outline : dirty) {
+            outline.update();
+        }
+        dirty.clear();
+    }
+
+    /**
+     * Mette il Path sopra le shape, aggiungendolo al Pane se necessario
+     * (un caricamento può aver svuotato i figli del Pane).
+     */
+    private void attach() {
+        List<Node> children = pane.getChildren();
+        if (path.getParent() == null) {
+            children.add(path);
+        } else if (children.get(children.size() - 1) != path) {
+            path.toFront();
+        }
+    }
+
+    private void detach() {
+        pane.getChildren().remove(path);
+    }
+}
@@ -3,26 +3,179 @@ package it.unisa.progettosadgruppo19.controller;
 import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
+import it.unisa.progettosadgruppo19.model.serialization.BinaryDrawingFormat;
 import it.unisa.progettosadgruppo19.model.serialization.DrawingData;
+import it.unisa.progettosadgruppo19.model.serialization.DrawingStats;
+import it.unisa.progettosadgruppo19.model.serialization.MappedDrawing;
 import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
 import it.unisa.progettosadgruppo19.adapter.ShapeAdapter;
 import it.unisa.progettosadgruppo19.decorator.FillDecorator;
 import it.unisa.progettosadgruppo19.decorator.StrokeDecorator;
-import it.unisa.progettosadgruppo19.factory.*;
+import it.unisa.progettosadgruppo19.factory.ShapeCreatorRegistry;
 import it.unisa.progettosadgruppo19.model.shapes.TextShape;
+import it.unisa.progettosadgruppo19.util.Log;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * Gestisce il salvataggio e il caricamento delle shape su/da file binari.
  * Supporta tutte le forme geometriche inclusi i poligoni a forma libera.
  * VERSIONE CORRETTA che elimina duplicazioni durante salvataggio e caricamento.
+ * <p>
+ * Il salvataggio usa per default il formato compatto
+ * {@link BinaryDrawingFormat}; il caricamento riconosce il formato
+ * dall'intestazione e continua a leggere i file .bin legacy scritti con la
+ * serializzazione Java.
+ * <p>
+ * Quando si salva di nuovo sullo stesso file, solo le shape aggiunte,
+ * modificate o rimosse dall'ultimo salvataggio vengono accodate al file come
+ * segmento incrementale; il file viene riscritto per intero (compattato)
+ * quando i segmenti diventano troppi o troppo grandi rispetto al corpo
+ * principale.
  */
 public class ShapeFileManager {
 
+    private static final Log LOG = Log.get(ShapeFileManager.class);
+
+    /**
+     * Formato usato in scrittura.
+     */
+    public enum FileFormat {
+        /**
+         * Formato binario compatto e versionato.
+         */
+        BINARY,
+        /**
+         * Serializzazione Java di {@link DrawingData} (formato originale).
+         */
+        LEGACY
+    }
+
+    private FileFormat saveFormat = FileFormat.BINARY;
+
+    public FileFormat getSaveFormat() {
+        return saveFormat;
+    }
+
+    public void setSaveFormat(FileFormat saveFormat) {
+        this.saveFormat = saveFormat != null ? saveFormat : FileFormat.BINARY;
+    }
+
+    /**
+     * Esito di un salvataggio, con i tempi delle due fasi.
+     *
+     * @param file file scritto
+     * @param shapeCount numero di shape salvate dopo la rimozione dei
+     * duplicati
+     * @param bytes dimensione del file
+     * @param snapshotNanos durata della copia dei dati sul thread chiamante
+     * @param writeNanos durata di conversione, codifica e scrittura
+     * @param changedShapes shape aggiunte, modificate o rimosse scritte in un
+     * segmento incrementale, oppure -1 se il file è stato riscritto per intero
+     */
+    public record SaveResult(File file, int shapeCount, long bytes, long snapshotNanos, long writeNanos,
+            int changedShapes) {
+
+        /**
+         * Vero se il salvataggio ha solo accodato le modifiche al file.
+         */
+        public boolean incremental() {
+            return changedShapes >= 0;
+        }
+
+        public long snapshotMillis() {
+            return snapshotNanos / 1_000_000;
+        }
+
+        public long writeMillis() {
+            return writeNanos / 1_000_000;
+        }
+    }
+
+    /**
+     * Esecutore dei salvataggi in background: un solo thread, così che
+     * salvataggi consecutivi vengano scritti nell'ordine in cui sono chiesti.
+     */
+    private static final ExecutorService SAVE_EXECUTOR = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "drawing-saver");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * Numero massimo predefinito di segmenti incrementali prima della
+     * compattazione.
+     */
+    public static final int DEFAULT_MAX_SEGMENTS = 16;
+
+    /**
+     * Rapporto predefinito tra byte accodati e corpo principale oltre il quale
+     * il file viene compattato.
+     */
+    public static final double DEFAULT_MAX_APPENDED_RATIO = 0.5;
+
+    private int maxSegments = DEFAULT_MAX_SEGMENTS;
+    private double maxAppendedRatio = DEFAULT_MAX_APPENDED_RATIO;
+
+    /**
+     * Stato del file dopo l'ultimo salvataggio o caricamento completato.
+     *
+     * @param file percorso assoluto del file
+     * @param generation generazione con cui sono state marcate le posizioni
+     * delle shape ({@link AbstractShape#getSavedSlot(int, long)})
+     * @param count numero di shape nel file
+     * @param stamp orologio delle modifiche al momento del salvataggio
+     * @param segments segmenti incrementali presenti nel file
+     * @param baseBytes dimensione del corpo principale
+     * @param length dimensione attesa del file
+     * @param stats statistiche scritte in coda al file
+     * @param tags tag di tipo delle shape nel file, per posizione
+     * @param duplicates indice delle shape nel file per la ricerca dei
+     * duplicati, aggiornato dai salvataggi incrementali
+     */
+    private record SavedState(Path file, long generation, int count, long stamp, int segments,
+            long baseBytes, long length, DrawingStats stats, byte[] tags, DuplicateIndex duplicates) {
+
+    }
+
+    /**
+     * Segmento preparato sul thread JavaFX, da accodare in background.
+     */
+    private record IncrementalPlan(SavedState base, SavedState next, byte[] segment, int changedShapes) {
+
+    }
+
+    /**
+     * Pubblicato dal thread di scrittura al termine di ogni salvataggio; null
+     * quando il prossimo salvataggio deve riscrivere il file.
+     */
+    private volatile SavedState savedState;
+
+    /**
+     * Generazione dell'ultimo salvataggio preparato (solo thread JavaFX).
+     */
+    private long generation = 0;
+
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+
+    private RecoveryJournal recoveryJournal;
+
     /**
      * Serializza la lista di shape e la salva sul file specificato. VERSIONE
      * CORRETTA che elimina duplicati durante il salvataggio.
@@ -32,123 +185,643 @@ public class ShapeFileManager {
      * @throws IOException in caso di errori di I/O.
      */
     public void saveToFile(List<AbstractShape> shapes, File file) throws IOException {
-        System.out.println("[SAVE DEBUG] Inizio salvataggio di " + shapes.size() + " shape");
+        long start = System.nanoTime();
+        IncrementalPlan plan = planIncremental(shapes, file);
+        List<ShapeData> snapshot = null;
+        SaveResult result;
+        if (plan != null) {
+            result = appendSegment(plan, file, System.nanoTime() - start);
+        } else {
+            long nextGeneration = ++generation;
+            long stamp = AbstractShape.currentModificationStamp();
+            snapshot = snapshot(shapes, nextGeneration);
+            result = writeSnapshot(snapshot, file, System.nanoTime() - start, nextGeneration, stamp);
+        }
+        if (recoveryJournal != null) {
+            recoveryJournal.rebase(file, shapes, snapshot, CompletableFuture.completedFuture(result.shapeCount()));
+        }
+    }
+
+    /**
+     * Salva il disegno senza bloccare il thread chiamante: la copia dei dati
+     * delle shape avviene subito, sul thread JavaFX, mentre rimozione dei
+     * duplicati, codifica e scrittura del file avvengono in background.
+     *
+     * @param shapes lista di shape da salvare
+     * @param file file di destinazione
+     * @return future completato con l'esito del salvataggio (su un thread in
+     * background)
+     */
+    public CompletableFuture<SaveResult> saveToFileAsync(List<AbstractShape> shapes, File file) {
+        long start = System.nanoTime();
+        CompletableFuture<SaveResult> future;
+        IncrementalPlan plan = planIncremental(shapes, file);
+        List<ShapeData> snapshot;
+        if (plan != null) {
+            long planNanos = System.nanoTime() - start;
+            snapshot = null;
+            future = submit(() -> appendSegment(plan, file, planNanos));
+        } else {
+            long nextGeneration = ++generation;
+            long stamp = AbstractShape.currentModificationStamp();
+            snapshot = snapshot(shapes, nextGeneration);
+            long snapshotNanos = System.nanoTime() - start;
+            LOG.debug(() -> "[SAVE] Snapshot di " + snapshot.size() + " shape in "
+                    + snapshotNanos / 1_000_000 + " ms, scrittura in background");
+            future = submit(() -> writeSnapshot(snapshot, file, snapshotNanos, nextGeneration, stamp));
+        }
+        if (recoveryJournal != null) {
+            recoveryJournal.rebase(file, shapes, snapshot, future.thenApply(SaveResult::shapeCount));
+        }
+        return future;
+    }
+
+    private interface SaveTask {
+
+        SaveResult run() throws IOException;
+    }
+
+    private CompletableFuture<SaveResult> submit(SaveTask task) {
+        pendingWrites.incrementAndGet();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return task.run();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                pendingWrites.decrementAndGet();
+            }
+        }, SAVE_EXECUTOR);
+    }
+
+    /**
+     * Copia lo stato delle shape in {@link ShapeData} indipendenti dai nodi
+     * JavaFX. Va eseguito sul thread JavaFX; il risultato è immutabile
+     * rispetto a modifiche successive del disegno.
+     */
+    public List<ShapeData> snapshot(List<AbstractShape> shapes) {
+        List<ShapeData> dataList = new ArrayList<>(shapes.size());
+        for (AbstractShape shape : shapes) {
+            dataList.add(new ShapeAdapter(shape).getShapeData());
+        }
+        return dataList;
+    }
 
-        // DEBUG: Mostra tutte le shape che si stanno per salvare
+    /**
+     * Come {@link #snapshot(List)}, ma marca anche ogni shape con la sua
+     * posizione nel file della generazione indicata.
+     */
+    private List<ShapeData> snapshot(List<AbstractShape> shapes, long generation) {
+        List<ShapeData> dataList = new ArrayList<>(shapes.size());
         for (int i = 0; i < shapes.size(); i++) {
             AbstractShape shape = shapes.get(i);
-            System.out.println("[SAVE DEBUG] [" + i + "] " + shape.getClass().getSimpleName()
-                    + " @ (" + shape.getX() + ", " + shape.getY() + ")");
+            dataList.add(new ShapeAdapter(shape).getShapeData());
+            DrawingDelta.mark(shapes, shape, AbstractShape.TRACK_FILE, generation, i);
+            shape.rearmModificationTracking();
+        }
+        DrawingDelta.marked(shapes, AbstractShape.TRACK_FILE, generation);
+        return dataList;
+    }
+
+    // ---------------------------------------------------------------------
+    // Salvataggio incrementale
+    // ---------------------------------------------------------------------
+
+    /**
+     * Confronta il disegno con l'ultimo salvataggio sullo stesso file e, se
+     * possibile, prepara il segmento con le sole differenze. Va eseguito sul
+     * thread JavaFX: legge solo due campi per shape e copia i dati delle
+     * shape cambiate.
+     *
+     * @return il segmento da accodare, oppure null se il file va riscritto
+     * per intero
+     */
+    private IncrementalPlan planIncremental(List<AbstractShape> shapes, File file) {
+        SavedState state = savedState;
+        if (state == null || saveFormat != FileFormat.BINARY
+                || !state.file().equals(file.toPath().toAbsolutePath())) {
+            return null;
+        }
+        // Con un salvataggio ancora in scrittura lo stato pubblicato non
+        // descrive il file: si riscrive per intero
+        if (pendingWrites.get() > 0 || file.length() != state.length()) {
+            return null;
+        }
+        if (state.segments() >= maxSegments || state.length() - state.baseBytes() > state.baseBytes() * maxAppendedRatio) {
+            LOG.info(() -> "[SAVE] Compattazione di " + file.getName() + " (" + state.segments()
+                    + " segmenti, " + (state.length() - state.baseBytes()) + " byte accodati)");
+            return null;
+        }
+
+        long stamp = AbstractShape.currentModificationStamp();
+        DrawingDelta delta = DrawingDelta.compute(shapes, AbstractShape.TRACK_FILE, state.generation(),
+                state.count(), state.stamp(), generation + 1);
+        if (delta == null) {
+            return null;
+        }
+        generation = Math.max(generation, delta.generation);
+
+        // Il file deve restare privo di duplicati come dopo una riscrittura
+        // completa: se le modifiche ne introducono si riscrive il file, che
+        // li rimuove
+        if (!state.duplicates().apply(delta)) {
+            savedState = null;
+            LOG.info(() -> "[SAVE] Le modifiche introducono duplicati: riscrittura di " + file.getName());
+            return null;
+        }
+
+        DrawingStats stats = delta.statsAfter(state.stats(), state.tags());
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            delta.write(state.length(), stats, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        byte[] segment = bytes.toByteArray();
+        SavedState next = new SavedState(state.file(), delta.generation, shapes.size(), stamp,
+                state.segments() + 1, state.baseBytes(), state.length() + segment.length,
+                stats, delta.tagsAfter(state.tags()), state.duplicates());
+        return new IncrementalPlan(state, next, segment, delta.changedShapes());
+    }
+
+    /**
+     * Accoda il segmento al file e lo forza su disco. Se il file non ha la
+     * dimensione attesa (modificato da altri o scrittura precedente
+     * interrotta) il salvataggio fallisce e il successivo riscriverà il file.
+     */
+    private SaveResult appendSegment(IncrementalPlan plan, File file, long planNanos) throws IOException {
+        long start = System.nanoTime();
+        SavedState base = plan.base();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+            if (channel.size() != base.length()) {
+                throw new IOException("Il file " + file.getName() + " è stato modificato dall'ultimo salvataggio");
+            }
+            if (plan.changedShapes() > 0) {
+                ByteBuffer buffer = ByteBuffer.wrap(plan.segment());
+                long position = base.length();
+                while (buffer.hasRemaining()) {
+                    position += channel.write(buffer, position);
+                }
+                channel.force(false);
+            }
+        } catch (IOException | RuntimeException e) {
+            savedState = null;
+            throw e;
         }
+        SavedState next = plan.changedShapes() > 0 ? plan.next()
+                : new SavedState(base.file(), plan.next().generation(), base.count(), plan.next().stamp(),
+                        base.segments(), base.baseBytes(), base.length(), base.stats(), base.tags(),
+                        base.duplicates());
+        savedState = next;
+
+        long writeNanos = System.nanoTime() - start;
+        SaveResult result = new SaveResult(file, next.count(), next.length(), planNanos, writeNanos,
+                plan.changedShapes());
+        LOG.info(() -> "[SAVE] Salvataggio incrementale di " + file.getName() + ": "
+                + plan.changedShapes() + " shape cambiate, " + (next.length() - base.length())
+                + " byte accodati (segmento " + next.segments() + ", preparazione "
+                + planNanos / 1000 + " us, scrittura " + writeNanos / 1000 + " us)");
+        return result;
+    }
+
+    /**
+     * Registra le shape appena caricate da un file come già salvate, così
+     * che il salvataggio successivo sullo stesso file possa essere
+     * incrementale. Va chiamato sul thread JavaFX a caricamento completato.
+     *
+     * @param file file caricato
+     * @param shapes shape ricostruite, nell'ordine del file
+     * @param fileShapeCount numero di shape lette dal file: se alcune non sono
+     * state ricostruite il file verrà riscritto al prossimo salvataggio
+     */
+    public void markLoaded(File file, List<AbstractShape> shapes, int fileShapeCount) {
+        savedState = null;
+        if (shapes.size() != fileShapeCount) {
+            return;
+        }
+        if (recoveryJournal != null) {
+            recoveryJournal.rebase(file, shapes, null, CompletableFuture.completedFuture(shapes.size()));
+        }
+        if (pendingWrites.get() > 0) {
+            return;
+        }
+        BinaryDrawingFormat.Layout layout;
+        try {
+            layout = BinaryDrawingFormat.readLayout(file);
+        } catch (IOException e) {
+            return;
+        }
+        DrawingStats stats = layout != null ? BinaryDrawingFormat.readStats(file) : null;
+        if (stats == null || stats.getTotal() != shapes.size()) {
+            return;
+        }
+        // Un file con duplicati va riscritto per intero al prossimo salvataggio
+        DuplicateIndex duplicates = new DuplicateIndex();
+        if (removeDuplicates(shapes, Fingerprint::new, duplicates).size() != shapes.size()) {
+            return;
+        }
+        long nextGeneration = ++generation;
+        long stamp = AbstractShape.currentModificationStamp();
+        byte[] tags = new byte[shapes.size()];
+        for (int i = 0; i < shapes.size(); i++) {
+            AbstractShape shape = shapes.get(i);
+            DrawingDelta.mark(shapes, shape, AbstractShape.TRACK_FILE, nextGeneration, i);
+            shape.rearmModificationTracking();
+            tags[i] = BinaryDrawingFormat.tagFor(shape.getClass().getSimpleName());
+        }
+        DrawingDelta.marked(shapes, AbstractShape.TRACK_FILE, nextGeneration);
+        savedState = new SavedState(file.toPath().toAbsolutePath(), nextGeneration, shapes.size(), stamp,
+                layout.segmentCount(), layout.baseLength(), file.length(), stats, tags, duplicates);
+    }
+
+    /**
+     * Imposta il journal di recupero da far ripartire a ogni salvataggio e
+     * caricamento completo.
+     */
+    public void setRecoveryJournal(RecoveryJournal recoveryJournal) {
+        this.recoveryJournal = recoveryJournal;
+    }
+
+    /**
+     * Imposta dopo quanti segmenti incrementali il file viene compattato; 0
+     * disabilita il salvataggio incrementale.
+     */
+    public void setMaxSegments(int maxSegments) {
+        this.maxSegments = Math.max(0, maxSegments);
+    }
+
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    /**
+     * Imposta il rapporto massimo tra byte accodati e corpo principale prima
+     * della compattazione.
+     */
+    public void setMaxAppendedRatio(double maxAppendedRatio) {
+        this.maxAppendedRatio = Math.max(0, maxAppendedRatio);
+    }
+
+    public double getMaxAppendedRatio() {
+        return maxAppendedRatio;
+    }
+
+    /**
+     * Rimuove i duplicati dallo snapshot e lo scrive sul file in modo
+     * atomico: i dati vengono scritti in un file temporaneo nella stessa
+     * cartella, forzati su disco e poi rinominati sul file di destinazione,
+     * così che un errore o un'interruzione non lascino mai un file a metà.
+     */
+    SaveResult writeSnapshot(List<ShapeData> snapshot, File file, long snapshotNanos) throws IOException {
+        return writeSnapshot(snapshot, file, snapshotNanos, -1, 0);
+    }
+
+    /**
+     * Come {@link #writeSnapshot(List, File, long)}; se il file scritto
+     * corrisponde esattamente allo snapshot della generazione indicata, ne
+     * registra lo stato per i salvataggi incrementali successivi.
+     */
+    private SaveResult writeSnapshot(List<ShapeData> snapshot, File file, long snapshotNanos,
+            long snapshotGeneration, long stamp) throws IOException {
+        long start = System.nanoTime();
+        savedState = null;
 
         // CORREZIONE: Rimuovi duplicati basati su posizione e tipo
-        List<AbstractShape> uniqueShapes = removeDuplicateShapes(shapes);
+        DuplicateIndex duplicates = new DuplicateIndex();
+        List<ShapeData> dataList = removeDuplicates(snapshot, Fingerprint::new, duplicates);
+
+        Path target = file.toPath().toAbsolutePath();
+        Path temp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        DrawingStats stats = null;
+        try {
+            try (FileOutputStream fileOut = new FileOutputStream(temp.toFile())) {
+                if (saveFormat == FileFormat.LEGACY) {
+                    ObjectOutputStream out = new ObjectOutputStream(new BufferedOutputStream(fileOut));
+                    out.writeObject(new DrawingData(dataList));
+                    out.flush();
+                } else {
+                    BufferedOutputStream out = new BufferedOutputStream(fileOut, 1 << 16);
+                    stats = BinaryDrawingFormat.write(dataList, out);
+                    out.flush();
+                }
+                fileOut.getFD().sync();
+            }
+            moveIntoPlace(temp, target);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+
+        // Con duplicati rimossi le posizioni nel file non coincidono con
+        // quelle delle shape: il prossimo salvataggio riscriverà il file
+        long length = file.length();
+        if (snapshotGeneration >= 0 && stats != null && dataList.size() == snapshot.size()) {
+            byte[] tags = new byte[dataList.size()];
+            for (int i = 0; i < tags.length; i++) {
+                tags[i] = BinaryDrawingFormat.tagFor(dataList.get(i).getType());
+            }
+            savedState = new SavedState(target, snapshotGeneration, dataList.size(), stamp, 0, length, length,
+                    stats, tags, duplicates);
+        }
+
+        long writeNanos = System.nanoTime() - start;
+        SaveResult result = new SaveResult(file, dataList.size(), length, snapshotNanos, writeNanos, -1);
+        LOG.info(() -> "[SAVE] Salvate " + result.shapeCount() + " forme uniche nel file: " + file.getName()
+                + " (" + saveFormat + ", " + result.bytes() + " byte, snapshot " + result.snapshotMillis()
+                + " ms, scrittura " + result.writeMillis() + " ms)");
+        return result;
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Tolleranza usata per considerare uguali posizione, dimensioni e
+     * rotazione di due shape.
+     */
+    private static final double DUPLICATE_TOLERANCE = 0.001;
 
-        System.out.println("[SAVE DEBUG] Dopo rimozione duplicati: " + uniqueShapes.size() + " shape uniche");
+    /**
+     * Lato delle celle usate per raggruppare le shape per posizione: valori
+     * entro la tolleranza cadono sempre nella stessa cella o in una adiacente.
+     */
+    private static final double DUPLICATE_CELL = DUPLICATE_TOLERANCE * 2;
 
-        List<ShapeData> dataList = uniqueShapes.stream()
-                .map(shape -> new ShapeAdapter(shape).getShapeData())
-                .collect(Collectors.toList());
+    /**
+     * Valori di una shape letti una sola volta per il confronto dei duplicati.
+     */
+    private static final class Fingerprint {
 
-        DrawingData drawingData = new DrawingData(dataList);
+        final String type;
+        final double x, y, width, height, rotation;
+        final String text;
+        final int vertexCount;
 
-        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
-            out.writeObject(drawingData);
+        Fingerprint(AbstractShape shape) {
+            this.type = shape.getClass().getSimpleName();
+            this.x = shape.getX();
+            this.y = shape.getY();
+            this.width = shape.getWidth();
+            this.height = shape.getHeight();
+            this.rotation = shape.getRotation();
+            this.text = shape instanceof TextShape textShape ? textShape.getText() : null;
+            this.vertexCount = shape instanceof FreeFormPolygonShape polygon ? polygon.getVertexCount() : -1;
         }
 
-        System.out.println("[SAVE] Salvate " + uniqueShapes.size() + " forme uniche nel file: " + file.getName());
+        Fingerprint(ShapeData data) {
+            this.type = String.valueOf(data.getType());
+            this.x = data.getX();
+            this.y = data.getY();
+            this.width = data.getWidth();
+            this.height = data.getHeight();
+            this.rotation = data.getRotation();
+            this.text = data.isText() ? data.getText() : null;
+            this.vertexCount = data.isPolygon() ? data.getPolygonCoordinates().length / 2 : -1;
+        }
+    }
+
+    /**
+     * Chiave dei bucket: tipo, testo e numero di vertici devono coincidere
+     * esattamente, la posizione è quantizzata in celle.
+     */
+    private record BucketKey(String type, String text, int vertexCount, long cellX, long cellY) {
+
     }
 
     /**
      * Rimuove le shape duplicate dalla lista basandosi su posizione, tipo e
      * dimensioni. Due shape sono considerate duplicate se hanno stesso tipo,
      * posizione e dimensioni.
+     * <p>
+     * Le shape già tenute sono indicizzate in bucket per tipo, testo, numero
+     * di vertici e cella di posizione; ogni shape viene confrontata nel
+     * dettaglio solo con quelle delle celle adiacenti alla sua, in un'unica
+     * passata. Il risultato è lo stesso del confronto con tutte le shape
+     * precedenti.
      */
-    private List<AbstractShape> removeDuplicateShapes(List<AbstractShape> shapes) {
-        List<AbstractShape> unique = new ArrayList<>();
+    List<AbstractShape> removeDuplicateShapes(List<AbstractShape> shapes) {
+        return removeDuplicates(shapes, Fingerprint::new);
+    }
 
-        for (AbstractShape current : shapes) {
-            boolean isDuplicate = false;
+    /**
+     * Come {@link #removeDuplicateShapes}, ma sui dati già estratti dalle
+     * shape: può essere eseguito fuori dal thread JavaFX.
+     */
+    List<ShapeData> removeDuplicateData(List<ShapeData> data) {
+        return removeDuplicates(data, Fingerprint::new);
+    }
 
-            for (AbstractShape existing : unique) {
-                if (areShapesDuplicate(current, existing)) {
-                    isDuplicate = true;
-                    System.out.println("[SAVE DEBUG] Duplicato rimosso: " + current.getClass().getSimpleName()
-                            + " @ (" + current.getX() + ", " + current.getY() + ")");
-                    break;
-                }
-            }
+    private <T> List<T> removeDuplicates(List<T> items, Function<T, Fingerprint> fingerprint) {
+        return removeDuplicates(items, fingerprint, new DuplicateIndex());
+    }
+
+    /**
+     * Come {@link #removeDuplicates(List, Function)}, lasciando in
+     * {@code index} le shape tenute.
+     */
+    private <T> List<T> removeDuplicates(List<T> items, Function<T, Fingerprint> fingerprint,
+            DuplicateIndex index) {
+        List<T> unique = new ArrayList<>(items.size());
+        int duplicates = 0;
 
-            if (!isDuplicate) {
+        for (T current : items) {
+            if (index.add(fingerprint.apply(current))) {
                 unique.add(current);
+            } else {
+                duplicates++;
             }
         }
 
+        int removed = duplicates;
+        if (removed > 0) {
+            LOG.info(() -> "[SAVE] Rimossi " + removed + " duplicati su " + items.size() + " shape");
+        }
         return unique;
     }
 
+    /**
+     * Shape tenute dalla rimozione dei duplicati: in bucket per il confronto
+     * e in ordine di posizione nel file, così che un salvataggio incrementale
+     * possa verificare solo le shape cambiate con le stesse regole di una
+     * riscrittura completa. Usato da un solo thread alla volta: quello di
+     * scrittura finché non lo pubblica in {@link SavedState}, poi il thread
+     * JavaFX.
+     */
+    private final class DuplicateIndex {
+
+        private final Map<BucketKey, List<Fingerprint>> buckets = new HashMap<>();
+        private List<Fingerprint> positions = new ArrayList<>();
+
+        /**
+         * Accoda la shape se non duplica nessuna di quelle presenti.
+         *
+         * @return false se la shape è un duplicato
+         */
+        boolean add(Fingerprint fp) {
+            if (!insert(fp)) {
+                return false;
+            }
+            positions.add(fp);
+            return true;
+        }
+
+        /**
+         * Applica le differenze di un salvataggio incrementale.
+         *
+         * @return false se una shape modificata o aggiunta duplica un'altra
+         * shape del disegno; l'indice resta allora parziale e va scartato
+         */
+        boolean apply(DrawingDelta delta) {
+            if (delta.removed.length > 0) {
+                List<Fingerprint> kept = new ArrayList<>(positions.size() - delta.removed.length
+                        + delta.appends.size());
+                int next = 0;
+                for (int i = 0; i < positions.size(); i++) {
+                    if (next < delta.removed.length && delta.removed[next] == i) {
+                        remove(positions.get(i));
+                        next++;
+                    } else {
+                        kept.add(positions.get(i));
+                    }
+                }
+                positions = kept;
+            }
+            for (int position : delta.updatePositions) {
+                remove(positions.get(position));
+            }
+            for (int i = 0; i < delta.updatePositions.length; i++) {
+                Fingerprint fp = new Fingerprint(delta.updates.get(i));
+                if (!insert(fp)) {
+                    return false;
+                }
+                positions.set(delta.updatePositions[i], fp);
+            }
+            for (ShapeData data : delta.appends) {
+                if (!add(new Fingerprint(data))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean insert(Fingerprint fp) {
+            long cellX = cell(fp.x);
+            long cellY = cell(fp.y);
+            if (hasDuplicateNear(buckets, fp, cellX, cellY)) {
+                return false;
+            }
+            buckets.computeIfAbsent(new BucketKey(fp.type, fp.text, fp.vertexCount, cellX, cellY),
+                    k -> new ArrayList<>(1)).add(fp);
+            return true;
+        }
+
+        private void remove(Fingerprint fp) {
+            BucketKey key = new BucketKey(fp.type, fp.text, fp.vertexCount, cell(fp.x), cell(fp.y));
+            List<Fingerprint> bucket = buckets.get(key);
+            if (bucket != null && bucket.remove(fp) && bucket.isEmpty()) {
+                buckets.remove(key);
+            }
+        }
+
+        private static long cell(double value) {
+            return (long) Math.floor(value / DUPLICATE_CELL);
+        }
+    }
+
+    private boolean hasDuplicateNear(Map<BucketKey, List<Fingerprint>> buckets, Fingerprint fp,
+            long cellX, long cellY) {
+        if (buckets.isEmpty()) {
+            return false;
+        }
+        for (long cx = cellX - 1; cx <= cellX + 1; cx++) {
+            for (long cy = cellY - 1; cy <= cellY + 1; cy++) {
+                List<Fingerprint> bucket = buckets.get(new BucketKey(fp.type, fp.text, fp.vertexCount, cx, cy));
+                if (bucket == null) {
+                    continue;
+                }
+                for (Fingerprint existing : bucket) {
+                    if (areShapesDuplicate(fp, existing)) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * Verifica se due shape sono duplicate (stesso tipo, posizione e
      * dimensioni).
      */
-    private boolean areShapesDuplicate(AbstractShape shape1, AbstractShape shape2) {
+    private boolean areShapesDuplicate(Fingerprint shape1, Fingerprint shape2) {
         // Stesso tipo
-        if (!shape1.getClass().equals(shape2.getClass())) {
+        if (!shape1.type.equals(shape2.type)) {
             return false;
         }
 
         // Stessa posizione (con tolleranza per errori di floating point)
-        double tolerance = 0.001;
-        if (Math.abs(shape1.getX() - shape2.getX()) > tolerance
-                || Math.abs(shape1.getY() - shape2.getY()) > tolerance) {
+        double tolerance = DUPLICATE_TOLERANCE;
+        if (Math.abs(shape1.x - shape2.x) > tolerance
+                || Math.abs(shape1.y - shape2.y) > tolerance) {
             return false;
         }
 
         // Stesse dimensioni
-        if (Math.abs(shape1.getWidth() - shape2.getWidth()) > tolerance
-                || Math.abs(shape1.getHeight() - shape2.getHeight()) > tolerance) {
+        if (Math.abs(shape1.width - shape2.width) > tolerance
+                || Math.abs(shape1.height - shape2.height) > tolerance) {
             return false;
         }
 
         // Stessa rotazione
-        if (Math.abs(shape1.getRotation() - shape2.getRotation()) > tolerance) {
+        if (Math.abs(shape1.rotation - shape2.rotation) > tolerance) {
             return false;
         }
 
-        // Per i testi, verifica anche il contenuto
-        if (shape1 instanceof TextShape text1 && shape2 instanceof TextShape text2) {
-            if (!text1.getText().equals(text2.getText())) {
-                return false;
-            }
-        }
-
-        // Per i poligoni, verifica i punti (controllo semplificato)
-        if (shape1 instanceof FreeFormPolygonShape poly1 && shape2 instanceof FreeFormPolygonShape poly2) {
-            if (poly1.getVertexCount() != poly2.getVertexCount()) {
-                return false;
-            }
-        }
-
-        return true;
+        // Per i testi verifica anche il contenuto, per i poligoni il numero
+        // di punti (controllo semplificato)
+        return java.util.Objects.equals(shape1.text, shape2.text)
+                && shape1.vertexCount == shape2.vertexCount;
     }
 
     /**
-     * Carica da file un {@link DrawingData} serializzato.
+     * Carica da file un {@link DrawingData}, nel formato binario o in quello
+     * legacy serializzato, riconoscendolo dall'intestazione.
      *
-     * @param file file sorgente contenente l'oggetto {@code DrawingData}.
+     * @param file file sorgente contenente il disegno.
      * @return l'istanza di {@link DrawingData} letta dal file.
      * @throws IOException in caso di errori di I/O.
      * @throws ClassNotFoundException se la classe serializzata non è trovata.
      */
     public DrawingData loadFromFile(File file) throws IOException, ClassNotFoundException {
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
-            Object obj = in.readObject();
-            if (obj instanceof DrawingData data) {
-                System.out.println("[LOAD] Caricato file: " + file.getName() + " con " + data.getShapes().size() + " forme");
-                return data;
+        long start = System.nanoTime();
+        try (BufferedInputStream in = new BufferedInputStream(new FileInputStream(file), 1 << 16)) {
+            DrawingData data;
+            String format;
+            in.mark(4);
+            boolean binary = file.length() >= 4 && BinaryDrawingFormat.hasMagic(in);
+            in.reset();
+
+            if (binary) {
+                data = BinaryDrawingFormat.readVerified(in);
+                format = "BINARY";
             } else {
-                throw new IOException("File does not contain valid DrawingData");
+                Object obj = new ObjectInputStream(in).readObject();
+                if (!(obj instanceof DrawingData legacy)) {
+                    throw new IOException("File does not contain valid DrawingData");
+                }
+                data = legacy;
+                format = "LEGACY";
             }
+
+            long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+            LOG.info(() -> "[LOAD] Caricato file: " + file.getName() + " con " + data.getShapes().size()
+                    + " forme (" + format + ", " + elapsedMs + " ms)");
+            return data;
         }
     }
 
@@ -161,37 +834,12 @@ public class ShapeFileManager {
      * @return lista di {@link AbstractShape} ricreate nel loro stato originale.
      */
     public List<AbstractShape> rebuildShapes(DrawingData drawingData) {
-        List<AbstractShape> shapes = new ArrayList<>();
+        List<AbstractShape> shapes = new ArrayList<>(drawingData.getShapes().size());
 
         for (ShapeData data : drawingData.getShapes()) {
-            try {
-                AbstractShape baseShape = createShapeFromData(data);
-                if (baseShape != null) {
-                    // CORREZIONE: Applica i colori direttamente al nodo JavaFX
-                    // senza usare i decorator per evitare duplicazioni
-                    try {
-                        javafx.scene.shape.Shape fxShape = (javafx.scene.shape.Shape) baseShape.getNode();
-                        fxShape.setStroke(data.getStroke());
-                        fxShape.setFill(data.getFill());
-
-                        // Imposta UserData per la selezione
-                        baseShape.getNode().setUserData(baseShape);
-
-                        System.out.println("[REBUILD] Ricostruita: " + data.getType()
-                                + " @ (" + data.getX() + ", " + data.getY() + ") "
-                                + "con stroke=" + data.getStroke() + ", fill=" + data.getFill());
-
-                    } catch (ClassCastException e) {
-                        System.err.println("[REBUILD] Nodo non è una Shape JavaFX: " + baseShape.getNode().getClass());
-                        // Fallback: imposta solo UserData
-                        baseShape.getNode().setUserData(baseShape);
-                    }
-
-                    shapes.add(baseShape);
-                }
-            } catch (Exception e) {
-                System.err.println("[REBUILD ERROR] Errore nella ricostruzione di " + data.getType() + ": " + e.getMessage());
-                e.printStackTrace();
+            AbstractShape shape = rebuildShape(data);
+            if (shape != null) {
+                shapes.add(shape);
             }
         }
 
@@ -199,83 +847,117 @@ public class ShapeFileManager {
     }
 
     /**
-     * Crea una shape specifica dai dati serializzati.
+     * Ricostruisce una singola {@link AbstractShape} applicando i colori
+     * direttamente al nodo JavaFX.
      *
-     * @param data dati della shape da ricostruire
-     * @return shape ricostruita o null in caso di errore
+     * @param data dati serializzati della shape
+     * @return la shape ricostruita o null in caso di errore
      */
-    private AbstractShape createShapeFromData(ShapeData data) {
-        ShapeCreator creator = getCreatorForType(data.getType());
-        if (creator == null) {
-            System.err.println("[REBUILD] Tipo non supportato: " + data.getType());
-            return null;
-        }
+    public AbstractShape rebuildShape(ShapeData data) {
+        try {
+            AbstractShape baseShape = createShapeFromData(data);
+            if (baseShape != null) {
+                // CORREZIONE: Applica i colori direttamente al nodo JavaFX
+                // senza usare i decorator per evitare duplicazioni
+                try {
+                    javafx.scene.shape.Shape fxShape = (javafx.scene.shape.Shape) baseShape.getNode();
+                    fxShape.setStroke(data.getStroke());
+                    fxShape.setFill(data.getFill());
 
-        AbstractShape baseShape;
+                    // Imposta UserData per la selezione
+                    baseShape.getNode().setUserData(baseShape);
 
-        switch (data.getType()) {
-            case "TextShape" -> {
-                // Per il testo, usa createShape con i parametri testo e fontSize
-                baseShape = (AbstractShape) creator.createShape(
-                        data.getText() != null ? data.getText() : "Testo",
-                        data.getX(),
-                        data.getY(),
-                        data.getStroke(),
-                        data.getFontSize()
-                );
-            }
-            case "FreeFormPolygonShape" -> {
-                // Per i poligoni, crea la forma base e poi imposta i punti
-                baseShape = (AbstractShape) creator.createShape(data.getX(), data.getY(), data.getStroke());
+                    LOG.debug(() -> "[REBUILD] Ricostruita: " + data.getType()
+                            + " @ (" + data.getX() + ", " + data.getY() + ") "
+                            + "con stroke=" + data.getStroke() + ", fill=" + data.getFill());
 
-                // Ricostruisci i vertici del poligono
-                if (baseShape instanceof FreeFormPolygonShape polygonShape && data.getText() != null) {
-                    polygonShape.setPointsFromString(data.getText());
-                }
-            }
-            default -> {
-                // Per le altre shape usa createShape classico
-                baseShape = (AbstractShape) creator.createShape(data.getX(), data.getY(), data.getStroke());
-
-                // Applica dimensioni (solo per forme che supportano onDrag)
-                if (!(baseShape instanceof FreeFormPolygonShape)) {
-                    baseShape.onDrag(data.getX() + data.getWidth(), data.getY() + data.getHeight());
-                    baseShape.onRelease();
+                } catch (ClassCastException e) {
+                    LOG.warn("[REBUILD] Nodo non è una Shape JavaFX: " + baseShape.getNode().getClass());
+                    // Fallback: imposta solo UserData
+                    baseShape.getNode().setUserData(baseShape);
                 }
             }
+            return baseShape;
+        } catch (Exception e) {
+            LOG.error("[REBUILD ERROR] Errore nella ricostruzione di " + data.getType() + ": " + e.getMessage(), e);
+            return null;
         }
+    }
 
-        // Imposta rotazione
-        baseShape.setRotation(data.getRotation());
+    /**
+     * Apre un file nel formato binario mappandolo in memoria, senza
+     * decodificarne i record. Le shape si ottengono poi su richiesta con
+     * {@link #materialize(MappedDrawing, int[])}.
+     *
+     * @param file file nel formato {@link BinaryDrawingFormat}
+     * @return la vista mappata del file, da chiudere dopo l'uso
+     * @throws IOException se il file non è nel formato binario
+     */
+    public MappedDrawing openMapped(File file) throws IOException {
+        return MappedDrawing.open(file);
+    }
+
+    /**
+     * Ricostruisce solo le shape indicate di un file mappato, nell'ordine
+     * dato (gli indici restituiti da {@link MappedDrawing#query} sono già in
+     * z-order).
+     *
+     * @param drawing file mappato
+     * @param indices indici delle shape da ricostruire
+     * @return le shape ricostruite
+     * @throws IOException se un record non è leggibile
+     */
+    public List<AbstractShape> materialize(MappedDrawing drawing, int[] indices) throws IOException {
+        List<AbstractShape> shapes = new ArrayList<>(indices.length);
+        for (int i : indices) {
+            AbstractShape shape = rebuildShape(drawing.read(i));
+            if (shape != null) {
+                shapes.add(shape);
+            }
+        }
+        return shapes;
+    }
 
-        return baseShape;
+    /**
+     * Ricostruisce le shape di un file mappato che intersecano l'area
+     * indicata, ad esempio la porzione visibile del disegno.
+     */
+    public List<AbstractShape> materializeArea(MappedDrawing drawing,
+            double minX, double minY, double maxX, double maxY) throws IOException {
+        return materialize(drawing, drawing.query(minX, minY, maxX, maxY));
     }
 
     /**
-     * Restituisce il creator appropriato per il tipo di shape.
+     * Crea una shape specifica dai dati serializzati, con il creator
+     * condiviso del suo tipo.
      *
-     * @param type nome del tipo di shape
-     * @return creator corrispondente o null se non supportato
-     */
-    private ShapeCreator getCreatorForType(String type) {
-        return switch (type) {
-            case "RectangleShape" ->
-                new RectangleShapeCreator();
-            case "EllipseShape" ->
-                new EllipseShapeCreator();
-            case "LineShape" ->
-                new LineShapeCreator();
-            case "TextShape" ->
-                new TextShapeCreator();
-            case "FreeFormPolygonShape" ->
-                new FreeFormPolygonShapeCreator();
-            default ->
-                null;
-        };
-    }
-
-    /**
-     * Verifica se un file contiene dati validi.
+     * @param data dati della shape da ricostruire
+     * @return shape ricostruita o null in caso di errore
+     */
+    private AbstractShape createShapeFromData(ShapeData data) {
+        AbstractShape shape = ShapeCreatorRegistry.fromData(data);
+        if (shape == null) {
+            LOG.warn("[REBUILD] Tipo non supportato: " + data.getType());
+        }
+        return shape;
+    }
+
+    /**
+     * Primi byte di uno stream di serializzazione Java: magic e versione.
+     */
+    private static final byte[] SERIALIZATION_HEADER = {(byte) 0xAC, (byte) 0xED, 0x00, 0x05};
+
+    /**
+     * Quanti byte iniziali di un file legacy vengono letti per cercare il
+     * nome della classe {@link DrawingData}.
+     */
+    private static final int LEGACY_PROBE_SIZE = 256;
+
+    /**
+     * Verifica se un file contiene dati validi leggendone solo pochi byte:
+     * per il formato binario intestazione e marcatore finale, per il formato
+     * legacy l'intestazione della serializzazione Java e il nome della
+     * classe {@link DrawingData}. Il contenuto delle shape non viene letto.
      *
      * @param file file da verificare
      * @return true se il file contiene DrawingData validi
@@ -285,33 +967,57 @@ public class ShapeFileManager {
             return false;
         }
 
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file))) {
-            Object obj = in.readObject();
-            return obj instanceof DrawingData;
-        } catch (IOException | ClassNotFoundException e) {
+        if (BinaryDrawingFormat.isBinaryFile(file)) {
+            return BinaryDrawingFormat.isValidFile(file);
+        }
+
+        byte[] head = new byte[(int) Math.min(LEGACY_PROBE_SIZE, file.length())];
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            in.readFully(head);
+        } catch (IOException e) {
+            return false;
+        }
+        if (head.length < SERIALIZATION_HEADER.length
+                || !java.util.Arrays.equals(head, 0, SERIALIZATION_HEADER.length,
+                        SERIALIZATION_HEADER, 0, SERIALIZATION_HEADER.length)) {
             return false;
         }
+        // Il primo oggetto dello stream è descritto dal nome della sua classe
+        return new String(head, java.nio.charset.StandardCharsets.ISO_8859_1)
+                .contains(DrawingData.class.getName());
     }
 
     /**
-     * Restituisce informazioni di base su un file di disegno.
+     * Restituisce informazioni di base su un file di disegno. Per il formato
+     * binario corrente conteggi per tipo e area del disegno si leggono dalla
+     * coda del file, senza decodificare le shape; negli altri casi il file
+     * viene caricato e le shape contate in un'unica passata.
      *
      * @param file file da analizzare
      * @return stringa con informazioni o messaggio di errore
      */
     public String getFileInfo(File file) {
         try {
-            DrawingData data = loadFromFile(file);
-            List<ShapeData> shapes = data.getShapes();
-
-            long rectangles = shapes.stream().filter(s -> "RectangleShape".equals(s.getType())).count();
-            long ellipses = shapes.stream().filter(s -> "EllipseShape".equals(s.getType())).count();
-            long lines = shapes.stream().filter(s -> "LineShape".equals(s.getType())).count();
-            long texts = shapes.stream().filter(s -> "TextShape".equals(s.getType())).count();
-            long polygons = shapes.stream().filter(s -> "FreeFormPolygonShape".equals(s.getType())).count();
+            DrawingStats stats = BinaryDrawingFormat.readStats(file);
+            if (stats == null) {
+                stats = new DrawingStats();
+                for (ShapeData data : loadFromFile(file).getShapes()) {
+                    stats.add(data);
+                }
+            }
 
-            return String.format("File: %s\nTotale forme: %d\nRettangoli: %d, Ellissi: %d, Linee: %d, Testi: %d, Poligoni: %d",
-                    file.getName(), shapes.size(), rectangles, ellipses, lines, texts, polygons);
+            String info = String.format("File: %s\nTotale forme: %d\nRettangoli: %d, Ellissi: %d, Linee: %d, Testi: %d, Poligoni: %d",
+                    file.getName(), stats.getTotal(),
+                    stats.getCount(BinaryDrawingFormat.TAG_RECTANGLE),
+                    stats.getCount(BinaryDrawingFormat.TAG_ELLIPSE),
+                    stats.getCount(BinaryDrawingFormat.TAG_LINE),
+                    stats.getCount(BinaryDrawingFormat.TAG_TEXT),
+                    stats.getCount(BinaryDrawingFormat.TAG_POLYGON));
+            if (!stats.isEmpty()) {
+                info += String.format(java.util.Locale.ROOT, "\nArea: (%.0f, %.0f) - (%.0f, %.0f)",
+                        stats.getMinX(), stats.getMinY(), stats.getMaxX(), stats.getMaxY());
+            }
+            return info;
         } catch (Exception e) {
             return "Errore nella lettura del file: " + e.getMessage();
         }
@@ -339,11 +1045,10 @@ public class ShapeFileManager {
 
                     decoratedShapes.add(decorated);
 
-                    System.out.println("[REBUILD DECORATED] Ricostruita: " + data.getType() + " @ (" + data.getX() + ", " + data.getY() + ")");
+                    LOG.debug(() -> "[REBUILD DECORATED] Ricostruita: " + data.getType() + " @ (" + data.getX() + ", " + data.getY() + ")");
                 }
             } catch (Exception e) {
-                System.err.println("[REBUILD DECORATED ERROR] Errore nella ricostruzione di " + data.getType() + ": " + e.getMessage());
-                e.printStackTrace();
+                LOG.error("[REBUILD DECORATED ERROR] Errore nella ricostruzione di " + data.getType() + ": " + e.getMessage(), e);
             }
         }
 
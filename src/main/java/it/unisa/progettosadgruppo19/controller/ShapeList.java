@@ -0,0 +1,220 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Lista delle shape del disegno che conta le proprie modifiche.
+ * <p>
+ * Caricamenti e gestori dell'interfaccia modificano la lista direttamente;
+ * il contatore permette a {@link ShapeManager} di accorgersene in O(1) e di
+ * invalidare i propri indici, anche quando il contenuto viene sostituito
+ * con lo stesso numero di shape. Conta sia le modifiche strutturali di
+ * {@link ArrayList} sia le sostituzioni con {@link #set(int, Object)}.
+ * <p>
+ * Per ogni traccia di {@link AbstractShape} (salvataggi su file e journal)
+ * la lista raccoglie inoltre le modifiche avvenute dall'ultimo stato
+ * registrato ({@link Changes}): shape modificate, rimosse e aggiunte in
+ * coda. {@link DrawingDelta} le usa per calcolare le differenze senza
+ * scorrere tutto il disegno.
+ */
+public class ShapeList extends ArrayList<AbstractShape> {
+
+    private int replacements;
+
+    private final Changes[] changes = new Changes[2];
+
+    private final Consumer<AbstractShape> modificationListener = this::shapeModified;
+
+    /**
+     * Modifiche subite dalla lista da quando una traccia ha registrato il suo
+     * stato con una certa generazione. Finché sono valide le shape dello
+     * stato registrato compaiono in testa alla lista, nel loro ordine, e
+     * quelle nuove solo in coda.
+     */
+    static final class Changes {
+
+        final long generation;
+
+        /**
+         * Shape segnalate come modificate, anche se poi rimosse.
+         */
+        final Set<AbstractShape> modified = Collections.newSetFromMap(new IdentityHashMap<>());
+
+        /**
+         * Shape rimosse dalla lista, nell'ordine delle rimozioni.
+         */
+        final List<AbstractShape> removed = new ArrayList<>();
+
+        // contatore della lista dopo l'ultima modifica registrata
+        private int expectedCount;
+
+        private Changes(long generation, int expectedCount) {
+            this.generation = generation;
+            this.expectedCount = expectedCount;
+        }
+    }
+
+    @Override
+    public AbstractShape set(int index, AbstractShape element) {
+        AbstractShape previous = super.set(index, element);
+        replacements++;
+        return previous;
+    }
+
+    @Override
+    public boolean add(AbstractShape shape) {
+        int before = getModificationCount();
+        super.add(shape);
+        recordAppend(before, List.of(shape));
+        return true;
+    }
+
+    @Override
+    public void add(int index, AbstractShape shape) {
+        int before = getModificationCount();
+        boolean atEnd = index == size();
+        super.add(index, shape);
+        if (atEnd) {
+            recordAppend(before, List.of(shape));
+        }
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends AbstractShape> shapes) {
+        int before = getModificationCount();
+        boolean changed = super.addAll(shapes);
+        if (changed) {
+            recordAppend(before, shapes);
+        }
+        return changed;
+    }
+
+    @Override
+    public AbstractShape remove(int index) {
+        int before = getModificationCount();
+        AbstractShape removed = super.remove(index);
+        recordRemoval(before, List.of(removed));
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object shape) {
+        int before = getModificationCount();
+        boolean removed = super.remove(shape);
+        if (removed) {
+            recordRemoval(before, List.of((AbstractShape) shape));
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean removeIf(Predicate<? super AbstractShape> filter) {
+        int before = getModificationCount();
+        List<AbstractShape> removed = new ArrayList<>();
+        boolean changed = super.removeIf(shape -> {
+            if (filter.test(shape)) {
+                removed.add(shape);
+                return true;
+            }
+            return false;
+        });
+        if (changed) {
+            recordRemoval(before, removed);
+        }
+        return changed;
+    }
+
+    /**
+     * Valore che cambia a ogni modifica della lista.
+     */
+    public int getModificationCount() {
+        return modCount + replacements;
+    }
+
+    /**
+     * Ascoltatore da registrare sulle shape dello stato registrato con
+     * {@link AbstractShape#setModificationListener}.
+     */
+    Consumer<AbstractShape> modificationListener() {
+        return modificationListener;
+    }
+
+    /**
+     * Riparte da zero con le modifiche della traccia, dopo che tutte le shape
+     * della lista sono state marcate con la generazione indicata.
+     */
+    void resetChanges(int track, long generation) {
+        changes[track] = new Changes(generation, getModificationCount());
+    }
+
+    /**
+     * Modifiche della traccia dallo stato con la generazione indicata,
+     * oppure null se non sono disponibili: stato mai registrato, shape
+     * inserite fuori dalla coda, shape dello stato reinserite o modifiche
+     * della lista con operazioni non tracciate. In questi casi le differenze
+     * vanno calcolate scorrendo la lista.
+     */
+    Changes getChanges(int track, long generation) {
+        Changes current = changes[track];
+        if (current == null || current.generation != generation
+                || current.expectedCount != getModificationCount()) {
+            return null;
+        }
+        return current;
+    }
+
+    private void shapeModified(AbstractShape shape) {
+        for (Changes current : changes) {
+            if (current != null) {
+                current.modified.add(shape);
+            }
+        }
+    }
+
+    private void recordAppend(int before, Collection<? extends AbstractShape> appended) {
+        for (int track = 0; track < changes.length; track++) {
+            Changes current = changes[track];
+            if (current == null) {
+                continue;
+            }
+            if (current.expectedCount != before || containsSaved(appended, track, current.generation)) {
+                changes[track] = null;
+                continue;
+            }
+            current.expectedCount = getModificationCount();
+        }
+    }
+
+    private void recordRemoval(int before, List<AbstractShape> removed) {
+        for (int track = 0; track < changes.length; track++) {
+            Changes current = changes[track];
+            if (current == null) {
+                continue;
+            }
+            if (current.expectedCount != before) {
+                changes[track] = null;
+                continue;
+            }
+            current.removed.addAll(removed);
+            current.expectedCount = getModificationCount();
+        }
+    }
+
+    private static boolean containsSaved(Collection<? extends AbstractShape> shapes, int track, long generation) {
+        for (AbstractShape shape : shapes) {
+            if (shape.getSavedSlot(track, generation) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
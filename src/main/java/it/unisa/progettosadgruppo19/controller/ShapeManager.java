@@ -4,22 +4,53 @@ import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.command.receivers.ShapeManagerReceiver;
 import it.unisa.progettosadgruppo19.command.receivers.ZOrderReceiver;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import it.unisa.progettosadgruppo19.util.Log;
 
 import javafx.scene.Node;
 import javafx.scene.layout.Pane;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * Responsabile della gestione delle shape attive e del loro disegno sul canvas.
+ * <p>
+ * Mantiene due indici per identità, aggiornati da ogni metodo di
+ * {@link ShapeManagerReceiver}: nodo JavaFX → shape e shape → posizione in
+ * {@code currentShapes}. Le ricerche non richiedono quindi scansioni lineari
+ * della lista. Poiché altre parti dell'applicazione possono ancora
+ * modificare la lista direttamente, ogni posizione letta dall'indice viene
+ * verificata e, se la lista è cambiata altrove, l'indice viene ricostruito
+ * una sola volta. Le modifiche esterne sono riconosciute in O(1) dal
+ * contatore di {@link ShapeList}. Con una lista qualsiasi lo sono solo se ne
+ * cambia la dimensione: una shape o un nodo assenti dagli indici vengono
+ * allora cercati scorrendo la lista, così che una sostituzione con lo stesso
+ * numero di shape non li faccia risultare mancanti.
+ * <p>
+ * La rimozione trova la shape in O(1) ma resta lineare: la lista e i figli
+ * del Pane conservano lo z-order e devono spostare gli elementi successivi.
  */
 public class ShapeManager implements ShapeManagerReceiver, ZOrderReceiver {
 
+    private static final Log LOG = Log.get(ShapeManager.class);
+
     private final List<AbstractShape> currentShapes;
     private final Pane drawingPane;
+    private final ShapeSpatialIndex spatialIndex;
+
+    private final Map<Node, AbstractShape> shapesByNode = new IdentityHashMap<>();
+    private final Map<AbstractShape, Integer> slots = new IdentityHashMap<>();
+    // versione della lista a cui si riferiscono gli indici, vedi listVersion()
+    private int indexedVersion = -1;
 
     /**
      * Costruisce un gestore di shape per la lista e il Pane specificati.
+     * L'indice spaziale del Pane viene agganciato qui: ogni inserimento o
+     * rimozione effettuato dai metodi del gestore lo mantiene aggiornato.
      *
      * @param currentShapes lista di shape gestite.
      * @param drawingPane Pane in cui visualizzare le shape.
@@ -27,13 +58,14 @@ public class ShapeManager implements ShapeManagerReceiver, ZOrderReceiver {
     public ShapeManager(List<AbstractShape> currentShapes, Pane drawingPane) {
         this.currentShapes = currentShapes;
         this.drawingPane = drawingPane;
+        this.spatialIndex = ShapeSpatialIndex.of(drawingPane);
     }
 
     @Override
     public void addShape(Shape shape) {
         AbstractShape abs = AbstractShape.unwrapToAbstract(shape);
-        currentShapes.add(abs);
-        if (!drawingPane.getChildren().contains(shape.getNode())) {
+        register(abs);
+        if (!containsNode(shape.getNode())) {
             drawingPane.getChildren().add(shape.getNode());
         }
 
@@ -42,20 +74,71 @@ public class ShapeManager implements ShapeManagerReceiver, ZOrderReceiver {
 
     @Override
     public void removeShape(Shape shape) {
-        System.out.println("[REMOVE] Rimozione: " + shape.getClass().getSimpleName());
-        if (shape instanceof AbstractShape abs) {
-            currentShapes.remove(abs);
-            drawingPane.getChildren().remove(abs.getNode());
+        LOG.debug(() -> "[REMOVE] Rimozione: " + shape.getClass().getSimpleName());
+        AbstractShape abs = AbstractShape.unwrapToAbstract(shape);
+        int slot = slotOf(abs);
+        if (slot >= 0) {
+            boolean inSync = !needsReindex();
+            currentShapes.remove(slot);
+            slots.remove(abs);
+            shapesByNode.remove(abs.getNode());
+            // le posizioni delle shape successive diventano obsolete e verranno
+            // ricalcolate alla prima lettura non più valida
+            indexedVersion = inSync ? listVersion() : -1;
+        }
+        ViewportCuller culler = ViewportCuller.forPane(drawingPane);
+        if (culler != null) {
+            // anche le shape fuori vista, che non sono figlie del Pane
+            culler.remove(shape.getNode());
         } else {
-            AbstractShape unwrapped = AbstractShape.unwrapToAbstract(shape);
-            currentShapes.remove(unwrapped);
             drawingPane.getChildren().remove(shape.getNode());
         }
     }
 
+    /**
+     * Rimuove più shape con un'unica passata sulla lista e sui figli del Pane,
+     * invece di una scansione lineare per ciascuna shape.
+     */
+    @Override
+    public void removeShapes(Collection<? extends Shape> shapes) {
+        if (shapes.isEmpty()) {
+            return;
+        }
+        Set<AbstractShape> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Node> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Shape shape : shapes) {
+            AbstractShape abs = AbstractShape.unwrapToAbstract(shape);
+            toRemove.add(abs);
+            nodes.add(shape.getNode());
+        }
+        LOG.debug(() -> "[REMOVE] Rimozione multipla: " + toRemove.size() + " shape");
+
+        boolean inSync = !needsReindex();
+        currentShapes.removeIf(toRemove::contains);
+        ViewportCuller culler = ViewportCuller.forPane(drawingPane);
+        if (culler != null) {
+            // anche le shape fuori vista, che non sono figlie del Pane
+            culler.removeAll(nodes);
+        } else {
+            drawingPane.getChildren().removeIf(nodes::contains);
+        }
+        for (AbstractShape abs : toRemove) {
+            slots.remove(abs);
+            shapesByNode.remove(abs.getNode());
+        }
+        indexedVersion = inSync ? listVersion() : -1;
+    }
+
     public void clearAll() {
+        ViewportCuller culler = ViewportCuller.forPane(drawingPane);
+        if (culler != null) {
+            culler.clear();
+        }
         currentShapes.clear();
         drawingPane.getChildren().clear();
+        shapesByNode.clear();
+        slots.clear();
+        indexedVersion = listVersion();
     }
 
     public List<AbstractShape> getCurrentShapes() {
@@ -66,52 +149,83 @@ public class ShapeManager implements ShapeManagerReceiver, ZOrderReceiver {
         return drawingPane;
     }
 
+    public ShapeSpatialIndex getSpatialIndex() {
+        return spatialIndex;
+    }
+
     public AbstractShape findByNode(Node node) {
-        return currentShapes.stream()
-                .filter(s -> s.getNode().equals(node))
-                .findFirst()
-                .orElse(null);
+        AbstractShape abs = shapesByNode.get(node);
+        if (abs != null && slotOf(abs) >= 0) {
+            return abs;
+        }
+        // se abs era in cache, slotOf ha già riallineato gli indici
+        if (abs == null && (needsReindex() || !isTracked() && containsUnindexedNode(node))) {
+            reindex();
+        }
+        return shapesByNode.get(node);
     }
 
     @Override
     public void insertShapeAt(Shape shape, int index) {
         AbstractShape abs = AbstractShape.unwrapToAbstract(shape);
+        boolean inSync = !needsReindex();
 
         if (index < 0 || index > currentShapes.size()) {
-            System.out.println("[INSERT] Indice currentShapes fuori range, aggiungo in fondo");
+            LOG.debug("[INSERT] Indice currentShapes fuori range, aggiungo in fondo");
             currentShapes.add(abs);
+            slots.put(abs, currentShapes.size() - 1);
         } else {
+            // le posizioni delle shape successive diventano obsolete e verranno
+            // ricalcolate alla prima lettura non più valida
             currentShapes.add(index, abs);
+            slots.put(abs, index);
         }
+        shapesByNode.put(abs.getNode(), abs);
+        indexedVersion = inSync ? listVersion() : -1;
 
-        if (index < 0 || index > drawingPane.getChildren().size()) {
-            System.out.println("[INSERT] Indice drawingPane fuori range, aggiungo in fondo");
+        ViewportCuller culler = ViewportCuller.forPane(drawingPane);
+        if (culler != null) {
+            // con il culling attivo l'indice si riferisce all'ordine logico
+            culler.insert(shape.getNode(), index);
+        } else if (index < 0 || index > drawingPane.getChildren().size()) {
+            LOG.debug("[INSERT] Indice drawingPane fuori range, aggiungo in fondo");
             drawingPane.getChildren().add(shape.getNode());
         } else {
             drawingPane.getChildren().add(index, shape.getNode());
         }
 
-        System.out.println("[INSERT] Nodo aggiunto: " + shape.getClass().getSimpleName() + " all'indice " + index);
+        LOG.debug(() -> "[INSERT] Nodo aggiunto: " + shape.getClass().getSimpleName() + " all'indice " + index);
     }
 
     @Override
     public int getShapeIndex(Shape shape) {
-        if (shape instanceof AbstractShape abs) {
-            return currentShapes.indexOf(abs);
-        }
-        return -1;
+        return slotOf(AbstractShape.unwrapToAbstract(shape));
     }
 
+    /**
+     * Restituisce la posizione della shape nello z-order. Con il culling
+     * attivo la posizione è quella logica, che comprende anche le shape
+     * momentaneamente staccate perché fuori vista.
+     */
     @Override
     public int getZIndex(Shape shape) {
-        return drawingPane.getChildren().indexOf(shape.getNode());
+        ViewportCuller culler = ViewportCuller.forPane(drawingPane);
+        if (culler != null) {
+            return culler.indexOf(shape.getNode());
+        }
+        return spatialIndex.zOrderOf(shape.getNode());
     }
 
     @Override
     public void setZIndex(Shape shape, int index) {
         Node node = shape.getNode();
+        ViewportCuller culler = ViewportCuller.forPane(drawingPane);
+        LOG.debug(() -> "[Z-ORDER] Sposto " + shape.getClass().getSimpleName() + " a indice " + index);
+        if (culler != null) {
+            culler.moveTo(node, index);
+            return;
+        }
         drawingPane.getChildren().remove(node);
-        System.out.println("[Z-ORDER] Sposto " + shape.getClass().getSimpleName() + " a indice " + index);
         if (index >= drawingPane.getChildren().size()) {
             drawingPane.getChildren().add(node);
         } else {
@@ -125,16 +239,117 @@ public class ShapeManager implements ShapeManagerReceiver, ZOrderReceiver {
     }
 
     public boolean containsNode(Node node) {
-        return drawingPane.getChildren().contains(node);
+        if (node.getParent() == drawingPane) {
+            return true;
+        }
+        ViewportCuller culler = ViewportCuller.forPane(drawingPane);
+        return culler != null && culler.contains(node);
+    }
+
+    /**
+     * Numero di livelli dello z-order, comprese le shape fuori vista.
+     */
+    public int getLayerCount() {
+        ViewportCuller culler = ViewportCuller.forPane(drawingPane);
+        return culler != null ? culler.size() : drawingPane.getChildren().size();
     }
 
+    /**
+     * Registra la shape in {@code currentShapes} senza toccare il Pane. Una
+     * shape già registrata non viene duplicata.
+     */
     @Override
     public void registerOnly(Shape shape) {
-        currentShapes.add(AbstractShape.unwrapToAbstract(shape));
+        register(AbstractShape.unwrapToAbstract(shape));
     }
 
     @Override
     public void scale(Shape shape, double delta) {
         shape.onDrag(shape.getX() + shape.getWidth() + delta, shape.getY() + shape.getHeight() + delta);
     }
+
+    // ---------------------------------------------------------------------
+    // Indici per identità
+    // ---------------------------------------------------------------------
+
+    private void register(AbstractShape abs) {
+        if (slotOf(abs) >= 0) {
+            return;
+        }
+        // slotOf ha appena riallineato l'indice se la lista era cambiata altrove
+        currentShapes.add(abs);
+        slots.put(abs, currentShapes.size() - 1);
+        shapesByNode.put(abs.getNode(), abs);
+        indexedVersion = listVersion();
+    }
+
+    /**
+     * Restituisce la posizione della shape in {@code currentShapes}, o -1.
+     * La posizione in cache viene verificata in O(1); se non corrisponde più
+     * (o la lista è stata modificata altrove) l'indice viene ricostruito.
+     */
+    private int slotOf(AbstractShape abs) {
+        Integer slot = slots.get(abs);
+        if (slot != null && slot < currentShapes.size() && currentShapes.get(slot) == abs) {
+            return slot;
+        }
+        if (slot == null && !needsReindex() && (isTracked() || !containsUnindexed(abs))) {
+            return -1;
+        }
+        reindex();
+        slot = slots.get(abs);
+        return slot == null ? -1 : slot;
+    }
+
+    private boolean needsReindex() {
+        return indexedVersion != listVersion();
+    }
+
+    /**
+     * Vero se la lista segnala ogni propria modifica ({@link ShapeList}).
+     */
+    private boolean isTracked() {
+        return currentShapes instanceof ShapeList;
+    }
+
+    /**
+     * Ricerca lineare di una shape assente dagli indici, per le liste che
+     * non segnalano le proprie modifiche.
+     */
+    private boolean containsUnindexed(AbstractShape abs) {
+        for (AbstractShape candidate : currentShapes) {
+            if (candidate == abs) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean containsUnindexedNode(Node node) {
+        for (AbstractShape candidate : currentShapes) {
+            if (candidate.getNode() == node) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Valore che cambia quando la lista viene modificata: il contatore di
+     * {@link ShapeList}, altrimenti la dimensione.
+     */
+    private int listVersion() {
+        return currentShapes instanceof ShapeList list ? list.getModificationCount() : currentShapes.size();
+    }
+
+    private void reindex() {
+        slots.clear();
+        shapesByNode.clear();
+        for (int i = 0; i < currentShapes.size(); i++) {
+            AbstractShape abs = currentShapes.get(i);
+            slots.putIfAbsent(abs, i);
+            shapesByNode.putIfAbsent(abs.getNode(), abs);
+        }
+        indexedVersion = listVersion();
+    }
 }
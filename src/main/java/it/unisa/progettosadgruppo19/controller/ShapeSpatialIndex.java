@@ -0,0 +1,165 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.util.RTree;
+
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Indice spaziale dei nodi disegnati su un Pane, basato su {@link RTree}.
+ * <p>
+ * L'indice osserva la lista dei figli del Pane e i {@code boundsInParent} di
+ * ciascun nodo: inserimenti e rimozioni effettuati da {@link ShapeManager}
+ * (addShape, removeShape, insertShapeAt, setZIndex) e gli spostamenti o
+ * ridimensionamenti applicati dai comandi vengono quindi riflessi
+ * automaticamente, qualunque sia il codice che modifica il nodo.
+ * I nodi trasparenti al mouse (griglia, indicatori) non vengono indicizzati.
+ * <p>
+ * L'indice conserva anche la posizione di ogni figlio nel Pane, cioè lo
+ * z-order, per ordinare i risultati di una ricerca senza scansioni. Le
+ * aggiunte e le rimozioni in coda la aggiornano in O(1) per nodo; ogni altra
+ * modifica dei figli la invalida e la posizione viene ricalcolata, con una
+ * sola scansione, alla prima lettura successiva.
+ * <p>
+ * Esiste un'unica istanza per Pane, ottenibile con {@link #of(Pane)}, così che
+ * tutte le istanze di {@link ShapeManager} e {@link MouseEventHandler} che
+ * lavorano sullo stesso Pane condividano lo stesso indice.
+ */
+public class ShapeSpatialIndex {
+
+    private static final String PROPERTY_KEY = ShapeSpatialIndex.class.getName();
+
+    private final Pane pane;
+    private final RTree<Node> tree = new RTree<>();
+    private final Map<Node, ChangeListener<Bounds>> boundsListeners = new IdentityHashMap<>();
+    private final Map<Node, Integer> zOrder = new IdentityHashMap<>();
+    // numero di figli di cui zOrder conosce la posizione, -1 se da ricalcolare
+    private int zOrderCount = -1;
+
+    private ShapeSpatialIndex(Pane pane) {
+        this.pane = pane;
+        for (Node node : pane.getChildren()) {
+            track(node);
+        }
+        pane.getChildren().addListener(this::onChildrenChanged);
+    }
+
+    /**
+     * Restituisce l'indice associato al Pane, creandolo al primo utilizzo.
+     */
+    public static ShapeSpatialIndex of(Pane pane) {
+        return (ShapeSpatialIndex) pane.getProperties()
+                .computeIfAbsent(PROPERTY_KEY, k -> new ShapeSpatialIndex(pane));
+    }
+
+    public Pane getPane() {
+        return pane;
+    }
+
+    /**
+     * Restituisce i nodi i cui bounds distano al più {@code tolerance} dal punto.
+     */
+    public List<Node> query(double x, double y, double tolerance) {
+        return tree.search(x - tolerance, y - tolerance, x + tolerance, y + tolerance);
+    }
+
+    /**
+     * Restituisce i nodi i cui bounds intersecano il rettangolo indicato.
+     */
+    public List<Node> queryRect(double minX, double minY, double maxX, double maxY) {
+        return tree.search(minX, minY, maxX, maxY);
+    }
+
+    public int size() {
+        return tree.size();
+    }
+
+    /**
+     * Restituisce la posizione del nodo tra i figli del Pane (valori maggiori
+     * stanno sopra), oppure -1 se il nodo non è un figlio del Pane.
+     */
+    public int zOrderOf(Node node) {
+        if (zOrderCount < 0) {
+            List<Node> children = pane.getChildren();
+            zOrder.clear();
+            for (int i = 0; i < children.size(); i++) {
+                zOrder.put(children.get(i), i);
+            }
+            zOrderCount = children.size();
+        }
+        Integer z = zOrder.get(node);
+        return z == null ? -1 : z;
+    }
+
+    private void onChildrenChanged(ListChangeListener.Change<? extends Node> change) {
+        while (change.next()) {
+            updateZOrder(change);
+            if (change.wasPermutated()) {
+                continue;
+            }
+            // Un nodo rimosso e riaggiunto nella stessa modifica resta figlio del Pane
+            // e non viene quindi de-indicizzato (vedi untrack)
+            for (Node removed : change.getRemoved()) {
+                untrack(removed);
+            }
+            for (Node added : change.getAddedSubList()) {
+                track(added);
+            }
+        }
+    }
+
+    /**
+     * Aggiorna le posizioni se la modifica tocca solo la coda dei figli,
+     * altrimenti le invalida.
+     */
+    private void updateZOrder(ListChangeListener.Change<? extends Node> change) {
+        if (zOrderCount < 0) {
+            return;
+        }
+        if (change.wasPermutated() || change.getFrom() + change.getRemovedSize() != zOrderCount) {
+            zOrder.clear();
+            zOrderCount = -1;
+            return;
+        }
+        for (Node removed : change.getRemoved()) {
+            zOrder.remove(removed);
+        }
+        List<? extends Node> added = change.getAddedSubList();
+        for (int i = 0; i < added.size(); i++) {
+            zOrder.put(added.get(i), change.getFrom() + i);
+        }
+        zOrderCount = change.getFrom() + added.size();
+    }
+
+    private void track(Node node) {
+        if (node.isMouseTransparent() || boundsListeners.containsKey(node)) {
+            return;
+        }
+        ChangeListener<Bounds> listener = (obs, oldBounds, newBounds) -> put(node, newBounds);
+        boundsListeners.put(node, listener);
+        node.boundsInParentProperty().addListener(listener);
+        put(node, node.getBoundsInParent());
+    }
+
+    private void untrack(Node node) {
+        if (node.getParent() == pane) {
+            return;
+        }
+        ChangeListener<Bounds> listener = boundsListeners.remove(node);
+        if (listener != null) {
+            node.boundsInParentProperty().removeListener(listener);
+        }
+        tree.remove(node);
+    }
+
+    private void put(Node node, Bounds b) {
+        tree.update(node, b.getMinX(), b.getMinY(), b.getMaxX(), b.getMaxY());
+    }
+}
@@ -0,0 +1,531 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import it.unisa.progettosadgruppo19.util.Log;
+import it.unisa.progettosadgruppo19.util.RTree;
+
+import javafx.application.Platform;
+import javafx.beans.InvalidationListener;
+import javafx.collections.ListChangeListener;
+import javafx.geometry.Bounds;
+import javafx.scene.Node;
+import javafx.scene.layout.Pane;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Culling dei nodi delle shape fuori dall'area visibile.
+ * <p>
+ * Il culler mantiene l'ordine logico (z-order) di tutti i nodi del Pane,
+ * compresi quelli staccati perché fuori vista, e un {@link RTree} con i
+ * relativi bounds. A ogni cambio di viewport (scroll o zoom) i nodi delle
+ * shape che escono dall'area visibile, ampliata di un margine, vengono
+ * rimossi dal Pane e quelli che vi rientrano vengono reinseriti nella
+ * posizione coerente con l'ordine logico. JavaFX elabora e interroga quindi
+ * solo i nodi effettivamente visibili.
+ * <p>
+ * Gli indici di z-order esposti ({@link #indexOf}, {@link #moveTo},
+ * {@link #insert}) si riferiscono all'ordine logico, così che
+ * {@link ShapeManager#getZIndex} e {@link ShapeManager#setZIndex} restino
+ * invariati con o senza culling. Le modifiche dirette alla lista dei figli
+ * effettuate da altre parti dell'applicazione vengono riportate nell'ordine
+ * logico. I nodi che non rappresentano shape (griglia, indicatori, campi di
+ * testo) o trasparenti al mouse non vengono mai staccati. Chi rimuove shape
+ * dal disegno deve farlo tramite il culler ({@link #remove},
+ * {@link #removeAll}) e chi sostituisce l'intero disegno deve chiamare
+ * {@link #clear()}: un nodo staccato non è figlio del Pane, e una modifica
+ * diretta dei figli non può sapere se la sua shape esiste ancora.
+ * <p>
+ * Esiste al più un culler per Pane, installato con {@link #install} e
+ * recuperabile con {@link #forPane}.
+ */
+public class ViewportCuller {
+
+    private static final Log LOG = Log.get(ViewportCuller.class);
+
+    private static final String PROPERTY_KEY = ViewportCuller.class.getName();
+
+    // frazione della dimensione del viewport aggiunta su ogni lato
+    private static final double MARGIN_FRACTION = 0.25;
+
+    private final Pane pane;
+    private final Supplier<double[]> viewport;
+    private final Consumer<Runnable> scheduler;
+
+    private final List<Node> order = new ArrayList<>();
+    private final Map<Node, Integer> positions = new IdentityHashMap<>();
+    private boolean positionsValid = true;
+
+    private final RTree<Node> tree = new RTree<>();
+    private final Map<Node, InvalidationListener> listeners = new IdentityHashMap<>();
+    private final Set<Node> culled = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    private double[] lastView;
+    private boolean updating = false;
+    private boolean pending = false;
+
+    ViewportCuller(Pane pane, Supplier<double[]> viewport, Consumer<Runnable> scheduler) {
+        this.pane = pane;
+        this.viewport = viewport;
+        this.scheduler = scheduler;
+        for (Node node : pane.getChildren()) {
+            append(node);
+        }
+        pane.getChildren().addListener(this::onChildrenChanged);
+    }
+
+    /**
+     * Installa il culler sul Pane indicato. Il fornitore restituisce l'area
+     * visibile in coordinate del Pane come {minX, minY, maxX, maxY}, oppure
+     * null se non ancora nota. Gli aggiornamenti richiesti con
+     * {@link #requestUpdate()} vengono accorpati nel pulse successivo.
+     */
+    public static ViewportCuller install(Pane pane, Supplier<double[]> viewport) {
+        return install(pane, viewport, Platform::runLater);
+    }
+
+    static ViewportCuller install(Pane pane, Supplier<double[]> viewport, Consumer<Runnable> scheduler) {
+        ViewportCuller culler = new ViewportCuller(pane, viewport, scheduler);
+        pane.getProperties().put(PROPERTY_KEY, culler);
+        return culler;
+    }
+
+    /**
+     * Restituisce il culler installato sul Pane, oppure null.
+     */
+    public static ViewportCuller forPane(Pane pane) {
+        return (ViewportCuller) pane.getProperties().get(PROPERTY_KEY);
+    }
+
+    /**
+     * Calcola l'area visibile del contenuto di uno ScrollPane, in coordinate
+     * locali del contenuto, a partire dal fattore di scala (con pivot
+     * nell'origine) e dalla posizione delle barre di scorrimento normalizzata
+     * tra 0 e 1.
+     *
+     * @param contentWidth larghezza del contenuto già scalato
+     * @param contentHeight altezza del contenuto già scalato
+     * @return {minX, minY, maxX, maxY}, oppure null se il viewport è vuoto
+     */
+    public static double[] visibleRect(double scaleX, double scaleY, double hValue, double vValue,
+            double contentWidth, double contentHeight, double viewportWidth, double viewportHeight) {
+        if (viewportWidth <= 0 || viewportHeight <= 0 || scaleX <= 0 || scaleY <= 0) {
+            return null;
+        }
+        double offsetX = hValue * Math.max(0, contentWidth - viewportWidth);
+        double offsetY = vValue * Math.max(0, contentHeight - viewportHeight);
+        return new double[]{
+            offsetX / scaleX,
+            offsetY / scaleY,
+            (offsetX + viewportWidth) / scaleX,
+            (offsetY + viewportHeight) / scaleY
+        };
+    }
+
+    // ---------------------------------------------------------------------
+    // Ordine logico
+    // ---------------------------------------------------------------------
+
+    /**
+     * Numero di nodi nell'ordine logico, compresi quelli staccati.
+     */
+    public int size() {
+        return order.size();
+    }
+
+    public boolean contains(Node node) {
+        return positions().containsKey(node);
+    }
+
+    public boolean isCulled(Node node) {
+        return culled.contains(node);
+    }
+
+    public int getCulledCount() {
+        return culled.size();
+    }
+
+    /**
+     * Posizione logica del nodo, oppure -1.
+     */
+    public int indexOf(Node node) {
+        Integer pos = positions().get(node);
+        return pos == null ? -1 : pos;
+    }
+
+    /**
+     * Inserisce il nodo nella posizione logica indicata (in fondo se fuori
+     * range) e lo aggiunge al Pane se visibile.
+     */
+    public void insert(Node node, int index) {
+        forget(node);
+        if (index < 0 || index >= order.size()) {
+            append(node);
+        } else {
+            order.add(index, node);
+            positionsValid = false;
+            track(node);
+        }
+        attachOrCull(node);
+    }
+
+    /**
+     * Sposta il nodo nella posizione logica indicata.
+     */
+    public void moveTo(Node node, int index) {
+        insert(node, index);
+    }
+
+    /**
+     * Rimuove il nodo dall'ordine logico e dal Pane.
+     */
+    public void remove(Node node) {
+        forget(node);
+        runUpdating(() -> pane.getChildren().remove(node));
+    }
+
+    /**
+     * Rimuove più nodi dall'ordine logico e dal Pane con una sola passata su
+     * ciascuna lista.
+     */
+    public void removeAll(Collection<? extends Node> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        Set<Node> toRemove = Collections.newSetFromMap(new IdentityHashMap<>());
+        toRemove.addAll(nodes);
+        forgetAll(toRemove);
+        runUpdating(() -> pane.getChildren().removeIf(toRemove::contains));
+    }
+
+    /**
+     * Dimentica tutti i nodi, compresi quelli staccati. Da chiamare quando il
+     * disegno viene sostituito (nuovo disegno o caricamento).
+     */
+    public void clear() {
+        for (Node node : new ArrayList<>(order)) {
+            untrack(node);
+        }
+        order.clear();
+        positions.clear();
+        positionsValid = true;
+        culled.clear();
+        tree.clear();
+    }
+
+    private Map<Node, Integer> positions() {
+        if (!positionsValid) {
+            positions.clear();
+            for (int i = 0; i < order.size(); i++) {
+                positions.put(order.get(i), i);
+            }
+            positionsValid = true;
+        }
+        return positions;
+    }
+
+    private void append(Node node) {
+        order.add(node);
+        if (positionsValid) {
+            positions.put(node, order.size() - 1);
+        }
+        track(node);
+    }
+
+    private void forget(Node node) {
+        Integer pos = positions().get(node);
+        if (pos == null) {
+            return;
+        }
+        order.remove((int) pos);
+        positions.remove(node);
+        positionsValid = pos == order.size();
+        culled.remove(node);
+        untrack(node);
+    }
+
+    /**
+     * Dimentica più nodi con una sola passata sull'ordine logico.
+     */
+    private void forgetAll(Set<Node> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        if (order.removeIf(nodes::contains)) {
+            positionsValid = false;
+        }
+        for (Node node : nodes) {
+            if (listeners.containsKey(node)) {
+                culled.remove(node);
+                untrack(node);
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Culling
+    // ---------------------------------------------------------------------
+
+    /**
+     * Richiede un aggiornamento, eseguito una sola volta nel pulse successivo
+     * anche se richiesto più volte.
+     */
+    public void requestUpdate() {
+        if (pending) {
+            return;
+        }
+        pending = true;
+        scheduler.accept(this::update);
+    }
+
+    /**
+     * Stacca i nodi fuori dall'area visibile e riattacca quelli rientrati.
+     */
+    public void update() {
+        pending = false;
+        double[] view = expandedView();
+        lastView = view;
+        if (view == null) {
+            attachAll();
+            return;
+        }
+
+        Set<Node> inView = Collections.newSetFromMap(new IdentityHashMap<>());
+        tree.search(view[0], view[1], view[2], view[3], inView::add);
+
+        List<Node> toDetach = new ArrayList<>();
+        for (Node child : pane.getChildren()) {
+            if (isCullable(child) && !inView.contains(child)) {
+                toDetach.add(child);
+            }
+        }
+        List<Node> toAttach = new ArrayList<>();
+        for (Node node : inView) {
+            if (culled.contains(node)) {
+                toAttach.add(node);
+            }
+        }
+
+        if (!toDetach.isEmpty()) {
+            Set<Node> detachSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            detachSet.addAll(toDetach);
+            culled.addAll(toDetach);
+            runUpdating(() -> pane.getChildren().removeAll(detachSet));
+        }
+        attach(toAttach);
+
+        if (!toDetach.isEmpty() || !toAttach.isEmpty()) {
+            LOG.debug(() -> "[CULLING] Staccati " + toDetach.size() + ", riattaccati " + toAttach.size()
+                    + " (fuori vista: " + culled.size() + "/" + order.size() + ")");
+        }
+    }
+
+    private double[] expandedView() {
+        double[] v = viewport.get();
+        if (v == null) {
+            return null;
+        }
+        double mx = (v[2] - v[0]) * MARGIN_FRACTION;
+        double my = (v[3] - v[1]) * MARGIN_FRACTION;
+        return new double[]{v[0] - mx, v[1] - my, v[2] + mx, v[3] + my};
+    }
+
+    private boolean isCullable(Node node) {
+        return node.getUserData() instanceof Shape && !node.isMouseTransparent();
+    }
+
+    private void attachAll() {
+        attach(new ArrayList<>(culled));
+    }
+
+    /**
+     * Reinserisce i nodi nel Pane rispettando l'ordine logico: i figli del
+     * Pane sono sempre ordinati per posizione logica, quindi la posizione di
+     * inserimento si trova con una ricerca binaria.
+     */
+    private void attach(List<Node> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        Map<Node, Integer> pos = positions();
+        nodes.sort(Comparator.comparingInt(n -> pos.getOrDefault(n, Integer.MAX_VALUE)));
+        runUpdating(() -> {
+            List<Node> children = pane.getChildren();
+            for (Node node : nodes) {
+                culled.remove(node);
+                int logical = pos.getOrDefault(node, Integer.MAX_VALUE);
+                int lo = 0, hi = children.size();
+                while (lo < hi) {
+                    int mid = (lo + hi) >>> 1;
+                    if (pos.getOrDefault(children.get(mid), Integer.MAX_VALUE) < logical) {
+                        lo = mid + 1;
+                    } else {
+                        hi = mid;
+                    }
+                }
+                children.add(lo, node);
+            }
+        });
+    }
+
+    /**
+     * Inserisce nel Pane un nodo appena aggiunto all'ordine logico, oppure lo
+     * lascia staccato se fuori dall'ultima area visibile nota.
+     */
+    private void attachOrCull(Node node) {
+        runUpdating(() -> pane.getChildren().remove(node));
+        if (lastView != null && isCullable(node) && !intersectsView(node)) {
+            culled.add(node);
+            return;
+        }
+        culled.add(node);
+        attach(new ArrayList<>(List.of(node)));
+    }
+
+    private boolean intersectsView(Node node) {
+        Bounds b = node.getBoundsInParent();
+        return b.getMinX() <= lastView[2] && b.getMaxX() >= lastView[0]
+                && b.getMinY() <= lastView[3] && b.getMaxY() >= lastView[1];
+    }
+
+    // ---------------------------------------------------------------------
+    // Bounds e modifiche esterne
+    // ---------------------------------------------------------------------
+
+    private void track(Node node) {
+        if (listeners.containsKey(node)) {
+            return;
+        }
+        InvalidationListener listener = obs -> onBoundsChanged(node);
+        listeners.put(node, listener);
+        node.boundsInParentProperty().addListener(listener);
+        onBoundsChanged(node);
+    }
+
+    private void untrack(Node node) {
+        InvalidationListener listener = listeners.remove(node);
+        if (listener != null) {
+            node.boundsInParentProperty().removeListener(listener);
+        }
+        tree.remove(node);
+    }
+
+    /**
+     * Aggiorna l'indice e riattacca subito un nodo staccato che rientra
+     * nell'area visibile (ad esempio dopo un undo o uno spostamento di gruppo).
+     * La lettura dei bounds riattiva il listener di invalidazione.
+     */
+    private void onBoundsChanged(Node node) {
+        Bounds b = node.getBoundsInParent();
+        tree.update(node, b.getMinX(), b.getMinY(), b.getMaxX(), b.getMaxY());
+        if (culled.contains(node) && lastView != null && intersectsView(node)) {
+            attach(new ArrayList<>(List.of(node)));
+        }
+    }
+
+    private void onChildrenChanged(ListChangeListener.Change<? extends Node> change) {
+        if (updating) {
+            return;
+        }
+        boolean added = false;
+        // i nodi rimossi vengono dimenticati tutti insieme alla fine; restano
+        // nell'ordine logico fino ad allora senza alterare le posizioni relative
+        Set<Node> removedNodes = Collections.newSetFromMap(new IdentityHashMap<>());
+        while (change.next()) {
+            if (change.wasPermutated()) {
+                reorderAttached();
+                continue;
+            }
+            for (Node removed : change.getRemoved()) {
+                if (removed.getParent() != pane) {
+                    removedNodes.add(removed);
+                }
+            }
+            if (change.wasAdded()) {
+                addRun(change.getList(), change.getFrom(), change.getTo());
+                added = true;
+            }
+        }
+        forgetAll(removedNodes);
+        if (added) {
+            requestUpdate();
+        }
+    }
+
+    /**
+     * Riporta nell'ordine logico i figli aggiunti in [from, to) con un solo
+     * inserimento: in cima all'ordine logico se sono in fondo ai figli,
+     * altrimenti subito sotto il figlio successivo. I nodi già presenti
+     * (reinseriti altrove) vengono prima tolti con una sola passata.
+     */
+    private void addRun(List<? extends Node> list, int from, int to) {
+        List<Node> run = new ArrayList<>(list.subList(from, to));
+        Map<Node, Integer> pos = positions();
+        Set<Node> known = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Node node : run) {
+            if (pos.containsKey(node)) {
+                known.add(node);
+                culled.remove(node);
+            }
+        }
+        if (!known.isEmpty()) {
+            order.removeIf(known::contains);
+            positionsValid = false;
+        }
+        Node successor = to < list.size() ? list.get(to) : null;
+        int at = successor == null ? -1 : indexOf(successor);
+        if (at < 0) {
+            at = order.size();
+        }
+        order.addAll(at, run);
+        if (positionsValid) {
+            for (int i = at; i < order.size(); i++) {
+                positions.put(order.get(i), i);
+            }
+        }
+        for (Node node : run) {
+            track(node);
+        }
+    }
+
+    /**
+     * Dopo un riordino esterno dei figli, le posizioni logiche occupate dai
+     * nodi attaccati vengono riassegnate seguendo il nuovo ordine fisico.
+     */
+    private void reorderAttached() {
+        List<Node> children = pane.getChildren();
+        Map<Node, Integer> pos = positions();
+        List<Integer> slots = new ArrayList<>(children.size());
+        for (Node child : children) {
+            Integer slot = pos.get(child);
+            if (slot == null) {
+                return;
+            }
+            slots.add(slot);
+        }
+        Collections.sort(slots);
+        for (int i = 0; i < children.size(); i++) {
+            order.set(slots.get(i), children.get(i));
+        }
+        positionsValid = false;
+    }
+
+    private void runUpdating(Runnable action) {
+        boolean previous = updating;
+        updating = true;
+        try {
+            action.run();
+        } finally {
+            updating = previous;
+        }
+    }
+}
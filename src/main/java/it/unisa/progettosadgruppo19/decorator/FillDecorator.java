@@ -1,6 +1,7 @@
 package it.unisa.progettosadgruppo19.decorator;
 
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import it.unisa.progettosadgruppo19.util.Log;
 import javafx.scene.paint.Color;
 import javafx.scene.paint.Paint;
 
@@ -12,6 +13,8 @@ import java.io.Serializable;
  */
 public class FillDecorator extends ShapeDecorator implements Serializable {
 
+    private static final Log LOG = Log.get(FillDecorator.class);
+
     private Color fill;
 
     public void setFill(Color newFill) {
@@ -43,15 +46,14 @@ public class FillDecorator extends ShapeDecorator implements Serializable {
             // Verifica che sia effettivamente una Shape JavaFX
             if (node instanceof javafx.scene.shape.Shape fxShape) {
                 fxShape.setFill(fill);
-                System.out.println("[FILL] Applicato fill " + fill + " a "
+                LOG.debug(() -> "[FILL] Applicato fill " + fill + " a "
                         + fxShape.getClass().getSimpleName());
             } else {
-                System.err.println("[FILL] Nodo non è una Shape JavaFX: "
+                LOG.warn("[FILL] Nodo non è una Shape JavaFX: "
                         + node.getClass().getSimpleName());
             }
         } catch (Exception e) {
-            System.err.println("[FILL ERROR] Errore nell'applicazione del fill: " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("[FILL ERROR] Errore nell'applicazione del fill: " + e.getMessage(), e);
         }
     }
 
@@ -73,19 +75,18 @@ public class FillDecorator extends ShapeDecorator implements Serializable {
             Shape clonedDecorated = decorated.clone();
 
             if (clonedDecorated == null) {
-                System.err.println("[FILL DECORATOR] Impossibile clonare la shape sottostante");
+                LOG.warn("[FILL DECORATOR] Impossibile clonare la shape sottostante");
                 return null;
             }
 
             // Usa direttamente il valore salvato in this.fill
             FillDecorator clonedDecorator = new FillDecorator(clonedDecorated, this.fill);
 
-            System.out.println("[FILL DECORATOR] Clone creato con fill: " + this.fill);
+            LOG.debug(() -> "[FILL DECORATOR] Clone creato con fill: " + this.fill);
             return clonedDecorator;
 
         } catch (Exception e) {
-            System.err.println("[FILL DECORATOR ERROR] " + e.getMessage());
-            e.printStackTrace();
+            LOG.error("[FILL DECORATOR ERROR] " + e.getMessage(), e);
             return null;
         }
     }
@@ -101,7 +102,7 @@ public class FillDecorator extends ShapeDecorator implements Serializable {
                 return appliedFill != null && appliedFill.equals(fill);
             }
         } catch (Exception e) {
-            System.err.println("[FILL CHECK ERROR] " + e.getMessage());
+            LOG.error("[FILL CHECK ERROR] " + e.getMessage());
         }
         return false;
     }
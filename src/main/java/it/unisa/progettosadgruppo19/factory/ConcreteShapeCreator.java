@@ -1,6 +1,6 @@
 package it.unisa.progettosadgruppo19.factory;
 
-import it.unisa.progettosadgruppo19.factory.FreeFormPolygonShapeCreator;
+import it.unisa.progettosadgruppo19.model.serialization.BinaryDrawingFormat;
 
 /**
  * Factory concreta che restituisce lo ShapeCreator corrispondente al tipo
@@ -9,26 +9,28 @@ import it.unisa.progettosadgruppo19.factory.FreeFormPolygonShapeCreator;
 public class ConcreteShapeCreator {
 
     /**
-     * Restituisce un ShapeCreator in base al nome del tipo.
+     * Restituisce un ShapeCreator in base al nome del tipo. Le istanze sono
+     * quelle condivise di {@link ShapeCreatorRegistry}.
      *
-     * @param tipo "Linea", "Rettangolo" o "Ellisse"
+     * @param tipo "Linea", "Rettangolo", "Ellisse", "Testo" o "Poligono"
      * @return riferimento al costruttore appropriato
      * @throws IllegalArgumentException se il tipo non è supportato
      */
     public static ShapeCreator getCreator(String tipo) {
-        return switch (tipo) {
+        byte tag = switch (tipo) {
             case "Linea" ->
-                new LineShapeCreator();
+                BinaryDrawingFormat.TAG_LINE;
             case "Rettangolo" ->
-                new RectangleShapeCreator();
+                BinaryDrawingFormat.TAG_RECTANGLE;
             case "Ellisse" ->
-                new EllipseShapeCreator();
+                BinaryDrawingFormat.TAG_ELLIPSE;
             case "Testo" ->
-                new TextShapeCreator();
+                BinaryDrawingFormat.TAG_TEXT;
             case "Poligono" ->
-                new FreeFormPolygonShapeCreator();
+                BinaryDrawingFormat.TAG_POLYGON;
             default ->
                 throw new IllegalArgumentException("Tipo non supportato: " + tipo);
         };
+        return ShapeCreatorRegistry.forTag(tag);
     }
 }
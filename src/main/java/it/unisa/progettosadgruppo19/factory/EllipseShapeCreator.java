@@ -1,5 +1,7 @@
 package it.unisa.progettosadgruppo19.factory;
 
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.EllipseShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 import javafx.scene.paint.Color;
@@ -10,4 +12,10 @@ public class EllipseShapeCreator extends ShapeCreator {
     public Shape createShape(double x, double y, Color stroke) {
         return new EllipseShape(x, y, stroke);
     }
+
+    @Override
+    protected AbstractShape buildFromData(ShapeData data) {
+        return EllipseShape.fromBounds(data.getX(), data.getY(), data.getWidth(), data.getHeight(),
+                data.getStroke());
+    }
 }
@@ -1,5 +1,7 @@
 package it.unisa.progettosadgruppo19.factory;
 
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 import javafx.scene.paint.Color;
@@ -17,4 +19,20 @@ public class FreeFormPolygonShapeCreator extends ShapeCreator {
     public Shape createShape(double startX, double startY, Color stroke) {
         return new FreeFormPolygonShape(startX, startY, stroke);
     }
+
+    /**
+     * Ricostruisce il poligono dalle coordinate numeriche o, per i file
+     * legacy che non le hanno, dalla stringa dei vertici.
+     */
+    @Override
+    protected AbstractShape buildFromData(ShapeData data) {
+        FreeFormPolygonShape polygon = new FreeFormPolygonShape(data.getX(), data.getY(), data.getStroke());
+        double[] coords = data.getPolygonCoordinates();
+        if (coords.length >= 4 && coords.length % 2 == 0) {
+            polygon.setAllPoints(coords, coords.length);
+        } else if (data.getText() != null) {
+            polygon.setPointsFromString(data.getText());
+        }
+        return polygon;
+    }
 }
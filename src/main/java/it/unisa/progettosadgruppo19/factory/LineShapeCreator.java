@@ -1,5 +1,7 @@
 package it.unisa.progettosadgruppo19.factory;
 
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.LineShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 import javafx.scene.paint.Color;
@@ -10,4 +12,10 @@ public class LineShapeCreator extends ShapeCreator {
     public Shape createShape(double x, double y, Color stroke) {
         return new LineShape(x, y, stroke);
     }
+
+    @Override
+    protected AbstractShape buildFromData(ShapeData data) {
+        return new LineShape(data.getX(), data.getY(), data.getX() + data.getWidth(),
+                data.getY() + data.getHeight(), data.getStroke());
+    }
 }
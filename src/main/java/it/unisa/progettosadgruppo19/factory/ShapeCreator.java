@@ -1,5 +1,7 @@
 package it.unisa.progettosadgruppo19.factory;
 
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 import javafx.scene.paint.Color;
 
@@ -21,4 +23,29 @@ public abstract class ShapeCreator {
     public Shape createShape(String text, double x, double y, Color stroke, double fontSize) {
         throw new UnsupportedOperationException("Questa figura non supporta il testo.");
     }
+
+    /**
+     * Ricostruisce una shape salvata, con geometria, colore del contorno e
+     * rotazione.
+     *
+     * @param data dati della shape
+     * @return la shape ricostruita
+     */
+    public AbstractShape fromData(ShapeData data) {
+        AbstractShape shape = buildFromData(data);
+        shape.setRotation(data.getRotation());
+        return shape;
+    }
+
+    /**
+     * Costruisce la shape con la geometria salvata. L'implementazione
+     * predefinita ripete il gesto di disegno dal primo all'ultimo punto; le
+     * sottoclassi impostano la geometria direttamente.
+     */
+    protected AbstractShape buildFromData(ShapeData data) {
+        AbstractShape shape = (AbstractShape) createShape(data.getX(), data.getY(), data.getStroke());
+        shape.onDrag(data.getX() + data.getWidth(), data.getY() + data.getHeight());
+        shape.onRelease();
+        return shape;
+    }
 }
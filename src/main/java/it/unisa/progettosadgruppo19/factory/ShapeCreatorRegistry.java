@@ -0,0 +1,58 @@
+package it.unisa.progettosadgruppo19.factory;
+
+import it.unisa.progettosadgruppo19.model.serialization.BinaryDrawingFormat;
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+
+/**
+ * Registro dei {@link ShapeCreator} indicizzato per tag di tipo
+ * ({@link BinaryDrawingFormat#tagFor(String)}).
+ * <p>
+ * I creator non hanno stato: ne esiste un'unica istanza per tipo, condivisa
+ * da disegno, caricamento e thread di decodifica. Ricostruire una shape costa
+ * una ricerca in un array e la costruzione diretta della sua geometria.
+ */
+public final class ShapeCreatorRegistry {
+
+    private static final ShapeCreator[] BY_TAG = new ShapeCreator[BinaryDrawingFormat.TAG_POLYGON + 1];
+
+    static {
+        BY_TAG[BinaryDrawingFormat.TAG_RECTANGLE] = new RectangleShapeCreator();
+        BY_TAG[BinaryDrawingFormat.TAG_ELLIPSE] = new EllipseShapeCreator();
+        BY_TAG[BinaryDrawingFormat.TAG_LINE] = new LineShapeCreator();
+        BY_TAG[BinaryDrawingFormat.TAG_TEXT] = new TextShapeCreator();
+        BY_TAG[BinaryDrawingFormat.TAG_POLYGON] = new FreeFormPolygonShapeCreator();
+    }
+
+    private ShapeCreatorRegistry() {
+    }
+
+    /**
+     * Restituisce il creator per il tag indicato.
+     *
+     * @return il creator condiviso, oppure null se il tipo non è supportato
+     */
+    public static ShapeCreator forTag(byte tag) {
+        return tag >= 0 && tag < BY_TAG.length ? BY_TAG[tag] : null;
+    }
+
+    /**
+     * Restituisce il creator per il nome di tipo di una shape (ad esempio
+     * "RectangleShape").
+     *
+     * @return il creator condiviso, oppure null se il tipo non è supportato
+     */
+    public static ShapeCreator forType(String type) {
+        return forTag(BinaryDrawingFormat.tagFor(type));
+    }
+
+    /**
+     * Ricostruisce una shape salvata con il creator del suo tipo.
+     *
+     * @return la shape, oppure null se il tipo non è supportato
+     */
+    public static AbstractShape fromData(ShapeData data) {
+        ShapeCreator creator = forType(data.getType());
+        return creator != null ? creator.fromData(data) : null;
+    }
+}
@@ -4,6 +4,8 @@
  */
 package it.unisa.progettosadgruppo19.factory;
 
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
 import it.unisa.progettosadgruppo19.model.shapes.Shape;
 import it.unisa.progettosadgruppo19.model.shapes.TextShape;
 import javafx.scene.paint.Color;
@@ -25,4 +27,10 @@ public class TextShapeCreator extends ShapeCreator {
     public Shape createShape(double x, double y, Color stroke) {
         throw new UnsupportedOperationException("Use createShape(String, double, double, Color, double) for TextShape.");
     }
+
+    @Override
+    protected AbstractShape buildFromData(ShapeData data) {
+        return (AbstractShape) createShape(data.getText() != null ? data.getText() : "Testo",
+                data.getX(), data.getY(), data.getStroke(), data.getFontSize());
+    }
 }
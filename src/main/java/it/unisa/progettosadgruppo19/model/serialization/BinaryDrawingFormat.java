@@ -0,0 +1,1025 @@
+package it.unisa.progettosadgruppo19.model.serialization;
+
+import it.unisa.progettosadgruppo19.util.Log;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Formato binario compatto e versionato per i file di disegno, alternativo
+ * alla serializzazione Java di {@link DrawingData}.
+ * <p>
+ * Struttura del file (big-endian, come {@link DataOutput}):
+ * <pre>
+ * int    MAGIC ("SADG")
+ * short  versione
+ * int    numero di shape
+ * per ogni shape:
+ *   byte   tag del tipo
+ *   double x, y, width, height, rotation
+ *   int    stroke RGBA, int fill RGBA (8 bit per canale)
+ *   TEXT:    double fontSize, stringa
+ *   POLYGON: int numero di coordinate (pari), double[] coordinate
+ *   OTHER:   stringa con il nome del tipo, stringa testo
+ * indice, una voce per shape:
+ *   long   offset del record nel file
+ *   float  minX, minY, maxX, maxY (bounding box conservativo)
+ * long   offset dell'indice
+ * statistiche ({@link DrawingStats}):
+ *   int[]  numero di shape per tag, float minX, minY, maxX, maxY
+ * int    CRC32 di tutti i byte precedenti
+ * int    INDEX_MAGIC ("SIDX")
+ * segmenti incrementali, zero o più:
+ *   int    SEGMENT_MAGIC ("SSEG")
+ *   int    numero di shape prima del segmento
+ *   int    rimozioni, int[] posizioni crescenti
+ *   int    modifiche, per ognuna int posizione (dopo le rimozioni) e record
+ *   int    aggiunte in coda, record
+ *   long   offset di inizio del segmento
+ *   statistiche del disegno dopo il segmento
+ *   int    CRC32 del segmento
+ *   int    SEGMENT_END ("SEND")
+ * </pre>
+ * Le stringhe sono scritte come lunghezza UTF-8 (int, -1 per null) seguita
+ * dai byte. I colori sono quantizzati a 8 bit per canale, la stessa
+ * precisione dei colori scelti dall'interfaccia. L'indice in coda permette
+ * a {@link MappedDrawing} di aprire il file senza leggerlo tutto e di
+ * decodificare solo le shape richieste.
+ * <p>
+ * I segmenti permettono di salvare una modifica accodando solo le shape
+ * cambiate, invece di riscrivere il file. Il disegno è quello del corpo
+ * principale a cui vengono applicati i segmenti in ordine; un segmento
+ * incompleto in coda (scrittura interrotta) viene ignorato. Il marcatore
+ * finale e l'offset di inizio permettono di risalire la catena dei segmenti
+ * dalla fine del file.
+ * <p>
+ * Piede e segmenti terminano tutti con statistiche, checksum e marcatore:
+ * tipo, numero di shape per tipo e area del disegno si ricavano leggendo
+ * solo intestazione e ultimi byte del file ({@link #readStats(File)}).
+ */
+public final class BinaryDrawingFormat {
+
+    private static final Log LOG = Log.get(BinaryDrawingFormat.class);
+
+    /**
+     * Primi quattro byte di ogni file nel formato binario: "SADG".
+     */
+    public static final int MAGIC = 0x53414447;
+
+    /**
+     * Versione del formato. I file di altre versioni vengono rifiutati.
+     */
+    public static final short VERSION = 1;
+
+    /**
+     * Marcatore finale che segnala la presenza dell'indice: "SIDX".
+     */
+    public static final int INDEX_MAGIC = 0x53494458;
+
+    /**
+     * Primo campo di un segmento incrementale: "SSEG".
+     */
+    public static final int SEGMENT_MAGIC = 0x53534547;
+
+    /**
+     * Marcatore finale di un segmento incrementale completo: "SEND".
+     */
+    public static final int SEGMENT_END = 0x53454E44;
+
+    /**
+     * Dimensione della coda di un segmento: offset di inizio, statistiche,
+     * checksum e {@link #SEGMENT_END}.
+     */
+    public static final int SEGMENT_TRAILER_SIZE = 8 + DrawingStats.SIZE + 4 + 4;
+
+    /**
+     * Dimensione dell'intestazione: magic, versione e numero di shape.
+     */
+    public static final int HEADER_SIZE = 4 + 2 + 4;
+
+    /**
+     * Dimensione di una voce dell'indice: offset e quattro float di bounds.
+     */
+    public static final int INDEX_ENTRY_SIZE = 8 + 4 * 4;
+
+    /**
+     * Dimensione del piede: offset dell'indice, statistiche, checksum e
+     * {@link #INDEX_MAGIC}.
+     */
+    public static final int FOOTER_SIZE = 8 + DrawingStats.SIZE + 4 + 4;
+
+    /**
+     * Dimensione della coda comune a piede e segmenti: statistiche, checksum
+     * e marcatore.
+     */
+    private static final int STATS_TRAILER_SIZE = DrawingStats.SIZE + 4 + 4;
+
+    /**
+     * Parte fissa di ogni record: tag, cinque double e due colori.
+     */
+    static final int FIXED_RECORD_SIZE = 1 + 5 * 8 + 2 * 4;
+
+    /**
+     * Margine aggiunto ai bounds dell'indice per coprire lo spessore del
+     * tratto.
+     */
+    private static final double BOUNDS_PADDING = 2;
+
+    /**
+     * Massimo numero di elementi allocati in anticipo leggendo da un
+     * {@link DataInput}, di cui non si conosce la lunghezza residua. Array e
+     * liste crescono man mano che i dati arrivano: una lunghezza danneggiata
+     * fa fallire la lettura a fine file invece di esaurire la memoria.
+     */
+    private static final int READ_CHUNK = 4096;
+
+    public static final byte TAG_OTHER = 0;
+    public static final byte TAG_RECTANGLE = 1;
+    public static final byte TAG_ELLIPSE = 2;
+    public static final byte TAG_LINE = 3;
+    public static final byte TAG_TEXT = 4;
+    public static final byte TAG_POLYGON = 5;
+
+    private BinaryDrawingFormat() {
+    }
+
+    /**
+     * Restituisce il tag binario per il nome di tipo di una shape.
+     */
+    public static byte tagFor(String type) {
+        if (type == null) {
+            return TAG_OTHER;
+        }
+        return switch (type) {
+            case "RectangleShape" ->
+                TAG_RECTANGLE;
+            case "EllipseShape" ->
+                TAG_ELLIPSE;
+            case "LineShape" ->
+                TAG_LINE;
+            case "TextShape" ->
+                TAG_TEXT;
+            case "FreeFormPolygonShape" ->
+                TAG_POLYGON;
+            default ->
+                TAG_OTHER;
+        };
+    }
+
+    /**
+     * Restituisce il nome di tipo associato a un tag, oppure null per
+     * {@link #TAG_OTHER}.
+     */
+    public static String typeFor(byte tag) {
+        return switch (tag) {
+            case TAG_RECTANGLE ->
+                "RectangleShape";
+            case TAG_ELLIPSE ->
+                "EllipseShape";
+            case TAG_LINE ->
+                "LineShape";
+            case TAG_TEXT ->
+                "TextShape";
+            case TAG_POLYGON ->
+                "FreeFormPolygonShape";
+            default ->
+                null;
+        };
+    }
+
+    /**
+     * Scrive l'intero disegno: intestazione, tutte le shape, l'indice con
+     * offset e bounds di ciascun record, le statistiche e il checksum.
+     *
+     * @return le statistiche scritte nel piede
+     */
+    public static DrawingStats write(List<ShapeData> shapes, OutputStream stream) throws IOException {
+        int count = shapes.size();
+        long[] offsets = new long[count];
+        float[] bounds = new float[count * 4];
+        DrawingStats stats = new DrawingStats();
+        CRC32 crc = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(stream, crc));
+
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(count);
+        long position = HEADER_SIZE;
+        for (int i = 0; i < count; i++) {
+            ShapeData data = shapes.get(i);
+            offsets[i] = position;
+            position += writeShape(data, out);
+            computeBounds(data, bounds, i * 4);
+            stats.add(tagFor(data.getType()), bounds, i * 4);
+        }
+
+        long indexOffset = position;
+        for (int i = 0; i < count; i++) {
+            out.writeLong(offsets[i]);
+            out.writeFloat(bounds[i * 4]);
+            out.writeFloat(bounds[i * 4 + 1]);
+            out.writeFloat(bounds[i * 4 + 2]);
+            out.writeFloat(bounds[i * 4 + 3]);
+        }
+        out.writeLong(indexOffset);
+        stats.write(out);
+        out.flush();
+        out.writeInt((int) crc.getValue());
+        out.writeInt(INDEX_MAGIC);
+        out.flush();
+        return stats;
+    }
+
+    /**
+     * Calcola un bounding box conservativo della shape e lo scrive in
+     * {@code target} a partire da {@code offset}, arrotondato verso l'esterno
+     * alla precisione float.
+     */
+    static void computeBounds(ShapeData data, float[] target, int offset) {
+        double minX = data.getX();
+        double minY = data.getY();
+        double maxX = minX + Math.abs(data.getWidth());
+        double maxY = minY + Math.abs(data.getHeight());
+
+        if (data.isPolygon()) {
+            double[] coords = data.getPolygonCoordinates();
+            if (coords.length >= 2) {
+                minX = maxX = coords[0];
+                minY = maxY = coords[1];
+                for (int i = 2; i + 1 < coords.length; i += 2) {
+                    minX = Math.min(minX, coords[i]);
+                    maxX = Math.max(maxX, coords[i]);
+                    minY = Math.min(minY, coords[i + 1]);
+                    maxY = Math.max(maxY, coords[i + 1]);
+                }
+            }
+        } else if (data.isText()) {
+            // la y del testo è la baseline: il testo si estende anche sopra
+            minY -= Math.abs(data.getHeight());
+        }
+
+        if (data.getRotation() % 360 != 0) {
+            // rotazione attorno al centro: basta il cerchio circoscritto
+            double cx = (minX + maxX) / 2;
+            double cy = (minY + maxY) / 2;
+            double r = Math.hypot(maxX - minX, maxY - minY) / 2;
+            minX = cx - r;
+            minY = cy - r;
+            maxX = cx + r;
+            maxY = cy + r;
+        }
+
+        target[offset] = Math.nextDown((float) (minX - BOUNDS_PADDING));
+        target[offset + 1] = Math.nextDown((float) (minY - BOUNDS_PADDING));
+        target[offset + 2] = Math.nextUp((float) (maxX + BOUNDS_PADDING));
+        target[offset + 3] = Math.nextUp((float) (maxY + BOUNDS_PADDING));
+    }
+
+    /**
+     * Legge un disegno scritto con {@link #write}, senza verificarne i
+     * checksum.
+     *
+     * @throws IOException se l'intestazione non è valida o la versione non è
+     * supportata
+     */
+    public static DrawingData read(DataInput in) throws IOException {
+        return read(in, null);
+    }
+
+    /**
+     * Legge un disegno scritto con {@link #write} verificandone i checksum:
+     * un corpo principale danneggiato fa fallire la lettura, un segmento
+     * danneggiato viene ignorato insieme ai successivi.
+     *
+     * @throws IOException se il file non è valido o il checksum non
+     * corrisponde
+     */
+    public static DrawingData readVerified(InputStream stream) throws IOException {
+        CRC32 crc = new CRC32();
+        return read(new DataInputStream(new CheckedInputStream(stream, crc)), crc);
+    }
+
+    private static DrawingData read(DataInput in, CRC32 crc) throws IOException {
+        int count = readHeader(in);
+        List<ShapeData> shapes = new ArrayList<>(Math.min(count, READ_CHUNK));
+        for (int i = 0; i < count; i++) {
+            shapes.add(readShape(in));
+        }
+        if (!skipFully(in, (long) count * INDEX_ENTRY_SIZE + 8)) {
+            throw new IOException("Indice mancante o file troncato");
+        }
+        DrawingStats.read(in);
+        checkCrc(in, crc, "Checksum del disegno non valido: file danneggiato");
+        if (in.readInt() != INDEX_MAGIC) {
+            throw new IOException("Indice mancante o file troncato");
+        }
+
+        int applied = 0;
+        while (true) {
+            if (crc != null) {
+                crc.reset();
+            }
+            Segment segment = readSegment(in, crc);
+            if (segment == null) {
+                break;
+            }
+            segment.applyTo(shapes);
+            applied++;
+        }
+        if (applied > 0) {
+            int segments = applied;
+            LOG.debug(() -> "[FORMAT] Applicati " + segments + " segmenti incrementali");
+        }
+        return new DrawingData(shapes);
+    }
+
+    /**
+     * Legge il checksum memorizzato e lo confronta con quello dei byte letti
+     * finora, se calcolato.
+     */
+    private static void checkCrc(DataInput in, CRC32 crc, String message) throws IOException {
+        int expected = crc != null ? (int) crc.getValue() : 0;
+        int stored = in.readInt();
+        if (crc != null && stored != expected) {
+            throw new IOException(message);
+        }
+    }
+
+    private static boolean skipFully(DataInput in, long bytes) throws IOException {
+        while (bytes > 0) {
+            int skipped = in.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                try {
+                    in.readByte();
+                } catch (EOFException e) {
+                    return false;
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+        return true;
+    }
+
+    /**
+     * Legge e valida l'intestazione, lasciando lo stream all'inizio del primo
+     * record. Permette di leggere i record uno alla volta con
+     * {@link #readShape(DataInput)}.
+     *
+     * @return il numero di shape nel file
+     * @throws IOException se l'intestazione non è valida o la versione non è
+     * supportata
+     */
+    public static int readHeader(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("File non nel formato binario di disegno");
+        }
+        short version = in.readShort();
+        if (version != VERSION) {
+            throw new IOException("Versione del formato non supportata: " + version);
+        }
+        int count = in.readInt();
+        if (count < 0) {
+            throw new IOException("Numero di shape non valido: " + count);
+        }
+        return count;
+    }
+
+    // ---------------------------------------------------------------------
+    // Segmenti incrementali
+    // ---------------------------------------------------------------------
+
+    /**
+     * Modifiche contenute in un segmento incrementale.
+     */
+    static final class Segment {
+
+        final int countBefore;
+        final int[] removed;
+        final int[] updatePositions;
+        final List<ShapeData> updates;
+        final List<ShapeData> appends;
+
+        /**
+         * Offset dei record di modifiche e aggiunte, valorizzati solo dalla
+         * lettura da buffer.
+         */
+        long[] updateOffsets;
+        long[] appendOffsets;
+
+        Segment(int countBefore, int[] removed, int[] updatePositions,
+                List<ShapeData> updates, List<ShapeData> appends) {
+            this.countBefore = countBefore;
+            this.removed = removed;
+            this.updatePositions = updatePositions;
+            this.updates = updates;
+            this.appends = appends;
+        }
+
+        /**
+         * Numero di shape dopo l'applicazione del segmento.
+         */
+        int countAfter() {
+            return countBefore - removed.length + appends.size();
+        }
+
+        /**
+         * Applica il segmento alla lista di shape: rimozioni, poi modifiche
+         * nelle posizioni risultanti, poi aggiunte in coda.
+         */
+        void applyTo(List<ShapeData> shapes) throws IOException {
+            if (shapes.size() != countBefore) {
+                throw new IOException("Segmento non coerente: attese " + countBefore
+                        + " shape, presenti " + shapes.size());
+            }
+            if (removed.length > 0) {
+                List<ShapeData> kept = new ArrayList<>(shapes.size() - removed.length + appends.size());
+                int next = 0;
+                for (int i = 0; i < shapes.size(); i++) {
+                    if (next < removed.length && removed[next] == i) {
+                        next++;
+                    } else {
+                        kept.add(shapes.get(i));
+                    }
+                }
+                shapes.clear();
+                shapes.addAll(kept);
+            }
+            for (int i = 0; i < updatePositions.length; i++) {
+                shapes.set(updatePositions[i], updates.get(i));
+            }
+            shapes.addAll(appends);
+        }
+    }
+
+    /**
+     * Scrive un segmento incrementale con le statistiche del disegno dopo il
+     * segmento e il checksum dei suoi byte.
+     *
+     * @param countBefore numero di shape del disegno prima del segmento
+     * @param removed posizioni rimosse, in ordine crescente
+     * @param updatePositions posizioni, dopo le rimozioni, delle shape
+     * modificate
+     * @param updates nuovi dati delle shape modificate
+     * @param appends shape aggiunte in coda
+     * @param segmentStart offset nel file a cui il segmento viene scritto
+     * @param stats statistiche del disegno dopo il segmento, oppure null se
+     * non note
+     * @return il numero di byte scritti
+     */
+    public static long writeSegment(int countBefore, int[] removed, int[] updatePositions,
+            List<ShapeData> updates, List<ShapeData> appends, long segmentStart, DrawingStats stats,
+            OutputStream stream) throws IOException {
+        CRC32 crc = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(stream, crc));
+        out.writeInt(SEGMENT_MAGIC);
+        out.writeInt(countBefore);
+        out.writeInt(removed.length);
+        for (int position : removed) {
+            out.writeInt(position);
+        }
+        long written = 4 + 4 + 4 + removed.length * 4L;
+
+        out.writeInt(updatePositions.length);
+        written += 4;
+        for (int i = 0; i < updatePositions.length; i++) {
+            out.writeInt(updatePositions[i]);
+            written += 4 + writeShape(updates.get(i), out);
+        }
+
+        out.writeInt(appends.size());
+        written += 4;
+        for (ShapeData data : appends) {
+            written += writeShape(data, out);
+        }
+
+        out.writeLong(segmentStart);
+        (stats != null ? stats : new DrawingStats()).write(out);
+        out.flush();
+        out.writeInt((int) crc.getValue());
+        out.writeInt(SEGMENT_END);
+        out.flush();
+        return written + SEGMENT_TRAILER_SIZE;
+    }
+
+    /**
+     * Legge il prossimo segmento dallo stream e lo applica alla lista di
+     * shape.
+     *
+     * @return false a fine file o se il segmento è incompleto, lasciando la
+     * lista invariata
+     * @throws IOException se il segmento non è coerente con la lista
+     */
+    public static boolean applySegment(DataInput in, List<ShapeData> shapes) throws IOException {
+        Segment segment = readSegment(in, null);
+        if (segment == null) {
+            return false;
+        }
+        segment.applyTo(shapes);
+        return true;
+    }
+
+    /**
+     * Legge il prossimo segmento dallo stream, verificandone il checksum se
+     * {@code crc} accumula i byte letti dall'inizio del segmento.
+     *
+     * @return il segmento, oppure null a fine file o se il segmento è
+     * incompleto (scrittura interrotta) o danneggiato
+     */
+    static Segment readSegment(DataInput in, CRC32 crc) throws IOException {
+        try {
+            int magic = in.readInt();
+            if (magic != SEGMENT_MAGIC) {
+                LOG.warn("[FORMAT] Dati non riconosciuti dopo l'ultimo segmento, ignorati");
+                return null;
+            }
+            int countBefore = in.readInt();
+            int[] removed = readInts(in, checkCount(in.readInt()));
+
+            int updateCount = checkCount(in.readInt());
+            int[] updatePositions = new int[Math.min(updateCount, READ_CHUNK)];
+            List<ShapeData> updates = new ArrayList<>(updatePositions.length);
+            for (int i = 0; i < updateCount; i++) {
+                updatePositions = ensureLength(updatePositions, i, updateCount);
+                updatePositions[i] = in.readInt();
+                updates.add(readShape(in));
+            }
+
+            int appendCount = checkCount(in.readInt());
+            List<ShapeData> appends = new ArrayList<>(Math.min(appendCount, READ_CHUNK));
+            for (int i = 0; i < appendCount; i++) {
+                appends.add(readShape(in));
+            }
+
+            in.readLong();
+            DrawingStats.read(in);
+            checkCrc(in, crc, "Checksum del segmento non valido");
+            if (in.readInt() != SEGMENT_END) {
+                LOG.warn("[FORMAT] Segmento incrementale senza marcatore finale, ignorato");
+                return null;
+            }
+            return validate(new Segment(countBefore, removed, updatePositions, updates, appends));
+        } catch (EOFException e) {
+            return null;
+        } catch (IOException e) {
+            // Un segmento illeggibile è stato danneggiato dopo la scrittura
+            LOG.warn("[FORMAT] Segmento incrementale danneggiato, ignorato con i successivi: "
+                    + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Legge il segmento che inizia alla posizione corrente del buffer,
+     * registrando l'offset dei record. Il segmento deve essere completo; il
+     * checksum non viene verificato.
+     */
+    static Segment readSegment(ByteBuffer in) throws IOException {
+        if (in.getInt() != SEGMENT_MAGIC) {
+            throw new IOException("Segmento incrementale non valido a " + (in.position() - 4));
+        }
+        int countBefore = in.getInt();
+        int removedCount = checkCount(in.getInt());
+        if (removedCount > in.remaining() / 4) {
+            throw new IOException("Segmento incrementale troncato");
+        }
+        int[] removed = new int[removedCount];
+        for (int i = 0; i < removedCount; i++) {
+            removed[i] = in.getInt();
+        }
+
+        int updateCount = checkCount(in.getInt());
+        if (updateCount > in.remaining() / (4 + FIXED_RECORD_SIZE)) {
+            throw new IOException("Segmento incrementale troncato");
+        }
+        int[] updatePositions = new int[updateCount];
+        long[] updateOffsets = new long[updateCount];
+        List<ShapeData> updates = new ArrayList<>(updateCount);
+        for (int i = 0; i < updateCount; i++) {
+            updatePositions[i] = in.getInt();
+            updateOffsets[i] = in.position();
+            updates.add(readShape(in));
+        }
+
+        int appendCount = checkCount(in.getInt());
+        if (appendCount > in.remaining() / FIXED_RECORD_SIZE) {
+            throw new IOException("Segmento incrementale troncato");
+        }
+        long[] appendOffsets = new long[appendCount];
+        List<ShapeData> appends = new ArrayList<>(appendCount);
+        for (int i = 0; i < appendCount; i++) {
+            appendOffsets[i] = in.position();
+            appends.add(readShape(in));
+        }
+
+        in.getLong();
+        in.position(in.position() + DrawingStats.SIZE + 4);
+        if (in.getInt() != SEGMENT_END) {
+            throw new IOException("Segmento incrementale senza marcatore finale");
+        }
+        Segment segment = validate(new Segment(countBefore, removed, updatePositions, updates, appends));
+        segment.updateOffsets = updateOffsets;
+        segment.appendOffsets = appendOffsets;
+        return segment;
+    }
+
+    private static int checkCount(int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Numero di elementi del segmento non valido: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Verifica che le posizioni del segmento siano coerenti con il numero di
+     * shape a cui si applica.
+     */
+    private static Segment validate(Segment segment) throws IOException {
+        int previous = -1;
+        for (int position : segment.removed) {
+            if (position <= previous || position >= segment.countBefore) {
+                throw new IOException("Posizione rimossa non valida: " + position);
+            }
+            previous = position;
+        }
+        int remaining = segment.countBefore - segment.removed.length;
+        for (int position : segment.updatePositions) {
+            if (position < 0 || position >= remaining) {
+                throw new IOException("Posizione modificata non valida: " + position);
+            }
+        }
+        return segment;
+    }
+
+    /**
+     * Struttura di un file nel formato binario ricavata dalla sua coda.
+     *
+     * @param baseLength lunghezza del corpo principale, indice e piede
+     * compresi
+     * @param segmentStarts offset di inizio dei segmenti, in ordine di
+     * scrittura
+     */
+    public record Layout(long baseLength, long[] segmentStarts) {
+
+        public int segmentCount() {
+            return segmentStarts.length;
+        }
+    }
+
+    /**
+     * Ricostruisce la struttura del file risalendo la catena dei segmenti
+     * dalla fine, leggendo solo pochi byte per segmento.
+     *
+     * @return la struttura, oppure null se il file non è nel formato binario
+     * o la coda non è valida, ad esempio per un segmento incompleto
+     */
+    public static Layout readLayout(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            long length = raf.length();
+            if (length < HEADER_SIZE + FOOTER_SIZE || raf.readInt() != MAGIC || raf.readShort() != VERSION) {
+                return null;
+            }
+
+            List<Long> starts = new ArrayList<>();
+            long end = length;
+            while (true) {
+                raf.seek(end - 4);
+                int marker = raf.readInt();
+                if (marker == INDEX_MAGIC) {
+                    break;
+                }
+                if (marker != SEGMENT_END || end < HEADER_SIZE + FOOTER_SIZE + SEGMENT_TRAILER_SIZE) {
+                    return null;
+                }
+                raf.seek(end - SEGMENT_TRAILER_SIZE);
+                long start = raf.readLong();
+                if (start < HEADER_SIZE + FOOTER_SIZE || start >= end) {
+                    return null;
+                }
+                starts.add(0, start);
+                end = start;
+            }
+            long[] segmentStarts = new long[starts.size()];
+            for (int i = 0; i < segmentStarts.length; i++) {
+                segmentStarts[i] = starts.get(i);
+            }
+            return new Layout(end, segmentStarts);
+        }
+    }
+
+    /**
+     * Vero se dopo l'indice ci sono dati accodati, cioè segmenti incrementali
+     * (anche incompleti). In quel caso il corpo principale da solo non
+     * rappresenta il disegno. Legge solo intestazione e ultimi quattro byte.
+     */
+    public static boolean hasAppendedData(File file) {
+        if (file == null || file.length() < HEADER_SIZE + FOOTER_SIZE) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.readInt() != MAGIC || raf.readShort() != VERSION) {
+                return false;
+            }
+            raf.seek(raf.length() - 4);
+            return raf.readInt() != INDEX_MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Legge le statistiche del disegno dalla coda del file, cioè dal piede o
+     * dall'ultimo segmento completo, senza leggere le shape.
+     *
+     * @return le statistiche, oppure null se il file non è nel formato
+     * binario o ha una coda non valida (ad esempio un segmento incompleto)
+     */
+    public static DrawingStats readStats(File file) {
+        if (file == null || file.length() < HEADER_SIZE + FOOTER_SIZE) {
+            return null;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.readInt() != MAGIC || raf.readShort() != VERSION) {
+                return null;
+            }
+            raf.seek(raf.length() - STATS_TRAILER_SIZE);
+            byte[] tail = new byte[STATS_TRAILER_SIZE];
+            raf.readFully(tail);
+            ByteBuffer buffer = ByteBuffer.wrap(tail);
+            int marker = buffer.getInt(STATS_TRAILER_SIZE - 4);
+            if (marker != INDEX_MAGIC && marker != SEGMENT_END) {
+                return null;
+            }
+            return DrawingStats.read(buffer);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Verifica leggendo solo intestazione e ultimi quattro byte che il file
+     * sia nel formato binario, della versione supportata e completo: il file
+     * deve terminare con l'indice o con un segmento.
+     */
+    public static boolean isValidFile(File file) {
+        if (file == null || file.length() < HEADER_SIZE + FOOTER_SIZE) {
+            return false;
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            if (raf.readInt() != MAGIC || raf.readShort() != VERSION || raf.readInt() < 0) {
+                return false;
+            }
+            raf.seek(raf.length() - 4);
+            int marker = raf.readInt();
+            return marker == INDEX_MAGIC || marker == SEGMENT_END;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Scrive un singolo record di shape.
+     *
+     * @return il numero di byte scritti
+     */
+    public static int writeShape(ShapeData data, DataOutput out) throws IOException {
+        byte tag = tagFor(data.getType());
+        out.writeByte(tag);
+        out.writeDouble(data.getX());
+        out.writeDouble(data.getY());
+        out.writeDouble(data.getWidth());
+        out.writeDouble(data.getHeight());
+        out.writeDouble(data.getRotation());
+        out.writeInt(data.getPackedStroke());
+        out.writeInt(data.getPackedFill());
+        int written = FIXED_RECORD_SIZE;
+
+        switch (tag) {
+            case TAG_TEXT -> {
+                out.writeDouble(data.getFontSize());
+                written += 8 + writeString(data.getText(), out);
+            }
+            case TAG_POLYGON -> {
+                // una coordinata finale spaiata non forma un vertice
+                double[] coords = data.getPolygonCoordinates();
+                int length = coords.length & ~1;
+                out.writeInt(length);
+                for (int i = 0; i < length; i++) {
+                    out.writeDouble(coords[i]);
+                }
+                written += 4 + length * 8;
+            }
+            case TAG_OTHER -> {
+                written += writeString(data.getType(), out);
+                written += writeString(data.getText(), out);
+            }
+            default -> {
+                // Rettangoli, ellissi e linee non hanno dati aggiuntivi
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Legge un singolo record di shape.
+     */
+    public static ShapeData readShape(DataInput in) throws IOException {
+        byte tag = in.readByte();
+        double x = in.readDouble();
+        double y = in.readDouble();
+        double width = in.readDouble();
+        double height = in.readDouble();
+        double rotation = in.readDouble();
+        int stroke = in.readInt();
+        int fill = in.readInt();
+
+        ShapeData data = new ShapeData(typeFor(tag), x, y, width, height, rotation, null, null);
+        data.setPackedColors(stroke, fill);
+
+        switch (tag) {
+            case TAG_TEXT -> {
+                data.setFontSize(in.readDouble());
+                data.setText(readString(in));
+            }
+            case TAG_POLYGON -> {
+                int length = in.readInt();
+                if (length < 0 || length % 2 != 0) {
+                    throw new IOException("Numero di coordinate non valido: " + length);
+                }
+                data.setPolygonCoordinates(readDoubles(in, length));
+            }
+            case TAG_RECTANGLE, TAG_ELLIPSE, TAG_LINE -> {
+                // Nessun dato aggiuntivo
+            }
+            case TAG_OTHER -> {
+                data.setType(readString(in));
+                data.setText(readString(in));
+            }
+            default ->
+                throw new IOException("Tag di shape sconosciuto: " + tag);
+        }
+        return data;
+    }
+
+    /**
+     * Legge un singolo record di shape dalla posizione corrente del buffer.
+     * Equivalente a {@link #readShape(DataInput)} per file mappati in memoria.
+     */
+    public static ShapeData readShape(ByteBuffer in) throws IOException {
+        byte tag = in.get();
+        double x = in.getDouble();
+        double y = in.getDouble();
+        double width = in.getDouble();
+        double height = in.getDouble();
+        double rotation = in.getDouble();
+        int stroke = in.getInt();
+        int fill = in.getInt();
+
+        ShapeData data = new ShapeData(typeFor(tag), x, y, width, height, rotation, null, null);
+        data.setPackedColors(stroke, fill);
+
+        switch (tag) {
+            case TAG_TEXT -> {
+                data.setFontSize(in.getDouble());
+                data.setText(readString(in));
+            }
+            case TAG_POLYGON -> {
+                int length = in.getInt();
+                if (length < 0 || length % 2 != 0 || length > in.remaining() / 8) {
+                    throw new IOException("Numero di coordinate non valido: " + length);
+                }
+                double[] coords = new double[length];
+                in.asDoubleBuffer().get(coords);
+                in.position(in.position() + length * 8);
+                data.setPolygonCoordinates(coords);
+            }
+            case TAG_RECTANGLE, TAG_ELLIPSE, TAG_LINE -> {
+                // Nessun dato aggiuntivo
+            }
+            case TAG_OTHER -> {
+                data.setType(readString(in));
+                data.setText(readString(in));
+            }
+            default ->
+                throw new IOException("Tag di shape sconosciuto: " + tag);
+        }
+        return data;
+    }
+
+    /**
+     * Verifica se lo stream inizia con l'intestazione del formato binario.
+     * Consuma i primi quattro byte dello stream.
+     */
+    public static boolean hasMagic(InputStream in) throws IOException {
+        return new DataInputStream(in).readInt() == MAGIC;
+    }
+
+    /**
+     * Verifica se il file è nel formato binario leggendone solo l'intestazione.
+     */
+    public static boolean isBinaryFile(File file) {
+        if (file == null || file.length() < 4) {
+            return false;
+        }
+        try (InputStream in = new FileInputStream(file)) {
+            return hasMagic(in);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static int writeString(String value, DataOutput out) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return 4;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        return 4 + bytes.length;
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[Math.min(length, READ_CHUNK)];
+        int read = 0;
+        while (read < length) {
+            bytes = ensureLength(bytes, read, length);
+            in.readFully(bytes, read, bytes.length - read);
+            read = bytes.length;
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int[] readInts(DataInput in, int length) throws IOException {
+        int[] values = new int[Math.min(length, READ_CHUNK)];
+        for (int i = 0; i < length; i++) {
+            values = ensureLength(values, i, length);
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static double[] readDoubles(DataInput in, int length) throws IOException {
+        double[] values = new double[Math.min(length, READ_CHUNK)];
+        for (int i = 0; i < length; i++) {
+            values = ensureLength(values, i, length);
+            values[i] = in.readDouble();
+        }
+        return values;
+    }
+
+    /**
+     * Raddoppia l'array, fino a {@code length}, quando la prossima posizione
+     * da scrivere è oltre la fine: la memoria allocata resta proporzionale ai
+     * byte effettivamente letti.
+     */
+    private static int[] ensureLength(int[] values, int next, int length) {
+        return next < values.length ? values : Arrays.copyOf(values, grow(values.length, length));
+    }
+
+    private static double[] ensureLength(double[] values, int next, int length) {
+        return next < values.length ? values : Arrays.copyOf(values, grow(values.length, length));
+    }
+
+    private static byte[] ensureLength(byte[] values, int next, int length) {
+        return next < values.length ? values : Arrays.copyOf(values, grow(values.length, length));
+    }
+
+    private static int grow(int current, int length) {
+        return (int) Math.min(length, 2L * current);
+    }
+
+    private static String readString(ByteBuffer in) throws IOException {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > in.remaining()) {
+            throw new IOException("Stringa troncata: " + length + " byte");
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,170 @@
+package it.unisa.progettosadgruppo19.model.serialization;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Statistiche di un disegno scritte in coda ai file del formato
+ * {@link BinaryDrawingFormat} (dalla versione 4): numero di shape per tipo e
+ * rettangolo che le contiene tutte. Permettono di descrivere un file
+ * leggendone solo pochi byte.
+ * <p>
+ * Il rettangolo è quello dei bounds conservativi dell'indice. Dopo un
+ * salvataggio incrementale con rimozioni può essere più ampio del necessario;
+ * torna esatto alla compattazione.
+ */
+public final class DrawingStats {
+
+    /**
+     * Numero di tipi di shape, cioè di tag del formato.
+     */
+    static final int TYPE_COUNT = BinaryDrawingFormat.TAG_POLYGON + 1;
+
+    /**
+     * Dimensione su file: un int per tipo e quattro float di bounds.
+     */
+    public static final int SIZE = TYPE_COUNT * 4 + 4 * 4;
+
+    private final int[] counts;
+    private float minX = Float.POSITIVE_INFINITY;
+    private float minY = Float.POSITIVE_INFINITY;
+    private float maxX = Float.NEGATIVE_INFINITY;
+    private float maxY = Float.NEGATIVE_INFINITY;
+
+    public DrawingStats() {
+        this.counts = new int[TYPE_COUNT];
+    }
+
+    /**
+     * Copia delle statistiche, da aggiornare senza modificare l'originale.
+     */
+    public DrawingStats copy() {
+        DrawingStats copy = new DrawingStats();
+        System.arraycopy(counts, 0, copy.counts, 0, TYPE_COUNT);
+        copy.minX = minX;
+        copy.minY = minY;
+        copy.maxX = maxX;
+        copy.maxY = maxY;
+        return copy;
+    }
+
+    /**
+     * Conta una shape e ne include i bounds conservativi.
+     */
+    public void add(ShapeData data) {
+        float[] bounds = new float[4];
+        BinaryDrawingFormat.computeBounds(data, bounds, 0);
+        add(BinaryDrawingFormat.tagFor(data.getType()), bounds, 0);
+    }
+
+    void add(byte tag, float[] bounds, int offset) {
+        counts[tag]++;
+        minX = Math.min(minX, bounds[offset]);
+        minY = Math.min(minY, bounds[offset + 1]);
+        maxX = Math.max(maxX, bounds[offset + 2]);
+        maxY = Math.max(maxY, bounds[offset + 3]);
+    }
+
+    /**
+     * Toglie una shape del tipo indicato dal conteggio; il rettangolo resta
+     * invariato.
+     */
+    public void remove(byte tag) {
+        counts[tag] = Math.max(0, counts[tag] - 1);
+    }
+
+    /**
+     * Numero di shape con il tag indicato.
+     */
+    public int getCount(byte tag) {
+        return tag >= 0 && tag < TYPE_COUNT ? counts[tag] : 0;
+    }
+
+    /**
+     * Numero di shape con il nome di tipo indicato.
+     */
+    public int getCount(String type) {
+        return getCount(BinaryDrawingFormat.tagFor(type));
+    }
+
+    public int getTotal() {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Vero se nessuna shape contribuisce al rettangolo.
+     */
+    public boolean isEmpty() {
+        return minX > maxX;
+    }
+
+    public float getMinX() {
+        return minX;
+    }
+
+    public float getMinY() {
+        return minY;
+    }
+
+    public float getMaxX() {
+        return maxX;
+    }
+
+    public float getMaxY() {
+        return maxY;
+    }
+
+    void write(DataOutput out) throws IOException {
+        for (int count : counts) {
+            out.writeInt(count);
+        }
+        out.writeFloat(minX);
+        out.writeFloat(minY);
+        out.writeFloat(maxX);
+        out.writeFloat(maxY);
+    }
+
+    static DrawingStats read(DataInput in) throws IOException {
+        DrawingStats stats = new DrawingStats();
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            stats.counts[i] = checkCount(in.readInt());
+        }
+        stats.minX = in.readFloat();
+        stats.minY = in.readFloat();
+        stats.maxX = in.readFloat();
+        stats.maxY = in.readFloat();
+        return stats;
+    }
+
+    static DrawingStats read(ByteBuffer in) throws IOException {
+        DrawingStats stats = new DrawingStats();
+        for (int i = 0; i < TYPE_COUNT; i++) {
+            stats.counts[i] = checkCount(in.getInt());
+        }
+        stats.minX = in.getFloat();
+        stats.minY = in.getFloat();
+        stats.maxX = in.getFloat();
+        stats.maxY = in.getFloat();
+        return stats;
+    }
+
+    private static int checkCount(int count) throws IOException {
+        if (count < 0) {
+            throw new IOException("Conteggio di shape non valido: " + count);
+        }
+        return count;
+    }
+
+    @Override
+    public String toString() {
+        return "DrawingStats{counts=" + Arrays.toString(counts) + ", bounds=[" + minX + ", " + minY
+                + ", " + maxX + ", " + maxY + "]}";
+    }
+}
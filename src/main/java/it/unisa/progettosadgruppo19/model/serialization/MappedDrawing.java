@@ -0,0 +1,370 @@
+package it.unisa.progettosadgruppo19.model.serialization;
+
+import it.unisa.progettosadgruppo19.util.Log;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Vista in sola lettura di un file nel formato {@link BinaryDrawingFormat},
+ * mappato in memoria con {@link FileChannel#map}.
+ * <p>
+ * L'apertura legge solo intestazione e piede: i record vengono decodificati
+ * su richiesta, singolarmente o per area tramite l'indice dei bounds, così
+ * che un disegno molto grande si apra senza copiarne il contenuto nello heap.
+ * Per i file con segmenti incrementali l'indice del corpo principale viene
+ * copiato all'apertura e aggiornato con le modifiche di ogni segmento.
+ * <p>
+ * Le letture usano viste indipendenti del buffer e possono essere eseguite
+ * da più thread. La mappatura resta attiva finché l'oggetto non viene
+ * raccolto dal garbage collector, anche dopo {@link #close()}.
+ */
+public final class MappedDrawing implements Closeable {
+
+    private static final Log LOG = Log.get(MappedDrawing.class);
+
+    private final File file;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int count;
+
+    /**
+     * Indice del file, oppure null se offset e bounds sono stati ricostruiti
+     * in {@link #offsets} e {@link #bounds} applicando i segmenti.
+     */
+    private final ByteBuffer index;
+    private final long[] offsets;
+    private final float[] bounds;
+
+    private MappedDrawing(File file, FileChannel channel, MappedByteBuffer buffer, int count,
+            ByteBuffer index, long[] offsets, float[] bounds) {
+        this.file = file;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.count = count;
+        this.index = index;
+        this.offsets = offsets;
+        this.bounds = bounds;
+    }
+
+    /**
+     * Mappa il file in memoria e ne legge intestazione e indice.
+     *
+     * @throws IOException se il file non è nel formato binario, è troncato o
+     * supera i 2 GB mappabili in un unico buffer
+     */
+    public static MappedDrawing open(File file) throws IOException {
+        FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        try {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("File troppo grande per la mappatura: " + length + " byte");
+            }
+            if (length < BinaryDrawingFormat.HEADER_SIZE + BinaryDrawingFormat.FOOTER_SIZE) {
+                throw new IOException("File non nel formato binario di disegno o troncato");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+
+            if (buffer.getInt(0) != BinaryDrawingFormat.MAGIC) {
+                throw new IOException("File non nel formato binario di disegno");
+            }
+            short version = buffer.getShort(4);
+            if (version != BinaryDrawingFormat.VERSION) {
+                throw new IOException("Versione del formato non supportata: " + version);
+            }
+            int count = buffer.getInt(6);
+            if (count < 0 || count > (length - BinaryDrawingFormat.HEADER_SIZE) / BinaryDrawingFormat.FIXED_RECORD_SIZE) {
+                throw new IOException("Numero di shape non valido: " + count);
+            }
+
+            MappedDrawing drawing = buffer.getInt((int) length - 4) == BinaryDrawingFormat.INDEX_MAGIC
+                    ? openIndexed(file, channel, buffer, count)
+                    : openWithSegments(file, channel, buffer, count);
+            LOG.debug(() -> "[MAPPED] Aperto " + file.getName() + ": " + count + " shape, "
+                    + length + " byte");
+            return drawing;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private static MappedDrawing openIndexed(File file, FileChannel channel, MappedByteBuffer buffer,
+            int count) throws IOException {
+        int limit = buffer.limit();
+        int footer = limit - BinaryDrawingFormat.FOOTER_SIZE;
+        if (footer < BinaryDrawingFormat.HEADER_SIZE
+                || buffer.getInt(limit - 4) != BinaryDrawingFormat.INDEX_MAGIC) {
+            throw new IOException("Indice mancante o file troncato");
+        }
+        long indexOffset = buffer.getLong(footer);
+        long indexSize = (long) count * BinaryDrawingFormat.INDEX_ENTRY_SIZE;
+        if (indexOffset < BinaryDrawingFormat.HEADER_SIZE || indexOffset + indexSize != footer) {
+            throw new IOException("Indice non valido");
+        }
+        ByteBuffer index = buffer.duplicate().position((int) indexOffset).limit(footer).slice();
+        return new MappedDrawing(file, channel, buffer, count, index, null, null);
+    }
+
+    /**
+     * Apre un file con segmenti incrementali: parte dall'indice del corpo
+     * principale (o da una scansione, se la catena dei segmenti non è
+     * integra) e applica i segmenti completi in ordine.
+     */
+    private static MappedDrawing openWithSegments(File file, FileChannel channel, MappedByteBuffer buffer,
+            int count) throws IOException {
+        long[] offsets = new long[count];
+        float[] bounds = new float[count * 4];
+        int footerSize = BinaryDrawingFormat.FOOTER_SIZE;
+        int baseEnd = findBaseEnd(buffer);
+
+        if (baseEnd > 0) {
+            int footer = baseEnd - footerSize;
+            int indexOffset = (int) buffer.getLong(footer);
+            if (indexOffset < BinaryDrawingFormat.HEADER_SIZE
+                    || indexOffset + (long) count * BinaryDrawingFormat.INDEX_ENTRY_SIZE != footer) {
+                throw new IOException("Indice non valido");
+            }
+            for (int i = 0; i < count; i++) {
+                int entry = indexOffset + i * BinaryDrawingFormat.INDEX_ENTRY_SIZE;
+                offsets[i] = buffer.getLong(entry);
+                for (int k = 0; k < 4; k++) {
+                    bounds[i * 4 + k] = buffer.getFloat(entry + 8 + k * 4);
+                }
+            }
+        } else {
+            // Coda non integra (segmento incompleto): scansione del corpo
+            ByteBuffer scan = buffer.duplicate().position(BinaryDrawingFormat.HEADER_SIZE);
+            for (int i = 0; i < count; i++) {
+                offsets[i] = scan.position();
+                BinaryDrawingFormat.computeBounds(BinaryDrawingFormat.readShape(scan), bounds, i * 4);
+            }
+            long end = scan.position() + (long) count * BinaryDrawingFormat.INDEX_ENTRY_SIZE
+                    + footerSize;
+            if (end > buffer.limit() || buffer.getInt((int) end - 4) != BinaryDrawingFormat.INDEX_MAGIC) {
+                throw new IOException("Indice mancante o file troncato");
+            }
+            baseEnd = (int) end;
+        }
+
+        int size = count;
+        int segments = 0;
+        ByteBuffer view = buffer.duplicate().position(baseEnd);
+        while (view.hasRemaining()) {
+            BinaryDrawingFormat.Segment segment;
+            try {
+                segment = BinaryDrawingFormat.readSegment(view);
+            } catch (IOException | RuntimeException e) {
+                LOG.warn("[MAPPED] Segmento incompleto in coda a " + file.getName() + ", ignorato");
+                break;
+            }
+            if (segment.countBefore != size) {
+                throw new IOException("Segmento non coerente: attese " + segment.countBefore
+                        + " shape, presenti " + size);
+            }
+
+            int kept = 0;
+            int next = 0;
+            for (int i = 0; i < size; i++) {
+                if (next < segment.removed.length && segment.removed[next] == i) {
+                    next++;
+                    continue;
+                }
+                offsets[kept] = offsets[i];
+                System.arraycopy(bounds, i * 4, bounds, kept * 4, 4);
+                kept++;
+            }
+            for (int k = 0; k < segment.updatePositions.length; k++) {
+                int p = segment.updatePositions[k];
+                offsets[p] = segment.updateOffsets[k];
+                BinaryDrawingFormat.computeBounds(segment.updates.get(k), bounds, p * 4);
+            }
+            size = segment.countAfter();
+            if (size > offsets.length) {
+                offsets = Arrays.copyOf(offsets, Math.max(size, offsets.length * 2));
+                bounds = Arrays.copyOf(bounds, offsets.length * 4);
+            }
+            for (int k = 0; k < segment.appends.size(); k++) {
+                offsets[kept + k] = segment.appendOffsets[k];
+                BinaryDrawingFormat.computeBounds(segment.appends.get(k), bounds, (kept + k) * 4);
+            }
+            segments++;
+        }
+        int applied = segments;
+        LOG.debug(() -> "[MAPPED] Applicati " + applied + " segmenti incrementali");
+        return new MappedDrawing(file, channel, buffer, size,
+                null, Arrays.copyOf(offsets, size), Arrays.copyOf(bounds, size * 4));
+    }
+
+    /**
+     * Risale la catena dei segmenti dalla fine del buffer.
+     *
+     * @return la fine del corpo principale, oppure -1 se la catena non è
+     * integra
+     */
+    private static int findBaseEnd(ByteBuffer buffer) {
+        int end = buffer.limit();
+        int minimum = BinaryDrawingFormat.HEADER_SIZE + BinaryDrawingFormat.FOOTER_SIZE;
+        int trailer = BinaryDrawingFormat.SEGMENT_TRAILER_SIZE;
+        while (end >= minimum) {
+            int marker = buffer.getInt(end - 4);
+            if (marker == BinaryDrawingFormat.INDEX_MAGIC) {
+                return end;
+            }
+            if (marker != BinaryDrawingFormat.SEGMENT_END || end < minimum + trailer) {
+                return -1;
+            }
+            long start = buffer.getLong(end - trailer);
+            if (start < minimum || start >= end) {
+                return -1;
+            }
+            end = (int) start;
+        }
+        return -1;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * Numero di shape nel file.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Vero se offset e bounds sono letti dall'indice del file.
+     */
+    public boolean hasIndex() {
+        return index != null;
+    }
+
+    /**
+     * Offset nel file del record {@code i}.
+     */
+    public long getOffset(int i) {
+        checkIndex(i);
+        return index != null ? index.getLong(i * BinaryDrawingFormat.INDEX_ENTRY_SIZE) : offsets[i];
+    }
+
+    /**
+     * Bounding box conservativo (minX, minY, maxX, maxY) della shape
+     * {@code i}, senza decodificarne il record.
+     */
+    public float[] getBounds(int i) {
+        checkIndex(i);
+        float[] result = new float[4];
+        if (index != null) {
+            int base = i * BinaryDrawingFormat.INDEX_ENTRY_SIZE + 8;
+            for (int k = 0; k < 4; k++) {
+                result[k] = index.getFloat(base + k * 4);
+            }
+        } else {
+            System.arraycopy(bounds, i * 4, result, 0, 4);
+        }
+        return result;
+    }
+
+    /**
+     * Decodifica il record della shape {@code i}.
+     */
+    public ShapeData read(int i) throws IOException {
+        long offset = getOffset(i);
+        if (offset < BinaryDrawingFormat.HEADER_SIZE || offset >= buffer.limit()) {
+            throw new IOException("Offset non valido per la shape " + i + ": " + offset);
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) offset);
+        return BinaryDrawingFormat.readShape(view);
+    }
+
+    /**
+     * Restituisce, in ordine di file (cioè di z-order), gli indici delle shape
+     * il cui bounding box interseca il rettangolo indicato. Scorre solo
+     * l'indice, senza decodificare i record.
+     */
+    public int[] query(double minX, double minY, double maxX, double maxY) {
+        int[] result = new int[16];
+        int found = 0;
+        for (int i = 0; i < count; i++) {
+            float bMinX, bMinY, bMaxX, bMaxY;
+            if (index != null) {
+                int base = i * BinaryDrawingFormat.INDEX_ENTRY_SIZE + 8;
+                bMinX = index.getFloat(base);
+                bMinY = index.getFloat(base + 4);
+                bMaxX = index.getFloat(base + 8);
+                bMaxY = index.getFloat(base + 12);
+            } else {
+                bMinX = bounds[i * 4];
+                bMinY = bounds[i * 4 + 1];
+                bMaxX = bounds[i * 4 + 2];
+                bMaxY = bounds[i * 4 + 3];
+            }
+            if (bMinX <= maxX && bMaxX >= minX && bMinY <= maxY && bMaxY >= minY) {
+                if (found == result.length) {
+                    result = Arrays.copyOf(result, found * 2);
+                }
+                result[found++] = i;
+            }
+        }
+        return Arrays.copyOf(result, found);
+    }
+
+    /**
+     * Decodifica i record indicati, nell'ordine dato.
+     */
+    public List<ShapeData> read(int[] indices) throws IOException {
+        List<ShapeData> result = new ArrayList<>(indices.length);
+        for (int i : indices) {
+            result.add(read(i));
+        }
+        return result;
+    }
+
+    /**
+     * Decodifica i record consecutivi da {@code from} (incluso) a {@code to}
+     * (escluso). Intervalli diversi possono essere decodificati in parallelo.
+     */
+    public List<ShapeData> read(int from, int to) throws IOException {
+        if (from < 0 || to > count || from > to) {
+            throw new IndexOutOfBoundsException("Intervallo [" + from + ", " + to + ") fuori da [0, " + count + ")");
+        }
+        List<ShapeData> result = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            result.add(read(i));
+        }
+        return result;
+    }
+
+    /**
+     * Decodifica l'intero disegno.
+     */
+    public DrawingData readAll() throws IOException {
+        List<ShapeData> shapes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            shapes.add(read(i));
+        }
+        return new DrawingData(shapes);
+    }
+
+    private void checkIndex(int i) {
+        if (i < 0 || i >= count) {
+            throw new IndexOutOfBoundsException("Shape " + i + " fuori dall'intervallo [0, " + count + ")");
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -19,6 +19,13 @@ public class ShapeData implements Serializable {
     private String text; // Per TextShape e coordinate poligono
     private double fontSize;
 
+    /**
+     * Coordinate del poligono in forma numerica. Il formato binario le usa
+     * direttamente; la stringa in {@link #text} viene costruita solo quando
+     * serve (formato legacy o chiamate a {@link #getText()}).
+     */
+    private transient double[] coordinates;
+
     /**
      * Costruttore base per shape senza testo.
      */
@@ -205,6 +212,9 @@ public class ShapeData implements Serializable {
      * Restituisce il testo (per TextShape) o le coordinate (per poligoni).
      */
     public String getText() {
+        if (text == null && coordinates != null) {
+            text = joinCoordinates(coordinates);
+        }
         return text;
     }
 
@@ -213,6 +223,7 @@ public class ShapeData implements Serializable {
      */
     public void setText(String text) {
         this.text = text;
+        this.coordinates = null;
     }
 
     /**
@@ -248,6 +259,9 @@ public class ShapeData implements Serializable {
      * se isPolygon() restituisce true.
      */
     public double[] getPolygonCoordinates() {
+        if (coordinates != null) {
+            return coordinates;
+        }
         if (!isPolygon() || text == null || text.trim().isEmpty()) {
             return new double[0];
         }
@@ -264,33 +278,85 @@ public class ShapeData implements Serializable {
             return new double[0];
         }
 
+        coordinates = result;
         return result;
     }
 
     /**
-     * Imposta le coordinate del poligono da un array di double.
+     * Imposta le coordinate del poligono da un array di double. L'array viene
+     * conservato senza copia; la rappresentazione testuale è calcolata solo se
+     * richiesta.
      */
     public void setPolygonCoordinates(double[] coordinates) {
-        if (coordinates == null || coordinates.length == 0) {
-            this.text = "";
-            return;
-        }
+        this.coordinates = coordinates != null ? coordinates : new double[0];
+        this.text = null;
+    }
 
-        StringBuilder sb = new StringBuilder();
+    private static String joinCoordinates(double[] coordinates) {
+        StringBuilder sb = new StringBuilder(coordinates.length * 8);
         for (int i = 0; i < coordinates.length; i++) {
             if (i > 0) {
                 sb.append(",");
             }
             sb.append(coordinates[i]);
         }
-        this.text = sb.toString();
+        return sb.toString();
+    }
+
+    /**
+     * Colore di stroke impacchettato in un int RGBA (8 bit per canale).
+     */
+    int getPackedStroke() {
+        return packRgba(strokeR, strokeG, strokeB, strokeA);
+    }
+
+    /**
+     * Colore di fill impacchettato in un int RGBA (8 bit per canale).
+     */
+    int getPackedFill() {
+        return packRgba(fillR, fillG, fillB, fillA);
+    }
+
+    /**
+     * Imposta i colori da due int RGBA impacchettati.
+     */
+    void setPackedColors(int stroke, int fill) {
+        strokeR = ((stroke >>> 24) & 0xFF) / 255.0;
+        strokeG = ((stroke >>> 16) & 0xFF) / 255.0;
+        strokeB = ((stroke >>> 8) & 0xFF) / 255.0;
+        strokeA = (stroke & 0xFF) / 255.0;
+        fillR = ((fill >>> 24) & 0xFF) / 255.0;
+        fillG = ((fill >>> 16) & 0xFF) / 255.0;
+        fillB = ((fill >>> 8) & 0xFF) / 255.0;
+        fillA = (fill & 0xFF) / 255.0;
+    }
+
+    private static int packRgba(double r, double g, double b, double a) {
+        return (channel(r) << 24) | (channel(g) << 16) | (channel(b) << 8) | channel(a);
+    }
+
+    private static int channel(double value) {
+        return (int) Math.round(Math.max(0, Math.min(1, value)) * 255);
+    }
+
+    /**
+     * Prima della serializzazione Java materializza le coordinate nel campo
+     * testuale, così che il formato legacy resti invariato.
+     */
+    private void writeObject(java.io.ObjectOutputStream out) throws java.io.IOException {
+        getText();
+        out.defaultWriteObject();
     }
 
     /**
      * Crea una copia profonda di questo ShapeData.
      */
     public ShapeData clone() {
-        return new ShapeData(type, x, y, width, height, rotation, getStroke(), getFill(), text, fontSize);
+        ShapeData copy = new ShapeData(type, x, y, width, height, rotation, getStroke(), getFill(), text, fontSize);
+        if (coordinates != null) {
+            copy.setPolygonCoordinates(coordinates.clone());
+        }
+        return copy;
     }
 
     @Override
@@ -305,8 +371,8 @@ public class ShapeData implements Serializable {
 
         if (isText() && text != null) {
             sb.append(" text: '").append(text).append("' font: ").append(fontSize);
-        } else if (isPolygon() && text != null) {
-            int vertexCount = text.split(",").length / 2;
+        } else if (isPolygon() && (text != null || coordinates != null)) {
+            int vertexCount = getPolygonCoordinates().length / 2;
             sb.append(" vertices: ").append(vertexCount);
         }
 
@@ -331,11 +397,11 @@ public class ShapeData implements Serializable {
                 && Double.compare(that.rotation, rotation) == 0
                 && Double.compare(that.fontSize, fontSize) == 0
                 && type.equals(that.type)
-                && java.util.Objects.equals(text, that.text);
+                && java.util.Objects.equals(getText(), that.getText());
     }
 
     @Override
     public int hashCode() {
-        return java.util.Objects.hash(type, x, y, width, height, rotation, text, fontSize);
+        return java.util.Objects.hash(type, x, y, width, height, rotation, getText(), fontSize);
     }
 }
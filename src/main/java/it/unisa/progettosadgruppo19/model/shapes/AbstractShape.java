@@ -1,9 +1,15 @@
 package it.unisa.progettosadgruppo19.model.shapes;
 
 import it.unisa.progettosadgruppo19.decorator.ShapeDecorator;
+import javafx.beans.InvalidationListener;
+import javafx.geometry.BoundingBox;
+import javafx.geometry.Bounds;
 import javafx.scene.Node;
 import javafx.scene.paint.Color;
 
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
 /**
  * Classe astratta che implementa parzialmente l'interfaccia Shape, fornendo il
  * nodo JavaFX interno e la logica di contains.
@@ -15,8 +21,62 @@ public abstract class AbstractShape implements Shape {
      */
     protected final Node node;
 
+    /**
+     * Cache dei bounds geometrici senza rotazione [minX, minY, maxX, maxY];
+     * null quando vanno ricalcolati.
+     */
+    private double[] localBounds;
+
+    /**
+     * Cache dei bounds allineati agli assi comprensivi della rotazione; null
+     * quando vanno ricalcolati.
+     */
+    private Bounds rotatedBounds;
+
+    /**
+     * Orologio logico condiviso delle modifiche: ogni modifica di una shape
+     * riceve un valore maggiore di tutti i precedenti.
+     */
+    private static final AtomicLong MODIFICATION_CLOCK = new AtomicLong();
+
+    /**
+     * Valore dell'orologio all'ultima modifica della shape. Una shape appena
+     * creata risulta modificata rispetto a qualsiasi salvataggio precedente.
+     */
+    private long modificationStamp = MODIFICATION_CLOCK.incrementAndGet();
+
+    /**
+     * Traccia delle posizioni usata dai salvataggi su file.
+     */
+    public static final int TRACK_FILE = 0;
+
+    /**
+     * Traccia delle posizioni usata dal journal di recupero.
+     */
+    public static final int TRACK_JOURNAL = 1;
+
+    /**
+     * Posizione della shape nell'ultimo stato registrato da ciascuna traccia
+     * e generazione a cui si riferisce; non vengono copiate dai cloni.
+     */
+    private int fileSlot = -1;
+    private long fileGeneration = -1;
+    private int journalSlot = -1;
+    private long journalGeneration = -1;
+
+    /**
+     * Avvisato a ogni modifica registrata della shape; non viene copiato dai
+     * cloni.
+     */
+    private Consumer<AbstractShape> modificationListener;
+
     /**
      * Costruisce una AbstractShape avvolgendo il nodo specificato.
+     * <p>
+     * Oltre alle invalidazioni esplicite delle sottoclassi, la cache dei bounds
+     * viene invalidata da ogni variazione dei layoutBounds o della rotazione
+     * del nodo, così da restare corretta anche quando il nodo viene modificato
+     * direttamente (ad es. durante il drag).
      *
      * @param node nodo JavaFX della forma
      */
@@ -26,6 +86,20 @@ public abstract class AbstractShape implements Shape {
             s.setFill(Color.TRANSPARENT);
             s.setStroke(Color.BLACK);
         }
+        InvalidationListener invalidator = obs -> {
+            invalidateBounds();
+            markModified();
+        };
+        node.layoutBoundsProperty().addListener(invalidator);
+        node.rotateProperty().addListener(invalidator);
+
+        InvalidationListener modified = obs -> markModified();
+        node.translateXProperty().addListener(modified);
+        node.translateYProperty().addListener(modified);
+        if (node instanceof javafx.scene.shape.Shape s) {
+            s.fillProperty().addListener(modified);
+            s.strokeProperty().addListener(modified);
+        }
     }
 
     /**
@@ -88,6 +162,150 @@ public abstract class AbstractShape implements Shape {
 
     public abstract double getRotation();
 
+    /**
+     * Invalida i bounds in cache. Va chiamato da ogni operazione che modifica
+     * la geometria o la rotazione della shape.
+     */
+    protected final void invalidateBounds() {
+        localBounds = null;
+        rotatedBounds = null;
+    }
+
+    /**
+     * Registra una modifica della shape. Viene chiamato dai listener sul nodo,
+     * quindi copre ogni comando (spostamento, ridimensionamento, colori,
+     * rotazione, specchiatura) senza che i comandi debbano notificarlo.
+     */
+    protected final void markModified() {
+        modificationStamp = MODIFICATION_CLOCK.incrementAndGet();
+        if (modificationListener != null) {
+            modificationListener.accept(this);
+        }
+    }
+
+    /**
+     * Imposta chi avvisare a ogni modifica registrata della shape, al posto
+     * del precedente; null per non avvisare nessuno.
+     */
+    public final void setModificationListener(Consumer<AbstractShape> listener) {
+        this.modificationListener = listener;
+    }
+
+    /**
+     * Valore dell'orologio delle modifiche all'ultima modifica della shape.
+     */
+    public final long getModificationStamp() {
+        return modificationStamp;
+    }
+
+    /**
+     * Valore corrente dell'orologio delle modifiche: le shape con uno stamp
+     * non superiore non sono state modificate dopo questo istante.
+     */
+    public static long currentModificationStamp() {
+        return MODIFICATION_CLOCK.get();
+    }
+
+    /**
+     * Rilegge le proprietà osservate del nodo. I listener di invalidazione
+     * scattano solo sulla prima modifica dopo una lettura: va chiamato quando
+     * la shape viene considerata salvata, così che la modifica successiva
+     * venga registrata.
+     */
+    public final void rearmModificationTracking() {
+        node.getLayoutBounds();
+        node.getRotate();
+        node.getTranslateX();
+        node.getTranslateY();
+        if (node instanceof javafx.scene.shape.Shape s) {
+            s.getFill();
+            s.getStroke();
+        }
+    }
+
+    /**
+     * Posizione della shape nello stato registrato dalla traccia con la
+     * generazione indicata, oppure -1 se la shape non ne fa parte.
+     *
+     * @param track {@link #TRACK_FILE} o {@link #TRACK_JOURNAL}
+     */
+    public final int getSavedSlot(int track, long generation) {
+        if (track == TRACK_JOURNAL) {
+            return journalGeneration == generation ? journalSlot : -1;
+        }
+        return fileGeneration == generation ? fileSlot : -1;
+    }
+
+    /**
+     * Registra la posizione della shape nello stato di una traccia.
+     *
+     * @param track {@link #TRACK_FILE} o {@link #TRACK_JOURNAL}
+     */
+    public final void setSavedSlot(int track, long generation, int slot) {
+        if (track == TRACK_JOURNAL) {
+            journalGeneration = generation;
+            journalSlot = slot;
+        } else {
+            fileGeneration = generation;
+            fileSlot = slot;
+        }
+    }
+
+    /**
+     * Restituisce i bounds geometrici senza rotazione [minX, minY, maxX, maxY],
+     * ricalcolandoli solo se invalidati. L'array restituito è la cache stessa
+     * e non deve essere modificato.
+     */
+    protected final double[] getLocalBounds() {
+        if (localBounds == null) {
+            // La lettura riattiva il listener di invalidazione dei layoutBounds
+            node.getLayoutBounds();
+            localBounds = computeLocalBounds();
+        }
+        return localBounds;
+    }
+
+    /**
+     * Calcola i bounds geometrici senza rotazione. Le sottoclassi con getter
+     * costosi (es. poligoni) ridefiniscono questo metodo e leggono i propri
+     * getter da {@link #getLocalBounds()}.
+     */
+    protected double[] computeLocalBounds() {
+        double x = getX();
+        double y = getY();
+        return new double[]{x, y, x + getWidth(), y + getHeight()};
+    }
+
+    /**
+     * Restituisce i bounds allineati agli assi della shape, comprensivi della
+     * rotazione attorno al centro. Il valore è in cache e viene ricalcolato
+     * solo dopo una modifica (traslazione, ridimensionamento, rotazione).
+     *
+     * @return bounds in coordinate del Pane
+     */
+    public Bounds getBounds() {
+        if (rotatedBounds == null) {
+            rotatedBounds = computeRotatedBounds(getLocalBounds(), node.getRotate());
+        }
+        return rotatedBounds;
+    }
+
+    private static Bounds computeRotatedBounds(double[] b, double degrees) {
+        double width = b[2] - b[0];
+        double height = b[3] - b[1];
+        if (degrees % 360 == 0) {
+            return new BoundingBox(b[0], b[1], width, height);
+        }
+        double rad = Math.toRadians(degrees);
+        double cos = Math.abs(Math.cos(rad));
+        double sin = Math.abs(Math.sin(rad));
+        double halfW = (width * cos + height * sin) / 2;
+        double halfH = (width * sin + height * cos) / 2;
+        double cx = (b[0] + b[2]) / 2;
+        double cy = (b[1] + b[3]) / 2;
+        return new BoundingBox(cx - halfW, cy - halfH, halfW * 2, halfH * 2);
+    }
+
     public abstract void setRotation(double degrees);
 
     @Override
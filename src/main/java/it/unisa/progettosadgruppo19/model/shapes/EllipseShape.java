@@ -63,6 +63,15 @@ public class EllipseShape extends AbstractShape implements Shape {
         this.startY = ellipse.getCenterY();
     }
 
+    /**
+     * Costruisce l'ellisse inscritta nel rettangolo indicato, come se fosse
+     * stata disegnata dal punto (x, y) al punto (x + width, y + height).
+     */
+    public static EllipseShape fromBounds(double x, double y, double width, double height, Color stroke) {
+        Ellipse ellipse = new Ellipse(x + width / 2, y + height / 2, Math.abs(width) / 2, Math.abs(height) / 2);
+        return new EllipseShape(x, y, ellipse, stroke);
+    }
+
     @Override
     public void onDrag(double x, double y) {
         ellipseNode.setCenterX((startX + x) / 2);
@@ -1,11 +1,14 @@
 package it.unisa.progettosadgruppo19.model.shapes;
 
 import it.unisa.progettosadgruppo19.util.GeometryUtils;
+import it.unisa.progettosadgruppo19.util.Log;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Polygon;
 
-import java.util.ArrayList;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * Implementazione di un poligono a forma libera con supporto completo per: -
@@ -15,12 +18,22 @@ import java.util.List;
  * Utilizza GeometryUtils per operazioni geometriche avanzate - Supporta
  * poligoni con qualsiasi numero di vertici (anche 2 per creare linee)
  *
+ * I vertici sono memorizzati in un buffer primitivo {@code double[]} che
+ * cresce per raddoppio: traslazioni e scalature lavorano in place senza
+ * boxing, e il nodo JavaFX viene aggiornato una sola volta per modifica.
+ *
  * VERSIONE CORRETTA con gestione migliorata del movimento e contains().
  */
 public class FreeFormPolygonShape extends AbstractShape {
 
+    private static final Log LOG = Log.get(FreeFormPolygonShape.class);
+
+    private static final int INITIAL_CAPACITY = 16;
+
     private final Polygon polygon;           // nodo JavaFX
-    private final List<Double> points;       // lista di coordinate [x0,y0, x1,y1, ...]
+    private double[] coords;                 // buffer di coordinate [x0,y0, x1,y1, ...]
+    private int size;                        // numero di coordinate valide nel buffer
+    private final List<Double> pointsView;   // vista in sola lettura sul buffer
     private final double startX, startY;     // primo vertice
 
     /**
@@ -32,7 +45,8 @@ public class FreeFormPolygonShape extends AbstractShape {
         this.polygon = (Polygon) super.node;
         this.startX = startX;
         this.startY = startY;
-        this.points = new ArrayList<>();
+        this.coords = new double[INITIAL_CAPACITY];
+        this.pointsView = new PointsView();
         this.polygon.setStroke(stroke);
         this.polygon.setFill(Color.TRANSPARENT);
 
@@ -41,14 +55,16 @@ public class FreeFormPolygonShape extends AbstractShape {
     }
 
     /**
-     * Aggiunge un vertice (x,y) al poligono, rinfrescando i punti nel Polygon
-     * JavaFX.
+     * Aggiunge un vertice (x,y) al poligono. Il nodo JavaFX riceve solo le due
+     * nuove coordinate, senza ricopiare l'intera lista.
      */
     public void addPoint(double x, double y) {
-        points.add(x);
-        points.add(y);
-        polygon.getPoints().setAll(points);
-        System.out.println("[POLYGON] Punto aggiunto: (" + x + ", " + y + ") - Totale vertici: " + getVertexCount());
+        ensureCapacity(size + 2);
+        coords[size++] = x;
+        coords[size++] = y;
+        polygon.getPoints().addAll(x, y);
+        invalidateBounds();
+        LOG.debug(() -> "[POLYGON] Punto aggiunto: (" + x + ", " + y + ") - Totale vertici: " + getVertexCount());
     }
 
     /**
@@ -66,22 +82,63 @@ public class FreeFormPolygonShape extends AbstractShape {
      * (1 vertice + il punto iniziale).
      */
     public boolean canClose() {
-        return points.size() >= 4; // Almeno 2 vertici (4 coordinate)
+        return size >= 4; // Almeno 2 vertici (4 coordinate)
     }
 
     /**
      * Restituisce il numero di vertici del poligono.
      */
     public int getVertexCount() {
-        return points.size() / 2;
+        return size / 2;
     }
 
     /**
-     * Restituisce una copia modificabile della lista dei punti. Attenzione:
-     * modifiche a questa lista devono essere seguite da updatePolygon().
+     * Restituisce una vista in sola lettura dei punti [x0,y0,x1,y1,...],
+     * aggiornata automaticamente. Per modificare i vertici usare
+     * {@link #setAllPoints(double[], int)}, {@link #setVertex},
+     * {@link #insertVertex} o {@link #removeVertex}.
      */
     public List<Double> getPoints() {
-        return points; // Restituisce la lista originale per permettere modifiche dirette
+        return pointsView;
+    }
+
+    /**
+     * Restituisce una copia delle coordinate [x0,y0,x1,y1,...].
+     */
+    public double[] getCoordinates() {
+        return Arrays.copyOf(coords, size);
+    }
+
+    /**
+     * Copia le coordinate nell'array di destinazione, riallocandolo solo se
+     * troppo piccolo.
+     *
+     * @return l'array contenente le coordinate (le prime
+     * {@link #getCoordinateCount()} posizioni)
+     */
+    public double[] copyCoordinates(double[] target) {
+        if (target == null || target.length < size) {
+            target = new double[size];
+        }
+        System.arraycopy(coords, 0, target, 0, size);
+        return target;
+    }
+
+    /**
+     * Restituisce il numero di coordinate (due per vertice).
+     */
+    public int getCoordinateCount() {
+        return size;
+    }
+
+    /**
+     * Restituisce la coordinata di indice {@code index} (X pari, Y dispari).
+     */
+    public double getCoordinate(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Indice coordinata " + index + " su " + size);
+        }
+        return coords[index];
     }
 
     /**
@@ -93,33 +150,104 @@ public class FreeFormPolygonShape extends AbstractShape {
             System.err.println("[POLYGON] Tentativo di impostare punti null");
             return;
         }
+        double[] values = new double[newPoints.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = newPoints.get(i);
+        }
+        setAllPoints(values, values.length);
+    }
 
-        if (newPoints.size() < 4) {
-            System.err.println("[POLYGON] Tentativo di impostare meno di 2 vertici (" + newPoints.size() / 2 + ")");
+    /**
+     * Imposta i punti copiando le prime {@code length} coordinate dell'array e
+     * aggiorna il nodo JavaFX una sola volta. Un numero dispari di coordinate
+     * viene rifiutato.
+     */
+    public void setAllPoints(double[] newCoords, int length) {
+        if (newCoords == null) {
+            System.err.println("[POLYGON] Tentativo di impostare punti null");
             return;
         }
 
-        try {
-            points.clear();
-            points.addAll(newPoints);
-            polygon.getPoints().setAll(points);
+        if (length < 4) {
+            System.err.println("[POLYGON] Tentativo di impostare meno di 2 vertici (" + length / 2 + ")");
+            return;
+        }
 
-            System.out.println("[POLYGON] Punti aggiornati: " + getVertexCount() + " vertici");
+        if (length % 2 != 0 || length > newCoords.length) {
+            System.err.println("[POLYGON] Numero di coordinate non valido: " + length);
+            return;
+        }
 
-        } catch (Exception e) {
-            System.err.println("[POLYGON] Errore nell'aggiornamento dei punti: " + e.getMessage());
-            e.printStackTrace();
+        ensureCapacity(length);
+        System.arraycopy(newCoords, 0, coords, 0, length);
+        size = length;
+        updatePolygon();
+    }
+
+    /**
+     * Sposta il vertice {@code vertexIndex} in (x, y).
+     *
+     * @return true se l'indice è valido
+     */
+    public boolean setVertex(int vertexIndex, double x, double y) {
+        int i = vertexIndex * 2;
+        if (i < 0 || i + 1 >= size) {
+            return false;
+        }
+        coords[i] = x;
+        coords[i + 1] = y;
+        polygon.getPoints().set(i, x);
+        polygon.getPoints().set(i + 1, y);
+        invalidateBounds();
+        return true;
+    }
+
+    /**
+     * Inserisce un vertice dopo quello di indice {@code afterVertexIndex}.
+     *
+     * @return true se l'indice è valido
+     */
+    public boolean insertVertex(int afterVertexIndex, double x, double y) {
+        int i = (afterVertexIndex + 1) * 2;
+        if (i < 0 || i > size) {
+            return false;
+        }
+        ensureCapacity(size + 2);
+        System.arraycopy(coords, i, coords, i + 2, size - i);
+        coords[i] = x;
+        coords[i + 1] = y;
+        size += 2;
+        polygon.getPoints().addAll(i, List.of(x, y));
+        invalidateBounds();
+        return true;
+    }
+
+    /**
+     * Rimuove il vertice di indice {@code vertexIndex}.
+     *
+     * @return true se l'indice è valido
+     */
+    public boolean removeVertex(int vertexIndex) {
+        int i = vertexIndex * 2;
+        if (i < 0 || i + 1 >= size) {
+            return false;
         }
+        System.arraycopy(coords, i + 2, coords, i, size - i - 2);
+        size -= 2;
+        polygon.getPoints().remove(i, i + 2);
+        invalidateBounds();
+        return true;
     }
 
     /**
      * Aggiorna il nodo JavaFX con i punti correnti. Utile dopo aver modificato
-     * direttamente la lista dei punti.
+     * il buffer con le operazioni in place.
      */
     public void updatePolygon() {
         try {
-            polygon.getPoints().setAll(points);
-            System.out.println("[POLYGON] Nodo JavaFX aggiornato");
+            polygon.getPoints().setAll(pointsView);
+            invalidateBounds();
+            LOG.debug("[POLYGON] Nodo JavaFX aggiornato");
         } catch (Exception e) {
             System.err.println("[POLYGON] Errore nell'aggiornamento del nodo: " + e.getMessage());
         }
@@ -129,12 +257,12 @@ public class FreeFormPolygonShape extends AbstractShape {
      * Restituisce i punti come stringa per la serializzazione.
      */
     public String getPointsAsString() {
-        StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < points.size(); i++) {
+        StringBuilder sb = new StringBuilder(size * 8);
+        for (int i = 0; i < size; i++) {
             if (i > 0) {
                 sb.append(",");
             }
-            sb.append(points.get(i));
+            sb.append(coords[i]);
         }
         return sb.toString();
     }
@@ -143,32 +271,41 @@ public class FreeFormPolygonShape extends AbstractShape {
      * Imposta i punti da una stringa (per la deserializzazione).
      */
     public void setPointsFromString(String pointsStr) {
-        points.clear();
+        size = 0;
         if (pointsStr != null && !pointsStr.trim().isEmpty()) {
-            String[] coords = pointsStr.split(",");
-            for (String coord : coords) {
+            String[] values = pointsStr.split(",");
+            ensureCapacity(values.length);
+            for (String coord : values) {
                 try {
-                    points.add(Double.parseDouble(coord.trim()));
+                    coords[size] = Double.parseDouble(coord.trim());
+                    size++;
                 } catch (NumberFormatException e) {
                     System.err.println("[POLYGON] Errore nel parsing coordinate: " + coord);
                 }
             }
-            polygon.getPoints().setAll(points);
+            if (size % 2 != 0) {
+                System.err.println("[POLYGON] Coordinata spaiata ignorata: " + coords[size - 1]);
+                size--;
+            }
+            polygon.getPoints().setAll(pointsView);
         }
+        invalidateBounds();
     }
 
     /**
-     * Calcola il bounding box del poligono usando GeometryUtils.
+     * Restituisce il bounding box del poligono [minX, minY, maxX, maxY] dalla
+     * cache dei bounds.
      */
     public double[] getBoundingBox() {
-        return GeometryUtils.calculateBoundingBox(points);
+        return getLocalBounds().clone();
     }
 
     /**
-     * Calcola il centro del poligono usando GeometryUtils.
+     * Calcola il centro del poligono (centro del bounding box).
      */
     public double[] getCenter() {
-        return GeometryUtils.calculateCenter(points);
+        double[] bounds = getLocalBounds();
+        return new double[]{(bounds[0] + bounds[2]) / 2, (bounds[1] + bounds[3]) / 2};
     }
 
     /**
@@ -178,7 +315,7 @@ public class FreeFormPolygonShape extends AbstractShape {
      * @param scaleY fattore di scala verticale
      */
     public void scale(double scaleX, double scaleY) {
-        if (points.isEmpty()) {
+        if (size == 0) {
             return;
         }
 
@@ -186,20 +323,9 @@ public class FreeFormPolygonShape extends AbstractShape {
         double centerX = center[0];
         double centerY = center[1];
 
-        System.out.println("[POLYGON SCALE] Scalatura: " + scaleX + "x, " + scaleY + "x rispetto a (" + centerX + ", " + centerY + ")");
-
-        for (int i = 0; i < points.size(); i += 2) {
-            double x = points.get(i);
-            double y = points.get(i + 1);
-
-            // Scala rispetto al centro
-            double newX = centerX + (x - centerX) * scaleX;
-            double newY = centerY + (y - centerY) * scaleY;
-
-            points.set(i, newX);
-            points.set(i + 1, newY);
-        }
+        LOG.debug(() -> "[POLYGON SCALE] Scalatura: " + scaleX + "x, " + scaleY + "x rispetto a (" + centerX + ", " + centerY + ")");
 
+        GeometryUtils.scale(coords, size, centerX, centerY, scaleX, scaleY);
         updatePolygon();
     }
 
@@ -220,25 +346,18 @@ public class FreeFormPolygonShape extends AbstractShape {
      * @param deltaY spostamento verticale
      */
     public void translate(double deltaX, double deltaY) {
-        if (points.isEmpty()) {
-            System.out.println("[POLYGON TRANSLATE] Nessun punto da traslare");
+        if (size == 0) {
+            LOG.debug("[POLYGON TRANSLATE] Nessun punto da traslare");
             return;
         }
 
-        System.out.println("[POLYGON TRANSLATE] Spostamento: dx=" + deltaX + ", dy=" + deltaY);
+        LOG.debug(() -> "[POLYGON TRANSLATE] Spostamento: dx=" + deltaX + ", dy=" + deltaY);
 
         try {
-            for (int i = 0; i < points.size(); i += 2) {
-                double oldX = points.get(i);
-                double oldY = points.get(i + 1);
-
-                points.set(i, oldX + deltaX);        // X
-                points.set(i + 1, oldY + deltaY);     // Y
-            }
-
+            GeometryUtils.translate(coords, size, deltaX, deltaY);
             updatePolygon();
 
-            System.out.println("[POLYGON TRANSLATE] Nuova posizione: (" + getX() + ", " + getY() + ")");
+            LOG.debug(() -> "[POLYGON TRANSLATE] Nuova posizione: (" + getX() + ", " + getY() + ")");
 
         } catch (Exception e) {
             System.err.println("[POLYGON TRANSLATE ERROR] " + e.getMessage());
@@ -258,7 +377,7 @@ public class FreeFormPolygonShape extends AbstractShape {
         double deltaX = newX - currentX;
         double deltaY = newY - currentY;
 
-        System.out.println("[POLYGON MOVE TO] Da (" + currentX + ", " + currentY + ") a (" + newX + ", " + newY + ")");
+        LOG.debug(() -> "[POLYGON MOVE TO] Da (" + currentX + ", " + currentY + ") a (" + newX + ", " + newY + ")");
 
         translate(deltaX, deltaY);
     }
@@ -267,11 +386,11 @@ public class FreeFormPolygonShape extends AbstractShape {
      * Verifica se un punto è vicino al bordo del poligono usando GeometryUtils.
      */
     public boolean isNearBorder(double x, double y, double tolerance) {
-        return GeometryUtils.isNearPolygonBorder(x, y, points, tolerance);
+        return GeometryUtils.isNearPolygonBorder(x, y, coords, size, tolerance);
     }
 
     public void closePolygon() {
-        System.out.println("[POLYGON] Poligono chiuso con " + getVertexCount() + " vertici");
+        LOG.debug(() -> "[POLYGON] Poligono chiuso con " + getVertexCount() + " vertici");
     }
 
     @Override
@@ -284,30 +403,25 @@ public class FreeFormPolygonShape extends AbstractShape {
         // Non usato per questo shape
     }
 
+    /**
+     * Calcola in un'unica scansione i bounds dei vertici; il risultato resta in
+     * cache finché i punti non cambiano.
+     */
+    @Override
+    protected double[] computeLocalBounds() {
+        return GeometryUtils.calculateBoundingBox(coords, size);
+    }
+
     @Override
     public double getX() {
         // X minima tra i punti
-        if (points.isEmpty()) {
-            return 0;
-        }
-        double min = Double.MAX_VALUE;
-        for (int i = 0; i < points.size(); i += 2) {
-            min = Math.min(min, points.get(i));
-        }
-        return min;
+        return getLocalBounds()[0];
     }
 
     @Override
     public double getY() {
         // Y minima tra i punti
-        if (points.isEmpty()) {
-            return 0;
-        }
-        double min = Double.MAX_VALUE;
-        for (int i = 1; i < points.size(); i += 2) {
-            min = Math.min(min, points.get(i));
-        }
-        return min;
+        return getLocalBounds()[1];
     }
 
     @Override
@@ -327,37 +441,22 @@ public class FreeFormPolygonShape extends AbstractShape {
     @Override
     public double getWidth() {
         // larghezza = maxX - minX
-        if (points.isEmpty()) {
-            return 0;
-        }
-        double min = Double.MAX_VALUE, max = Double.MIN_VALUE;
-        for (int i = 0; i < points.size(); i += 2) {
-            double px = points.get(i);
-            min = Math.min(min, px);
-            max = Math.max(max, px);
-        }
-        return max - min;
+        double[] bounds = getLocalBounds();
+        return bounds[2] - bounds[0];
     }
 
     @Override
     public double getHeight() {
         // altezza = maxY - minY
-        if (points.isEmpty()) {
-            return 0;
-        }
-        double min = Double.MAX_VALUE, max = Double.MIN_VALUE;
-        for (int i = 1; i < points.size(); i += 2) {
-            double py = points.get(i);
-            min = Math.min(min, py);
-            max = Math.max(max, py);
-        }
-        return max - min;
+        double[] bounds = getLocalBounds();
+        return bounds[3] - bounds[1];
     }
 
     @Override
     public void setRotation(double angle) {
         // Applica la rotazione direttamente al nodo JavaFX
         polygon.setRotate(angle);
+        invalidateBounds();
     }
 
     @Override
@@ -371,40 +470,40 @@ public class FreeFormPolygonShape extends AbstractShape {
      */
     @Override
     public boolean contains(double x, double y) {
-        if (points.isEmpty()) {
+        if (size == 0) {
             return false;
         }
 
         // Test 1: Prova il test nativo di JavaFX
         boolean nativeResult = polygon.contains(x, y);
         if (nativeResult) {
-            System.out.println("[POLYGON CONTAINS] Hit nativo JavaFX");
+            LOG.debug("[POLYGON CONTAINS] Hit nativo JavaFX");
             return true;
         }
 
         // Test 2: Ray casting algorithm con GeometryUtils
-        boolean raycastResult = GeometryUtils.isPointInPolygon(x, y, points);
+        boolean raycastResult = GeometryUtils.isPointInPolygon(x, y, coords, size);
         if (raycastResult) {
-            System.out.println("[POLYGON CONTAINS] Hit via ray casting");
+            LOG.debug("[POLYGON CONTAINS] Hit via ray casting");
             return true;
         }
 
         // Test 3: Verifica se è vicino ai bordi (tolleranza aumentata)
-        boolean nearBorderResult = GeometryUtils.isNearPolygonBorder(x, y, points, 10.0);
+        boolean nearBorderResult = GeometryUtils.isNearPolygonBorder(x, y, coords, size, 10.0);
         if (nearBorderResult) {
-            System.out.println("[POLYGON CONTAINS] Hit vicino ai bordi");
+            LOG.debug("[POLYGON CONTAINS] Hit vicino ai bordi");
             return true;
         }
 
         // Test 4: Bounding box come fallback
-        double[] bbox = getBoundingBox();
+        double[] bbox = getLocalBounds();
         boolean inBoundingBox = (x >= bbox[0] && x <= bbox[2] && y >= bbox[1] && y <= bbox[3]);
         if (inBoundingBox) {
-            System.out.println("[POLYGON CONTAINS] Hit via bounding box");
+            LOG.debug("[POLYGON CONTAINS] Hit via bounding box");
             return true;
         }
 
-        System.out.println("[POLYGON CONTAINS] Nessun hit rilevato");
+        LOG.debug("[POLYGON CONTAINS] Nessun hit rilevato");
         return false;
     }
 
@@ -414,30 +513,23 @@ public class FreeFormPolygonShape extends AbstractShape {
     @Override
     public FreeFormPolygonShape clone() {
         try {
-            // Crea una lista completamente nuova con nuovi oggetti Double
-            List<Double> clonedPoints = new ArrayList<>();
-            for (Double point : this.points) {
-                clonedPoints.add(new Double(point.doubleValue()));
-            }
-
-            if (clonedPoints.size() < 2) {
+            if (size < 2) {
                 System.err.println("[CLONE POLYGON] Punti insufficienti per il clone");
                 return null;
             }
 
             // Crea un nuovo poligono con il primo punto
             FreeFormPolygonShape copia = new FreeFormPolygonShape(
-                    clonedPoints.get(0),
-                    clonedPoints.get(1),
+                    coords[0],
+                    coords[1],
                     (javafx.scene.paint.Color) polygon.getStroke()
             );
 
-            // Rimuove il primo punto aggiunto automaticamente dal costruttore
-            copia.points.clear();
-
-            // Aggiunge tutti i punti clonati
-            copia.points.addAll(clonedPoints);
-            copia.polygon.getPoints().setAll(clonedPoints);
+            // Sostituisce il primo punto aggiunto dal costruttore con una copia del buffer
+            copia.coords = Arrays.copyOf(coords, Math.max(size, INITIAL_CAPACITY));
+            copia.size = size;
+            copia.polygon.getPoints().setAll(copia.pointsView);
+            copia.invalidateBounds();
 
             // Copia le proprietà del nodo JavaFX
             copia.polygon.setFill(polygon.getFill());
@@ -451,7 +543,7 @@ public class FreeFormPolygonShape extends AbstractShape {
             copia.polygon.setScaleY(polygon.getScaleY());
 
             // NON copiare translateX e translateY per evitare sovrapposizioni
-            System.out.println("[CLONE POLYGON] Creata copia indipendente con "
+            LOG.debug(() -> "[CLONE POLYGON] Creata copia indipendente con "
                     + copia.getVertexCount() + " vertici @ (" + copia.getX() + ", " + copia.getY() + ")");
 
             return copia;
@@ -467,21 +559,21 @@ public class FreeFormPolygonShape extends AbstractShape {
      * Calcola l'area del poligono usando GeometryUtils.
      */
     public double calculateArea() {
-        return GeometryUtils.calculatePolygonArea(points);
+        return GeometryUtils.calculatePolygonArea(coords, size);
     }
 
     /**
      * Calcola il perimetro del poligono usando GeometryUtils.
      */
     public double calculatePerimeter() {
-        return GeometryUtils.calculatePolygonPerimeter(points);
+        return GeometryUtils.calculatePolygonPerimeter(coords, size);
     }
 
     /**
      * Verifica se il poligono è convesso usando GeometryUtils.
      */
     public boolean isConvex() {
-        return GeometryUtils.isPolygonConvex(points);
+        return GeometryUtils.isPolygonConvex(coords, size);
     }
 
     /**
@@ -509,20 +601,21 @@ public class FreeFormPolygonShape extends AbstractShape {
      * Verifica l'integrità del poligono.
      */
     public boolean isValid() {
-        return points.size() >= 4
+        return size >= 4
                 && // Almeno 2 vertici
-                points.size() % 2 == 0
+                size % 2 == 0
                 && // Numero pari di coordinate
-                polygon.getPoints().size() == points.size(); // Sincronizzazione con JavaFX
+                polygon.getPoints().size() == size; // Sincronizzazione con JavaFX
     }
 
     /**
-     * Forza la sincronizzazione tra la lista interna e il nodo JavaFX.
+     * Forza la sincronizzazione tra il buffer interno e il nodo JavaFX.
      */
     public void forceSynchronization() {
         try {
-            polygon.getPoints().setAll(points);
-            System.out.println("[POLYGON] Sincronizzazione forzata completata");
+            polygon.getPoints().setAll(pointsView);
+            invalidateBounds();
+            LOG.debug("[POLYGON] Sincronizzazione forzata completata");
         } catch (Exception e) {
             System.err.println("[POLYGON] Errore nella sincronizzazione: " + e.getMessage());
         }
@@ -532,4 +625,37 @@ public class FreeFormPolygonShape extends AbstractShape {
     public String toString() {
         return getDebugInfo();
     }
+
+    private void ensureCapacity(int required) {
+        if (required > coords.length) {
+            coords = Arrays.copyOf(coords, Math.max(required, coords.length * 2));
+        }
+    }
+
+    /**
+     * Vista in sola lettura sul buffer: permette di passare i punti a
+     * {@code ObservableList.setAll} e al codice esistente senza copie
+     * intermedie.
+     */
+    private final class PointsView extends AbstractList<Double> implements RandomAccess {
+
+        @Override
+        public Double get(int index) {
+            return getCoordinate(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Object[] toArray() {
+            Object[] result = new Object[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = coords[i];
+            }
+            return result;
+        }
+    }
 }
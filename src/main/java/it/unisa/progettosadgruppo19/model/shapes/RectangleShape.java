@@ -34,6 +34,19 @@ public class RectangleShape extends AbstractShape {
         rectangleNode.setStroke(Color.BLACK);  // o un colore di default
     }
 
+    /**
+     * Costruisce un rettangolo con la geometria indicata, come se fosse stato
+     * disegnato dal punto (x, y) al punto (x + width, y + height).
+     */
+    public static RectangleShape fromBounds(double x, double y, double width, double height, Color stroke) {
+        RectangleShape shape = new RectangleShape(Math.min(x, x + width), Math.min(y, y + height),
+                Math.abs(width), Math.abs(height));
+        shape.startX = x;
+        shape.startY = y;
+        shape.rectangleNode.setStroke(stroke);
+        return shape;
+    }
+
     @Override
     public void onDrag(double x, double y) {
         Rectangle r = (Rectangle) node;
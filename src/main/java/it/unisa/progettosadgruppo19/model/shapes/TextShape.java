@@ -1,11 +1,14 @@
 package it.unisa.progettosadgruppo19.model.shapes;
 
+import it.unisa.progettosadgruppo19.util.Log;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.Text;
 
 public class TextShape extends AbstractShape {
 
+    private static final Log LOG = Log.get(TextShape.class);
+
     private final Text textNode;
     private Color fillColor = Color.BLACK;
     private Color strokeColor = Color.TRANSPARENT;
@@ -95,11 +98,9 @@ public class TextShape extends AbstractShape {
     public AbstractShape clone() {
         try {
             // Log dei dati originali del nodo prima della copia
-            System.out.println("[CLONE TEXT] Dati nodo originale:");
-            System.out.println("- Fill: " + textNode.getFill());
-            System.out.println("- Stroke: " + textNode.getStroke());
-            System.out.println("- Font: " + textNode.getFont());
-            System.out.println("- Text: " + textNode.getText());
+            LOG.debug(() -> "[CLONE TEXT] Dati nodo originale: fill " + textNode.getFill()
+                    + ", stroke " + textNode.getStroke() + ", font " + textNode.getFont()
+                    + ", testo '" + textNode.getText() + "'");
 
             // Creazione del nuovo nodo con copia di tutte le proprietà
             Text newText = new Text(getX(), getY(), getText());
@@ -113,7 +114,7 @@ public class TextShape extends AbstractShape {
 
             TextShape clone = new TextShape(newText);
 
-            System.out.println("[CLONE TEXT] Copia creata: '" + newText.getText() + "' @ ("
+            LOG.debug(() -> "[CLONE TEXT] Copia creata: '" + newText.getText() + "' @ ("
                     + newText.getX() + ", " + newText.getY() + ")");
 
             return clone;
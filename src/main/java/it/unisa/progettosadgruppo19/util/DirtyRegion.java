@@ -0,0 +1,94 @@
+package it.unisa.progettosadgruppo19.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Insieme di rettangoli da ridisegnare accumulati tra un frame e l'altro.
+ * <p>
+ * I rettangoli che si sovrappongono vengono fusi al momento dell'inserimento;
+ * oltre {@code maxRegions} rettangoli distinti l'intera area viene ridotta a
+ * un unico rettangolo che li contiene tutti, così che il costo del ridisegno
+ * resti limitato anche con molte modifiche sparse.
+ */
+public class DirtyRegion {
+
+    private final int maxRegions;
+    private final List<double[]> regions = new ArrayList<>();
+
+    public DirtyRegion(int maxRegions) {
+        this.maxRegions = Math.max(1, maxRegions);
+    }
+
+    /**
+     * Aggiunge un rettangolo (minX, minY, maxX, maxY) all'area da ridisegnare.
+     * Rettangoli vuoti o non finiti vengono ignorati.
+     */
+    public void add(double minX, double minY, double maxX, double maxY) {
+        if (!(maxX > minX) || !(maxY > minY)
+                || !Double.isFinite(minX) || !Double.isFinite(minY)
+                || !Double.isFinite(maxX) || !Double.isFinite(maxY)) {
+            return;
+        }
+        double[] rect = {minX, minY, maxX, maxY};
+
+        // Fonde il nuovo rettangolo con quelli che interseca, ripetendo finché
+        // l'unione continua a crescere
+        boolean merged = true;
+        while (merged) {
+            merged = false;
+            for (int i = regions.size() - 1; i >= 0; i--) {
+                double[] r = regions.get(i);
+                if (r[0] <= rect[2] && r[2] >= rect[0] && r[1] <= rect[3] && r[3] >= rect[1]) {
+                    rect[0] = Math.min(rect[0], r[0]);
+                    rect[1] = Math.min(rect[1], r[1]);
+                    rect[2] = Math.max(rect[2], r[2]);
+                    rect[3] = Math.max(rect[3], r[3]);
+                    regions.remove(i);
+                    merged = true;
+                }
+            }
+        }
+        regions.add(rect);
+
+        if (regions.size() > maxRegions) {
+            double[] union = getBounds();
+            regions.clear();
+            regions.add(union);
+        }
+    }
+
+    public boolean isEmpty() {
+        return regions.isEmpty();
+    }
+
+    /**
+     * Restituisce i rettangoli correnti, disgiunti tra loro.
+     */
+    public List<double[]> getRegions() {
+        return regions;
+    }
+
+    /**
+     * Restituisce il rettangolo che contiene tutte le regioni, oppure null se
+     * non ci sono regioni.
+     */
+    public double[] getBounds() {
+        if (regions.isEmpty()) {
+            return null;
+        }
+        double[] bounds = {Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+            Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double[] r : regions) {
+            bounds[0] = Math.min(bounds[0], r[0]);
+            bounds[1] = Math.min(bounds[1], r[1]);
+            bounds[2] = Math.max(bounds[2], r[2]);
+            bounds[3] = Math.max(bounds[3], r[3]);
+        }
+        return bounds;
+    }
+
+    public void clear() {
+        regions.clear();
+    }
+}
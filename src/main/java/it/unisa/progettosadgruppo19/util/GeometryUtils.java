@@ -206,10 +206,10 @@ public final class GeometryUtils {
             return new double[]{0, 0, 0, 0};
         }
         
-        double minX = Double.MAX_VALUE;
-        double minY = Double.MAX_VALUE;
-        double maxX = Double.MIN_VALUE;
-        double maxY = Double.MIN_VALUE;
+        double minX = Double.POSITIVE_INFINITY;
+        double minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY;
+        double maxY = Double.NEGATIVE_INFINITY;
         
         for (int i = 0; i < points.size(); i += 2) {
             double x = points.get(i);
@@ -237,4 +237,151 @@ public final class GeometryUtils {
             (bbox[1] + bbox[3]) / 2   // centerY
         };
     }
+
+    // ---------------------------------------------------------------------
+    // Overload su array primitivi [x0,y0,x1,y1,...]: evitano il boxing dei
+    // Double e lavorano sulle prime {@code length} coordinate dell'array.
+    // Una coordinata finale spaiata (length dispari) viene ignorata.
+    // ---------------------------------------------------------------------
+
+    /**
+     * Ray casting su coordinate primitive.
+     *
+     * @param x coordinata X del punto
+     * @param y coordinata Y del punto
+     * @param coords coordinate del poligono
+     * @param length numero di coordinate valide in {@code coords}
+     * @return true se il punto è dentro il poligono
+     */
+    public static boolean isPointInPolygon(double x, double y, double[] coords, int length) {
+        length = evenLength(length);
+        if (length < 4) return false;
+
+        boolean inside = false;
+        for (int i = 0, j = length - 2; i < length; j = i, i += 2) {
+            double xi = coords[i], yi = coords[i + 1];
+            double xj = coords[j], yj = coords[j + 1];
+            if (((yi > y) != (yj > y)) && (x < (xj - xi) * (y - yi) / (yj - yi) + xi)) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Verifica se un punto è vicino ai bordi di un poligono a coordinate primitive.
+     */
+    public static boolean isNearPolygonBorder(double x, double y, double[] coords, int length, double tolerance) {
+        length = evenLength(length);
+        if (length < 4) return false;
+
+        for (int i = 0, j = length - 2; i < length; j = i, i += 2) {
+            if (isNearLine(x, y, coords[j], coords[j + 1], coords[i], coords[i + 1], tolerance)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Area (formula di Gauss) di un poligono a coordinate primitive.
+     */
+    public static double calculatePolygonArea(double[] coords, int length) {
+        length = evenLength(length);
+        if (length < 4) return 0;
+
+        double area = 0;
+        for (int i = 0, j = length - 2; i < length; j = i, i += 2) {
+            area += coords[j] * coords[i + 1] - coords[i] * coords[j + 1];
+        }
+        return Math.abs(area) / 2.0;
+    }
+
+    /**
+     * Perimetro di un poligono a coordinate primitive.
+     */
+    public static double calculatePolygonPerimeter(double[] coords, int length) {
+        length = evenLength(length);
+        if (length < 4) return 0;
+
+        double perimeter = 0;
+        for (int i = 0, j = length - 2; i < length; j = i, i += 2) {
+            perimeter += Math.hypot(coords[i] - coords[j], coords[i + 1] - coords[j + 1]);
+        }
+        return perimeter;
+    }
+
+    /**
+     * Verifica la convessità di un poligono a coordinate primitive.
+     */
+    public static boolean isPolygonConvex(double[] coords, int length) {
+        if (length < 6) return true;
+
+        int n = length / 2;
+        boolean positive = false, negative = false;
+        for (int i = 0; i < n; i++) {
+            int a = i * 2, b = ((i + 1) % n) * 2, c = ((i + 2) % n) * 2;
+            double cross = (coords[b] - coords[a]) * (coords[c + 1] - coords[b + 1])
+                    - (coords[b + 1] - coords[a + 1]) * (coords[c] - coords[b]);
+            if (cross > 0) positive = true;
+            if (cross < 0) negative = true;
+            if (positive && negative) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Bounding box [minX, minY, maxX, maxY] di coordinate primitive.
+     */
+    public static double[] calculateBoundingBox(double[] coords, int length) {
+        if (length < 2) {
+            return new double[]{0, 0, 0, 0};
+        }
+
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i + 1 < length; i += 2) {
+            double x = coords[i], y = coords[i + 1];
+            if (x < minX) minX = x;
+            if (x > maxX) maxX = x;
+            if (y < minY) minY = y;
+            if (y > maxY) maxY = y;
+        }
+        return new double[]{minX, minY, maxX, maxY};
+    }
+
+    /**
+     * Centro del bounding box di coordinate primitive.
+     */
+    public static double[] calculateCenter(double[] coords, int length) {
+        double[] bbox = calculateBoundingBox(coords, length);
+        return new double[]{(bbox[0] + bbox[2]) / 2, (bbox[1] + bbox[3]) / 2};
+    }
+
+    /**
+     * Trasla in place le prime {@code length} coordinate.
+     */
+    public static void translate(double[] coords, int length, double dx, double dy) {
+        for (int i = 0; i + 1 < length; i += 2) {
+            coords[i] += dx;
+            coords[i + 1] += dy;
+        }
+    }
+
+    /**
+     * Scala in place le prime {@code length} coordinate rispetto a (cx, cy).
+     */
+    public static void scale(double[] coords, int length, double cx, double cy, double sx, double sy) {
+        for (int i = 0; i + 1 < length; i += 2) {
+            coords[i] = cx + (coords[i] - cx) * sx;
+            coords[i + 1] = cy + (coords[i + 1] - cy) * sy;
+        }
+    }
+
+    /**
+     * Numero di coordinate che formano coppie complete (x, y).
+     */
+    private static int evenLength(int length) {
+        return length & ~1;
+    }
 }
@@ -0,0 +1,325 @@
+package it.unisa.progettosadgruppo19.util;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Log a livelli con scrittura asincrona.
+ * <p>
+ * Ogni classe ottiene il proprio logger con {@link #get(Class)}; il livello
+ * è quello del pacchetto configurato più specifico che la contiene. Un
+ * messaggio sotto il livello costa un confronto: le varianti con
+ * {@link Supplier} non costruiscono nemmeno la stringa. I messaggi abilitati
+ * vengono accodati in una {@link LogRingBuffer} senza lock e scritti su
+ * console da un thread demone, così che il thread JavaFX non attenda mai
+ * l'I/O. A coda piena i messaggi vengono scartati e il loro numero
+ * segnalato.
+ * <p>
+ * Il livello predefinito è {@link Level#WARN}: i messaggi diagnostici dei
+ * percorsi frequenti restano spenti. Si configura all'avvio con
+ * {@code -D}{@value #PROPERTY}, ad esempio
+ * {@code -Ddrawing.log=INFO,it.unisa.progettosadgruppo19.controller=DEBUG}:
+ * un livello senza pacchetto vale per tutti, gli altri per il pacchetto (o
+ * la classe) indicato e i suoi sottopacchetti.
+ */
+public final class Log {
+
+    /**
+     * Livelli in ordine di gravità crescente; {@link #OFF} spegne tutto.
+     */
+    public enum Level {
+        TRACE,
+        DEBUG,
+        INFO,
+        WARN,
+        ERROR,
+        OFF
+    }
+
+    public static final String PROPERTY = "drawing.log";
+
+    static final Level DEFAULT_LEVEL = Level.WARN;
+
+    private static final int BUFFER_CAPACITY = 8192;
+    private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(2);
+
+    // livello per prefisso di pacchetto; la chiave vuota è il livello radice
+    private static final Map<String, Level> LEVELS = new ConcurrentHashMap<>();
+    private static final Map<String, Log> LOGGERS = new ConcurrentHashMap<>();
+    private static final LogRingBuffer<Entry> BUFFER = new LogRingBuffer<>(BUFFER_CAPACITY);
+
+    private static volatile Consumer<Entry> writer = Log::print;
+    private static volatile Thread drainer;
+    private static volatile boolean drainerWaiting;
+    // messaggi scritti dal thread demone, confrontato con BUFFER.accepted()
+    private static volatile long written;
+
+    static {
+        configure(System.getProperty(PROPERTY));
+    }
+
+    /**
+     * Messaggio accodato, già formattato dal thread che l'ha prodotto.
+     */
+    static final class Entry {
+
+        final Level level;
+        final String logger;
+        final String message;
+        final Throwable thrown;
+
+        Entry(Level level, String logger, String message, Throwable thrown) {
+            this.level = level;
+            this.logger = logger;
+            this.message = message;
+            this.thrown = thrown;
+        }
+    }
+
+    private final String name;
+    private volatile Level level;
+
+    private Log(String name) {
+        this.name = name;
+        this.level = resolve(name);
+    }
+
+    /**
+     * Restituisce il logger della classe indicata.
+     */
+    public static Log get(Class<?> type) {
+        return get(type.getName());
+    }
+
+    /**
+     * Restituisce il logger con il nome indicato, di norma un nome di classe.
+     */
+    public static Log get(String name) {
+        return LOGGERS.computeIfAbsent(name, Log::new);
+    }
+
+    /**
+     * Sostituisce la configurazione dei livelli con quella indicata, nello
+     * stesso formato della proprietà {@value #PROPERTY}. Con null o stringa
+     * vuota torna al livello predefinito. Le voci non riconosciute vengono
+     * ignorate.
+     */
+    public static synchronized void configure(String spec) {
+        LEVELS.clear();
+        LEVELS.put("", DEFAULT_LEVEL);
+        if (spec != null) {
+            for (String item : spec.split(",")) {
+                int eq = item.indexOf('=');
+                String prefix = eq >= 0 ? item.substring(0, eq).trim() : "";
+                Level parsed = parseLevel(eq >= 0 ? item.substring(eq + 1) : item);
+                if (parsed != null) {
+                    LEVELS.put(prefix, parsed);
+                } else if (!item.isBlank()) {
+                    System.err.println("[LOG] Voce di configurazione non valida: " + item.trim());
+                }
+            }
+        }
+        refreshLevels();
+    }
+
+    /**
+     * Imposta il livello di un pacchetto o di una classe; con il prefisso
+     * vuoto imposta il livello radice.
+     */
+    public static synchronized void setLevel(String prefix, Level level) {
+        LEVELS.put(prefix, level);
+        refreshLevels();
+    }
+
+    private static void refreshLevels() {
+        for (Log log : LOGGERS.values()) {
+            log.level = resolve(log.name);
+        }
+    }
+
+    /**
+     * Livello del prefisso configurato più lungo che contiene il nome.
+     */
+    private static Level resolve(String name) {
+        String best = "";
+        for (String prefix : LEVELS.keySet()) {
+            if (prefix.length() > best.length()
+                    && name.startsWith(prefix)
+                    && (name.length() == prefix.length() || name.charAt(prefix.length()) == '.')) {
+                best = prefix;
+            }
+        }
+        return LEVELS.getOrDefault(best, DEFAULT_LEVEL);
+    }
+
+    private static Level parseLevel(String value) {
+        try {
+            return Level.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Level getLevel() {
+        return level;
+    }
+
+    public boolean isEnabled(Level level) {
+        return level != Level.OFF && level.compareTo(this.level) >= 0;
+    }
+
+    public boolean isDebugEnabled() {
+        return isEnabled(Level.DEBUG);
+    }
+
+    public void trace(Supplier<String> message) {
+        log(Level.TRACE, message, null);
+    }
+
+    public void debug(String message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public void debug(Supplier<String> message) {
+        log(Level.DEBUG, message, null);
+    }
+
+    public void info(String message) {
+        log(Level.INFO, message, null);
+    }
+
+    public void info(Supplier<String> message) {
+        log(Level.INFO, message, null);
+    }
+
+    public void warn(String message) {
+        log(Level.WARN, message, null);
+    }
+
+    public void warn(Supplier<String> message) {
+        log(Level.WARN, message, null);
+    }
+
+    public void error(String message) {
+        log(Level.ERROR, message, null);
+    }
+
+    public void error(String message, Throwable thrown) {
+        log(Level.ERROR, message, thrown);
+    }
+
+    private void log(Level level, Supplier<String> message, Throwable thrown) {
+        if (isEnabled(level)) {
+            enqueue(new Entry(level, name, message.get(), thrown));
+        }
+    }
+
+    private void log(Level level, String message, Throwable thrown) {
+        if (isEnabled(level)) {
+            enqueue(new Entry(level, name, message, thrown));
+        }
+    }
+
+    private static void enqueue(Entry entry) {
+        Thread thread = drainer;
+        if (thread == null) {
+            thread = startDrainer();
+        }
+        if (BUFFER.offer(entry) && drainerWaiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private static synchronized Thread startDrainer() {
+        if (drainer == null) {
+            Thread thread = new Thread(Log::drain, "log-writer");
+            thread.setDaemon(true);
+            thread.start();
+            drainer = thread;
+            Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+        }
+        return drainer;
+    }
+
+    /**
+     * Ciclo del thread demone: scrive i messaggi in ordine di accodamento e
+     * si sospende quando la coda è vuota.
+     */
+    private static void drain() {
+        while (true) {
+            Entry entry = BUFFER.poll();
+            if (entry != null) {
+                try {
+                    writer.accept(entry);
+                } catch (RuntimeException e) {
+                    System.err.println("[LOG] Errore di scrittura: " + e.getMessage());
+                }
+                written++;
+                continue;
+            }
+            long dropped = BUFFER.takeDropped();
+            if (dropped > 0) {
+                System.err.println("[LOG] " + dropped + " messaggi scartati: coda piena");
+            }
+            if (!BUFFER.isEmpty()) {
+                // posizione prenotata ma non ancora pubblicata
+                Thread.onSpinWait();
+                continue;
+            }
+            drainerWaiting = true;
+            if (BUFFER.isEmpty()) {
+                LockSupport.park();
+            }
+            drainerWaiting = false;
+        }
+    }
+
+    /**
+     * Attende, per al più un paio di secondi, che i messaggi accodati finora
+     * siano stati scritti. Usato alla chiusura e nei test.
+     */
+    public static void flush() {
+        Thread thread = drainer;
+        if (thread == null) {
+            return;
+        }
+        long target = BUFFER.accepted();
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+        LockSupport.unpark(thread);
+        while (written < target && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(100_000);
+        }
+    }
+
+    /**
+     * Sostituisce la destinazione dei messaggi, chiamata solo dal thread
+     * demone.
+     *
+     * @return la destinazione precedente
+     */
+    static Consumer<Entry> setWriter(Consumer<Entry> newWriter) {
+        Consumer<Entry> previous = writer;
+        writer = newWriter != null ? newWriter : Log::print;
+        return previous;
+    }
+
+    private static void print(Entry entry) {
+        if (entry.level.compareTo(Level.WARN) >= 0) {
+            System.err.println(entry.message);
+            if (entry.thrown != null) {
+                entry.thrown.printStackTrace();
+            }
+        } else {
+            System.out.println(entry.message);
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package it.unisa.progettosadgruppo19.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Coda circolare limitata, senza lock, con più produttori e un solo
+ * consumatore.
+ * <p>
+ * Un produttore prenota una posizione incrementando {@code tail} con una CAS
+ * e vi pubblica l'elemento; il consumatore legge le posizioni in ordine a
+ * partire da {@code head} e le svuota. Una posizione prenotata ma non ancora
+ * pubblicata ferma il consumatore fino alla pubblicazione. A coda piena
+ * l'elemento viene scartato e conteggiato: chi produce non resta mai in
+ * attesa.
+ */
+final class LogRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    // scritto solo dal consumatore
+    private volatile long head;
+
+    /**
+     * @param capacity capacità, arrotondata alla potenza di due successiva
+     */
+    LogRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Accoda un elemento.
+     *
+     * @return false se la coda è piena e l'elemento è stato scartato
+     */
+    boolean offer(T item) {
+        while (true) {
+            long t = tail.get();
+            if (t - head >= slots.length()) {
+                dropped.incrementAndGet();
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.set((int) t & mask, item);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Estrae il primo elemento; solo dal thread consumatore.
+     *
+     * @return l'elemento, oppure null se non ce ne sono di pubblicati
+     */
+    T poll() {
+        long h = head;
+        int index = (int) h & mask;
+        T item = slots.get(index);
+        if (item == null) {
+            return null;
+        }
+        slots.set(index, null);
+        head = h + 1;
+        return item;
+    }
+
+    boolean isEmpty() {
+        return head == tail.get();
+    }
+
+    /**
+     * Numero totale di elementi accettati dalla creazione della coda.
+     */
+    long accepted() {
+        return tail.get();
+    }
+
+    int capacity() {
+        return slots.length();
+    }
+
+    /**
+     * Restituisce e azzera il numero di elementi scartati a coda piena.
+     */
+    long takeDropped() {
+        return dropped.getAndSet(0);
+    }
+}
@@ -0,0 +1,329 @@
+package it.unisa.progettosadgruppo19.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * R-tree in memoria per rettangoli allineati agli assi.
+ * <p>
+ * Gli elementi sono indicizzati per identità: ogni elemento compare al più una
+ * volta e può essere aggiornato o rimosso in O(log n) senza dover conoscere i
+ * bounds precedenti. Le ricerche per punto o per rettangolo visitano solo i
+ * nodi i cui bounds intersecano l'area richiesta.
+ *
+ * @param <T> tipo degli elementi indicizzati
+ */
+public class RTree<T> {
+
+    private static final int MAX_ENTRIES = 16;
+
+    /**
+     * Nodo dell'albero: le foglie contengono {@link Entry}, i nodi interni
+     * contengono altri {@link TreeNode}.
+     */
+    private static final class TreeNode {
+        final boolean leaf;
+        final List<Object> children = new ArrayList<>(MAX_ENTRIES + 1);
+        TreeNode parent;
+        double minX, minY, maxX, maxY;
+
+        TreeNode(boolean leaf) {
+            this.leaf = leaf;
+            resetBounds();
+        }
+
+        void resetBounds() {
+            minX = Double.POSITIVE_INFINITY;
+            minY = Double.POSITIVE_INFINITY;
+            maxX = Double.NEGATIVE_INFINITY;
+            maxY = Double.NEGATIVE_INFINITY;
+        }
+    }
+
+    /**
+     * Elemento indicizzato con i relativi bounds.
+     */
+    private static final class Entry<T> {
+        final T item;
+        double minX, minY, maxX, maxY;
+        TreeNode leaf;
+
+        Entry(T item) {
+            this.item = item;
+        }
+    }
+
+    private final Map<T, Entry<T>> entries = new IdentityHashMap<>();
+    private TreeNode root = new TreeNode(true);
+
+    /**
+     * Inserisce un elemento o ne aggiorna i bounds se già presente.
+     */
+    public void insert(T item, double minX, double minY, double maxX, double maxY) {
+        Entry<T> entry = entries.get(item);
+        if (entry != null) {
+            update(item, minX, minY, maxX, maxY);
+            return;
+        }
+        entry = new Entry<>(item);
+        setBounds(entry, minX, minY, maxX, maxY);
+        entries.put(item, entry);
+        insertEntry(entry);
+    }
+
+    /**
+     * Aggiorna i bounds di un elemento già indicizzato (lo inserisce se assente).
+     */
+    public void update(T item, double minX, double minY, double maxX, double maxY) {
+        Entry<T> entry = entries.get(item);
+        if (entry == null) {
+            insert(item, minX, minY, maxX, maxY);
+            return;
+        }
+        if (entry.minX == minX && entry.minY == minY && entry.maxX == maxX && entry.maxY == maxY) {
+            return;
+        }
+        detach(entry);
+        setBounds(entry, minX, minY, maxX, maxY);
+        insertEntry(entry);
+    }
+
+    /**
+     * Rimuove un elemento dall'indice.
+     *
+     * @return true se l'elemento era presente
+     */
+    public boolean remove(T item) {
+        Entry<T> entry = entries.remove(item);
+        if (entry == null) {
+            return false;
+        }
+        detach(entry);
+        return true;
+    }
+
+    public boolean contains(T item) {
+        return entries.containsKey(item);
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public void clear() {
+        entries.clear();
+        root = new TreeNode(true);
+    }
+
+    /**
+     * Restituisce gli elementi i cui bounds intersecano il rettangolo dato.
+     */
+    public List<T> search(double minX, double minY, double maxX, double maxY) {
+        List<T> result = new ArrayList<>();
+        search(minX, minY, maxX, maxY, result::add);
+        return result;
+    }
+
+    /**
+     * Visita gli elementi i cui bounds intersecano il rettangolo dato, senza
+     * allocare liste intermedie.
+     */
+    @SuppressWarnings("unchecked")
+    public void search(double minX, double minY, double maxX, double maxY, Consumer<? super T> visitor) {
+        if (entries.isEmpty()) {
+            return;
+        }
+        Deque<TreeNode> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            TreeNode node = stack.pop();
+            for (Object child : node.children) {
+                if (node.leaf) {
+                    Entry<T> e = (Entry<T>) child;
+                    if (intersects(e.minX, e.minY, e.maxX, e.maxY, minX, minY, maxX, maxY)) {
+                        visitor.accept(e.item);
+                    }
+                } else {
+                    TreeNode n = (TreeNode) child;
+                    if (intersects(n.minX, n.minY, n.maxX, n.maxY, minX, minY, maxX, maxY)) {
+                        stack.push(n);
+                    }
+                }
+            }
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Inserimento
+    // ---------------------------------------------------------------------
+
+    private void insertEntry(Entry<T> entry) {
+        TreeNode leaf = chooseLeaf(entry);
+        leaf.children.add(entry);
+        entry.leaf = leaf;
+        include(leaf, entry.minX, entry.minY, entry.maxX, entry.maxY);
+
+        TreeNode node = leaf;
+        while (node != null) {
+            if (node.children.size() > MAX_ENTRIES) {
+                split(node);
+            } else if (node.parent != null) {
+                include(node.parent, node.minX, node.minY, node.maxX, node.maxY);
+            }
+            node = node.parent;
+        }
+    }
+
+    private TreeNode chooseLeaf(Entry<T> entry) {
+        TreeNode node = root;
+        while (!node.leaf) {
+            TreeNode best = null;
+            double bestEnlargement = Double.POSITIVE_INFINITY;
+            double bestArea = Double.POSITIVE_INFINITY;
+            for (Object child : node.children) {
+                TreeNode n = (TreeNode) child;
+                double area = area(n.minX, n.minY, n.maxX, n.maxY);
+                double enlarged = area(Math.min(n.minX, entry.minX), Math.min(n.minY, entry.minY),
+                        Math.max(n.maxX, entry.maxX), Math.max(n.maxY, entry.maxY));
+                double enlargement = enlarged - area;
+                if (enlargement < bestEnlargement || (enlargement == bestEnlargement && area < bestArea)) {
+                    best = n;
+                    bestEnlargement = enlargement;
+                    bestArea = area;
+                }
+            }
+            node = best;
+        }
+        return node;
+    }
+
+    /**
+     * Divide un nodo pieno ordinando i figli lungo l'asse di maggiore
+     * estensione e separandoli a metà.
+     */
+    @SuppressWarnings("unchecked")
+    private void split(TreeNode node) {
+        List<Object> children = new ArrayList<>(node.children);
+        boolean byX = (node.maxX - node.minX) >= (node.maxY - node.minY);
+        children.sort((a, b) -> Double.compare(center(a, byX), center(b, byX)));
+
+        int half = children.size() / 2;
+        TreeNode sibling = new TreeNode(node.leaf);
+        node.children.clear();
+        node.resetBounds();
+
+        for (int i = 0; i < children.size(); i++) {
+            TreeNode target = i < half ? node : sibling;
+            Object child = children.get(i);
+            target.children.add(child);
+            if (node.leaf) {
+                Entry<T> e = (Entry<T>) child;
+                e.leaf = target;
+                include(target, e.minX, e.minY, e.maxX, e.maxY);
+            } else {
+                TreeNode n = (TreeNode) child;
+                n.parent = target;
+                include(target, n.minX, n.minY, n.maxX, n.maxY);
+            }
+        }
+
+        if (node.parent == null) {
+            TreeNode newRoot = new TreeNode(false);
+            newRoot.children.add(node);
+            newRoot.children.add(sibling);
+            node.parent = newRoot;
+            sibling.parent = newRoot;
+            recomputeBounds(newRoot);
+            root = newRoot;
+        } else {
+            sibling.parent = node.parent;
+            node.parent.children.add(sibling);
+            recomputeBounds(node.parent);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private double center(Object child, boolean byX) {
+        if (child instanceof TreeNode n) {
+            return byX ? n.minX + n.maxX : n.minY + n.maxY;
+        }
+        Entry<T> e = (Entry<T>) child;
+        return byX ? e.minX + e.maxX : e.minY + e.maxY;
+    }
+
+    // ---------------------------------------------------------------------
+    // Rimozione
+    // ---------------------------------------------------------------------
+
+    /**
+     * Stacca l'entry dalla sua foglia, eliminando i nodi rimasti vuoti e
+     * restringendo i bounds degli antenati.
+     */
+    private void detach(Entry<T> entry) {
+        TreeNode node = entry.leaf;
+        node.children.remove(entry);
+        entry.leaf = null;
+
+        while (node != root && node.children.isEmpty()) {
+            TreeNode parent = node.parent;
+            parent.children.remove(node);
+            node.parent = null;
+            node = parent;
+        }
+        for (TreeNode n = node; n != null; n = n.parent) {
+            recomputeBounds(n);
+        }
+        if (!root.leaf && root.children.size() == 1) {
+            root = (TreeNode) root.children.get(0);
+            root.parent = null;
+        } else if (root.children.isEmpty() && !root.leaf) {
+            root = new TreeNode(true);
+        }
+    }
+
+    // ---------------------------------------------------------------------
+    // Utilità sui bounds
+    // ---------------------------------------------------------------------
+
+    @SuppressWarnings("unchecked")
+    private void recomputeBounds(TreeNode node) {
+        node.resetBounds();
+        for (Object child : node.children) {
+            if (node.leaf) {
+                Entry<T> e = (Entry<T>) child;
+                include(node, e.minX, e.minY, e.maxX, e.maxY);
+            } else {
+                TreeNode n = (TreeNode) child;
+                include(node, n.minX, n.minY, n.maxX, n.maxY);
+            }
+        }
+    }
+
+    private static void include(TreeNode node, double minX, double minY, double maxX, double maxY) {
+        node.minX = Math.min(node.minX, minX);
+        node.minY = Math.min(node.minY, minY);
+        node.maxX = Math.max(node.maxX, maxX);
+        node.maxY = Math.max(node.maxY, maxY);
+    }
+
+    private static void setBounds(Entry<?> entry, double minX, double minY, double maxX, double maxY) {
+        entry.minX = Math.min(minX, maxX);
+        entry.minY = Math.min(minY, maxY);
+        entry.maxX = Math.max(minX, maxX);
+        entry.maxY = Math.max(minY, maxY);
+    }
+
+    private static double area(double minX, double minY, double maxX, double maxY) {
+        return (maxX - minX) * (maxY - minY);
+    }
+
+    private static boolean intersects(double aMinX, double aMinY, double aMaxX, double aMaxY,
+                                      double bMinX, double bMinY, double bMaxX, double bMaxY) {
+        return aMinX <= bMaxX && aMaxX >= bMinX && aMinY <= bMaxY && aMaxY >= bMinY;
+    }
+}
@@ -0,0 +1,221 @@
+package it.unisa.progettosadgruppo19.command;
+
+import it.unisa.progettosadgruppo19.command.commands.Move;
+import it.unisa.progettosadgruppo19.command.commands.Rotate;
+import it.unisa.progettosadgruppo19.controller.ShapeManager;
+import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javafx.scene.layout.Pane;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class StackUndoInvokerTest {
+
+    /**
+     * Comando di prova che registra le esecuzioni su un contatore condiviso.
+     */
+    private static class CounterCommand implements UndoableCommand {
+
+        private final int[] counter;
+
+        CounterCommand(int[] counter) {
+            this.counter = counter;
+        }
+
+        @Override
+        public void execute() {
+            counter[0]++;
+        }
+
+        @Override
+        public void undo() {
+            counter[0]--;
+        }
+    }
+
+    /**
+     * Comando che trattiene una shape rimossa, come una cancellazione.
+     */
+    private static class HoldShapeCommand implements UndoableCommand {
+
+        private final Shape deleted;
+
+        HoldShapeCommand(Shape deleted) {
+            this.deleted = deleted;
+        }
+
+        @Override
+        public void execute() {
+        }
+
+        @Override
+        public void undo() {
+        }
+    }
+
+    @Test
+    public void testUndoRedo() {
+        int[] counter = {0};
+        StackUndoInvoker invoker = new StackUndoInvoker();
+        invoker.execute(new CounterCommand(counter));
+        invoker.execute(new CounterCommand(counter));
+        assertEquals(2, counter[0]);
+
+        invoker.undo();
+        invoker.undo();
+        invoker.undo(); // cronologia vuota: nessun effetto
+        assertEquals(0, counter[0]);
+        assertEquals(2, invoker.getRedoCount());
+
+        invoker.redo();
+        assertEquals(1, counter[0]);
+        assertTrue(invoker.canUndo());
+        assertTrue(invoker.canRedo());
+
+        // un nuovo comando svuota i redo
+        invoker.execute(new CounterCommand(counter));
+        assertFalse(invoker.canRedo());
+        assertEquals(2, invoker.getUndoCount());
+    }
+
+    @Test
+    public void testCountBudgetEvictsOldest() {
+        int[] counter = {0};
+        StackUndoInvoker invoker = new StackUndoInvoker(3, Long.MAX_VALUE);
+        for (int i = 0; i < 10; i++) {
+            invoker.execute(new CounterCommand(counter));
+        }
+        assertEquals(3, invoker.getUndoCount());
+        assertEquals(7, invoker.getEvictedCommands());
+
+        for (int i = 0; i < 5; i++) {
+            invoker.undo();
+        }
+        assertEquals(7, counter[0]);
+    }
+
+    @Test
+    public void testByteBudgetCountsRetainedShapes() {
+        List<Shape> shapes = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            shapes.add(new RectangleShape(i, i, 10, 10));
+        }
+        long single = CommandSizeEstimator.estimate(new HoldShapeCommand(shapes.get(0)));
+        assertTrue(single >= CommandSizeEstimator.SHAPE_OVERHEAD);
+
+        StackUndoInvoker invoker = new StackUndoInvoker(100, single * 2);
+        for (Shape shape : shapes) {
+            invoker.execute(new HoldShapeCommand(shape));
+        }
+        assertEquals(2, invoker.getUndoCount());
+        assertEquals(1, invoker.getEvictedCommands());
+        assertTrue(invoker.getRetainedBytes() <= invoker.getMaxBytes());
+
+        // il comando più recente resta anche se da solo supera il budget
+        invoker.setMaxBytes(1);
+        assertEquals(1, invoker.getUndoCount());
+    }
+
+    @Test
+    public void testPolygonEstimateGrowsWithVertices() {
+        FreeFormPolygonShape small = new FreeFormPolygonShape(0, 0, javafx.scene.paint.Color.BLACK);
+        FreeFormPolygonShape big = new FreeFormPolygonShape(0, 0, javafx.scene.paint.Color.BLACK);
+        for (int i = 0; i < 1000; i++) {
+            big.addPoint(i, i);
+        }
+        assertTrue(CommandSizeEstimator.estimateShape(big) > CommandSizeEstimator.estimateShape(small) + 1000 * 16);
+    }
+
+    @Test
+    public void testSealedEntryIsNotExtended() {
+        long[] now = {0};
+        StackUndoInvoker invoker = new StackUndoInvoker(100, Long.MAX_VALUE, () -> now[0]);
+        ShapeManager manager = new ShapeManager(new ArrayList<>(), new Pane());
+        RectangleShape rect = new RectangleShape(0, 0, 10, 10);
+        manager.addShape(rect);
+
+        // due gesti distinti entro la finestra di fusione
+        invoker.execute(new Rotate(manager, rect, 10));
+        invoker.sealLast();
+        now[0] += 100_000_000L;
+        invoker.execute(new Rotate(manager, rect, 20));
+        assertEquals(2, invoker.getUndoCount());
+        assertEquals(0, invoker.getMergedCommands());
+
+        invoker.undo();
+        assertEquals(10, rect.getRotation(), 1e-9);
+    }
+
+    @Test
+    public void testRotationsWithinWindowAreMerged() {
+        long[] now = {0};
+        StackUndoInvoker invoker = new StackUndoInvoker(100, Long.MAX_VALUE, () -> now[0]);
+        ShapeManager manager = new ShapeManager(new ArrayList<>(), new Pane());
+        RectangleShape rect = new RectangleShape(0, 0, 10, 10);
+        manager.addShape(rect);
+
+        for (int deg = 10; deg <= 50; deg += 10) {
+            invoker.execute(new Rotate(manager, rect, deg));
+            now[0] += 100_000_000L; // 100 ms
+        }
+        assertEquals(1, invoker.getUndoCount());
+        assertEquals(4, invoker.getMergedCommands());
+        assertEquals(50, rect.getRotation(), 1e-9);
+
+        invoker.undo();
+        assertEquals(0, rect.getRotation(), 1e-9);
+        invoker.redo();
+        assertEquals(50, rect.getRotation(), 1e-9);
+
+        // dopo un redo la voce è chiusa: una nuova rotazione crea una nuova voce
+        invoker.execute(new Rotate(manager, rect, 60));
+        assertEquals(2, invoker.getUndoCount());
+
+        // oltre la finestra non si fonde
+        now[0] += 2_000_000_000L;
+        invoker.execute(new Rotate(manager, rect, 70));
+        assertEquals(3, invoker.getUndoCount());
+    }
+
+    @Test
+    public void testMovesOfDifferentShapesAreNotMerged() {
+        StackUndoInvoker invoker = new StackUndoInvoker(100, Long.MAX_VALUE, () -> 0L);
+        Pane pane = new Pane();
+        pane.resize(500, 500);
+        RectangleShape a = new RectangleShape(0, 0, 10, 10);
+        RectangleShape b = new RectangleShape(0, 0, 10, 10);
+        pane.getChildren().addAll(a.getNode(), b.getNode());
+
+        invoker.execute(new Move(a, 0, 0, 10, 10));
+        invoker.execute(new Move(a, 10, 10, 20, 20));
+        invoker.execute(new Move(b, 0, 0, 5, 5));
+        assertEquals(2, invoker.getUndoCount());
+
+        invoker.undo();
+        invoker.undo();
+        assertEquals(0, a.getX(), 1e-9);
+        assertEquals(0, b.getX(), 1e-9);
+    }
+
+    @Test
+    public void testListenersAreNotifiedOfEveryOperation() {
+        StackUndoInvoker invoker = new StackUndoInvoker();
+        int[] counter = {0};
+        List<String> events = new ArrayList<>();
+        invoker.addHistoryListener((operation, command) -> events.add(operation + ":" + counter[0]));
+
+        invoker.execute(new CounterCommand(counter));
+        invoker.undo();
+        invoker.redo();
+        invoker.undo();
+        invoker.undo(); // stack vuoto: nessuna notifica
+
+        assertEquals(List.of("EXECUTE:1", "UNDO:0", "REDO:1", "UNDO:0"), events);
+    }
+}
@@ -0,0 +1,100 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static it.unisa.progettosadgruppo19.controller.ShapeDataTestUtils.xs;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DrawingDeltaTest {
+
+    private static final int TRACK = AbstractShape.TRACK_JOURNAL;
+
+    @Test
+    public void testChangesTrackedByShapeListAreUsedWithoutScanning() {
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        RectangleShape b = new RectangleShape(50, 10, 20, 20);
+        RectangleShape c = new RectangleShape(90, 10, 20, 20);
+        ShapeList shapes = new ShapeList();
+        shapes.addAll(List.of(a, b, c));
+        DrawingDelta.full(shapes, TRACK, 0, 1);
+
+        long stamp = AbstractShape.currentModificationStamp();
+        b.setX(100);
+        shapes.remove(c);
+        RectangleShape d = new RectangleShape(200, 10, 20, 20);
+        shapes.add(d);
+
+        DrawingDelta delta = DrawingDelta.compute(shapes, TRACK, 1, 3, stamp, 2);
+        // le shape rimaste mantengono la generazione: nessuna è stata rimarcata
+        assertEquals(1, delta.generation);
+        assertArrayEquals(new int[]{2}, delta.removed);
+        assertArrayEquals(new int[]{1}, delta.updatePositions);
+        assertArrayEquals(new double[]{100}, xs(delta.updates), 1e-9);
+        assertArrayEquals(new double[]{200}, xs(delta.appends), 1e-9);
+        assertEquals(-1, c.getSavedSlot(TRACK, 1));
+        assertEquals(2, d.getSavedSlot(TRACK, 1));
+
+        stamp = AbstractShape.currentModificationStamp();
+        a.setX(5);
+        delta = DrawingDelta.compute(shapes, TRACK, 1, 3, stamp, 2);
+        assertEquals(1, delta.generation);
+        assertEquals(0, delta.removed.length);
+        assertArrayEquals(new int[]{0}, delta.updatePositions);
+        assertTrue(delta.appends.isEmpty());
+    }
+
+    @Test
+    public void testRemovalBeforeTheTailFallsBackToScan() {
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        RectangleShape b = new RectangleShape(50, 10, 20, 20);
+        ShapeList shapes = new ShapeList();
+        shapes.addAll(List.of(a, b));
+        DrawingDelta.full(shapes, TRACK, 0, 1);
+
+        long stamp = AbstractShape.currentModificationStamp();
+        shapes.remove(a);
+        DrawingDelta delta = DrawingDelta.compute(shapes, TRACK, 1, 2, stamp, 2);
+        assertEquals(2, delta.generation);
+        assertEquals(0, b.getSavedSlot(TRACK, 2));
+
+        // dopo la scansione le modifiche tornano a essere raccolte
+        stamp = AbstractShape.currentModificationStamp();
+        b.setX(70);
+        delta = DrawingDelta.compute(shapes, TRACK, 2, 1, stamp, 3);
+        assertEquals(2, delta.generation);
+        assertArrayEquals(new int[]{0}, delta.updatePositions);
+    }
+
+    @Test
+    public void testReinsertedShapeFallsBackToScan() {
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        RectangleShape b = new RectangleShape(50, 10, 20, 20);
+        ShapeList shapes = new ShapeList();
+        shapes.addAll(List.of(a, b));
+        DrawingDelta.full(shapes, TRACK, 0, 1);
+
+        long stamp = AbstractShape.currentModificationStamp();
+        shapes.remove(b);
+        shapes.add(0, b);
+        DrawingDelta delta = DrawingDelta.compute(shapes, TRACK, 1, 2, stamp, 2);
+        assertNull(delta);
+    }
+
+    @Test
+    public void testPlainListIsScanned() {
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        List<AbstractShape> shapes = new ArrayList<>(List.of(a));
+        DrawingDelta.full(shapes, TRACK, 0, 1);
+
+        long stamp = AbstractShape.currentModificationStamp();
+        a.setX(30);
+        DrawingDelta delta = DrawingDelta.compute(shapes, TRACK, 1, 1, stamp, 2);
+        assertEquals(2, delta.generation);
+        assertArrayEquals(new int[]{0}, delta.updatePositions);
+    }
+}
@@ -0,0 +1,77 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import javafx.scene.layout.Pane;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GridManagerTest {
+
+    private Pane pane;
+    private GridManager grid;
+
+    @BeforeEach
+    void setUp() {
+        pane = new Pane();
+        pane.resize(3840, 2160);
+        grid = new GridManager(pane);
+    }
+
+    @Test
+    public void testGridIsSingleNodeAtBottom() {
+        ShapeManager manager = new ShapeManager(new ArrayList<>(), pane);
+        manager.addShape(new RectangleShape(10, 10, 20, 20));
+
+        grid.setSpacing(5);
+        grid.toggleGrid();
+
+        assertEquals(2, pane.getChildren().size());
+        assertSame(grid.getGridNode(), pane.getChildren().get(0));
+        assertEquals(1, grid.getGridLayerCount());
+        // 768 verticali + 432 orizzontali, due elementi ciascuna
+        assertEquals((768 + 432) * 2, grid.getGridNode().getElements().size());
+        assertEquals(0, ShapeSpatialIndex.of(pane).query(1000, 1000, 1).size());
+    }
+
+    @Test
+    public void testToggleOnlyChangesVisibility() {
+        grid.toggleGrid();
+        var elements = grid.getGridNode().getElements().get(0);
+
+        grid.toggleGrid();
+        assertFalse(grid.isGridVisible());
+        assertFalse(grid.getGridNode().isVisible());
+        assertEquals(1, pane.getChildren().size());
+
+        grid.toggleGrid();
+        assertTrue(grid.isGridVisible());
+        assertSame(elements, grid.getGridNode().getElements().get(0));
+    }
+
+    @Test
+    public void testRebuildOnResizeAndReattachAfterClear() {
+        grid.setSpacing(100);
+        grid.toggleGrid();
+        int before = grid.getGridNode().getElements().size();
+
+        pane.resize(1000, 500);
+        assertTrue(grid.getGridNode().getElements().size() < before);
+
+        pane.getChildren().clear();
+        assertEquals(0, grid.getGridLayerCount());
+        grid.toggleGrid();
+        assertTrue(grid.isGridVisible());
+        assertEquals(1, grid.getGridLayerCount());
+    }
+
+    @Test
+    public void testZoomKeepsStrokeThin() {
+        grid.setZoom(2.0);
+        assertEquals(0.5, grid.getGridNode().getStrokeWidth(), 1e-9);
+        assertEquals(1.0, grid.getGridNode().getStrokeDashArray().get(0), 1e-9);
+    }
+}
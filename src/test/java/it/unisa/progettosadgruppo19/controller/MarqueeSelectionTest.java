@@ -0,0 +1,96 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import it.unisa.progettosadgruppo19.model.shapes.Shape;
+import javafx.scene.layout.Pane;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MarqueeSelectionTest {
+
+    private Pane pane;
+    private ShapeManager manager;
+    private MarqueeSelection marquee;
+
+    @BeforeEach
+    void setUp() {
+        pane = new Pane();
+        manager = new ShapeManager(new ArrayList<>(), pane);
+        marquee = new MarqueeSelection(ShapeSpatialIndex.of(pane));
+    }
+
+    private AbstractShape addRect(double x, double y, double w, double h) {
+        AbstractShape shape = new RectangleShape(x, y, w, h);
+        shape.getNode().setUserData(shape);
+        manager.addShape(shape);
+        return shape;
+    }
+
+    @Test
+    public void testContainsModeSelectsOnlyEnclosedShapes() {
+        AbstractShape inside = addRect(10, 10, 20, 20);
+        addRect(90, 90, 40, 40);   // a cavallo del bordo
+        addRect(300, 300, 10, 10); // fuori
+
+        List<Shape> found = marquee.collect(0, 0, 100, 100, MarqueeSelection.Mode.CONTAINS);
+
+        assertEquals(List.of(inside), found);
+    }
+
+    @Test
+    public void testIntersectsModeIncludesCrossingShapes() {
+        AbstractShape inside = addRect(10, 10, 20, 20);
+        AbstractShape crossing = addRect(90, 90, 40, 40);
+        addRect(300, 300, 10, 10);
+
+        List<Shape> found = marquee.collect(0, 0, 100, 100, MarqueeSelection.Mode.INTERSECTS);
+
+        assertEquals(2, found.size());
+        assertTrue(found.contains(inside));
+        assertTrue(found.contains(crossing));
+    }
+
+    @Test
+    public void testDragDirectionSelectsModeAndRemovesRectangle() {
+        marquee.start(100, 100);
+        assertEquals(1, pane.getChildren().size());
+        marquee.update(20, 50);
+        assertEquals(MarqueeSelection.Mode.INTERSECTS, marquee.getMode());
+
+        marquee.finish(20, 50);
+
+        assertFalse(marquee.isActive());
+        assertTrue(pane.getChildren().isEmpty());
+        assertEquals(0, ShapeSpatialIndex.of(pane).size());
+    }
+
+    @Test
+    public void testBulkSelectionOfManyShapes() {
+        for (int i = 0; i < 2000; i++) {
+            addRect((i % 50) * 20, (i / 50) * 20, 10, 10);
+        }
+        MultipleSelectionManager selection = new MultipleSelectionManager();
+        selection.setMultipleSelectionMode(true);
+
+        List<Shape> found = marquee.collect(-5, -5, 495, 2000, MarqueeSelection.Mode.CONTAINS);
+        assertEquals(25 * 40, found.size());
+        assertEquals(found.size(), selection.selectShapes(found, false));
+
+        // Sostituzione: restano selezionate solo le nuove shape
+        List<Shape> others = marquee.collect(495, -5, 1000, 2000, MarqueeSelection.Mode.CONTAINS);
+        selection.selectShapes(others, false);
+        assertEquals(others.size(), selection.getSelectionCount());
+        assertFalse(selection.isSelected(found.get(0)));
+
+        // Aggiunta: le shape già selezionate non vengono contate
+        assertEquals(found.size(), selection.addAllToSelection(found));
+        assertEquals(0, selection.addAllToSelection(others));
+        assertEquals(2000, selection.getSelectionCount());
+    }
+}
@@ -1,7 +1,12 @@
 package it.unisa.progettosadgruppo19.controller;
 
+import it.unisa.progettosadgruppo19.command.StackUndoInvoker;
 import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
 import javafx.application.Platform;
+import javafx.scene.input.MouseButton;
+import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import org.junit.jupiter.api.BeforeAll;
@@ -58,4 +63,52 @@ public class MouseEventHandlerTest {
         handler.setFillColor(Color.BLUE);
         assertTrue(true); // solo verifica che non lancia eccezioni
     }
+
+    private static MouseEvent mouse(javafx.event.EventType<MouseEvent> type, double x, double y) {
+        return new MouseEvent(type, x, y, x, y, MouseButton.PRIMARY, 1,
+                false, false, false, false, true, false, false, false, false, false, null);
+    }
+
+    @Test
+    public void testDragIsAppliedOncePerPulse() {
+        pane.resize(800, 600);
+        RectangleShape rect = new RectangleShape(100, 100, 40, 40);
+        shapes.add(rect);
+        pane.getChildren().add(rect.getNode());
+        handler.setInvoker(new StackUndoInvoker());
+        handler.setManualDragPulse(true);
+        handler.setSelectedShapeInstance(rect);
+
+        handler.onPressed(mouse(MouseEvent.MOUSE_PRESSED, 120, 120));
+        for (int i = 1; i <= 20; i++) {
+            handler.onDragged(mouse(MouseEvent.MOUSE_DRAGGED, 120 + i, 120 + i * 2));
+        }
+        // nessun pulse: la geometria non è ancora cambiata
+        assertEquals(100, rect.getX(), 1e-9);
+
+        handler.flushPendingDrag();
+        assertEquals(120, rect.getX(), 1e-9);
+        assertEquals(140, rect.getY(), 1e-9);
+
+        // il rilascio applica l'ultima posizione prima di chiudere il gesto
+        handler.onDragged(mouse(MouseEvent.MOUSE_DRAGGED, 150, 160));
+        handler.onReleased(mouse(MouseEvent.MOUSE_RELEASED, 150, 160));
+        assertEquals(130, rect.getX(), 1e-9);
+        assertEquals(140, rect.getY(), 1e-9);
+    }
+
+    @Test
+    public void testPolygonBorderIsHitWithinTolerance() {
+        FreeFormPolygonShape triangle = new FreeFormPolygonShape(0, 0, Color.BLACK);
+        triangle.addPoint(100, 0);
+        triangle.addPoint(0, 100);
+        triangle.getNode().setUserData(triangle);
+        shapes.add(triangle);
+        pane.getChildren().add(triangle.getNode());
+
+        assertSame(triangle, handler.findShapeAtPoint(20, 20));
+        // fuori dal riempimento ma a pochi pixel dal lato obliquo
+        assertSame(triangle, handler.findShapeAtPoint(55, 50));
+        assertNull(handler.findShapeAtPoint(90, 90));
+    }
 }
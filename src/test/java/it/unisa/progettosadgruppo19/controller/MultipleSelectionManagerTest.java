@@ -0,0 +1,48 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MultipleSelectionManagerTest {
+
+    private MultipleSelectionManager manager;
+    private int notifications;
+
+    @BeforeEach
+    void setUp() {
+        manager = new MultipleSelectionManager();
+        manager.addSelectionListener(() -> notifications++);
+    }
+
+    @Test
+    public void testOnlyRealChangesAreNotified() {
+        AbstractShape a = new RectangleShape(0, 0, 10, 10);
+        AbstractShape b = new RectangleShape(20, 20, 10, 10);
+
+        manager.setMultipleSelectionMode(true);
+        assertEquals(1, notifications);
+        manager.setMultipleSelectionMode(true);
+        assertEquals(1, notifications);
+
+        manager.addToSelection(a);
+        manager.addToSelection(a);
+        assertEquals(2, notifications);
+
+        // una selezione in blocco produce una sola notifica
+        manager.selectShapes(List.of(a, b), false);
+        assertEquals(3, notifications);
+        manager.selectShapes(List.of(a, b), false);
+        assertEquals(3, notifications);
+
+        manager.clearSelection();
+        manager.clearSelection();
+        assertEquals(4, notifications);
+        assertFalse(manager.hasSelection());
+    }
+}
@@ -0,0 +1,129 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import javafx.scene.layout.Pane;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProgressiveLoaderTest {
+
+    private ShapeFileManager fileManager;
+    private Pane pane;
+    private List<AbstractShape> currentShapes;
+    private ProgressiveLoader loader;
+    private File file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        fileManager = new ShapeFileManager();
+        pane = new Pane();
+        currentShapes = new ArrayList<>();
+        loader = new ProgressiveLoader(fileManager, pane, currentShapes);
+        loader.setBatchSize(100);
+
+        List<AbstractShape> shapes = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            shapes.add(new RectangleShape(i, i * 2, 10, 10));
+        }
+        file = File.createTempFile("progressive", ".bin");
+        file.deleteOnExit();
+        fileManager.saveToFile(shapes, file);
+    }
+
+    private void awaitDecoded() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!loader.isDecodeDone() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertTrue(loader.isDecodeDone());
+    }
+
+    @Test
+    public void testShapesAreAttachedInBatchesAndInOrder() throws InterruptedException {
+        pane.getChildren().add(new RectangleShape(0, 0, 5, 5).getNode());
+
+        loader.begin(file);
+        assertTrue(loader.isRunning());
+        assertTrue(pane.getChildren().isEmpty());
+        awaitDecoded();
+
+        // budget nullo: un solo lotto per pulse
+        assertFalse(loader.attachPending(0));
+        assertEquals(100, pane.getChildren().size());
+        assertEquals(0.1, loader.progressProperty().get(), 1e-9);
+
+        while (!loader.attachPending(Long.MAX_VALUE)) {
+            // prosegue finché la coda non è vuota
+        }
+        assertFalse(loader.isRunning());
+        assertEquals(1.0, loader.progressProperty().get(), 1e-9);
+        assertEquals(1000, currentShapes.size());
+        assertEquals(1000, pane.getChildren().size());
+        for (int i = 0; i < 1000; i += 111) {
+            assertEquals(i * 2, currentShapes.get(i).getY(), 1e-9);
+            assertSame(currentShapes.get(i).getNode(), pane.getChildren().get(i));
+        }
+    }
+
+    @Test
+    public void testCancelKeepsAttachedShapes() throws InterruptedException {
+        loader.begin(file);
+        awaitDecoded();
+        loader.attachPending(0);
+
+        loader.cancel();
+        assertFalse(loader.isRunning());
+        assertTrue(loader.attachPending(Long.MAX_VALUE));
+        assertEquals(100, pane.getChildren().size());
+        assertEquals(100, loader.getAttachedCount());
+    }
+
+    @Test
+    public void testMissingFileReportsFailure() throws InterruptedException {
+        loader.begin(new File(file.getParentFile(), "inesistente_" + System.nanoTime() + ".bin"));
+        awaitDecoded();
+        assertTrue(loader.attachPending(Long.MAX_VALUE));
+        assertNotNull(loader.getFailure());
+        assertTrue(pane.getChildren().isEmpty());
+    }
+
+    @Test
+    public void testParallelDecodeKeepsFileOrder() throws Exception {
+        // un segmento incrementale in coda: rimozione della prima shape e
+        // spostamento dell'ultima
+        List<AbstractShape> shapes = fileManager.rebuildShapes(fileManager.loadFromFile(file));
+        fileManager.markLoaded(file, shapes, shapes.size());
+        shapes.remove(0);
+        shapes.get(shapes.size() - 1).setY(5000);
+        fileManager.saveToFile(shapes, file);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            loader.setPool(pool);
+            loader.setBatchSize(7);
+            loader.begin(file);
+            awaitDecoded();
+            while (!loader.attachPending(Long.MAX_VALUE)) {
+                // prosegue finché la coda non è vuota
+            }
+        } finally {
+            pool.shutdown();
+        }
+        assertNull(loader.getFailure());
+        assertEquals(999, currentShapes.size());
+        for (int i = 0; i < 998; i++) {
+            assertEquals((i + 1) * 2, currentShapes.get(i).getY(), 1e-9);
+            assertSame(currentShapes.get(i).getNode(), pane.getChildren().get(i));
+        }
+        assertEquals(5000, currentShapes.get(998).getY(), 1e-9);
+    }
+}
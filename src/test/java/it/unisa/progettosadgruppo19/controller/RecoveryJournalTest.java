@@ -0,0 +1,153 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.command.Command;
+import it.unisa.progettosadgruppo19.command.HistoryListener.Operation;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static it.unisa.progettosadgruppo19.controller.ShapeDataTestUtils.xs;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RecoveryJournalTest {
+
+    private File dir;
+    private File drawing;
+    private File journalFile;
+    private final List<AbstractShape> shapes = new ShapeList();
+    private ShapeFileManager fileManager;
+    private RecoveryJournal journal;
+    private final Command command = () -> {
+    };
+
+    @BeforeEach
+    void setUp() throws Exception {
+        dir = Files.createTempDirectory("journal").toFile();
+        dir.deleteOnExit();
+        drawing = new File(dir, "drawing.bin");
+        drawing.deleteOnExit();
+        journalFile = new File(dir, "session.journal");
+        journalFile.deleteOnExit();
+        fileManager = new ShapeFileManager();
+        journal = new RecoveryJournal(journalFile, shapes, 10);
+        fileManager.setRecoveryJournal(journal);
+    }
+
+    @AfterEach
+    void tearDown() {
+        journal.close();
+    }
+
+    private RecoveryJournal.Recovery recover() {
+        assertTrue(journal.flush(5000));
+        return new RecoveryJournal(journalFile, new ArrayList<>()).recover(new ShapeFileManager());
+    }
+
+    @Test
+    public void testCommandsAreReplayedOnTopOfSavedFile() throws Exception {
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        RectangleShape b = new RectangleShape(50, 10, 20, 20);
+        shapes.addAll(List.of(a, b));
+        fileManager.saveToFile(shapes, drawing);
+
+        b.setX(100);
+        journal.historyChanged(Operation.EXECUTE, command);
+        shapes.add(new RectangleShape(200, 10, 5, 5));
+        journal.historyChanged(Operation.EXECUTE, command);
+        shapes.remove(a);
+        journal.historyChanged(Operation.UNDO, command);
+
+        RecoveryJournal.Recovery recovery = recover();
+        assertNotNull(recovery);
+        assertEquals(3, recovery.records());
+        assertEquals(drawing.getAbsoluteFile(), recovery.baseFile());
+        assertArrayEquals(new double[]{100, 200}, xs(recovery.data().getShapes()), 1e-9);
+    }
+
+    @Test
+    public void testDuplicatesDroppedBySaveAreReplayed() throws Exception {
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        RectangleShape b = new RectangleShape(50, 10, 20, 20);
+        shapes.addAll(List.of(a, new RectangleShape(10, 10, 20, 20), b));
+        fileManager.saveToFileAsync(shapes, drawing).get(10, java.util.concurrent.TimeUnit.SECONDS);
+        assertEquals(2, fileManager.loadFromFile(drawing).getShapes().size());
+
+        b.setX(100);
+        journal.historyChanged(Operation.EXECUTE, command);
+
+        RecoveryJournal.Recovery recovery = recover();
+        assertNotNull(recovery);
+        assertEquals(drawing.getAbsoluteFile(), recovery.baseFile());
+        assertArrayEquals(new double[]{10, 10, 100}, xs(recovery.data().getShapes()), 1e-9);
+    }
+
+    @Test
+    public void testSaveStartsAnEmptyJournal() throws Exception {
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        shapes.add(a);
+        fileManager.saveToFile(shapes, drawing);
+        a.setX(30);
+        journal.historyChanged(Operation.EXECUTE, command);
+
+        fileManager.saveToFile(shapes, drawing);
+        assertNull(recover());
+
+        // comandi che non cambiano il disegno non producono record
+        journal.historyChanged(Operation.EXECUTE, command);
+        assertNull(recover());
+    }
+
+    @Test
+    public void testUnsavedDrawingIsCheckpointed() {
+        shapes.add(new RectangleShape(10, 10, 20, 20));
+        journal.historyChanged(Operation.EXECUTE, command);
+        shapes.add(new RectangleShape(40, 10, 20, 20));
+        journal.historyChanged(Operation.EXECUTE, command);
+
+        RecoveryJournal.Recovery recovery = recover();
+        assertNotNull(recovery);
+        assertNull(recovery.baseFile());
+        assertArrayEquals(new double[]{10, 40}, xs(recovery.data().getShapes()), 1e-9);
+    }
+
+    @Test
+    public void testIncompleteRecordIsDroppedOnResume() throws Exception {
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        shapes.add(a);
+        journal.historyChanged(Operation.EXECUTE, command);
+        assertTrue(journal.flush(5000));
+        journal.close();
+
+        // scrittura interrotta di un record
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(journalFile, true))) {
+            out.writeByte(0);
+            out.writeUTF("Move");
+        }
+
+        shapes.clear();
+        journal = new RecoveryJournal(journalFile, shapes, 10);
+        RecoveryJournal.Recovery recovery = journal.recover(fileManager);
+        assertNotNull(recovery);
+        assertTrue(recovery.validLength() < journalFile.length());
+
+        List<AbstractShape> rebuilt = fileManager.rebuildShapes(recovery.data());
+        shapes.addAll(rebuilt);
+        journal.resume(recovery, rebuilt);
+        rebuilt.get(0).setY(70);
+        journal.historyChanged(Operation.REDO, command);
+
+        RecoveryJournal.Recovery again = recover();
+        assertNotNull(again);
+        assertEquals(2, again.records());
+        assertEquals(70, again.data().getShapes().get(0).getY(), 1e-9);
+    }
+}
@@ -0,0 +1,94 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import javafx.scene.layout.Pane;
+import javafx.scene.shape.MoveTo;
+import javafx.scene.shape.PathElement;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelectionOverlayTest {
+
+    private Pane pane;
+    private SelectionOverlay overlay;
+
+    @BeforeEach
+    void setUp() {
+        pane = new Pane();
+        overlay = new SelectionOverlay(pane);
+        overlay.setManualRefresh(true);
+    }
+
+    private AbstractShape addRect(double x, double y, double w, double h) {
+        AbstractShape shape = new RectangleShape(x, y, w, h);
+        shape.getNode().setUserData(shape);
+        pane.getChildren().add(shape.getNode());
+        return shape;
+    }
+
+    @Test
+    public void testOutlinesAreAddedAndRemovedIncrementally() {
+        AbstractShape a = addRect(10, 10, 20, 20);
+        AbstractShape b = addRect(50, 50, 20, 20);
+
+        overlay.addAll(List.of(a, b));
+        List<PathElement> elements = overlay.getPath().getElements();
+        assertEquals(2 * SelectionOverlay.ELEMENTS_PER_SHAPE, elements.size());
+        assertSame(overlay.getPath(), pane.getChildren().get(pane.getChildren().size() - 1));
+
+        // togliere una shape lascia intatti gli elementi dell'altra
+        List<PathElement> kept = new ArrayList<>(elements.subList(SelectionOverlay.ELEMENTS_PER_SHAPE, elements.size()));
+        overlay.remove(a);
+        assertEquals(kept, elements);
+        assertFalse(overlay.contains(a));
+        assertTrue(overlay.contains(b));
+
+        overlay.remove(b);
+        assertEquals(0, overlay.size());
+        assertTrue(elements.isEmpty());
+        assertNull(overlay.getPath().getParent());
+        assertNull(a.getNode().getEffect());
+    }
+
+    @Test
+    public void testOutlineFollowsShapeOncePerRefresh() {
+        AbstractShape shape = addRect(10, 10, 20, 20);
+        overlay.add(shape);
+        MoveTo corner = (MoveTo) overlay.getPath().getElements().get(0);
+        double startX = corner.getX();
+
+        shape.getNode().setTranslateX(30);
+        shape.getNode().setTranslateX(50);
+        assertEquals(startX, corner.getX(), 1e-9);
+
+        overlay.flush();
+        assertEquals(startX + 50, corner.getX(), 1e-9);
+    }
+
+    @Test
+    public void testMultipleSelectionTouchesOnlyChangedShapes() {
+        AbstractShape a = addRect(10, 10, 20, 20);
+        AbstractShape b = addRect(50, 50, 20, 20);
+        AbstractShape c = addRect(90, 90, 20, 20);
+        MultipleSelectionManager manager = new MultipleSelectionManager();
+        manager.setOverlay(overlay);
+
+        manager.addToSelection(b);
+        PathElement firstOfB = overlay.getPath().getElements().get(0);
+        manager.addToSelection(a);
+        manager.selectShapes(List.of(b, c), false);
+        assertEquals(2, overlay.size());
+        assertFalse(overlay.contains(a));
+        assertTrue(overlay.getPath().getElements().contains(firstOfB));
+
+        manager.clearSelection();
+        assertEquals(0, overlay.size());
+        assertNull(overlay.getPath().getParent());
+    }
+}
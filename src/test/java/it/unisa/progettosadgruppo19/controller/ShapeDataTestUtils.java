@@ -0,0 +1,21 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+
+import java.util.List;
+
+/**
+ * Supporto comune ai test che confrontano liste di {@link ShapeData}.
+ */
+final class ShapeDataTestUtils {
+
+    private ShapeDataTestUtils() {
+    }
+
+    /**
+     * Ascisse delle shape serializzate, nell'ordine della lista.
+     */
+    static double[] xs(List<ShapeData> data) {
+        return data.stream().mapToDouble(ShapeData::getX).toArray();
+    }
+}
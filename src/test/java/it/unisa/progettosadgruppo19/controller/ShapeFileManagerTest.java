@@ -1,13 +1,22 @@
 package it.unisa.progettosadgruppo19.controller;
 
 import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.serialization.BinaryDrawingFormat;
 import it.unisa.progettosadgruppo19.model.serialization.DrawingData;
+import it.unisa.progettosadgruppo19.model.serialization.DrawingStats;
+import it.unisa.progettosadgruppo19.model.shapes.FreeFormPolygonShape;
 import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
 import javafx.scene.paint.Color;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -38,4 +47,349 @@ public class ShapeFileManagerTest {
         assertEquals(original.getHeight(), result.getHeight());
     }
 
+    @Test
+    void testBinaryRoundTripKeepsPolygons() throws IOException, ClassNotFoundException {
+        ShapeFileManager manager = new ShapeFileManager();
+        File tempFile = File.createTempFile("drawing", ".bin");
+        tempFile.deleteOnExit();
+
+        FreeFormPolygonShape polygon = new FreeFormPolygonShape(10, 10, Color.RED);
+        polygon.addPoint(50, 15);
+        polygon.addPoint(30, 60);
+
+        manager.saveToFile(List.of(polygon), tempFile);
+        assertTrue(BinaryDrawingFormat.isBinaryFile(tempFile));
+        assertTrue(manager.isValidDrawingFile(tempFile));
+
+        List<AbstractShape> loaded = manager.rebuildShapes(manager.loadFromFile(tempFile));
+        assertEquals(1, loaded.size());
+
+        FreeFormPolygonShape loadedPolygon = (FreeFormPolygonShape) loaded.get(0);
+        assertArrayEquals(polygon.getCoordinates(), loadedPolygon.getCoordinates());
+        assertEquals(Color.RED, ((javafx.scene.shape.Shape) loadedPolygon.getNode()).getStroke());
+    }
+
+    @Test
+    void testBinaryRecordKeepsTextAndColors() throws IOException {
+        ShapeData text = new ShapeData("TextShape", 100, 100, 40, 12, 30,
+                Color.rgb(10, 20, 30, 0.5), Color.BLUE, "Ciao àè", 18);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryDrawingFormat.write(List.of(text), new DataOutputStream(bytes));
+        DrawingData data = BinaryDrawingFormat.read(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        ShapeData result = data.getShapes().get(0);
+        assertEquals(text, result);
+        assertEquals("Ciao àè", result.getText());
+        assertEquals(Color.BLUE, result.getFill());
+        assertEquals(20 / 255.0, result.getStroke().getGreen(), 1e-6);
+        assertEquals(0.5, result.getStroke().getOpacity(), 1.0 / 255);
+    }
+
+    @Test
+    void testLegacyFilesAreStillLoaded() throws IOException, ClassNotFoundException {
+        ShapeFileManager manager = new ShapeFileManager();
+        File legacyFile = File.createTempFile("legacy", ".bin");
+        File binaryFile = File.createTempFile("binary", ".bin");
+        legacyFile.deleteOnExit();
+        binaryFile.deleteOnExit();
+
+        List<AbstractShape> shapes = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            FreeFormPolygonShape polygon = new FreeFormPolygonShape(i, i, Color.BLACK);
+            for (int v = 0; v < 10; v++) {
+                polygon.addPoint(i + v * 3.25, i + v * 1.5);
+            }
+            shapes.add(polygon);
+        }
+
+        manager.setSaveFormat(ShapeFileManager.FileFormat.LEGACY);
+        manager.saveToFile(shapes, legacyFile);
+        manager.setSaveFormat(ShapeFileManager.FileFormat.BINARY);
+        manager.saveToFile(shapes, binaryFile);
+
+        assertFalse(BinaryDrawingFormat.isBinaryFile(legacyFile));
+        assertTrue(binaryFile.length() < legacyFile.length());
+
+        List<AbstractShape> fromLegacy = manager.rebuildShapes(manager.loadFromFile(legacyFile));
+        List<AbstractShape> fromBinary = manager.rebuildShapes(manager.loadFromFile(binaryFile));
+        assertEquals(200, fromLegacy.size());
+        assertEquals(200, fromBinary.size());
+        assertArrayEquals(((FreeFormPolygonShape) fromLegacy.get(7)).getCoordinates(),
+                ((FreeFormPolygonShape) fromBinary.get(7)).getCoordinates());
+    }
+
+    @Test
+    void testDuplicatesWithinToleranceAreRemoved() {
+        ShapeFileManager manager = new ShapeFileManager();
+        RectangleShape a = new RectangleShape(0.0019, 10, 20, 20);
+        RectangleShape nearA = new RectangleShape(0.0021, 10.0005, 20, 20); // cella adiacente
+        RectangleShape other = new RectangleShape(0.0040, 10, 20, 20); // fuori tolleranza da a
+        RectangleShape nearOther = new RectangleShape(0.0045, 10, 20.0008, 20);
+        RectangleShape rotated = new RectangleShape(0.0019, 10, 20, 20);
+        rotated.setRotation(45);
+        FreeFormPolygonShape polygon = new FreeFormPolygonShape(0.0019, 10, Color.BLACK);
+
+        List<AbstractShape> unique = manager.removeDuplicateShapes(
+                List.of(a, nearA, other, nearOther, rotated, polygon, a));
+
+        assertEquals(List.of(a, other, rotated, polygon), unique);
+    }
+
+    @Test
+    void testAsyncSaveWritesSnapshotAtomically() throws Exception {
+        ShapeFileManager manager = new ShapeFileManager();
+        File dir = java.nio.file.Files.createTempDirectory("async_save").toFile();
+        dir.deleteOnExit();
+        File target = new File(dir, "drawing.bin");
+        target.deleteOnExit();
+
+        RectangleShape rect = new RectangleShape(10, 20, 30, 40);
+        manager.saveToFile(List.of(rect), target);
+
+        List<AbstractShape> shapes = new ArrayList<>(List.of(rect));
+        java.util.concurrent.CompletableFuture<ShapeFileManager.SaveResult> future
+                = manager.saveToFileAsync(shapes, target);
+        // modifiche successive allo snapshot non finiscono nel file
+        rect.setX(500);
+        shapes.add(new RectangleShape(1, 1, 1, 1));
+
+        ShapeFileManager.SaveResult result = future.get(10, java.util.concurrent.TimeUnit.SECONDS);
+        assertEquals(1, result.shapeCount());
+        assertEquals(target.length(), result.bytes());
+
+        List<AbstractShape> loaded = manager.rebuildShapes(manager.loadFromFile(target));
+        assertEquals(1, loaded.size());
+        assertEquals(10, loaded.get(0).getX(), 1e-9);
+
+        // nessun file temporaneo rimasto nella cartella
+        assertArrayEquals(new String[]{"drawing.bin"}, dir.list());
+    }
+
+    @Test
+    void testIncrementalSaveAppendsOnlyChanges() throws Exception {
+        ShapeFileManager manager = new ShapeFileManager();
+        File file = File.createTempFile("incremental", ".bin");
+        file.deleteOnExit();
+
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        RectangleShape b = new RectangleShape(50, 10, 20, 20);
+        RectangleShape c = new RectangleShape(90, 10, 20, 20);
+        FreeFormPolygonShape polygon = new FreeFormPolygonShape(10, 100, Color.RED);
+        polygon.addPoint(60, 110);
+        polygon.addPoint(30, 150);
+        List<AbstractShape> shapes = new ArrayList<>(List.of(a, b, c, polygon));
+        manager.saveToFile(shapes, file);
+        long baseLength = file.length();
+
+        // una modifica, una rimozione e un'aggiunta
+        b.setX(300);
+        shapes.remove(c);
+        RectangleShape d = new RectangleShape(200, 200, 5, 5);
+        shapes.add(d);
+        ShapeFileManager.SaveResult result = manager.saveToFileAsync(shapes, file)
+                .get(10, java.util.concurrent.TimeUnit.SECONDS);
+
+        assertTrue(result.incremental());
+        assertEquals(3, result.changedShapes());
+        assertTrue(file.length() - baseLength < baseLength / 2);
+        assertEquals(1, BinaryDrawingFormat.readLayout(file).segmentCount());
+
+        List<AbstractShape> loaded = manager.rebuildShapes(manager.loadFromFile(file));
+        assertEquals(4, loaded.size());
+        double[] expectedX = {10, 300, 10, 200};
+        for (int i = 0; i < expectedX.length; i++) {
+            assertEquals(expectedX[i], loaded.get(i).getX(), 1e-9);
+        }
+        assertTrue(loaded.get(2) instanceof FreeFormPolygonShape);
+
+        try (it.unisa.progettosadgruppo19.model.serialization.MappedDrawing mapped = manager.openMapped(file)) {
+            assertEquals(4, mapped.size());
+            assertEquals(300, mapped.read(1).getX(), 1e-9);
+            assertArrayEquals(new int[]{3}, mapped.query(199, 199, 206, 206));
+        }
+
+        // nessuna modifica: nessun byte accodato
+        long length = file.length();
+        manager.saveToFile(shapes, file);
+        assertEquals(length, file.length());
+
+        // superato il limite di segmenti il file viene compattato
+        manager.setMaxSegments(1);
+        a.setX(20);
+        manager.saveToFile(shapes, file);
+        assertEquals(0, BinaryDrawingFormat.readLayout(file).segmentCount());
+        assertEquals(20, manager.rebuildShapes(manager.loadFromFile(file)).get(0).getX(), 1e-9);
+    }
+
+    @Test
+    void testIncrementalSaveRemovesDuplicatesLikeFullRewrite() throws Exception {
+        ShapeFileManager manager = new ShapeFileManager();
+        File file = File.createTempFile("incremental", ".bin");
+        file.deleteOnExit();
+
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        RectangleShape b = new RectangleShape(50, 10, 20, 20);
+        List<AbstractShape> shapes = new ArrayList<>(List.of(a, b));
+        manager.saveToFile(shapes, file);
+
+        // una copia aggiunta sopra l'originale
+        shapes.add(new RectangleShape(10, 10, 20, 20));
+        ShapeFileManager.SaveResult result = manager.saveToFileAsync(shapes, file)
+                .get(10, java.util.concurrent.TimeUnit.SECONDS);
+        assertFalse(result.incremental());
+        assertEquals(2, manager.loadFromFile(file).getShapes().size());
+
+        // una shape spostata sopra un'altra
+        shapes.remove(2);
+        manager.saveToFile(shapes, file);
+        b.setX(10);
+        result = manager.saveToFileAsync(shapes, file).get(10, java.util.concurrent.TimeUnit.SECONDS);
+        assertFalse(result.incremental());
+        assertEquals(1, manager.loadFromFile(file).getShapes().size());
+
+        // modifiche senza duplicati restano incrementali
+        b.setX(80);
+        manager.saveToFile(shapes, file);
+        a.setY(40);
+        result = manager.saveToFileAsync(shapes, file).get(10, java.util.concurrent.TimeUnit.SECONDS);
+        assertTrue(result.incremental());
+        assertEquals(2, manager.loadFromFile(file).getShapes().size());
+    }
+
+    @Test
+    void testIncompleteSegmentIsIgnored() throws Exception {
+        ShapeFileManager manager = new ShapeFileManager();
+        File file = File.createTempFile("incremental", ".bin");
+        file.deleteOnExit();
+
+        RectangleShape rect = new RectangleShape(10, 10, 20, 20);
+        List<AbstractShape> shapes = new ArrayList<>(List.of(rect));
+        manager.saveToFile(shapes, file);
+        rect.setX(40);
+        manager.saveToFile(shapes, file);
+
+        // scrittura interrotta di un terzo segmento
+        try (java.io.FileOutputStream out = new java.io.FileOutputStream(file, true)) {
+            new DataOutputStream(out).writeInt(BinaryDrawingFormat.SEGMENT_MAGIC);
+        }
+
+        assertTrue(BinaryDrawingFormat.hasAppendedData(file));
+        assertEquals(40, manager.loadFromFile(file).getShapes().get(0).getX(), 1e-9);
+        try (it.unisa.progettosadgruppo19.model.serialization.MappedDrawing mapped = manager.openMapped(file)) {
+            assertEquals(40, mapped.read(0).getX(), 1e-9);
+        }
+
+        // il file non ha la dimensione attesa: il salvataggio lo riscrive
+        rect.setX(60);
+        manager.saveToFile(shapes, file);
+        assertFalse(BinaryDrawingFormat.hasAppendedData(file));
+        assertEquals(60, manager.loadFromFile(file).getShapes().get(0).getX(), 1e-9);
+    }
+
+    @Test
+    void testLoadedDrawingIsSavedIncrementally() throws Exception {
+        ShapeFileManager manager = new ShapeFileManager();
+        File file = File.createTempFile("incremental", ".bin");
+        file.deleteOnExit();
+        manager.saveToFile(List.of(new RectangleShape(10, 10, 20, 20), new RectangleShape(40, 10, 20, 20)), file);
+
+        ShapeFileManager other = new ShapeFileManager();
+        DrawingData data = other.loadFromFile(file);
+        List<AbstractShape> loaded = new ArrayList<>(other.rebuildShapes(data));
+        other.markLoaded(file, loaded, data.getShapes().size());
+
+        loaded.get(1).setY(80);
+        ShapeFileManager.SaveResult result = other.saveToFileAsync(loaded, file)
+                .get(10, java.util.concurrent.TimeUnit.SECONDS);
+        assertTrue(result.incremental());
+        assertEquals(1, result.changedShapes());
+        assertEquals(80, other.loadFromFile(file).getShapes().get(1).getY(), 1e-9);
+    }
+
+    @Test
+    void testFileInfoIsReadFromTheTail() throws Exception {
+        ShapeFileManager manager = new ShapeFileManager();
+        File file = File.createTempFile("stats", ".bin");
+        file.deleteOnExit();
+
+        RectangleShape a = new RectangleShape(10, 10, 20, 20);
+        RectangleShape b = new RectangleShape(50, 10, 20, 20);
+        FreeFormPolygonShape polygon = new FreeFormPolygonShape(10, 100, Color.RED);
+        polygon.addPoint(60, 110);
+        polygon.addPoint(30, 150);
+        List<AbstractShape> shapes = new ArrayList<>(List.of(a, b, polygon));
+        manager.saveToFile(shapes, file);
+
+        DrawingStats stats = BinaryDrawingFormat.readStats(file);
+        assertEquals(3, stats.getTotal());
+        assertEquals(2, stats.getCount("RectangleShape"));
+        assertEquals(1, stats.getCount("FreeFormPolygonShape"));
+        assertTrue(stats.getMinX() <= 10 && stats.getMaxY() >= 150);
+
+        // dopo un salvataggio incrementale le statistiche sono nel segmento
+        shapes.remove(a);
+        shapes.add(new RectangleShape(400, 400, 10, 10));
+        shapes.add(new RectangleShape(500, 10, 10, 10));
+        manager.saveToFile(shapes, file);
+        assertEquals(1, BinaryDrawingFormat.readLayout(file).segmentCount());
+        stats = BinaryDrawingFormat.readStats(file);
+        assertEquals(4, stats.getTotal());
+        assertEquals(3, stats.getCount("RectangleShape"));
+        assertTrue(stats.getMaxX() >= 510 && stats.getMaxY() >= 410);
+
+        String info = manager.getFileInfo(file);
+        assertTrue(info.contains("Totale forme: 4"), info);
+        assertTrue(info.contains("Rettangoli: 3"), info);
+        assertTrue(info.contains("Poligoni: 1"), info);
+        assertTrue(manager.isValidDrawingFile(file));
+
+        File legacy = File.createTempFile("stats_legacy", ".bin");
+        legacy.deleteOnExit();
+        manager.setSaveFormat(ShapeFileManager.FileFormat.LEGACY);
+        manager.saveToFile(shapes, legacy);
+        assertNull(BinaryDrawingFormat.readStats(legacy));
+        assertTrue(manager.isValidDrawingFile(legacy));
+        assertEquals(info.replace(file.getName(), legacy.getName()), manager.getFileInfo(legacy));
+
+        // un file troncato non termina con un marcatore valido
+        File truncated = File.createTempFile("stats_truncated", ".bin");
+        truncated.deleteOnExit();
+        java.nio.file.Files.write(truncated.toPath(),
+                java.util.Arrays.copyOf(java.nio.file.Files.readAllBytes(file.toPath()), (int) file.length() - 3));
+        assertFalse(manager.isValidDrawingFile(truncated));
+    }
+
+    @Test
+    void testCorruptedDataIsDetectedByChecksum() throws Exception {
+        ShapeFileManager manager = new ShapeFileManager();
+        File file = File.createTempFile("checksum", ".bin");
+        file.deleteOnExit();
+
+        RectangleShape rect = new RectangleShape(10, 10, 20, 20);
+        List<AbstractShape> shapes = new ArrayList<>(List.of(rect));
+        manager.saveToFile(shapes, file);
+        long baseLength = file.length();
+        rect.setX(40);
+        manager.saveToFile(shapes, file);
+
+        // un byte alterato nel segmento: il segmento viene ignorato
+        flipByte(file, baseLength + 20);
+        assertEquals(10, manager.loadFromFile(file).getShapes().get(0).getX(), 1e-9);
+
+        // un byte alterato nel corpo principale: il file è rifiutato
+        flipByte(file, BinaryDrawingFormat.HEADER_SIZE + 3);
+        IOException error = assertThrows(IOException.class, () -> manager.loadFromFile(file));
+        assertTrue(error.getMessage().contains("danneggiato"));
+    }
+
+    private static void flipByte(File file, long position) throws IOException {
+        try (java.io.RandomAccessFile raf = new java.io.RandomAccessFile(file, "rw")) {
+            raf.seek(position);
+            int value = raf.read();
+            raf.seek(position);
+            raf.write(value ^ 0x40);
+        }
+    }
 }
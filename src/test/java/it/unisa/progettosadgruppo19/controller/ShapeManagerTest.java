@@ -10,6 +10,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -64,4 +65,121 @@ public class ShapeManagerTest {
         assertTrue(manager.getCurrentShapes().isEmpty());
         assertTrue(manager.getDrawingPane().getChildren().isEmpty());
     }
+
+    @Test
+    public void testSpatialIndexFollowsShapeManager() {
+        RectangleShape shape = new RectangleShape(10, 10, 40, 40);
+        manager.addShape(shape);
+
+        ShapeSpatialIndex index = manager.getSpatialIndex();
+        assertSame(index, ShapeSpatialIndex.of(pane));
+        assertTrue(index.query(20, 20, 0).contains(shape.getNode()));
+
+        ((javafx.scene.shape.Rectangle) shape.getNode()).setX(200);
+        assertTrue(index.query(20, 20, 0).isEmpty());
+        assertTrue(index.query(220, 20, 0).contains(shape.getNode()));
+
+        manager.removeShape(shape);
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testIdentityIndexStaysConsistent() {
+        java.util.List<AbstractShape> shapes = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            AbstractShape shape = new RectangleShape(i, i, 5, 5);
+            shapes.add(shape);
+            manager.addShape(shape);
+        }
+
+        assertSame(shapes.get(3), manager.findByNode(shapes.get(3).getNode()));
+        assertEquals(7, manager.getShapeIndex(shapes.get(7)));
+
+        manager.removeShape(shapes.get(2));
+        assertEquals(6, manager.getShapeIndex(shapes.get(7)));
+        assertEquals(-1, manager.getShapeIndex(shapes.get(2)));
+        assertNull(manager.findByNode(shapes.get(2).getNode()));
+
+        manager.insertShapeAt(shapes.get(2), 2);
+        assertEquals(7, manager.getShapeIndex(shapes.get(7)));
+
+        // modifica diretta della lista, senza passare dal gestore
+        AbstractShape external = new RectangleShape(50, 50, 5, 5);
+        shapeList.add(0, external);
+        assertEquals(0, manager.getShapeIndex(external));
+        assertEquals(8, manager.getShapeIndex(shapes.get(7)));
+    }
+
+    @Test
+    public void testBulkRemoveAndIdempotentRegistration() {
+        java.util.List<AbstractShape> shapes = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            AbstractShape shape = new RectangleShape(i, i, 5, 5);
+            shapes.add(shape);
+            manager.addShape(shape);
+        }
+        manager.registerOnly(shapes.get(0));
+        assertEquals(6, shapeList.size());
+
+        manager.removeShapes(java.util.List.of(shapes.get(1), shapes.get(3), shapes.get(5)));
+
+        assertEquals(java.util.List.of(shapes.get(0), shapes.get(2), shapes.get(4)), shapeList);
+        assertEquals(3, pane.getChildren().size());
+        assertEquals(2, manager.getShapeIndex(shapes.get(4)));
+        assertFalse(manager.containsNode(shapes.get(3).getNode()));
+    }
+
+    @Test
+    public void testReplacingListContentsWithSameCountInvalidatesIndex() {
+        assertReplacementInvalidatesIndex(shapeList, manager);
+    }
+
+    @Test
+    public void testReplacingShapeListContentsWithSameCountInvalidatesIndex() {
+        List<AbstractShape> tracked = new ShapeList();
+        assertReplacementInvalidatesIndex(tracked, new ShapeManager(tracked, pane));
+    }
+
+    @Test
+    public void testShapeListReplacementBySetInvalidatesIndex() {
+        List<AbstractShape> tracked = new ShapeList();
+        ShapeManager trackedManager = new ShapeManager(tracked, pane);
+        AbstractShape first = new RectangleShape(0, 0, 5, 5);
+        trackedManager.addShape(first);
+        assertEquals(0, trackedManager.getShapeIndex(first));
+
+        AbstractShape replacement = new RectangleShape(10, 10, 5, 5);
+        tracked.set(0, replacement);
+        pane.getChildren().set(0, replacement.getNode());
+        assertEquals(-1, trackedManager.getShapeIndex(first));
+        assertEquals(0, trackedManager.getShapeIndex(replacement));
+        assertSame(replacement, trackedManager.findByNode(replacement.getNode()));
+    }
+
+    /**
+     * Come un caricamento: stesso numero di shape, contenuto diverso.
+     */
+    private void assertReplacementInvalidatesIndex(List<AbstractShape> list, ShapeManager shapeManager) {
+        for (int i = 0; i < 3; i++) {
+            shapeManager.addShape(new RectangleShape(i, i, 5, 5));
+        }
+        assertEquals(0, shapeManager.getShapeIndex(list.get(0)));
+
+        List<AbstractShape> loaded = new ArrayList<>();
+        list.clear();
+        pane.getChildren().clear();
+        for (int i = 0; i < 3; i++) {
+            AbstractShape shape = new RectangleShape(i * 10, i * 10, 5, 5);
+            loaded.add(shape);
+            list.add(shape);
+            pane.getChildren().add(shape.getNode());
+        }
+
+        assertSame(loaded.get(2), shapeManager.findByNode(loaded.get(2).getNode()));
+        assertEquals(1, shapeManager.getShapeIndex(loaded.get(1)));
+        shapeManager.removeShape(loaded.get(1));
+        assertEquals(2, list.size());
+        assertEquals(2, pane.getChildren().size());
+        assertSame(loaded.get(2), shapeManager.findByNode(loaded.get(2).getNode()));
+    }
 }
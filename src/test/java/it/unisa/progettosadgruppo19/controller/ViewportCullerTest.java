@@ -0,0 +1,176 @@
+package it.unisa.progettosadgruppo19.controller;
+
+import it.unisa.progettosadgruppo19.command.CommandSizeEstimator;
+import it.unisa.progettosadgruppo19.command.StackUndoInvoker;
+import it.unisa.progettosadgruppo19.command.commands.Delete;
+import it.unisa.progettosadgruppo19.model.shapes.AbstractShape;
+import it.unisa.progettosadgruppo19.model.shapes.RectangleShape;
+import javafx.scene.layout.Pane;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ViewportCullerTest {
+
+    private Pane pane;
+    private ShapeManager manager;
+    private ViewportCuller culler;
+    private double[] view;
+    private final List<AbstractShape> shapes = new ArrayList<>();
+    private final List<Runnable> scheduled = new ArrayList<>();
+
+    /**
+     * Esegue gli aggiornamenti accodati, come farebbe il pulse successivo.
+     */
+    private void flush() {
+        List<Runnable> tasks = new ArrayList<>(scheduled);
+        scheduled.clear();
+        tasks.forEach(Runnable::run);
+    }
+
+    @BeforeEach
+    void setUp() {
+        pane = new Pane();
+        manager = new ShapeManager(new ArrayList<>(), pane);
+        view = new double[]{0, 0, 100, 100};
+        culler = ViewportCuller.install(pane, () -> view, scheduled::add);
+
+        // una shape ogni 200px lungo la diagonale: solo la prima è visibile
+        for (int i = 0; i < 5; i++) {
+            AbstractShape shape = new RectangleShape(i * 200 + 10, i * 200 + 10, 20, 20);
+            shapes.add(shape);
+            manager.addShape(shape);
+        }
+        flush();
+    }
+
+    @Test
+    public void testOffscreenNodesAreDetached() {
+        assertEquals(1, pane.getChildren().size());
+        assertSame(shapes.get(0).getNode(), pane.getChildren().get(0));
+        assertEquals(4, culler.getCulledCount());
+        assertEquals(5, manager.getLayerCount());
+        assertTrue(manager.containsNode(shapes.get(3).getNode()));
+    }
+
+    @Test
+    public void testScrollReattachesInLogicalOrder() {
+        view = new double[]{0, 0, 500, 500}; // più il margine del 25%
+        culler.update();
+
+        assertEquals(4, pane.getChildren().size());
+        for (int i = 0; i < 4; i++) {
+            assertSame(shapes.get(i).getNode(), pane.getChildren().get(i));
+        }
+    }
+
+    @Test
+    public void testZIndexIsLogicalAndSurvivesCulling() {
+        assertEquals(3, manager.getZIndex(shapes.get(3)));
+
+        manager.setZIndex(shapes.get(4), 0);
+        assertEquals(0, manager.getZIndex(shapes.get(4)));
+        assertEquals(1, manager.getZIndex(shapes.get(0)));
+
+        // la shape spostata resta fuori vista ma, una volta visibile,
+        // compare sotto la prima
+        view = new double[]{0, 0, 1000, 1000};
+        culler.update();
+        assertSame(shapes.get(4).getNode(), pane.getChildren().get(0));
+        assertSame(shapes.get(0).getNode(), pane.getChildren().get(1));
+    }
+
+    @Test
+    public void testMovingCulledShapeIntoViewReattachesIt() {
+        AbstractShape far = shapes.get(2);
+        assertNull(far.getNode().getParent());
+
+        ((javafx.scene.shape.Rectangle) far.getNode()).setX(30);
+        ((javafx.scene.shape.Rectangle) far.getNode()).setY(30);
+        assertSame(pane, far.getNode().getParent());
+        assertEquals(List.of(shapes.get(0).getNode(), far.getNode()), pane.getChildren());
+    }
+
+    @Test
+    public void testBulkAddKeepsLogicalOrder() {
+        List<AbstractShape> below = new ArrayList<>();
+        List<AbstractShape> above = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            below.add(new RectangleShape(10 + i * 5, 10, 5, 5));
+            above.add(new RectangleShape(10, 10 + i * 5, 5, 5));
+        }
+        // sotto l'unico figlio visibile: subito sotto di lui nell'ordine logico
+        pane.getChildren().addAll(0, below.stream().map(AbstractShape::getNode).toList());
+        // in fondo ai figli: in cima all'ordine logico, sopra le shape staccate
+        pane.getChildren().addAll(above.stream().map(AbstractShape::getNode).toList());
+        flush();
+
+        assertEquals(11, culler.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i, culler.indexOf(below.get(i).getNode()));
+            assertEquals(8 + i, culler.indexOf(above.get(i).getNode()));
+        }
+        for (int i = 0; i < 5; i++) {
+            assertEquals(3 + i, culler.indexOf(shapes.get(i).getNode()));
+        }
+        assertEquals(4, culler.getCulledCount());
+        assertEquals(7, pane.getChildren().size());
+        assertSame(shapes.get(0).getNode(), pane.getChildren().get(3));
+    }
+
+    @Test
+    public void testCulledShapesAreNotChargedToUndoHistory() {
+        AbstractShape far = shapes.get(3);
+        assertNull(far.getNode().getParent());
+        StackUndoInvoker invoker = new StackUndoInvoker();
+        invoker.setLiveShapes(shape -> manager.containsNode(shape.getNode()));
+        assertTrue(CommandSizeEstimator.estimateShape(far, shape -> manager.containsNode(shape.getNode()))
+                < CommandSizeEstimator.SHAPE_OVERHEAD);
+
+        // cancellata, la shape è trattenuta solo dal comando
+        invoker.execute(new Delete(manager, far));
+        assertTrue(invoker.getRetainedBytes() >= CommandSizeEstimator.SHAPE_OVERHEAD);
+
+        // ripristinata fuori vista torna a contare come riferimento
+        invoker.undo();
+        assertTrue(culler.isCulled(far.getNode()));
+        assertTrue(invoker.getRetainedBytes() < CommandSizeEstimator.SHAPE_OVERHEAD);
+    }
+
+    @Test
+    public void testRemoveAndClearForgetCulledNodes() {
+        manager.removeShape(shapes.get(4));
+        assertEquals(4, culler.size());
+        assertEquals(-1, manager.getZIndex(shapes.get(4)));
+
+        culler.clear();
+        assertEquals(0, culler.size());
+        assertEquals(0, culler.getCulledCount());
+    }
+
+    @Test
+    public void testDeletingAllVisibleShapesKeepsCulledOnes() {
+        manager.removeShapes(List.of(shapes.get(0)));
+        assertTrue(pane.getChildren().isEmpty());
+        assertEquals(4, culler.size());
+        assertEquals(4, culler.getCulledCount());
+
+        view = new double[]{0, 0, 1000, 1000};
+        culler.update();
+        assertEquals(4, pane.getChildren().size());
+        assertSame(shapes.get(1).getNode(), pane.getChildren().get(0));
+    }
+
+    @Test
+    public void testVisibleRectFromScaleAndScroll() {
+        // contenuto 2000x2000 zoomato 2x (4000 px), viewport 1000x500 a metà scroll
+        double[] rect = ViewportCuller.visibleRect(2, 2, 0.5, 0.5, 4000, 4000, 1000, 500);
+        assertArrayEquals(new double[]{750, 875, 1250, 1125}, rect, 1e-9);
+
+        assertNull(ViewportCuller.visibleRect(1, 1, 0, 0, 2000, 2000, 0, 0));
+    }
+}
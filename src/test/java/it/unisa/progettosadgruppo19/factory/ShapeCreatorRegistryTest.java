@@ -0,0 +1,65 @@
+package it.unisa.progettosadgruppo19.factory;
+
+import it.unisa.progettosadgruppo19.adapter.ShapeAdapter;
+import it.unisa.progettosadgruppo19.model.serialization.BinaryDrawingFormat;
+import it.unisa.progettosadgruppo19.model.serialization.ShapeData;
+import it.unisa.progettosadgruppo19.model.shapes.*;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShapeCreatorRegistryTest {
+
+    private static void assertSameGeometry(ShapeData expected, AbstractShape shape) {
+        ShapeData actual = new ShapeAdapter(shape).getShapeData();
+        assertEquals(expected.getType(), actual.getType());
+        assertEquals(expected.getX(), actual.getX(), 1e-9);
+        assertEquals(expected.getY(), actual.getY(), 1e-9);
+        assertEquals(expected.getWidth(), actual.getWidth(), 1e-9);
+        assertEquals(expected.getHeight(), actual.getHeight(), 1e-9);
+        assertEquals(expected.getRotation(), actual.getRotation(), 1e-9);
+        assertEquals(expected.getStroke(), actual.getStroke());
+    }
+
+    @Test
+    void testCreatorsAreShared() {
+        assertSame(ConcreteShapeCreator.getCreator("Linea"), ConcreteShapeCreator.getCreator("Linea"));
+        assertSame(ConcreteShapeCreator.getCreator("Rettangolo"), ShapeCreatorRegistry.forType("RectangleShape"));
+        assertSame(ShapeCreatorRegistry.forTag(BinaryDrawingFormat.TAG_POLYGON),
+                ShapeCreatorRegistry.forType("FreeFormPolygonShape"));
+        assertNull(ShapeCreatorRegistry.forType("Triangolo"));
+        assertNull(ShapeCreatorRegistry.fromData(new ShapeData("Triangolo", 0, 0, 1, 1, 0, Color.BLACK, null)));
+    }
+
+    @Test
+    void testGeometryIsRebuiltDirectly() {
+        ShapeData rect = new ShapeData("RectangleShape", 10, 20, 30, 40, 45, Color.RED, Color.TRANSPARENT);
+        ShapeData ellipse = new ShapeData("EllipseShape", 50, 60, 70, 80, 0, Color.BLUE, Color.TRANSPARENT);
+        ShapeData line = new ShapeData("LineShape", 5, 6, 100, 50, 90, Color.GREEN, Color.TRANSPARENT);
+
+        assertSameGeometry(rect, ShapeCreatorRegistry.fromData(rect));
+        assertSameGeometry(ellipse, ShapeCreatorRegistry.fromData(ellipse));
+        assertSameGeometry(line, ShapeCreatorRegistry.fromData(line));
+
+        ShapeData polygon = new ShapeData("FreeFormPolygonShape", 0, 0, 0, 0, 0, Color.BLACK, Color.TRANSPARENT);
+        polygon.setPolygonCoordinates(new double[]{0, 0, 40, 0, 20, 30});
+        FreeFormPolygonShape rebuilt = (FreeFormPolygonShape) ShapeCreatorRegistry.fromData(polygon);
+        assertArrayEquals(polygon.getPolygonCoordinates(), rebuilt.getCoordinates(), 1e-9);
+    }
+
+    @Test
+    void testRebuiltShapesResizeLikeDrawnOnes() {
+        // il punto di partenza del disegno resta l'angolo in alto a sinistra
+        ShapeData data = new ShapeData("EllipseShape", 50, 60, 70, 80, 0, Color.BLUE, Color.TRANSPARENT);
+        AbstractShape rebuilt = ShapeCreatorRegistry.fromData(data);
+        AbstractShape drawn = (AbstractShape) new EllipseShapeCreator().createShape(50, 60, Color.BLUE);
+        drawn.onDrag(120, 140);
+
+        rebuilt.onDrag(130, 150);
+        drawn.onDrag(130, 150);
+        assertEquals(drawn.getX(), rebuilt.getX(), 1e-9);
+        assertEquals(drawn.getWidth(), rebuilt.getWidth(), 1e-9);
+        assertEquals(drawn.getHeight(), rebuilt.getHeight(), 1e-9);
+    }
+}
@@ -0,0 +1,121 @@
+package it.unisa.progettosadgruppo19.model.serialization;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MappedDrawingTest {
+
+    /**
+     * Una griglia 10x10 di rettangoli 20x20 distanziati di 100px, più un
+     * poligono e un testo in fondo.
+     */
+    private List<ShapeData> sampleShapes() {
+        List<ShapeData> shapes = new ArrayList<>();
+        for (int row = 0; row < 10; row++) {
+            for (int col = 0; col < 10; col++) {
+                shapes.add(new ShapeData("RectangleShape", col * 100, row * 100, 20, 20, 0,
+                        Color.BLACK, Color.TRANSPARENT));
+            }
+        }
+        ShapeData polygon = new ShapeData("FreeFormPolygonShape", 0, 0, 0, 0, 0, Color.RED, Color.TRANSPARENT);
+        polygon.setPolygonCoordinates(new double[]{2000, 2000, 2100, 2000, 2050, 2100});
+        shapes.add(polygon);
+        shapes.add(new ShapeData("TextShape", 500, 3000, 40, 12, 0, Color.BLUE, Color.BLUE, "Ciao", 12));
+        return shapes;
+    }
+
+    private File writeFile(List<ShapeData> shapes) throws IOException {
+        File file = File.createTempFile("mapped", ".bin");
+        file.deleteOnExit();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            BinaryDrawingFormat.write(shapes, out);
+        }
+        return file;
+    }
+
+    @Test
+    public void testRandomAccessMatchesSequentialRead() throws IOException {
+        List<ShapeData> shapes = sampleShapes();
+        try (MappedDrawing drawing = MappedDrawing.open(writeFile(shapes))) {
+            assertTrue(drawing.hasIndex());
+            assertEquals(shapes.size(), drawing.size());
+            assertEquals(shapes.get(101), drawing.read(101));
+            assertEquals(shapes.get(37), drawing.read(37));
+            assertArrayEquals(shapes.get(100).getPolygonCoordinates(),
+                    drawing.read(100).getPolygonCoordinates());
+            assertEquals(shapes, drawing.readAll().getShapes());
+        }
+    }
+
+    @Test
+    public void testQueryReturnsIntersectingShapesInFileOrder() throws IOException {
+        try (MappedDrawing drawing = MappedDrawing.open(writeFile(sampleShapes()))) {
+            // prime due righe, prime tre colonne
+            assertArrayEquals(new int[]{0, 1, 2, 10, 11, 12}, drawing.query(0, 0, 250, 150));
+            assertArrayEquals(new int[]{100}, drawing.query(2040, 2040, 2060, 2060));
+            // il testo si estende sopra la baseline
+            assertArrayEquals(new int[]{101}, drawing.query(510, 2992, 520, 2995));
+            assertEquals(0, drawing.query(5000, 5000, 6000, 6000).length);
+
+            float[] bounds = drawing.getBounds(11);
+            assertTrue(bounds[0] <= 100 && bounds[2] >= 120);
+        }
+    }
+
+    @Test
+    public void testOtherVersionsAreRejected() throws IOException {
+        File file = writeFile(sampleShapes());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.writeShort(BinaryDrawingFormat.VERSION + 1);
+        }
+        assertFalse(BinaryDrawingFormat.isValidFile(file));
+        assertNull(BinaryDrawingFormat.readLayout(file));
+        assertThrows(IOException.class, () -> MappedDrawing.open(file));
+    }
+
+    @Test
+    public void testCorruptedLengthsFailWithoutExhaustingMemory() throws IOException {
+        int polygon = BinaryDrawingFormat.HEADER_SIZE + 100 * BinaryDrawingFormat.FIXED_RECORD_SIZE;
+        int text = polygon + BinaryDrawingFormat.FIXED_RECORD_SIZE + 4 + 6 * 8;
+        // numero di coordinate, lunghezza del testo, numero di shape
+        long[] fields = {polygon + BinaryDrawingFormat.FIXED_RECORD_SIZE,
+            text + BinaryDrawingFormat.FIXED_RECORD_SIZE + 8, 6};
+        for (long field : fields) {
+            File file = writeFile(sampleShapes());
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(field);
+                raf.writeInt(Integer.MAX_VALUE - 1);
+            }
+            assertThrows(IOException.class, () -> {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+                    BinaryDrawingFormat.read(in);
+                }
+            });
+            assertThrows(IOException.class, () -> MappedDrawing.open(file).readAll());
+        }
+    }
+
+    @Test
+    public void testTruncatedFileIsRejected() throws IOException {
+        File file = writeFile(sampleShapes());
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 5);
+        }
+        assertThrows(IOException.class, () -> MappedDrawing.open(file));
+    }
+}
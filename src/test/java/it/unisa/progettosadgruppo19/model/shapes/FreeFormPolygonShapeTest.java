@@ -0,0 +1,107 @@
+package it.unisa.progettosadgruppo19.model.shapes;
+
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FreeFormPolygonShapeTest {
+
+    private FreeFormPolygonShape triangle() {
+        FreeFormPolygonShape shape = new FreeFormPolygonShape(0, 0, Color.BLACK);
+        shape.addPoint(40, 0);
+        shape.addPoint(20, 30);
+        return shape;
+    }
+
+    @Test
+    void testBoundsFromVertices() {
+        FreeFormPolygonShape shape = triangle();
+
+        assertEquals(0, shape.getX());
+        assertEquals(0, shape.getY());
+        assertEquals(40, shape.getWidth());
+        assertEquals(30, shape.getHeight());
+    }
+
+    @Test
+    void testTranslateInvalidatesBounds() {
+        FreeFormPolygonShape shape = triangle();
+        shape.getBounds();
+
+        shape.translate(10, 5);
+
+        assertEquals(10, shape.getX());
+        assertEquals(5, shape.getY());
+        assertEquals(50, shape.getBounds().getMaxX(), 1e-9);
+    }
+
+    @Test
+    void testSetAllPointsInvalidatesBounds() {
+        FreeFormPolygonShape shape = triangle();
+        shape.getWidth();
+
+        shape.setAllPoints(List.of(-10.0, -10.0, 10.0, -10.0, 0.0, 10.0));
+
+        assertEquals(-10, shape.getX());
+        assertEquals(-10, shape.getY());
+        assertEquals(20, shape.getWidth());
+        assertEquals(20, shape.getHeight());
+    }
+
+    @Test
+    void testRotationWidensBounds() {
+        FreeFormPolygonShape shape = triangle();
+        double width = shape.getBounds().getWidth();
+
+        shape.setRotation(45);
+
+        assertTrue(shape.getBounds().getWidth() > width);
+        assertEquals(40, shape.getWidth()); // la geometria non ruotata resta invariata
+    }
+
+    @Test
+    void testBufferGrowsAndStaysInSyncWithNode() {
+        FreeFormPolygonShape shape = new FreeFormPolygonShape(0, 0, Color.BLACK);
+        for (int i = 1; i < 100; i++) {
+            shape.addPoint(i, i * 2);
+        }
+        javafx.scene.shape.Polygon node = (javafx.scene.shape.Polygon) shape.getNode();
+
+        assertEquals(100, shape.getVertexCount());
+        assertEquals(200, node.getPoints().size());
+        assertEquals(198.0, shape.getCoordinate(199));
+        assertTrue(shape.isValid());
+    }
+
+    @Test
+    void testVertexEditingUpdatesBufferAndNode() {
+        FreeFormPolygonShape shape = triangle();
+        javafx.scene.shape.Polygon node = (javafx.scene.shape.Polygon) shape.getNode();
+
+        assertTrue(shape.setVertex(1, 50, 0));
+        assertTrue(shape.insertVertex(2, 10, 40));
+        assertEquals(4, shape.getVertexCount());
+        assertEquals(50, shape.getWidth());
+        assertEquals(40, shape.getHeight());
+
+        assertTrue(shape.removeVertex(3));
+        assertEquals(List.of(0.0, 0.0, 50.0, 0.0, 20.0, 30.0), shape.getPoints());
+        assertEquals(shape.getPoints(), node.getPoints());
+        assertThrows(UnsupportedOperationException.class, () -> shape.getPoints().add(1.0));
+    }
+
+    @Test
+    void testOddCoordinateCountIsRejected() {
+        FreeFormPolygonShape shape = triangle();
+
+        shape.setAllPoints(new double[]{0, 0, 10, 0, 10, 10, 5}, 7);
+        assertEquals(3, shape.getVertexCount());
+        assertEquals(List.of(0.0, 0.0, 40.0, 0.0, 20.0, 30.0), shape.getPoints());
+
+        shape.setPointsFromString("0,0,10,0,10,10,5");
+        assertEquals(6, shape.getCoordinateCount());
+    }
+}
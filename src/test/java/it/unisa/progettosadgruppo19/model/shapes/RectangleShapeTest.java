@@ -62,4 +62,22 @@ public class RectangleShapeTest {
         assertTrue(shape.contains(20, 30));
         assertFalse(shape.contains(5, 15));
     }
+
+    @Test
+    void testBoundsFollowDragAndRotation() {
+        RectangleShape shape = new RectangleShape(10, 20, Color.BLACK);
+        shape.onDrag(30, 30); // 20x10
+
+        javafx.geometry.Bounds bounds = shape.getBounds();
+        assertEquals(10, bounds.getMinX(), 1e-9);
+        assertEquals(30, bounds.getMaxX(), 1e-9);
+        assertSame(bounds, shape.getBounds()); // valore in cache
+
+        shape.setRotation(90);
+        bounds = shape.getBounds();
+        assertEquals(15, bounds.getMinX(), 1e-9);
+        assertEquals(25, bounds.getMaxX(), 1e-9);
+        assertEquals(15, bounds.getMinY(), 1e-9);
+        assertEquals(35, bounds.getMaxY(), 1e-9);
+    }
 }
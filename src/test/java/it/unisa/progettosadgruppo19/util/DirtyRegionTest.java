@@ -0,0 +1,55 @@
+package it.unisa.progettosadgruppo19.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DirtyRegionTest {
+
+    @Test
+    public void testOverlappingRectanglesAreMerged() {
+        DirtyRegion region = new DirtyRegion(8);
+        region.add(0, 0, 10, 10);
+        region.add(5, 5, 20, 20);
+        region.add(100, 100, 110, 110);
+
+        assertEquals(2, region.getRegions().size());
+        assertArrayEquals(new double[]{0, 0, 20, 20}, region.getRegions().get(0), 1e-9);
+    }
+
+    @Test
+    public void testChainedMergeAbsorbsBridgedRegions() {
+        DirtyRegion region = new DirtyRegion(8);
+        region.add(0, 0, 10, 10);
+        region.add(20, 0, 30, 10);
+        region.add(5, 0, 25, 10); // unisce le due precedenti
+
+        assertEquals(1, region.getRegions().size());
+        assertArrayEquals(new double[]{0, 0, 30, 10}, region.getBounds(), 1e-9);
+    }
+
+    @Test
+    public void testCollapsesToUnionBeyondLimit() {
+        DirtyRegion region = new DirtyRegion(3);
+        for (int i = 0; i < 4; i++) {
+            region.add(i * 100, 0, i * 100 + 10, 10);
+        }
+
+        assertEquals(1, region.getRegions().size());
+        assertArrayEquals(new double[]{0, 0, 310, 10}, region.getBounds(), 1e-9);
+    }
+
+    @Test
+    public void testEmptyAndInvalidRectanglesIgnored() {
+        DirtyRegion region = new DirtyRegion(4);
+        region.add(10, 10, 10, 20);
+        region.add(0, 0, Double.NaN, 5);
+        region.add(0, 0, Double.POSITIVE_INFINITY, 5);
+
+        assertTrue(region.isEmpty());
+        assertNull(region.getBounds());
+        region.add(0, 0, 1, 1);
+        region.clear();
+        assertTrue(region.isEmpty());
+    }
+}
@@ -0,0 +1,58 @@
+package it.unisa.progettosadgruppo19.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GeometryUtilsTest {
+
+    private static final List<Double> SQUARE_LIST = List.of(0.0, 0.0, 10.0, 0.0, 10.0, 10.0, 0.0, 10.0);
+    private static final double[] SQUARE = {0, 0, 10, 0, 10, 10, 0, 10, 99, 99};
+    private static final int SQUARE_LENGTH = 8; // le ultime coordinate sono spazio libero del buffer
+
+    @Test
+    public void testArrayOverloadsMatchListVersions() {
+        assertEquals(GeometryUtils.calculatePolygonArea(SQUARE_LIST),
+                GeometryUtils.calculatePolygonArea(SQUARE, SQUARE_LENGTH), 1e-9);
+        assertEquals(GeometryUtils.calculatePolygonPerimeter(SQUARE_LIST),
+                GeometryUtils.calculatePolygonPerimeter(SQUARE, SQUARE_LENGTH), 1e-9);
+        assertEquals(GeometryUtils.isPolygonConvex(SQUARE_LIST),
+                GeometryUtils.isPolygonConvex(SQUARE, SQUARE_LENGTH));
+        assertArrayEquals(GeometryUtils.calculateBoundingBox(SQUARE_LIST),
+                GeometryUtils.calculateBoundingBox(SQUARE, SQUARE_LENGTH), 1e-9);
+
+        for (double[] p : new double[][]{{5, 5}, {11, 5}, {-1, -1}, {9.9, 0.1}}) {
+            assertEquals(GeometryUtils.isPointInPolygon(p[0], p[1], SQUARE_LIST),
+                    GeometryUtils.isPointInPolygon(p[0], p[1], SQUARE, SQUARE_LENGTH));
+            assertEquals(GeometryUtils.isNearPolygonBorder(p[0], p[1], SQUARE_LIST, 2),
+                    GeometryUtils.isNearPolygonBorder(p[0], p[1], SQUARE, SQUARE_LENGTH, 2));
+        }
+    }
+
+    @Test
+    public void testBoundingBoxWithNegativeCoordinates() {
+        List<Double> points = List.of(-10.0, -5.0, -2.0, -1.0);
+        assertArrayEquals(new double[]{-10, -5, -2, -1}, GeometryUtils.calculateBoundingBox(points), 1e-9);
+    }
+
+    @Test
+    public void testInPlaceKernels() {
+        double[] coords = {0, 0, 10, 10};
+        GeometryUtils.translate(coords, coords.length, 5, -5);
+        assertArrayEquals(new double[]{5, -5, 15, 5}, coords, 1e-9);
+
+        GeometryUtils.scale(coords, coords.length, 10, 0, 2, 2);
+        assertArrayEquals(new double[]{0, -10, 20, 10}, coords, 1e-9);
+    }
+
+    @Test
+    public void testTrailingOddCoordinateIsIgnored() {
+        double[] odd = {0, 0, 10, 0, 10, 10, 0, 10, 5};
+        assertEquals(100, GeometryUtils.calculatePolygonArea(odd, odd.length), 1e-9);
+        assertEquals(40, GeometryUtils.calculatePolygonPerimeter(odd, odd.length), 1e-9);
+        assertTrue(GeometryUtils.isPointInPolygon(5, 5, odd, odd.length));
+        assertFalse(GeometryUtils.isNearPolygonBorder(5, 5, odd, odd.length, 1));
+    }
+}
@@ -0,0 +1,99 @@
+package it.unisa.progettosadgruppo19.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LogTest {
+
+    private Consumer<Log.Entry> previousWriter;
+
+    @AfterEach
+    void tearDown() {
+        Log.configure(null);
+        if (previousWriter != null) {
+            Log.setWriter(previousWriter);
+        }
+    }
+
+    @Test
+    public void testLevelsArePerPackage() {
+        Log.configure("ERROR,app.view=DEBUG,app.view.canvas=WARN");
+
+        assertTrue(Log.get("app.view.Editor").isEnabled(Log.Level.DEBUG));
+        assertFalse(Log.get("app.view.canvas.Renderer").isEnabled(Log.Level.INFO));
+        assertTrue(Log.get("app.view.canvas.Renderer").isEnabled(Log.Level.WARN));
+        // "app.viewer" non è un sottopacchetto di "app.view"
+        assertFalse(Log.get("app.viewer.Panel").isEnabled(Log.Level.WARN));
+
+        Log.setLevel("app.viewer", Log.Level.TRACE);
+        assertTrue(Log.get("app.viewer.Panel").isEnabled(Log.Level.TRACE));
+
+        Log.configure(null);
+        assertEquals(Log.DEFAULT_LEVEL, Log.get("app.view.Editor").getLevel());
+    }
+
+    @Test
+    public void testDisabledMessagesAreNotBuilt() {
+        Log.configure("WARN");
+        int[] built = {0};
+        Log.get("app.Hot").debug(() -> "messaggio " + ++built[0]);
+        assertEquals(0, built[0]);
+    }
+
+    @Test
+    public void testMessagesAreWrittenInOrderByBackgroundThread() throws InterruptedException {
+        List<Log.Entry> entries = Collections.synchronizedList(new ArrayList<>());
+        previousWriter = Log.setWriter(entries::add);
+        Log.configure("app.Producer=DEBUG");
+
+        Thread[] producers = new Thread[4];
+        for (int p = 0; p < producers.length; p++) {
+            String id = "t" + p;
+            producers[p] = new Thread(() -> {
+                Log log = Log.get("app.Producer");
+                for (int i = 0; i < 500; i++) {
+                    int n = i;
+                    log.debug(() -> id + ":" + n);
+                }
+            });
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        Log.flush();
+
+        assertEquals(2000, entries.size());
+        int[] next = new int[producers.length];
+        for (Log.Entry entry : entries) {
+            String[] parts = entry.message.split(":");
+            int producer = parts[0].charAt(1) - '0';
+            assertEquals(next[producer]++, Integer.parseInt(parts[1]));
+        }
+    }
+
+    @Test
+    public void testFullBufferDropsInsteadOfBlocking() {
+        LogRingBuffer<Integer> buffer = new LogRingBuffer<>(4);
+        for (int i = 0; i < 6; i++) {
+            assertEquals(i < 4, buffer.offer(i));
+        }
+        assertEquals(2, buffer.takeDropped());
+        assertEquals(0, buffer.takeDropped());
+
+        assertEquals(0, buffer.poll());
+        assertTrue(buffer.offer(4));
+        for (int expected = 1; expected <= 4; expected++) {
+            assertEquals(expected, buffer.poll());
+        }
+        assertNull(buffer.poll());
+        assertTrue(buffer.isEmpty());
+    }
+}
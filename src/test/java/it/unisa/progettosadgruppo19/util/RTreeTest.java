@@ -0,0 +1,73 @@
+package it.unisa.progettosadgruppo19.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RTreeTest {
+
+    @Test
+    public void testSearchReturnsOnlyIntersectingItems() {
+        RTree<String> tree = new RTree<>();
+        tree.insert("a", 0, 0, 10, 10);
+        tree.insert("b", 20, 20, 30, 30);
+        tree.insert("c", 5, 5, 25, 25);
+
+        List<String> hits = tree.search(1, 1, 2, 2);
+        assertEquals(Set.of("a"), new HashSet<>(hits));
+
+        hits = tree.search(21, 21, 22, 22);
+        assertEquals(Set.of("b", "c"), new HashSet<>(hits));
+    }
+
+    @Test
+    public void testUpdateAndRemove() {
+        RTree<String> tree = new RTree<>();
+        tree.insert("a", 0, 0, 10, 10);
+        tree.update("a", 100, 100, 110, 110);
+
+        assertTrue(tree.search(1, 1, 2, 2).isEmpty());
+        assertEquals(List.of("a"), tree.search(105, 105, 105, 105));
+
+        assertTrue(tree.remove("a"));
+        assertFalse(tree.remove("a"));
+        assertEquals(0, tree.size());
+        assertTrue(tree.search(105, 105, 105, 105).isEmpty());
+    }
+
+    @Test
+    public void testManyItemsMatchLinearScan() {
+        // L'indice lavora per identità: le chiavi vanno riutilizzate, non ri-boxate
+        RTree<Integer> tree = new RTree<>();
+        Integer[] keys = new Integer[2000];
+        double[][] boxes = new double[keys.length][];
+        java.util.Random random = new java.util.Random(19);
+        for (int i = 0; i < boxes.length; i++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            boxes[i] = new double[]{x, y, x + random.nextDouble() * 50, y + random.nextDouble() * 50};
+            keys[i] = Integer.valueOf(i);
+            tree.insert(keys[i], boxes[i][0], boxes[i][1], boxes[i][2], boxes[i][3]);
+        }
+        for (int i = 0; i < boxes.length; i += 3) {
+            assertTrue(tree.remove(keys[i]));
+        }
+
+        for (int q = 0; q < 50; q++) {
+            double x = random.nextDouble() * 1000;
+            double y = random.nextDouble() * 1000;
+            Set<Integer> expected = new HashSet<>();
+            for (int i = 0; i < boxes.length; i++) {
+                if (i % 3 != 0 && boxes[i][0] <= x + 20 && boxes[i][2] >= x
+                        && boxes[i][1] <= y + 20 && boxes[i][3] >= y) {
+                    expected.add(i);
+                }
+            }
+            assertEquals(expected, new HashSet<>(tree.search(x, y, x + 20, y + 20)));
+        }
+    }
+}